@@ -0,0 +1,147 @@
+package bms.alerts;
+
+import bms.room.Room;
+import bms.room.RoomState;
+
+/**
+ * Change in whether a room meets an {@link AlertRule}, sent to the sinks
+ * of the {@link AlertManager}.
+ *
+ * @ass2
+ */
+public class Alert {
+
+    /**
+     * Rule met or no longer met
+     */
+    private final AlertRule rule;
+
+    /**
+     * Room the rule applies to
+     */
+    private final Room room;
+
+    /**
+     * Whether the rule was raised or cleared
+     */
+    private final AlertStatus status;
+
+    /**
+     * Minute of the alert manager at which the alert was made
+     */
+    private final int minute;
+
+    /**
+     * Hazard level of the room when the alert was made
+     */
+    private final int hazardLevel;
+
+    /**
+     * State of the room when the alert was made
+     */
+    private final RoomState state;
+
+    /**
+     * Creates a new alert.
+     *
+     * @param rule rule met or no longer met
+     * @param room room the rule applies to
+     * @param status whether the rule was raised or cleared
+     * @param minute minute at which the alert was made
+     * @param hazardLevel hazard level of the room
+     * @param state state of the room
+     * @ass2
+     */
+    public Alert(AlertRule rule, Room room, AlertStatus status, int minute,
+                 int hazardLevel, RoomState state) {
+        this.rule = rule;
+        this.room = room;
+        this.status = status;
+        this.minute = minute;
+        this.hazardLevel = hazardLevel;
+        this.state = state;
+    }
+
+    /**
+     * Returns the rule met or no longer met by the room.
+     *
+     * @return rule
+     * @ass2
+     */
+    public AlertRule getRule() {
+        return this.rule;
+    }
+
+    /**
+     * Returns the room the rule applies to.
+     *
+     * @return room
+     * @ass2
+     */
+    public Room getRoom() {
+        return this.room;
+    }
+
+    /**
+     * Returns whether the rule was raised or cleared.
+     *
+     * @return alert status
+     * @ass2
+     */
+    public AlertStatus getStatus() {
+        return this.status;
+    }
+
+    /**
+     * Returns the minute of the alert manager at which the alert was made.
+     *
+     * @return minute of the alert
+     * @ass2
+     */
+    public int getMinute() {
+        return this.minute;
+    }
+
+    /**
+     * Returns the hazard level of the room when the alert was made.
+     *
+     * @return hazard level, from 0 to 100
+     * @ass2
+     */
+    public int getHazardLevel() {
+        return this.hazardLevel;
+    }
+
+    /**
+     * Returns the state of the room when the alert was made.
+     *
+     * @return room state
+     * @ass2
+     */
+    public RoomState getState() {
+        return this.state;
+    }
+
+    /**
+     * Returns the human-readable string representation of this alert.
+     * <p>
+     * The format of the string to return is
+     * "Alert: status='status', rule='rule', room=#'roomNumber',
+     * minute='minute', hazard='hazardLevel', state='state'"
+     * without the single quotes, where 'rule' is the rule's name.
+     * <p>
+     * For example: "Alert: status=RAISED, rule=hazard>=75 for 5 minutes,
+     * room=#101, minute=42, hazard=80, state=OPEN"
+     *
+     * @return string representation of this alert
+     * @ass2
+     */
+    @Override
+    public String toString() {
+        return String.format(
+                "Alert: status=%s, rule=%s, room=#%d, minute=%d, hazard=%d, "
+                        + "state=%s",
+                this.status, this.rule.getName(), this.room.getRoomNumber(),
+                this.minute, this.hazardLevel, this.state);
+    }
+}
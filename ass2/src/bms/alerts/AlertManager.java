@@ -0,0 +1,848 @@
+package bms.alerts;
+
+import bms.hazardevaluation.HazardListener;
+import bms.hazardevaluation.HazardMonitor;
+import bms.room.Room;
+import bms.room.RoomState;
+import bms.util.DeferredAction;
+import bms.util.TimedItem;
+import bms.util.TimedItemManager;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Singleton class which raises and clears alerts as the rooms tracked by
+ * a {@link HazardMonitor} meet and stop meeting alert rules, and hands the
+ * alerts to sinks such as a log file.
+ * <p>
+ * Rules are only checked for a room when the monitor reports a change in
+ * its hazard level or state, later in the same minute. A rule met by a
+ * room is raised once the room has met it for the rule's debounce time;
+ * a room which stops meeting the rule before then raises nothing. Rules
+ * waiting out their debounce time are kept in one queue per rule, in
+ * order of the minute they are due, so the manager sleeps until the next
+ * one is due or a room changes. Raised rules are cleared according to
+ * their hysteresis, see {@link AlertRule#isCleared(int, RoomState)}.
+ * <p>
+ * Each sink is given alerts through a bounded queue by a thread of its
+ * own, so delivering alerts never holds up the minute being run. Alerts
+ * made while a sink's queue is full are dropped for that sink and
+ * counted.
+ * @ass2
+ */
+public class AlertManager implements TimedItem, HazardListener {
+
+    /**
+     * Singleton instance.
+     */
+    private static AlertManager instance =
+            new AlertManager(HazardMonitor.getInstance());
+
+    /**
+     * Monitor whose rooms are checked against the rules
+     */
+    private final HazardMonitor monitor;
+
+    /**
+     * Handle of each room reported by the monitor
+     */
+    private final Map<Room, Integer> handles;
+
+    /**
+     * Rooms reported by the monitor, indexed by handle. Null for unused
+     * handles.
+     */
+    private Room[] rooms;
+
+    /**
+     * Handles released by rooms no longer tracked, ready for reuse
+     */
+    private int[] freeHandles;
+
+    /**
+     * Number of handles in freeHandles
+     */
+    private int freeCount;
+
+    /**
+     * Number of handles ever handed out
+     */
+    private int count;
+
+    /**
+     * Whether each room has changed since the rules were last checked,
+     * indexed by handle
+     */
+    private boolean[] changed;
+
+    /**
+     * Handles of the rooms changed since the rules were last checked
+     */
+    private int[] changedHandles;
+
+    /**
+     * Number of handles in changedHandles
+     */
+    private int changedCount;
+
+    /**
+     * State of each rule, in the order the rules were added
+     */
+    private final List<RuleState> rules;
+
+    /**
+     * Workers delivering alerts to each sink
+     */
+    private SinkWorker[] workers;
+
+    /**
+     * Minutes elapsed since the manager was created
+     */
+    private int minute;
+
+    /**
+     * Number of alerts made
+     */
+    private long alertCount;
+
+    /**
+     * Records a change once timed items running in parallel have
+     * finished, as the rooms changed are shared by every monitor
+     */
+    private final DeferredAction deferredChange;
+
+    /**
+     * Creates a new alert manager with no rules or sinks, checking the
+     * rooms tracked by the given monitor.
+     * <p>
+     * The manager listens to the monitor, see
+     * {@link HazardMonitor#addListener(HazardListener)}, and is registered
+     * as a timed item, see
+     * {@link TimedItemManager#registerTimedItem(TimedItem)}.
+     *
+     * @param monitor monitor whose rooms are checked
+     * @ass2
+     */
+    public AlertManager(HazardMonitor monitor) {
+        this.monitor = monitor;
+        this.handles = new IdentityHashMap<>();
+        this.rooms = new Room[0];
+        this.freeHandles = new int[0];
+        this.changed = new boolean[0];
+        this.changedHandles = new int[0];
+        this.rules = new ArrayList<>();
+        this.workers = new SinkWorker[0];
+        this.deferredChange = (room, argument) -> this.markChanged(
+                (Room) room);
+        monitor.addListener(this);
+        TimedItemManager.getInstance().registerTimedItem(this);
+    }
+
+    /**
+     * Returns the singleton instance of the alert manager, which checks
+     * the rooms of {@link HazardMonitor#getInstance()}.
+     *
+     * @return singleton instance
+     * @ass2
+     */
+    public static AlertManager getInstance() {
+        return instance;
+    }
+
+    /**
+     * Adds a rule to check rooms against. Rooms already reported by the
+     * monitor are checked later in the current minute.
+     * <p>
+     * The levels of hazard level rules are added to the monitor's
+     * thresholds, so that rooms crossing them are noticed straight away,
+     * see {@link HazardMonitor#addThreshold(int)}.
+     *
+     * @param rule rule to add
+     * @ass2
+     */
+    public void addRule(AlertRule rule) {
+        if (rule instanceof HazardLevelRule) {
+            HazardLevelRule levelRule = (HazardLevelRule) rule;
+            this.monitor.addThreshold(levelRule.getLevel());
+            this.monitor.addThreshold(levelRule.getClearLevel());
+        }
+        this.rules.add(new RuleState(rule, this.rooms.length));
+        for (int handle = 0; handle < this.count; handle++) {
+            if (this.rooms[handle] != null) {
+                this.markChanged(handle);
+            }
+        }
+    }
+
+    /**
+     * Returns the rules rooms are checked against, in the order they were
+     * added.
+     *
+     * @return list of rules
+     * @ass2
+     */
+    public List<AlertRule> getRules() {
+        List<AlertRule> rules = new ArrayList<>(this.rules.size());
+        for (RuleState state : this.rules) {
+            rules.add(state.rule);
+        }
+        return rules;
+    }
+
+    /**
+     * Returns whether the given rule is raised for the given room.
+     *
+     * @param rule rule added to the manager
+     * @param room room to check
+     * @return true if an alert raising the rule was made for the room and
+     * the rule has not been cleared since
+     * @throws IllegalArgumentException if the rule was not added
+     * @ass2
+     */
+    public boolean isRaised(AlertRule rule, Room room) {
+        RuleState state = this.stateOf(rule);
+        Integer handle = this.handles.get(room);
+        return handle != null && state.raised[handle];
+    }
+
+    /**
+     * Starts handing alerts to the given sink on a thread of its own, with
+     * up to the given number of alerts waiting to be delivered.
+     *
+     * @param sink sink to add
+     * @param capacity number of alerts that may wait for the sink
+     * @throws IllegalArgumentException if capacity is less than 1
+     * @ass2
+     */
+    public void addSink(AlertSink sink, int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException(
+                    "Capacity must be at least 1");
+        }
+        SinkWorker[] added = Arrays.copyOf(this.workers,
+                this.workers.length + 1);
+        added[added.length - 1] = new SinkWorker(sink, capacity);
+        this.workers = added;
+    }
+
+    /**
+     * Stops handing alerts to the given sink and closes it once its thread
+     * stops, see {@link AlertSink#close()}. Alerts not yet delivered to
+     * the sink are discarded. Does nothing if the sink was not added.
+     *
+     * @param sink sink to remove
+     * @ass2
+     */
+    public void removeSink(AlertSink sink) {
+        for (int i = 0; i < this.workers.length; i++) {
+            if (this.workers[i].sink == sink) {
+                this.workers[i].stop();
+                SinkWorker[] remaining =
+                        new SinkWorker[this.workers.length - 1];
+                System.arraycopy(this.workers, 0, remaining, 0, i);
+                System.arraycopy(this.workers, i + 1, remaining, i,
+                        remaining.length - i);
+                this.workers = remaining;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Waits until every sink has been given the alerts made so far, or
+     * until the given time has passed.
+     *
+     * @param timeoutMillis longest time to wait, in milliseconds
+     * @return true if every alert was given to its sinks in time
+     * @throws InterruptedException if interrupted while waiting
+     * @ass2
+     */
+    public boolean awaitDelivery(long timeoutMillis)
+            throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        for (SinkWorker worker : this.workers) {
+            if (!worker.awaitDelivery(deadline)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the number of alerts made so far.
+     *
+     * @return number of alerts
+     * @ass2
+     */
+    public long getAlertCount() {
+        return this.alertCount;
+    }
+
+    /**
+     * Returns the number of alerts dropped because the queue of a sink
+     * was full, summed over the sinks currently added.
+     *
+     * @return number of alerts dropped
+     * @ass2
+     */
+    public long getDroppedCount() {
+        long dropped = 0;
+        for (SinkWorker worker : this.workers) {
+            dropped += worker.getDropped();
+        }
+        return dropped;
+    }
+
+    /**
+     * Returns the number of alerts which sinks failed to deliver, summed
+     * over the sinks currently added.
+     *
+     * @return number of failed deliveries
+     * @ass2
+     */
+    public long getFailedCount() {
+        long failed = 0;
+        for (SinkWorker worker : this.workers) {
+            failed += worker.getFailed();
+        }
+        return failed;
+    }
+
+    /**
+     * Records that the hazard level or state of the given room changed, to
+     * be checked against the rules later in the current minute.
+     *
+     * @param room room evaluated
+     * @param previousLevel the room's hazard level at its last evaluation
+     * @param previousState the room's state at its last evaluation
+     * @ass2
+     */
+    @Override
+    public void hazardChanged(Room room, int previousLevel,
+                              RoomState previousState) {
+        if (!TimedItemManager.defer(this.deferredChange, room, 0)) {
+            this.markChanged(room);
+        }
+    }
+
+    /**
+     * Forgets the given room, without clearing the rules raised for it.
+     *
+     * @param room room no longer tracked
+     * @ass2
+     */
+    @Override
+    public void roomUntracked(Room room) {
+        Integer handle = this.handles.remove(room);
+        if (handle == null) {
+            return;
+        }
+        this.rooms[handle] = null;
+        for (RuleState state : this.rules) {
+            state.raised[handle] = false;
+            state.dueMinutes[handle] = -1;
+        }
+        if (this.freeCount == this.freeHandles.length) {
+            this.freeHandles = Arrays.copyOf(this.freeHandles,
+                    Math.max(16, this.freeCount * 2));
+        }
+        this.freeHandles[this.freeCount++] = handle;
+    }
+
+    /**
+     * Advances the manager's clock by one minute, checks the rooms changed
+     * against every rule, and then raises the rules whose debounce time
+     * has passed.
+     * @ass2
+     */
+    @Override
+    public void elapseOneMinute() {
+        this.minute++;
+        for (int i = 0; i < this.changedCount; i++) {
+            int handle = this.changedHandles[i];
+            this.changed[handle] = false;
+            Room room = this.rooms[handle];
+            if (room == null || !this.monitor.isTracked(room)) {
+                continue;
+            }
+            int level = this.monitor.getHazardLevel(room);
+            RoomState state = this.monitor.getRoomState(room);
+            for (int j = 0; j < this.rules.size(); j++) {
+                this.check(this.rules.get(j), handle, level, state);
+            }
+        }
+        this.changedCount = 0;
+        for (int j = 0; j < this.rules.size(); j++) {
+            this.raiseDue(this.rules.get(j));
+        }
+    }
+
+    /**
+     * Returns one if rooms have changed since the rules were last checked,
+     * otherwise the number of minutes until the debounce time of a rule
+     * next passes, or {@link Integer#MAX_VALUE} if no rule is waiting.
+     *
+     * @return minutes until the manager next changes
+     * @ass2
+     */
+    @Override
+    public int getMinutesUntilNextChange() {
+        if (this.changedCount > 0) {
+            return 1;
+        }
+        int delay = Integer.MAX_VALUE;
+        for (int j = 0; j < this.rules.size(); j++) {
+            RuleState state = this.rules.get(j);
+            if (state.queued > 0) {
+                delay = Math.min(delay, Math.max(1,
+                        state.queueMinutes[state.queueHead] - this.minute));
+            }
+        }
+        return delay;
+    }
+
+    /**
+     * Advances the manager's clock by the given number of minutes. The
+     * manager is only asleep while no room has changed and no debounce
+     * time passes, so only the last minute is run.
+     *
+     * @param minutes number of minutes elapsed
+     * @ass2
+     */
+    @Override
+    public void elapseMinutes(int minutes) {
+        this.minute += minutes - 1;
+        this.elapseOneMinute();
+    }
+
+    /**
+     * Records that the given room changed, giving it a handle if it has
+     * none.
+     *
+     * @param room room changed
+     */
+    private void markChanged(Room room) {
+        Integer handle = this.handles.get(room);
+        if (handle == null) {
+            handle = this.allocate(room);
+        }
+        this.markChanged(handle);
+    }
+
+    /**
+     * Records that the room with the given handle changed, and has the
+     * manager run later in the current minute.
+     *
+     * @param handle handle of the room
+     */
+    private void markChanged(int handle) {
+        if (this.changed[handle]) {
+            return;
+        }
+        this.changed[handle] = true;
+        if (this.changedCount == this.changedHandles.length) {
+            this.changedHandles = Arrays.copyOf(this.changedHandles,
+                    Math.max(16, this.changedCount * 2));
+        }
+        this.changedHandles[this.changedCount++] = handle;
+        TimedItemManager.getInstance().wakeLater(this);
+    }
+
+    /**
+     * Gives the given room a handle, reusing a released handle if there is
+     * one.
+     *
+     * @param room room to give a handle
+     * @return handle of the room
+     */
+    private int allocate(Room room) {
+        int handle;
+        if (this.freeCount > 0) {
+            handle = this.freeHandles[--this.freeCount];
+        } else {
+            handle = this.count++;
+            if (handle == this.rooms.length) {
+                int capacity = Math.max(16, handle * 2);
+                this.rooms = Arrays.copyOf(this.rooms, capacity);
+                this.changed = Arrays.copyOf(this.changed, capacity);
+                for (RuleState state : this.rules) {
+                    state.grow(capacity);
+                }
+            }
+        }
+        this.rooms[handle] = room;
+        this.handles.put(room, handle);
+        return handle;
+    }
+
+    /**
+     * Checks the room with the given handle against a rule, clearing the
+     * rule if it was raised and the room is cleared of it, or starting or
+     * stopping its debounce time otherwise.
+     *
+     * @param state state of the rule
+     * @param handle handle of the room
+     * @param level hazard level of the room
+     * @param roomState state of the room
+     */
+    private void check(RuleState state, int handle, int level,
+                       RoomState roomState) {
+        AlertRule rule = state.rule;
+        if (state.raised[handle]) {
+            if (rule.isCleared(level, roomState)) {
+                state.raised[handle] = false;
+                this.alert(rule, handle, AlertStatus.CLEARED, level,
+                        roomState);
+            }
+        } else if (rule.isMet(level, roomState)) {
+            if (state.dueMinutes[handle] >= 0) {
+                return;
+            }
+            if (rule.getDebounceMinutes() == 0) {
+                state.raised[handle] = true;
+                this.alert(rule, handle, AlertStatus.RAISED, level,
+                        roomState);
+            } else {
+                state.enqueue(handle,
+                        this.minute + rule.getDebounceMinutes());
+            }
+        } else {
+            state.dueMinutes[handle] = -1;
+        }
+    }
+
+    /**
+     * Raises the given rule for every room whose debounce time has passed
+     * and which still meets the rule.
+     *
+     * @param state state of the rule
+     */
+    private void raiseDue(RuleState state) {
+        while (state.queued > 0
+                && state.queueMinutes[state.queueHead] <= this.minute) {
+            int handle = state.queueHandles[state.queueHead];
+            int due = state.queueMinutes[state.queueHead];
+            state.queueHead = (state.queueHead + 1)
+                    % state.queueHandles.length;
+            state.queued--;
+            // rooms which stopped meeting the rule have left the queue
+            if (state.dueMinutes[handle] != due) {
+                continue;
+            }
+            state.dueMinutes[handle] = -1;
+            Room room = this.rooms[handle];
+            int level = this.monitor.getHazardLevel(room);
+            RoomState roomState = this.monitor.getRoomState(room);
+            if (state.rule.isMet(level, roomState)) {
+                state.raised[handle] = true;
+                this.alert(state.rule, handle, AlertStatus.RAISED, level,
+                        roomState);
+            }
+        }
+    }
+
+    /**
+     * Makes an alert and offers it to every sink.
+     *
+     * @param rule rule raised or cleared
+     * @param handle handle of the room
+     * @param status whether the rule was raised or cleared
+     * @param level hazard level of the room
+     * @param roomState state of the room
+     */
+    private void alert(AlertRule rule, int handle, AlertStatus status,
+                       int level, RoomState roomState) {
+        Alert alert = new Alert(rule, this.rooms[handle], status,
+                this.minute, level, roomState);
+        this.alertCount++;
+        for (SinkWorker worker : this.workers) {
+            worker.offer(alert);
+        }
+    }
+
+    /**
+     * Returns the state of the given rule.
+     *
+     * @param rule rule added to the manager
+     * @return state of the rule
+     * @throws IllegalArgumentException if the rule was not added
+     */
+    private RuleState stateOf(AlertRule rule) {
+        for (RuleState state : this.rules) {
+            if (state.rule == rule) {
+                return state;
+            }
+        }
+        throw new IllegalArgumentException("Rule not added: " + rule);
+    }
+
+    /**
+     * Whether a rule is raised for each room, and the rooms waiting out
+     * its debounce time.
+     */
+    private static class RuleState {
+
+        /**
+         * Rule checked
+         */
+        private final AlertRule rule;
+
+        /**
+         * Whether the rule is raised for each room, indexed by handle
+         */
+        private boolean[] raised;
+
+        /**
+         * Minute at which the debounce time of each room passes, or -1 if
+         * the room is not waiting, indexed by handle
+         */
+        private int[] dueMinutes;
+
+        /**
+         * Handles of the rooms waiting, as a circular buffer in order of
+         * the minute they are due
+         */
+        private int[] queueHandles;
+
+        /**
+         * Minute each room in the queue is due, indexed as in queueHandles
+         */
+        private int[] queueMinutes;
+
+        /**
+         * Index of the first room in the queue
+         */
+        private int queueHead;
+
+        /**
+         * Number of rooms in the queue
+         */
+        private int queued;
+
+        /**
+         * Creates the state of a rule raised for no rooms.
+         *
+         * @param rule rule checked
+         * @param capacity number of room handles
+         */
+        private RuleState(AlertRule rule, int capacity) {
+            this.rule = rule;
+            this.raised = new boolean[capacity];
+            this.dueMinutes = new int[capacity];
+            Arrays.fill(this.dueMinutes, -1);
+            this.queueHandles = new int[16];
+            this.queueMinutes = new int[16];
+        }
+
+        /**
+         * Grows the arrays indexed by handle to the given number of
+         * handles.
+         *
+         * @param capacity new number of handles
+         */
+        private void grow(int capacity) {
+            int old = this.dueMinutes.length;
+            this.raised = Arrays.copyOf(this.raised, capacity);
+            this.dueMinutes = Arrays.copyOf(this.dueMinutes, capacity);
+            Arrays.fill(this.dueMinutes, old, capacity, -1);
+        }
+
+        /**
+         * Adds a room to the back of the queue. Every rule has a single
+         * debounce time, so rooms are added in order of the minute they
+         * are due.
+         *
+         * @param handle handle of the room
+         * @param due minute at which the room's debounce time passes
+         */
+        private void enqueue(int handle, int due) {
+            if (this.queued == this.queueHandles.length) {
+                int[] handles = new int[this.queued * 2];
+                int[] minutes = new int[this.queued * 2];
+                for (int i = 0; i < this.queued; i++) {
+                    int index = (this.queueHead + i) % this.queued;
+                    handles[i] = this.queueHandles[index];
+                    minutes[i] = this.queueMinutes[index];
+                }
+                this.queueHandles = handles;
+                this.queueMinutes = minutes;
+                this.queueHead = 0;
+            }
+            int tail = (this.queueHead + this.queued)
+                    % this.queueHandles.length;
+            this.queueHandles[tail] = handle;
+            this.queueMinutes[tail] = due;
+            this.queued++;
+            this.dueMinutes[handle] = due;
+        }
+    }
+
+    /**
+     * Thread delivering alerts to a sink from a bounded queue.
+     */
+    private static class SinkWorker implements Runnable {
+
+        /**
+         * Sink alerts are delivered to
+         */
+        private final AlertSink sink;
+
+        /**
+         * Alerts waiting to be delivered
+         */
+        private final BlockingQueue<Alert> queue;
+
+        /**
+         * Thread delivering the alerts
+         */
+        private final Thread thread;
+
+        /**
+         * Number of alerts offered but not yet delivered or failed
+         */
+        private long undelivered;
+
+        /**
+         * Number of alerts dropped because the queue was full
+         */
+        private long dropped;
+
+        /**
+         * Number of alerts the sink failed to deliver
+         */
+        private long failed;
+
+        /**
+         * Whether the worker has been asked to stop
+         */
+        private volatile boolean stopped;
+
+        /**
+         * Creates a worker and starts its thread.
+         *
+         * @param sink sink alerts are delivered to
+         * @param capacity number of alerts that may wait
+         */
+        private SinkWorker(AlertSink sink, int capacity) {
+            this.sink = sink;
+            this.queue = new ArrayBlockingQueue<>(capacity);
+            this.thread = new Thread(this,
+                    "Alert sink " + sink.getClass().getSimpleName());
+            this.thread.setDaemon(true);
+            this.thread.start();
+        }
+
+        /**
+         * Adds an alert to the queue without waiting, dropping it if the
+         * queue is full.
+         *
+         * @param alert alert to deliver
+         */
+        private synchronized void offer(Alert alert) {
+            if (this.queue.offer(alert)) {
+                this.undelivered++;
+            } else {
+                this.dropped++;
+            }
+        }
+
+        /**
+         * Delivers alerts until stopped, then closes the sink.
+         */
+        @Override
+        public void run() {
+            try {
+                while (!this.stopped) {
+                    Alert alert = this.queue.take();
+                    boolean delivered;
+                    try {
+                        this.sink.deliver(alert);
+                        delivered = true;
+                    } catch (IOException | RuntimeException e) {
+                        // a faulty sink must not stop later deliveries
+                        delivered = false;
+                    }
+                    this.finished(delivered);
+                }
+            } catch (InterruptedException e) {
+                // stopped while waiting for an alert
+            } finally {
+                try {
+                    this.sink.close();
+                } catch (IOException e) {
+                    // nothing more is delivered to the sink
+                }
+            }
+        }
+
+        /**
+         * Records that an alert was delivered or failed, waking threads
+         * waiting for delivery once none are left.
+         *
+         * @param delivered whether the alert was delivered
+         */
+        private synchronized void finished(boolean delivered) {
+            if (!delivered) {
+                this.failed++;
+            }
+            this.undelivered--;
+            if (this.undelivered == 0) {
+                this.notifyAll();
+            }
+        }
+
+        /**
+         * Waits until every alert offered has been delivered or failed, or
+         * until the given time.
+         *
+         * @param deadline latest time to wait until, in milliseconds since
+         *                 the epoch
+         * @return true if no alerts are left to deliver
+         * @throws InterruptedException if interrupted while waiting
+         */
+        private synchronized boolean awaitDelivery(long deadline)
+                throws InterruptedException {
+            while (this.undelivered > 0) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    return false;
+                }
+                this.wait(remaining);
+            }
+            return true;
+        }
+
+        /**
+         * Returns the number of alerts dropped because the queue was full.
+         *
+         * @return number of alerts dropped
+         */
+        private synchronized long getDropped() {
+            return this.dropped;
+        }
+
+        /**
+         * Returns the number of alerts the sink failed to deliver.
+         *
+         * @return number of failed deliveries
+         */
+        private synchronized long getFailed() {
+            return this.failed;
+        }
+
+        /**
+         * Asks the thread to stop, discarding alerts not yet delivered.
+         */
+        private void stop() {
+            this.stopped = true;
+            this.thread.interrupt();
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package bms.alerts;
+
+import bms.room.RoomState;
+
+/**
+ * A condition on the hazard level and state of a room which raises an
+ * alert once a room has met it for long enough.
+ * <p>
+ * A rule is raised when a room has met it continuously for
+ * {@link #getDebounceMinutes()} minutes, and cleared once the room is
+ * {@link #isCleared(int, RoomState) cleared} of it. Levels and states
+ * which neither meet nor clear the rule leave it as it is, so a room
+ * hovering at the rule's level does not raise and clear it repeatedly.
+ * @ass2
+ */
+public interface AlertRule {
+    /**
+     * Returns the name of the rule, used in alerts.
+     *
+     * @return name of the rule
+     * @ass2
+     */
+    String getName();
+
+    /**
+     * Returns whether a room with the given hazard level and state meets
+     * the rule.
+     *
+     * @param hazardLevel hazard level of the room, from 0 to 100
+     * @param state state of the room
+     * @return true if the room meets the rule
+     * @ass2
+     */
+    boolean isMet(int hazardLevel, RoomState state);
+
+    /**
+     * Returns whether a raised rule is cleared for a room with the given
+     * hazard level and state. Must be false whenever
+     * {@link #isMet(int, RoomState)} is true.
+     *
+     * @param hazardLevel hazard level of the room, from 0 to 100
+     * @param state state of the room
+     * @return true if the rule is cleared for the room
+     * @ass2
+     */
+    boolean isCleared(int hazardLevel, RoomState state);
+
+    /**
+     * Returns the number of minutes a room must meet the rule before it is
+     * raised. Rules with no debounce are raised straight away.
+     *
+     * @return debounce time, in minutes
+     * @ass2
+     */
+    int getDebounceMinutes();
+}
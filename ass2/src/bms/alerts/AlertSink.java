@@ -0,0 +1,36 @@
+package bms.alerts;
+
+import java.io.IOException;
+
+/**
+ * Destination of the alerts made by the {@link AlertManager}, such as a
+ * log file.
+ * <p>
+ * Each sink is given alerts on a thread of its own, in the order they were
+ * made, so a slow sink never holds up the simulation or other sinks.
+ * @ass2
+ */
+public interface AlertSink {
+    /**
+     * Delivers an alert. Called on the sink's own thread.
+     *
+     * @param alert alert to deliver
+     * @throws IOException if the alert could not be delivered; the alert is
+     * counted as failed and the sink is given the next alert, as it is if
+     * the sink throws a runtime exception
+     * @ass2
+     */
+    void deliver(Alert alert) throws IOException;
+
+    /**
+     * Releases any resources held by the sink once it is removed from the
+     * alert manager.
+     * <p>
+     * By default, does nothing.
+     *
+     * @throws IOException if the resources could not be released
+     * @ass2
+     */
+    default void close() throws IOException {
+    }
+}
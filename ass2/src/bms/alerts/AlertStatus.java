@@ -0,0 +1,14 @@
+package bms.alerts;
+
+/**
+ * Enum to represent whether an alert reports a rule being met or no
+ * longer being met by a room.
+ *
+ * @ass2
+ */
+public enum AlertStatus {
+    /** The room has met the rule for as long as the rule requires. */
+    RAISED,
+    /** The room no longer meets the rule, beyond its hysteresis. */
+    CLEARED
+}
@@ -0,0 +1,143 @@
+package bms.alerts;
+
+import bms.room.RoomState;
+
+/**
+ * Alert rule met by rooms whose hazard level is at or above a given level.
+ * <p>
+ * The rule is cleared once the room's hazard level falls more than its
+ * hysteresis below the level.
+ * @ass2
+ */
+public class HazardLevelRule implements AlertRule {
+
+    /**
+     * Hazard level at or above which the rule is met
+     */
+    private final int level;
+
+    /**
+     * Hazard level below which a raised rule is cleared
+     */
+    private final int clearLevel;
+
+    /**
+     * Minutes a room must meet the rule before it is raised
+     */
+    private final int debounceMinutes;
+
+    /**
+     * Creates a new rule met by rooms at or above the given hazard level
+     * for the given number of minutes, and cleared once they fall below the
+     * level minus the hysteresis.
+     *
+     * @param level hazard level at or above which the rule is met
+     * @param hysteresis levels a room must fall below the level to clear
+     *                   the rule
+     * @param debounceMinutes minutes a room must meet the rule before it is
+     *                        raised
+     * @throws IllegalArgumentException if level is not from 1 to 100,
+     * hysteresis is negative or not less than level, or debounceMinutes is
+     * negative
+     * @ass2
+     */
+    public HazardLevelRule(int level, int hysteresis, int debounceMinutes) {
+        if (level < 1 || level > 100) {
+            throw new IllegalArgumentException(
+                    "Level must be from 1 to 100");
+        }
+        if (hysteresis < 0 || hysteresis >= level) {
+            throw new IllegalArgumentException(
+                    "Hysteresis must be from 0 to less than the level");
+        }
+        if (debounceMinutes < 0) {
+            throw new IllegalArgumentException(
+                    "Debounce time must not be negative");
+        }
+        this.level = level;
+        this.clearLevel = level - hysteresis;
+        this.debounceMinutes = debounceMinutes;
+    }
+
+    /**
+     * Returns the hazard level at or above which the rule is met.
+     *
+     * @return hazard level of the rule
+     * @ass2
+     */
+    public int getLevel() {
+        return this.level;
+    }
+
+    /**
+     * Returns the hazard level below which a raised rule is cleared.
+     *
+     * @return clearing hazard level
+     * @ass2
+     */
+    public int getClearLevel() {
+        return this.clearLevel;
+    }
+
+    /**
+     * Returns the name of the rule, "hazard>='level' for 'minutes' minutes"
+     * without the single quotes.
+     *
+     * @return name of the rule
+     * @ass2
+     */
+    @Override
+    public String getName() {
+        return String.format("hazard>=%d for %d minutes", this.level,
+                this.debounceMinutes);
+    }
+
+    /**
+     * Returns whether the hazard level is at or above the rule's level.
+     *
+     * @param hazardLevel hazard level of the room, from 0 to 100
+     * @param state state of the room
+     * @return true if the room meets the rule
+     * @ass2
+     */
+    @Override
+    public boolean isMet(int hazardLevel, RoomState state) {
+        return hazardLevel >= this.level;
+    }
+
+    /**
+     * Returns whether the hazard level is below the rule's clearing level.
+     *
+     * @param hazardLevel hazard level of the room, from 0 to 100
+     * @param state state of the room
+     * @return true if the rule is cleared for the room
+     * @ass2
+     */
+    @Override
+    public boolean isCleared(int hazardLevel, RoomState state) {
+        return hazardLevel < this.clearLevel;
+    }
+
+    /**
+     * Returns the number of minutes a room must meet the rule before it is
+     * raised.
+     *
+     * @return debounce time, in minutes
+     * @ass2
+     */
+    @Override
+    public int getDebounceMinutes() {
+        return this.debounceMinutes;
+    }
+
+    /**
+     * Returns the name of the rule.
+     *
+     * @return string representation of this rule
+     * @ass2
+     */
+    @Override
+    public String toString() {
+        return this.getName();
+    }
+}
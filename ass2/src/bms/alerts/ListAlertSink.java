@@ -0,0 +1,73 @@
+package bms.alerts;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Alert sink which keeps the most recent alerts in memory, for display in
+ * the application.
+ * @ass2
+ */
+public class ListAlertSink implements AlertSink {
+
+    /**
+     * Most recent alerts, as a circular buffer
+     */
+    private final Alert[] alerts;
+
+    /**
+     * Index of the oldest alert kept
+     */
+    private int head;
+
+    /**
+     * Number of alerts kept
+     */
+    private int size;
+
+    /**
+     * Creates a new sink keeping up to the given number of alerts.
+     *
+     * @param capacity maximum number of alerts kept
+     * @throws IllegalArgumentException if capacity is less than 1
+     * @ass2
+     */
+    public ListAlertSink(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException(
+                    "Capacity must be at least 1");
+        }
+        this.alerts = new Alert[capacity];
+    }
+
+    /**
+     * Keeps the alert, forgetting the oldest alert kept if the sink is
+     * full.
+     *
+     * @param alert alert to deliver
+     * @ass2
+     */
+    @Override
+    public synchronized void deliver(Alert alert) {
+        if (this.size == this.alerts.length) {
+            this.head = (this.head + 1) % this.alerts.length;
+            this.size--;
+        }
+        this.alerts[(this.head + this.size) % this.alerts.length] = alert;
+        this.size++;
+    }
+
+    /**
+     * Returns the alerts kept, oldest first.
+     *
+     * @return list of recent alerts
+     * @ass2
+     */
+    public synchronized List<Alert> getAlerts() {
+        List<Alert> recent = new ArrayList<>(this.size);
+        for (int i = 0; i < this.size; i++) {
+            recent.add(this.alerts[(this.head + i) % this.alerts.length]);
+        }
+        return recent;
+    }
+}
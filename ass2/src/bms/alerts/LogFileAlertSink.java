@@ -0,0 +1,57 @@
+package bms.alerts;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Alert sink which appends each alert to a log file, one line per alert,
+ * see {@link Alert#toString()}.
+ * @ass2
+ */
+public class LogFileAlertSink implements AlertSink {
+
+    /**
+     * Writer appending to the log file
+     */
+    private final BufferedWriter writer;
+
+    /**
+     * Creates a new sink appending to the log file at the given path in
+     * UTF-8, creating the file if it does not exist.
+     *
+     * @param fileName path of the log file
+     * @throws IOException if the file cannot be opened for writing
+     * @ass2
+     */
+    public LogFileAlertSink(String fileName) throws IOException {
+        this.writer = new BufferedWriter(new FileWriter(fileName,
+                StandardCharsets.UTF_8, true));
+    }
+
+    /**
+     * Appends the alert to the log file and flushes it.
+     *
+     * @param alert alert to deliver
+     * @throws IOException if the alert could not be written
+     * @ass2
+     */
+    @Override
+    public void deliver(Alert alert) throws IOException {
+        this.writer.write(alert.toString());
+        this.writer.write(System.lineSeparator());
+        this.writer.flush();
+    }
+
+    /**
+     * Closes the log file.
+     *
+     * @throws IOException if the file could not be closed
+     * @ass2
+     */
+    @Override
+    public void close() throws IOException {
+        this.writer.close();
+    }
+}
@@ -0,0 +1,102 @@
+package bms.alerts;
+
+import bms.room.RoomState;
+
+/**
+ * Alert rule met by rooms in a given state, such as rooms being
+ * evacuated. The rule is cleared as soon as the room leaves the state.
+ * @ass2
+ */
+public class RoomStateRule implements AlertRule {
+
+    /**
+     * State in which the rule is met
+     */
+    private final RoomState state;
+
+    /**
+     * Minutes a room must meet the rule before it is raised
+     */
+    private final int debounceMinutes;
+
+    /**
+     * Creates a new rule met by rooms in the given state for the given
+     * number of minutes.
+     *
+     * @param state state in which the rule is met
+     * @param debounceMinutes minutes a room must meet the rule before it is
+     *                        raised
+     * @throws IllegalArgumentException if debounceMinutes is negative
+     * @ass2
+     */
+    public RoomStateRule(RoomState state, int debounceMinutes) {
+        if (debounceMinutes < 0) {
+            throw new IllegalArgumentException(
+                    "Debounce time must not be negative");
+        }
+        this.state = state;
+        this.debounceMinutes = debounceMinutes;
+    }
+
+    /**
+     * Returns the name of the rule, "state='state' for 'minutes' minutes"
+     * without the single quotes.
+     *
+     * @return name of the rule
+     * @ass2
+     */
+    @Override
+    public String getName() {
+        return String.format("state=%s for %d minutes", this.state,
+                this.debounceMinutes);
+    }
+
+    /**
+     * Returns whether the room is in the rule's state.
+     *
+     * @param hazardLevel hazard level of the room, from 0 to 100
+     * @param state state of the room
+     * @return true if the room meets the rule
+     * @ass2
+     */
+    @Override
+    public boolean isMet(int hazardLevel, RoomState state) {
+        return state == this.state;
+    }
+
+    /**
+     * Returns whether the room is no longer in the rule's state.
+     *
+     * @param hazardLevel hazard level of the room, from 0 to 100
+     * @param state state of the room
+     * @return true if the rule is cleared for the room
+     * @ass2
+     */
+    @Override
+    public boolean isCleared(int hazardLevel, RoomState state) {
+        return state != this.state;
+    }
+
+    /**
+     * Returns the number of minutes a room must meet the rule before it is
+     * raised.
+     *
+     * @return debounce time, in minutes
+     * @ass2
+     */
+    @Override
+    public int getDebounceMinutes() {
+        return this.debounceMinutes;
+    }
+
+    /**
+     * Returns the name of the rule.
+     *
+     * @return string representation of this rule
+     * @ass2
+     */
+    @Override
+    public String toString() {
+        return this.getName();
+    }
+}
@@ -0,0 +1,92 @@
+package bms.alerts;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Alert sink which sends each alert to a port on the local machine, one
+ * line per alert, see {@link Alert#toString()}.
+ * <p>
+ * The sink connects when it is given its first alert, and reconnects on
+ * the next alert whenever sending one fails.
+ * @ass2
+ */
+public class SocketAlertSink implements AlertSink {
+
+    /**
+     * Port on the loopback address that alerts are sent to
+     */
+    private final int port;
+
+    /**
+     * Connection to the port, or null if not connected
+     */
+    private Socket socket;
+
+    /**
+     * Writer sending to the connection, or null if not connected
+     */
+    private Writer writer;
+
+    /**
+     * Creates a new sink sending alerts to the given port on the loopback
+     * address.
+     *
+     * @param port port to connect to
+     * @throws IllegalArgumentException if port is not from 1 to 65535
+     * @ass2
+     */
+    public SocketAlertSink(int port) {
+        if (port < 1 || port > 65535) {
+            throw new IllegalArgumentException(
+                    "Port must be from 1 to 65535");
+        }
+        this.port = port;
+    }
+
+    /**
+     * Sends the alert, connecting first if not connected.
+     *
+     * @param alert alert to deliver
+     * @throws IOException if the sink cannot connect or the alert could not
+     * be sent; the connection is then closed
+     * @ass2
+     */
+    @Override
+    public void deliver(Alert alert) throws IOException {
+        try {
+            if (this.socket == null) {
+                this.socket = new Socket(InetAddress.getLoopbackAddress(),
+                        this.port);
+                this.writer = new OutputStreamWriter(
+                        this.socket.getOutputStream(), StandardCharsets.UTF_8);
+            }
+            this.writer.write(alert.toString());
+            this.writer.write(System.lineSeparator());
+            this.writer.flush();
+        } catch (IOException e) {
+            this.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Closes the connection, if connected.
+     *
+     * @throws IOException if the connection could not be closed
+     * @ass2
+     */
+    @Override
+    public void close() throws IOException {
+        Socket connection = this.socket;
+        this.socket = null;
+        this.writer = null;
+        if (connection != null) {
+            connection.close();
+        }
+    }
+}
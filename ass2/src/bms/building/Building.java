@@ -5,9 +5,12 @@ import bms.exceptions.FireDrillException;
 import bms.exceptions.FloorTooSmallException;
 import bms.exceptions.NoFloorBelowException;
 import bms.floor.Floor;
+import bms.hazardevaluation.HazardMonitor;
+import bms.room.Room;
 import bms.room.RoomType;
 import bms.util.Encodable;
 import bms.util.FireDrill;
+import bms.util.TimedItemManager;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -34,15 +37,47 @@ public class Building implements FireDrill, Encodable {
      */
     private List<Floor> floors;
 
+    /**
+     * Manager of the timed items in the building.
+     */
+    private TimedItemManager timeManager;
+
     /**
      * Creates a new empty building with no rooms.
+     * <p>
+     * The building's timed items are run by the singleton timed item
+     * manager, see {@link #Building(String, TimedItemManager)}.
      *
      * @param name name of this building, eg. "General Purpose South"
      * @ass1
      */
     public Building(String name) {
+        this(name, TimedItemManager.getInstance());
+    }
+
+    /**
+     * Creates a new empty building with no rooms, whose timed items are
+     * run by the given manager, such as the manager of a campus.
+     * <p>
+     * The building has its own timed item manager, added as a child of
+     * the given one, which is disposed of once the building is garbage
+     * collected, see {@link TimedItemManager#setOwner(Object)}. If the
+     * given manager is null, the building's manager is only run when its
+     * {@code elapseOneMinute()} method is called, so the building can be
+     * simulated on its own.
+     *
+     * @param name name of this building, eg. "General Purpose South"
+     * @param campus manager running the building's manager, or null
+     * @ass2
+     */
+    public Building(String name, TimedItemManager campus) {
         this.name = name;
         this.floors = new ArrayList<>();
+        this.timeManager = new TimedItemManager();
+        this.timeManager.setOwner(this);
+        if (campus != null) {
+            campus.addChild(this.timeManager);
+        }
     }
 
     /**
@@ -140,6 +175,41 @@ public class Building implements FireDrill, Encodable {
 
         // No problems, so add floor to the list of floors
         floors.add(newFloor);
+        newFloor.setTimeManager(this.timeManager);
+    }
+
+    /**
+     * Returns the manager of the timed items in the building. The sensors
+     * and maintenance schedules of every floor in the building are
+     * registered with it, so each building can be run on its own thread.
+     *
+     * @return manager of the building's timed items
+     * @ass2
+     */
+    public TimedItemManager getTimeManager() {
+        return this.timeManager;
+    }
+
+    /**
+     * Stops running the timed items in the building, such as before the
+     * building is discarded or replaced by a reloaded copy. Sensors and
+     * maintenance schedules keep their current state but no longer
+     * progress, and the building's rooms are no longer tracked by any
+     * hazard monitor.
+     *
+     * @see TimedItemManager#dispose()
+     * @see HazardMonitor#untrack(Room)
+     * @ass2
+     */
+    public void decommission() {
+        for (Floor floor : this.floors) {
+            for (Room room : floor.getRooms()) {
+                for (HazardMonitor monitor : room.getHazardMonitors()) {
+                    monitor.untrack(room);
+                }
+            }
+        }
+        this.timeManager.dispose();
     }
 
     /**
@@ -8,6 +8,7 @@ import bms.hazardevaluation.WeightingBasedHazardEvaluator;
 import bms.room.Room;
 import bms.room.RoomType;
 import bms.sensors.*;
+import bms.util.TimedItemManager;
 
 import java.io.BufferedReader;
 import java.io.FileReader;
@@ -83,7 +84,7 @@ public class BuildingInitialiser {
      * A room's hazard evaluator type is invalid.
      *
      * A room's weighting-based hazard evaluator weightings
-     * are invalid according to WeightingBasedHazardEvaluator(Map).
+     * are invalid according to WeightingBasedHazardEvaluator(List, List).
      *
      * A room has two sensors of the same type (a duplicate sensor).
      *
@@ -151,7 +152,8 @@ public class BuildingInitialiser {
 
                 for (int i = 0; i < floorNum; ++i) {
                     try {
-                        newBuilding.addFloor(readFloor(reader));
+                        newBuilding.addFloor(readFloor(reader,
+                                newBuilding.getTimeManager()));
                     } catch (IllegalArgumentException
                             | DuplicateFloorException
                             | NoFloorBelowException
@@ -173,6 +175,8 @@ public class BuildingInitialiser {
      * passed to it from the reader.
      *
      * @param reader bufferedreader for the file
+     * @param timeManager manager of the building's timed items, with which
+     *                    the floor's items are registered as they are read
      * @return floor created from the reader
      * @throws IOException if an IOException is encountered when
      * calling any IO methods
@@ -180,7 +184,8 @@ public class BuildingInitialiser {
      * is invalid according to the rules above
      * @ass2
      */
-    private static Floor readFloor(BufferedReader reader)
+    private static Floor readFloor(BufferedReader reader,
+                                   TimedItemManager timeManager)
             throws IOException, FileFormatException {
         String line = reader.readLine();
         if (line == null) {
@@ -215,13 +220,14 @@ public class BuildingInitialiser {
 
             try {
                 floors = new Floor(floorNumber, width, length);
+                floors.setTimeManager(timeManager);
             } catch (IllegalArgumentException e) {
                 throw new FileFormatException();
             }
 
             for (int i = 0; i < numRooms; ++i)  {
                 try {
-                    floors.addRoom(readRoom(reader));
+                    floors.addRoom(readRoom(reader, timeManager));
                 } catch (DuplicateRoomException
                         | InsufficientSpaceException
                         | IllegalArgumentException
@@ -270,6 +276,8 @@ public class BuildingInitialiser {
      * from the buffered reader.
      *
      * @param reader bufferedreader for the file
+     * @param timeManager manager of the building's timed items, with which
+     *                    the room's sensors are registered as they are read
      * @return room created from the reader
      * @throws IOException if an IOException is encountered when
      * calling any IO methods
@@ -277,7 +285,8 @@ public class BuildingInitialiser {
      * is invalid according to the rules above
      * @ass2
      */
-    private static Room readRoom(BufferedReader reader)
+    private static Room readRoom(BufferedReader reader,
+                                 TimedItemManager timeManager)
             throws IOException, FileFormatException {
         String line = reader.readLine();
         if (line == null) {
@@ -302,8 +311,9 @@ public class BuildingInitialiser {
         boolean weightingBased = false;
         boolean ruleBased = false;
 
-        Map<HazardSensor, Integer> sensorWeights = new HashMap<>();
-        List<HazardSensor> hazardSensorList = new ArrayList<>();
+        // kept by position, as identical sensors of one kind are equal
+        List<HazardSensor> weightedSensors = new ArrayList<>();
+        List<Integer> sensorWeights = new ArrayList<>();
 
         try {
             if (lineParts.length == 5) {
@@ -331,6 +341,7 @@ public class BuildingInitialiser {
 
             try {
                 room = new Room(roomNumber, roomOfType, area);
+                room.setTimeManager(timeManager);
             } catch (IllegalArgumentException e) {
                 throw new FileFormatException();
             }
@@ -348,40 +359,20 @@ public class BuildingInitialiser {
 
                 Sensor tempSensor;
                 try {
-                    // Creates sensor according to string read
+                    // Creates sensor using the codec of the kind named
                     // at the start of the line
-                    if (storeSensorInfo[0].equals("OccupancySensor")) {
-                        tempSensor = readOccupant(storeSensorInfo[1], storeSensorInfo[2], storeSensorInfo[3]);
-                        if (weightingBased) {
-                            sensorWeights.put((HazardSensor) tempSensor, Integer.parseInt(storeSensorInfo[4]));
-                        } else if (ruleBased) {
-                            hazardSensorList.add((HazardSensor) tempSensor);
-                        }
-                    } else if (storeSensorInfo[0].equals("NoiseSensor")) {
-                        tempSensor = readNoise(storeSensorInfo[1], storeSensorInfo[2]);
-                        if (weightingBased) {
-                            sensorWeights.put((HazardSensor) tempSensor, Integer.parseInt(storeSensorInfo[3]));
-                        } else if (ruleBased) {
-                            hazardSensorList.add((HazardSensor) tempSensor);
-                        }
-                    } else if (storeSensorInfo[0].equals("TemperatureSensor")) {
-                        tempSensor = readTemperature(storeSensorInfo[1]);
-                        if (weightingBased) {
-                            sensorWeights.put((HazardSensor) tempSensor, Integer.parseInt(storeSensorInfo[2]));
-                        } else if (ruleBased) {
-                            hazardSensorList.add((HazardSensor) tempSensor);
-                        }
-                    } else if (storeSensorInfo[0].equals("CarbonDioxideSensor")) {
-                        tempSensor = readCarbon(storeSensorInfo[1], storeSensorInfo[2], storeSensorInfo[3], storeSensorInfo[4]);
-                        if (weightingBased) {
-                            sensorWeights.put((HazardSensor) tempSensor, Integer.parseInt(storeSensorInfo[5]));
-                        } else if (ruleBased) {
-                            hazardSensorList.add((HazardSensor) tempSensor);
-                        }
-                    } else {
+                    SensorKind kind = SensorKind.forName(storeSensorInfo[0]);
+                    if (kind == null) {
                         throw new FileFormatException();
                     }
-                } catch (NumberFormatException e) {
+                    tempSensor = kind.decode(Arrays.copyOfRange(
+                            storeSensorInfo, 1, storeSensorInfo.length));
+                    if (weightingBased) {
+                        weightedSensors.add((HazardSensor) tempSensor);
+                        sensorWeights.add(Integer.parseInt(
+                                storeSensorInfo[kind.getFieldCount() + 1]));
+                    }
+                } catch (IllegalArgumentException e) {
                     throw new FileFormatException();
                 }
                 try {
@@ -392,116 +383,18 @@ public class BuildingInitialiser {
             }
             // Sets weighting/rule hazard evaluator to room
             if (weightingBased) {
-                room.setHazardEvaluator(new WeightingBasedHazardEvaluator(sensorWeights));
+                try {
+                    room.setHazardEvaluator(new WeightingBasedHazardEvaluator(
+                            weightedSensors, sensorWeights));
+                } catch (IllegalArgumentException e) {
+                    throw new FileFormatException();
+                }
             } else if (ruleBased) {
-                room.setHazardEvaluator(new RuleBasedHazardEvaluator(hazardSensorList));
+                room.setHazardEvaluator(new RuleBasedHazardEvaluator(room));
             }
             return room;
         } catch (NumberFormatException e) {
             throw new FileFormatException();
         }
     }
-
-    /**
-     * Private helper method to read constructor
-     * variables in string form and
-     * return a CarbonDioxideSensor
-     *
-     * @param readings a non-empty array of sensor readings
-     * @param updateFreq indicates how often the sensor readings update,
-     *                 in minutes
-     * @param idealVal ideal CO2 value in ppm
-     * @param variationLim acceptable range above and
-     *                          below ideal value in ppm
-     * @return the created CarbonDioxideSensor
-     * @throws FileFormatException if the file format of the
-     * given file is invalid according to the rules above
-     * @ass2
-     */
-    private static CarbonDioxideSensor readCarbon(String readings,
-                                                  String updateFreq,
-                                                  String idealVal,
-                                                  String variationLim) throws FileFormatException {
-        try {
-            int[] readingInt = Arrays.stream(readings.split(",")).mapToInt(Integer::parseInt).toArray();
-            int updateFrequency = Integer.parseInt(updateFreq);
-            int idealValue = Integer.parseInt(idealVal);
-            int variationLimit = Integer.parseInt(variationLim);
-            return new CarbonDioxideSensor(readingInt ,updateFrequency, idealValue, variationLimit);
-        } catch (IllegalArgumentException e) {
-            throw new FileFormatException();
-        }
-    }
-
-    /**
-     * Private helper method to read constructor
-     * variables in string form and
-     * return a OccupancySensor
-     *
-     * @param readings a non-empty array of sensor readings
-     * @param updateFreq indicates how often the sensor readings update,
-     *                        in minutes
-     * @param cap maximum allowable number of people in the room
-     * @return the created OccupancySensor
-     * @throws FileFormatException if the file format of the
-     * given file is invalid according to the rules above
-     * @ass2
-     */
-    private static OccupancySensor readOccupant(String readings,
-                                                String updateFreq,
-                                                String cap) throws FileFormatException {
-        try {
-            int[] readingInt = Arrays.stream(readings.split(",")).mapToInt(Integer::parseInt).toArray();
-            int updateFrequency = Integer.parseInt(updateFreq);
-            int capacity = Integer.parseInt(cap);
-            return new OccupancySensor(readingInt, updateFrequency, capacity);
-        } catch (IllegalArgumentException e) {
-            throw new FileFormatException();
-        }
-    }
-
-    /**
-     * Private helper method to read constructor
-     * variables in string form and
-     * return a TemperatureSensor
-     *
-     * @param readings a non-empty array of sensor readings
-     * @return the created TemperatureSensor
-     * @throws FileFormatException if the file format of the
-     * given file is invalid according to the rules above
-     * @ass2
-     */
-    private static TemperatureSensor readTemperature(String readings)
-                                                    throws FileFormatException {
-        try {
-            int[] readingInt = Arrays.stream(readings.split(",")).mapToInt(Integer::parseInt).toArray();
-            return new TemperatureSensor(readingInt);
-        } catch (IllegalArgumentException e) {
-            throw new FileFormatException();
-        }
-    }
-
-    /**
-     * Private helper method to read constructor
-     * variables in string form and
-     * return a NoiseSensor
-     *
-     * @param readings a non-empty array of sensor readings
-     * @param updateFreq indicates how often the sensor readings update,
-     *                        in minutes
-     * @return the created NoiseSensor
-     * @throws FileFormatException if the file format of the
-     * given file is invalid according to the rules above
-     * @ass2
-     */
-    private static NoiseSensor readNoise(String readings,
-                                         String updateFreq) throws FileFormatException {
-        try {
-            int[] readingInt = Arrays.stream(readings.split(",")).mapToInt(Integer::parseInt).toArray();
-            int updateFrequency = Integer.parseInt(updateFreq);
-            return new NoiseSensor(readingInt, updateFrequency);
-        } catch (IllegalArgumentException e) {
-            throw new FileFormatException();
-        }
-    }
 }
@@ -3,8 +3,8 @@ package bms.display;
 import bms.building.Building;
 import bms.floor.Floor;
 import bms.room.Room;
-import bms.sensors.OccupancySensor;
-import bms.sensors.Sensor;
+import bms.sensors.SensorAggregate;
+import bms.sensors.SensorKind;
 import javafx.geometry.VPos;
 import javafx.scene.canvas.Canvas;
 import javafx.scene.canvas.GraphicsContext;
@@ -219,8 +219,7 @@ public class BuildingCanvas extends Canvas {
 
                 // Draw a coloured rectangle to represent the hazard level
                 if (room.getHazardEvaluator() != null) {
-                    double hazardPct = room.getHazardEvaluator()
-                            .evaluateHazardLevel() / 100.0;
+                    double hazardPct = room.getHazardLevel() / 100.0;
                     double fullHeight = FLOOR_HEIGHT - 2 * roomPadding;
                     double height = hazardPct * fullHeight;
                     gc.setFill(Color.ORANGE);
@@ -234,26 +233,26 @@ public class BuildingCanvas extends Canvas {
                 joiner.add("Room #" + room.getRoomNumber());
                 joiner.add(room.getType().toString());
                 joiner.add(room.evaluateRoomState().toString());
-                Sensor tempSensor = room.getSensor("TemperatureSensor");
-                if (tempSensor != null) {
+                SensorAggregate tempSensors = room.getAggregate(SensorKind.TEMPERATURE);
+                if (tempSensors != null) {
                     joiner.add(String.format("%d°C",
-                            tempSensor.getCurrentReading()));
+                            tempSensors.getMaxReading()));
                 }
-                Sensor noiseSensor = room.getSensor("NoiseSensor");
-                if (noiseSensor != null) {
+                SensorAggregate noiseSensors = room.getAggregate(SensorKind.NOISE);
+                if (noiseSensors != null) {
                     joiner.add(String.format("%ddB",
-                            noiseSensor.getCurrentReading()));
+                            noiseSensors.getMaxReading()));
                 }
-                Sensor co2Sensor = room.getSensor("CarbonDioxideSensor");
-                if (co2Sensor != null) {
+                SensorAggregate co2Sensors = room.getAggregate(SensorKind.CO2);
+                if (co2Sensors != null) {
                     joiner.add(String.format("%dppm",
-                            co2Sensor.getCurrentReading()));
+                            co2Sensors.getMaxReading()));
                 }
-                OccupancySensor occupancySensor = (OccupancySensor) room.getSensor("OccupancySensor");
-                if (occupancySensor != null) {
+                SensorAggregate occupancySensors = room.getAggregate(SensorKind.OCCUPANCY);
+                if (occupancySensors != null) {
                     joiner.add(String.format("%d/%d",
-                            occupancySensor.getCurrentReading(),
-                            occupancySensor.getCapacity()));
+                            occupancySensors.getReadingSum(),
+                            occupancySensors.getCapacitySum()));
                 }
                 String roomDescription = joiner.toString();
 
@@ -60,8 +60,6 @@ public class View {
     // Queue of key presses
     private LinkedList<KeyCode> input;
 
-    private long lastNanoTime = 0;
-
     /**
      * @ass2_given
      */
@@ -465,10 +463,16 @@ public class View {
         timeElapsedLabel.setMaxHeight(Double.MAX_VALUE); // centered vertically
         timeElapsedLabel.setAlignment(Pos.CENTER);
 
+        var tickMetricsLabel = new Label();
+        tickMetricsLabel.textProperty().bind(viewModel.getTickMetricsProperty());
+        tickMetricsLabel.setMaxHeight(Double.MAX_VALUE); // centered vertically
+        tickMetricsLabel.setAlignment(Pos.CENTER);
+
         var buttonContainer = new HBox(10);
         buttonContainer.getChildren().addAll(pauseButton, saveButton,
                 resetViewButton, helpButton);
         infoBar.setLeft(buttonContainer);
+        infoBar.setCenter(tickMetricsLabel);
         infoBar.setRight(timeElapsedLabel);
         return infoBar;
     }
@@ -484,10 +488,7 @@ public class View {
                     var key = input.pop();
                     viewModel.accept(key);
                 }
-                if (currentNanoTime - lastNanoTime > 1000000000) {
-                    lastNanoTime = currentNanoTime;
-                    viewModel.tick();
-                }
+                viewModel.advance(currentNanoTime);
                 if (viewModel.isChanged()) {
                     viewModel.notChanged();
                     update();
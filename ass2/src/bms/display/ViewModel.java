@@ -1,13 +1,22 @@
 package bms.display;
 
+import bms.alerts.AlertManager;
+import bms.alerts.HazardLevelRule;
+import bms.alerts.ListAlertSink;
+import bms.alerts.LogFileAlertSink;
+import bms.alerts.RoomStateRule;
 import bms.building.Building;
 import bms.exceptions.*;
 import bms.floor.Floor;
+import bms.hazardevaluation.HazardMonitor;
 import bms.hazardevaluation.RuleBasedHazardEvaluator;
 import bms.hazardevaluation.WeightingBasedHazardEvaluator;
 import bms.room.Room;
+import bms.room.RoomState;
 import bms.room.RoomType;
 import bms.sensors.*;
+import bms.util.LatencyHistogram;
+import bms.util.SimulationClock;
 import bms.util.TimedItemManager;
 import javafx.application.Platform;
 import javafx.beans.property.*;
@@ -36,8 +45,16 @@ public class ViewModel {
     private StringProperty infoText = new SimpleStringProperty(
             "Building/floor/room info");
 
+    private StringProperty tickMetrics = new SimpleStringProperty(
+            "Metrics off (M to sample)");
+
+    private SimulationClock clock = new SimulationClock(1_000_000_000L,
+            this::elapse);
+
     private BooleanProperty changed = new SimpleBooleanProperty(false);
 
+    private ListAlertSink recentAlerts = new ListAlertSink(5);
+
     private ReadOnlyIntegerProperty currentBuildingIndex;
     private Floor selectedFloor;
     private Room selectedRoom;
@@ -51,6 +68,25 @@ public class ViewModel {
      */
     public ViewModel(List<Building> buildings) {
         this.buildings = buildings;
+        for (Building building : buildings) {
+            for (Floor floor : building.getFloors()) {
+                for (Room room : floor.getRooms()) {
+                    HazardMonitor.getInstance(room.getTimeManager())
+                            .track(room);
+                }
+            }
+        }
+
+        // alert on hazardous and evacuating rooms, shown in the info box
+        AlertManager alerts = AlertManager.getInstance();
+        alerts.addRule(new HazardLevelRule(75, 10, 3));
+        alerts.addRule(new RoomStateRule(RoomState.EVACUATE, 0));
+        alerts.addSink(this.recentAlerts, 16);
+        try {
+            alerts.addSink(new LogFileAlertSink("saves/alerts.log"), 256);
+        } catch (IOException e) {
+            // alerts are still shown in the info box without a log
+        }
     }
 
     /**
@@ -64,6 +100,8 @@ public class ViewModel {
      * <tr><td>S, s</td><td>Saves the simulation data to "saves/quicksave.txt",
      * see {@link ViewModel#save(String)}
      * </td></tr>
+     * <tr><td>M, m</td><td>Toggles sampling of tick latency metrics, see
+     * {@link ViewModel#toggleMetrics()}</td></tr>
      * </table>
      *
      * @param keyCode key that was pressed
@@ -81,6 +119,9 @@ public class ViewModel {
                 case S:
                     this.save("saves/quicksave.txt");
                     break;
+                case M:
+                    this.toggleMetrics();
+                    break;
             }
         } catch (IOException e) {
             //Invalid keys caught
@@ -109,6 +150,25 @@ public class ViewModel {
         }
     }
 
+    /**
+     * Toggles whether the timed item manager samples the time taken to run
+     * timed items and minutes. Metrics recorded so far are discarded when
+     * sampling is turned on.
+     *
+     * @ass2
+     */
+    public void toggleMetrics() {
+        TimedItemManager manager = TimedItemManager.getInstance();
+        if (manager.getSampleInterval() > 0) {
+            manager.setSampleInterval(0);
+            this.tickMetrics.setValue("Metrics off (M to sample)");
+        } else {
+            manager.resetMetrics();
+            manager.setSampleInterval(1);
+            this.tickMetrics.setValue("Sampling...");
+        }
+    }
+
     /**
      * Saves the data used by the building management system to the given file
      * location.
@@ -152,13 +212,68 @@ public class ViewModel {
      */
     public void tick() {
         if (!paused.getValue()) {
-            this.ticks.setValue(this.ticks.getValue() + 1);
-            this.timeElapsed.setValue(this.ticks.getValue() + " minutes elapsed");
-            TimedItemManager.getInstance().elapseOneMinute();
-            this.registerChange();
+            this.elapse(1);
+        }
+    }
+
+    /**
+     * Moves the simulation forward by the minutes due at the given wall
+     * time, one minute per second, if not paused. See
+     * {@link SimulationClock#advance(long)} for how minutes missed by slow
+     * frames are handled.
+     *
+     * @param now current wall time, in nanoseconds
+     * @ass2
+     */
+    public void advance(long now) {
+        if (paused.getValue()) {
+            this.clock.resync(now);
+        } else {
+            this.clock.advance(now);
         }
     }
 
+    /**
+     * Returns the clock pacing the simulation against the wall clock.
+     *
+     * @return simulation clock
+     * @ass2
+     */
+    public SimulationClock getClock() {
+        return clock;
+    }
+
+    /**
+     * Moves the simulation forward by the given number of minutes at once,
+     * updating the <code>ticks</code> and <code>timeElapsed</code>
+     * properties as {@link #tick()} does.
+     * <p>
+     * While metrics are sampled, the <code>tickMetrics</code>
+     * StringProperty is updated with the median and 99th percentile tick
+     * durations, the number of timed items run per second, and the
+     * simulated minutes per second and overruns of the clock.
+     *
+     * @param minutes number of minutes to elapse
+     */
+    private void elapse(int minutes) {
+        this.ticks.setValue(this.ticks.getValue() + minutes);
+        this.timeElapsed.setValue(this.ticks.getValue() + " minutes elapsed");
+        TimedItemManager manager = TimedItemManager.getInstance();
+        manager.elapseMinutes(minutes);
+        if (manager.getSampleInterval() > 0) {
+            LatencyHistogram latency = manager.getTickLatency();
+            this.tickMetrics.setValue(String.format(
+                    "Tick p50 %.1fus, p99 %.1fus, %.0f items/s, "
+                            + "%.2f min/s, %d overruns",
+                    latency.getValueAtPercentile(50) / 1000.0,
+                    latency.getValueAtPercentile(99) / 1000.0,
+                    manager.getItemsRunPerSecond(),
+                    this.clock.getMinutesPerSecond(System.nanoTime()),
+                    this.clock.getOverrunCount()));
+        }
+        this.registerChange();
+    }
+
     /**
      * @ass2_given
      */
@@ -199,6 +314,16 @@ public class ViewModel {
         return infoText;
     }
 
+    /**
+     * Returns the property holding a summary of the tick latency metrics.
+     *
+     * @return tick metrics property
+     * @ass2
+     */
+    public StringProperty getTickMetricsProperty() {
+        return tickMetrics;
+    }
+
     /**
      * @ass2_given
      */
@@ -266,6 +391,16 @@ public class ViewModel {
         joiner.add("Name: " + building.getName());
         joiner.add("Floors: " + building.getFloors().size());
 
+        List<bms.alerts.Alert> alerts = this.recentAlerts.getAlerts();
+        if (!alerts.isEmpty()) {
+            joiner.add("\nRecent Alerts");
+            for (bms.alerts.Alert alert : alerts) {
+                joiner.add(alert.getMinute() + "m " + alert.getStatus()
+                        + " #" + alert.getRoom().getRoomNumber() + " "
+                        + alert.getRule().getName());
+            }
+        }
+
         if (noSelected.get()) {
             this.getInfoTextProperty().setValue(joiner.toString());
             return;
@@ -303,6 +438,17 @@ public class ViewModel {
                 joiner.add("\nSensors");
                 for (Sensor s : this.selectedRoom.getSensors()) {
                     joiner.add(s.getClass().getSimpleName());
+                    joiner.add("  Now: " + s.getCurrentReading());
+                    if (!(s instanceof TimedSensor)) {
+                        continue;
+                    }
+                    TimedSensor timed = (TimedSensor) s;
+                    joiner.add("  15m: " + timed.getStatistics(
+                            StatisticsWindow.FIFTEEN_MINUTES));
+                    joiner.add("  1h: " + timed.getStatistics(
+                            StatisticsWindow.ONE_HOUR));
+                    joiner.add("  24h: " + timed.getStatistics(
+                            StatisticsWindow.ONE_DAY));
                 }
             }
         }
@@ -532,6 +678,7 @@ public class ViewModel {
             createErrorDialog("Could not add room", e.getMessage());
             return;
         }
+        HazardMonitor.getInstance(newRoom.getTimeManager()).track(newRoom);
 
         this.registerChange();
     }
@@ -693,23 +840,18 @@ public class ViewModel {
     }
 
     private void addHazardEvaluator(List<Optional<String>> args) {
-        List<HazardSensor> hazardSensors = new ArrayList<>();
-        for (Sensor s : getSelectedRoom().getSensors()) {
-            if (s instanceof HazardSensor) {
-                hazardSensors.add((HazardSensor) s);
-            }
-        }
         if (args.isEmpty() || args.get(0).isEmpty()) return;
         String evaluatorType = args.get(0).get();
 
         if (evaluatorType.equals("Rule Based")) {
             getSelectedRoom().setHazardEvaluator(
-                    new RuleBasedHazardEvaluator(hazardSensors));
+                    new RuleBasedHazardEvaluator(getSelectedRoom()));
             this.registerChange();
             return;
         }
 
-        Map<HazardSensor, Integer> weightings = new HashMap<>();
+        List<HazardSensor> weightedSensors = new ArrayList<>();
+        List<Integer> weightings = new ArrayList<>();
         for (int i = 0; i < getSelectedRoom().getSensors().size(); ++i) {
             Sensor s = getSelectedRoom().getSensors().get(i);
             if (s instanceof HazardSensor) {
@@ -721,12 +863,14 @@ public class ViewModel {
                             "Weighting must be an integer");
                     return;
                 }
-                weightings.put((HazardSensor) s, weighting);
+                weightedSensors.add((HazardSensor) s);
+                weightings.add(weighting);
             }
         }
         try {
             getSelectedRoom().setHazardEvaluator(
-                    new WeightingBasedHazardEvaluator(weightings));
+                    new WeightingBasedHazardEvaluator(weightedSensors,
+                            weightings));
         } catch (IllegalArgumentException e) {
             createErrorDialog("Could not add hazard evaluator",
                     e.getMessage());
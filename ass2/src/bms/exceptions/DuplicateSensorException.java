@@ -1,8 +1,8 @@
 package bms.exceptions;
 
 /**
- * Exception thrown when a sensor is added to a room that already contains a
- * sensor of the same type.
+ * Exception thrown when a sensor is added to a room that already contains
+ * that sensor.
 
  * @ass1
  */
@@ -7,6 +7,8 @@ import bms.room.Room;
 import bms.room.RoomType;
 import bms.util.Encodable;
 import bms.util.FireDrill;
+import bms.util.TimedItem;
+import bms.util.TimedItemManager;
 
 import java.text.DecimalFormat;
 import java.text.NumberFormat;
@@ -60,6 +62,13 @@ public class Floor implements FireDrill, Encodable {
      */
     private MaintenanceSchedule maintSchedule;
 
+    /**
+     * Manager of the timed items on the floor, or null until the floor is
+     * given one, in which case they are registered with the singleton
+     * manager
+     */
+    private TimedItemManager timeManager;
+
 
     /**
      * Creates a new floor with the given floor number.
@@ -77,6 +86,7 @@ public class Floor implements FireDrill, Encodable {
 
         this.rooms = new ArrayList<>();
         this.maintSchedule = null;
+        this.timeManager = null;
     }
 
     /**
@@ -269,6 +279,43 @@ public class Floor implements FireDrill, Encodable {
 
         // No problems, so add room to the list of rooms
         rooms.add(newRoom);
+        if (this.timeManager != null) {
+            newRoom.setTimeManager(this.timeManager);
+        }
+    }
+
+    /**
+     * Registers the timed items on this floor, its maintenance schedule and
+     * the sensors of its rooms, with the given manager. Rooms added and
+     * schedules created later are registered with it too.
+     *
+     * @param timeManager manager of the floor's timed items
+     * @see TimedItemManager#registerTimedItem(TimedItem)
+     * @ass2
+     */
+    public void setTimeManager(TimedItemManager timeManager) {
+        this.timeManager = timeManager;
+        if (this.maintSchedule != null) {
+            timeManager.registerTimedItem(this.maintSchedule);
+        }
+        for (Room room : this.rooms) {
+            room.setTimeManager(timeManager);
+        }
+    }
+
+    /**
+     * Returns the manager the timed items on the floor are registered with:
+     * the one last given, see {@link #setTimeManager(TimedItemManager)}, or the
+     * singleton manager if none has been.
+     *
+     * @return manager of the timed items on the floor
+     * @ass2
+     */
+    public TimedItemManager getTimeManager() {
+        if (this.timeManager == null) {
+            return TimedItemManager.getInstance();
+        }
+        return this.timeManager;
     }
 
     /**
@@ -327,6 +374,10 @@ public class Floor implements FireDrill, Encodable {
      * The room currently being maintained according to the old schedule should have
      * its maintenance status set to false.
      *
+     * The new schedule is registered as a timed item with the floor's time
+     * manager, see setTimeManager(TimedItemManager), or with the singleton
+     * timed item manager if the floor has none yet.
+     *
      * @param roomOrder rooms on which to perform maintenance, in order
      * @throws IllegalArgumentException if the given order is null or empty,
      * if a room in the order is not on this floor, or if a room appears twice
@@ -355,9 +406,13 @@ public class Floor implements FireDrill, Encodable {
                     }
                 }
                 if (this.maintSchedule != null) {
+                    // the replaced schedule must stop running
+                    this.getTimeManager().unregisterTimedItem(
+                            this.maintSchedule);
                     this.maintSchedule.getCurrentRoom().setMaintenance(false);
                 }
                 this.maintSchedule = new MaintenanceSchedule(roomOrder);
+                this.getTimeManager().registerTimedItem(this.maintSchedule);
             } else {
                 throw new IllegalArgumentException();
             }
@@ -26,6 +26,12 @@ public class MaintenanceSchedule
      */
     private List<Room> roomOrder;
 
+    /**
+     * Rooms tracked by the Maintenance Schedule, walked each minute without
+     * allocating an iterator
+     */
+    private final Room[] rooms;
+
     /**
      * The amount of time that have elapsed while maintaining the current room
      */
@@ -34,7 +40,9 @@ public class MaintenanceSchedule
     /**
      * Creates a new maintenance schedule for a floor's list of rooms.
      * In this constructor, the new maintenance schedule should be
-     * registered as a timed item with the timed item manager.
+     * registered as a timed item with the timed item manager. The floor
+     * creating it moves it to the floor's time manager, see
+     * {@link Floor#createMaintenanceSchedule(List)}.
      *
      * The first room in the given order should be set to
      * "in maintenance", see Room.setMaintenance(boolean).
@@ -44,8 +52,12 @@ public class MaintenanceSchedule
      */
     public MaintenanceSchedule (List<Room> roomOrder) {
         this.roomOrder = roomOrder;
+        this.rooms = roomOrder.toArray(new Room[0]);
         this.roomOrder.get(0).setMaintenance(true);
         this.timeElapsed = 0;
+        for (Room room : this.roomOrder) {
+            room.watchEvacuation(this);
+        }
         TimedItemManager.getInstance().registerTimedItem(this);
     }
 
@@ -100,12 +112,34 @@ public class MaintenanceSchedule
      * @ass2
      */
     public Room getCurrentRoom() {
-        for (Room room : this.roomOrder) {
-            if (room.maintenanceOngoing()) {
-                return room;
+        return this.rooms[this.getCurrentIndex()];
+    }
+
+    /**
+     * Returns the position in the room order of the room currently being
+     * maintained.
+     *
+     * @return index of the current room
+     */
+    private int getCurrentIndex() {
+        for (int i = 0; i < this.rooms.length; i++) {
+            if (this.rooms[i].maintenanceOngoing()) {
+                return i;
             }
         }
-        return this.roomOrder.get(0);
+        return 0;
+    }
+
+    /**
+     * Ends maintenance of the current room and starts maintenance of the
+     * next room in the order, wrapping around to the first room.
+     *
+     * @param currentPointer index of the current room
+     */
+    private void moveOn(int currentPointer) {
+        this.rooms[currentPointer].setMaintenance(false);
+        this.rooms[(currentPointer + 1) % this.rooms.length]
+                .setMaintenance(true);
     }
 
     /**
@@ -116,9 +150,22 @@ public class MaintenanceSchedule
      * @ass2
      */
     public int getTimeElapsedCurrentRoom() {
+        TimedItemManager.getInstance().wake(this);
         return this.timeElapsed;
     }
 
+    /**
+     * Stops being woken by the rooms in the schedule once the schedule is
+     * no longer run.
+     * @ass2
+     */
+    @Override
+    public void unregistered() {
+        for (Room room : this.roomOrder) {
+            room.unwatchEvacuation(this);
+        }
+    }
+
     /**
      * Progresses the maintenance schedule by one minute.
      * If the room currently being maintained has a room
@@ -140,18 +187,65 @@ public class MaintenanceSchedule
      * @ass2
      */
     public void elapseOneMinute() {
-        if (getCurrentRoom().evaluateRoomState() != RoomState.EVACUATE) {
-            this.timeElapsed++;
-            int currentPointer = this.roomOrder.indexOf(getCurrentRoom());
-            if (getMaintenanceTime(getCurrentRoom()) == this.timeElapsed) {
-                this.timeElapsed = 0;
-                getCurrentRoom().setMaintenance(false);
-                if (currentPointer == this.roomOrder.size() - 1) {
-                    this.roomOrder.get(0).setMaintenance(true);
-                } else {
-                    this.roomOrder.get(currentPointer + 1).setMaintenance(true);
-                }
-            }
+        if (this.getCurrentRoom().evaluateRoomState() != RoomState.EVACUATE) {
+            this.progress();
+        }
+    }
+
+    /**
+     * Returns the number of minutes until maintenance of the current room
+     * completes, or one if the current room is being evacuated.
+     * <p>
+     * Rooms wake the schedule when they may start evacuating, see
+     * {@link Room#watchEvacuation(bms.util.TimedItem)}.
+     *
+     * @return minutes until the schedule next changes
+     * @ass2
+     */
+    @Override
+    public int getMinutesUntilNextChange() {
+        if (getCurrentRoom().evaluateRoomState() == RoomState.EVACUATE) {
+            return 1;
+        }
+        return Math.max(1,
+                getMaintenanceTime(getCurrentRoom()) - this.timeElapsed);
+    }
+
+    /**
+     * Progresses the maintenance schedule by the given number of minutes.
+     * <p>
+     * The schedule only sleeps while the current room is not being
+     * evacuated, and is woken before an evacuation starts, so every minute
+     * but the last progresses maintenance. The last minute is progressed as
+     * in {@link #elapseOneMinute()}.
+     *
+     * @param minutes number of minutes elapsed
+     * @ass2
+     */
+    @Override
+    public void elapseMinutes(int minutes) {
+        int remaining = minutes - 1;
+        while (remaining > 0) {
+            int step = Math.min(remaining, Math.max(1,
+                    getMaintenanceTime(getCurrentRoom()) - this.timeElapsed));
+            this.timeElapsed += step - 1;
+            this.progress();
+            remaining -= step;
+        }
+        this.elapseOneMinute();
+    }
+
+    /**
+     * Progresses maintenance of the current room by one minute, moving on
+     * to the next room if it has completed.
+     */
+    private void progress() {
+        this.timeElapsed++;
+        int currentPointer = this.getCurrentIndex();
+        if (getMaintenanceTime(this.rooms[currentPointer])
+                == this.timeElapsed) {
+            this.timeElapsed = 0;
+            this.moveOn(currentPointer);
         }
     }
 
@@ -164,13 +258,10 @@ public class MaintenanceSchedule
      * @ass2
      */
     public void skipCurrentMaintenance() {
-        int currentPointer = this.roomOrder.indexOf(getCurrentRoom());
-        getCurrentRoom().setMaintenance(false);
-        if (currentPointer == this.roomOrder.size() - 1) {
-            this.roomOrder.get(0).setMaintenance(true);
-        } else {
-            this.roomOrder.get(currentPointer + 1).setMaintenance(true);
-        }
+        // bring the schedule up to date before the current room changes
+        TimedItemManager.getInstance().wake(this);
+        this.moveOn(this.getCurrentIndex());
+        TimedItemManager.getInstance().wake(this);
     }
 
     /**
@@ -194,7 +285,8 @@ public class MaintenanceSchedule
     @Override
     public String toString() {
         return String.format("MaintenanceSchedule: currentRoom=#%d, currentElapsed=%d",
-                getCurrentRoom().getRoomNumber(),this.timeElapsed);
+                getCurrentRoom().getRoomNumber(),
+                this.getTimeElapsedCurrentRoom());
     }
 
     /**
@@ -0,0 +1,474 @@
+package bms.hazardevaluation;
+
+import bms.room.OccupancyEstimator;
+import bms.room.Room;
+import bms.sensors.HazardSensor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Evaluates the hazard levels of many rooms at once, such as every room on
+ * a campus, for snapshots of the whole campus.
+ * <p>
+ * Each tracked room is a row across primitive columns, one column per
+ * sensor slot of its hazard evaluator: the sensor in the slot, its
+ * weighting and its hazard level at the current evaluation. Rule-based
+ * evaluators have one slot per kind of sensor averaged, weighted by one,
+ * and keep their occupancy sensor or estimator apart to scale the average;
+ * weighting-based evaluators keep their own weightings. An evaluation
+ * gathers the hazard level of every sensor into the level columns, then
+ * sums the weighted levels and finds the highest level of each row one
+ * whole column at a time, and finally applies each evaluator's rules to
+ * its row. Any other kind of evaluator is evaluated by calling
+ * {@link HazardEvaluator#evaluateHazardLevel()}.
+ * <p>
+ * The columns are summed with the vector API if the
+ * {@code jdk.incubator.vector} module is present at run time, and in plain
+ * loops otherwise; both give the same levels.
+ * <p>
+ * The row of a room is laid out again whenever the room's hazard evaluator
+ * has been replaced since the last evaluation, including when adding a
+ * sensor to the room discards it, see {@link Room#addSensor}.
+ * @ass2
+ */
+public class BatchHazardEvaluator {
+
+    /**
+     * Row kind of rooms with no hazard evaluator
+     */
+    private static final byte NONE = 0;
+
+    /**
+     * Row kind of evaluators evaluated by calling them
+     */
+    private static final byte SCALAR = 1;
+
+    /**
+     * Row kind of rule-based evaluators
+     */
+    private static final byte RULE_BASED = 2;
+
+    /**
+     * Row kind of weighting-based evaluators
+     */
+    private static final byte WEIGHTING_BASED = 3;
+
+    /**
+     * Sensors of rows whose evaluator is not laid out in columns
+     */
+    private static final HazardSensor[] NO_SENSORS = new HazardSensor[0];
+
+    /**
+     * Kernel summing columns in plain loops
+     */
+    static final HazardKernel SCALAR_KERNEL =
+            (levels, weights, sums, peaks, rooms) -> {
+                for (int row = 0; row < rooms; row++) {
+                    sums[row] += levels[row] * weights[row];
+                    peaks[row] = Math.max(peaks[row], levels[row]);
+                }
+            };
+
+    /**
+     * Kernel used by new batches, that of the vector API if its module is
+     * present
+     */
+    private static final HazardKernel DEFAULT_KERNEL = loadKernel();
+
+    /**
+     * Kernel summing the columns
+     */
+    private final HazardKernel kernel;
+
+    /**
+     * Row of each tracked room
+     */
+    private final Map<Room, Integer> handles;
+
+    /**
+     * Tracked rooms, indexed by row
+     */
+    private Room[] rooms;
+
+    /**
+     * Hazard evaluator each row was laid out for, indexed by row
+     */
+    private HazardEvaluator[] evaluators;
+
+    /**
+     * Kind of each row
+     */
+    private byte[] kinds;
+
+    /**
+     * Sensor in each slot of each row, indexed by slot then row. Null where
+     * a row has fewer sensors.
+     */
+    private HazardSensor[][] sensorColumns;
+
+    /**
+     * Weighting of the sensor in each slot of each row, indexed by slot
+     * then row. Zero where a row has fewer sensors.
+     */
+    private int[][] weightColumns;
+
+    /**
+     * Hazard level of the sensor in each slot of each row at the current
+     * evaluation, indexed by slot then row
+     */
+    private int[][] levelColumns;
+
+    /**
+     * Number of sensors in each row
+     */
+    private int[] sensorCounts;
+
+    /**
+     * Occupancy sensor scaling each rule-based row, or null
+     */
+    private HazardSensor[] occupancySensors;
+
+    /**
+     * Occupancy estimator scaling each rule-based row without an occupancy
+     * sensor once it is available, or null
+     */
+    private OccupancyEstimator[] estimators;
+
+    /**
+     * Sum of the weighted hazard levels of each row at the current
+     * evaluation
+     */
+    private int[] sums;
+
+    /**
+     * Highest hazard level of each row at the current evaluation
+     */
+    private int[] peaks;
+
+    /**
+     * Number of rows
+     */
+    private int count;
+
+    /**
+     * Creates a new batch tracking no rooms.
+     * @ass2
+     */
+    public BatchHazardEvaluator() {
+        this(DEFAULT_KERNEL);
+    }
+
+    /**
+     * Creates a new batch tracking no rooms, summing its columns with the
+     * given kernel.
+     *
+     * @param kernel kernel summing the columns
+     */
+    BatchHazardEvaluator(HazardKernel kernel) {
+        this.kernel = kernel;
+        this.handles = new IdentityHashMap<>();
+        this.rooms = new Room[0];
+        this.evaluators = new HazardEvaluator[0];
+        this.kinds = new byte[0];
+        this.sensorColumns = new HazardSensor[0][];
+        this.weightColumns = new int[0][];
+        this.levelColumns = new int[0][];
+        this.sensorCounts = new int[0];
+        this.occupancySensors = new HazardSensor[0];
+        this.estimators = new OccupancyEstimator[0];
+        this.sums = new int[0];
+        this.peaks = new int[0];
+    }
+
+    /**
+     * Returns the vector API kernel if the {@code jdk.incubator.vector}
+     * module is present, or the kernel of plain loops otherwise.
+     *
+     * @return kernel for new batches
+     */
+    private static HazardKernel loadKernel() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector")
+                .isPresent()) {
+            try {
+                return new VectorHazardKernel();
+            } catch (LinkageError e) {
+                // compiled without the module, fall back to plain loops
+            }
+        }
+        return SCALAR_KERNEL;
+    }
+
+    /**
+     * Returns whether the columns are summed with the vector API.
+     *
+     * @return true if the vector API is used
+     * @ass2
+     */
+    public boolean isVectorised() {
+        return this.kernel != SCALAR_KERNEL;
+    }
+
+    /**
+     * Starts evaluating the given room with the others. Does nothing if
+     * the room is already tracked.
+     * <p>
+     * The room's hazard level is written after those of the rooms already
+     * tracked, see {@link #evaluateAll(int[])}.
+     *
+     * @param room room to track
+     * @ass2
+     */
+    public void track(Room room) {
+        if (this.handles.containsKey(room)) {
+            return;
+        }
+        int row = this.count++;
+        if (row == this.rooms.length) {
+            this.grow(Math.max(16, row * 2));
+        }
+        this.rooms[row] = room;
+        this.handles.put(room, row);
+        this.layOut(row, room.getHazardEvaluator());
+    }
+
+    /**
+     * Stops evaluating the given room. Does nothing if it is not tracked.
+     * <p>
+     * The last room tracked takes the row of the room untracked, so the
+     * order of {@link #getTrackedRooms()} changes.
+     *
+     * @param room room to untrack
+     * @ass2
+     */
+    public void untrack(Room room) {
+        Integer handle = this.handles.remove(room);
+        if (handle == null) {
+            return;
+        }
+        int last = --this.count;
+        if (handle != last) {
+            this.rooms[handle] = this.rooms[last];
+            this.handles.put(this.rooms[handle], handle);
+            this.layOut(handle, this.evaluators[last]);
+        }
+        this.rooms[last] = null;
+        this.layOut(last, null);
+    }
+
+    /**
+     * Returns whether the given room is tracked.
+     *
+     * @param room room to check
+     * @return true if the room is tracked
+     * @ass2
+     */
+    public boolean isTracked(Room room) {
+        return this.handles.containsKey(room);
+    }
+
+    /**
+     * Returns a new list of the tracked rooms, in the order their hazard
+     * levels are written by {@link #evaluateAll(int[])}.
+     *
+     * @return tracked rooms
+     * @ass2
+     */
+    public List<Room> getTrackedRooms() {
+        return new ArrayList<>(Arrays.asList(this.rooms).subList(0,
+                this.count));
+    }
+
+    /**
+     * Returns the number of tracked rooms.
+     *
+     * @return number of rooms
+     * @ass2
+     */
+    public int getTrackedCount() {
+        return this.count;
+    }
+
+    /**
+     * Evaluates every tracked room, writing the hazard level of the room
+     * at each index of {@link #getTrackedRooms()} to the same index of the
+     * given array.
+     * <p>
+     * Each level is the one the room's hazard evaluator would return from
+     * {@link HazardEvaluator#evaluateHazardLevel()}, or 0 if the room has
+     * none. The rooms' cached hazard levels are neither read nor updated,
+     * see {@link Room#getHazardLevel()}. Allocates nothing unless a room's
+     * evaluator has gained more sensors than any row before it.
+     *
+     * @param out array to hold the hazard levels
+     * @throws IllegalArgumentException if the array is shorter than the
+     * number of tracked rooms
+     * @ass2
+     */
+    public void evaluateAll(int[] out) {
+        int rows = this.count;
+        if (out.length < rows) {
+            throw new IllegalArgumentException(
+                    "Array holds fewer levels than tracked rooms");
+        }
+        for (int row = 0; row < rows; row++) {
+            HazardEvaluator evaluator = this.rooms[row].getHazardEvaluator();
+            if (evaluator != this.evaluators[row]) {
+                this.layOut(row, evaluator);
+            }
+        }
+        Arrays.fill(this.sums, 0, rows, 0);
+        Arrays.fill(this.peaks, 0, rows, 0);
+        for (int slot = 0; slot < this.levelColumns.length; slot++) {
+            HazardSensor[] sensors = this.sensorColumns[slot];
+            int[] levels = this.levelColumns[slot];
+            for (int row = 0; row < rows; row++) {
+                HazardSensor sensor = sensors[row];
+                levels[row] = sensor == null ? 0 : sensor.getHazardLevel();
+            }
+            this.kernel.accumulate(levels, this.weightColumns[slot],
+                    this.sums, this.peaks, rows);
+        }
+        for (int row = 0; row < rows; row++) {
+            switch (this.kinds[row]) {
+                case RULE_BASED:
+                    out[row] = this.ruleBasedLevel(row);
+                    break;
+                case WEIGHTING_BASED:
+                    out[row] = (int) Math.min(Math.floor(this.sums[row]
+                            / 100.0 / this.sensorCounts[row]), 100);
+                    break;
+                case SCALAR:
+                    out[row] = this.evaluators[row].evaluateHazardLevel();
+                    break;
+                default:
+                    out[row] = 0;
+            }
+        }
+    }
+
+    /**
+     * Applies the rules of {@link RuleBasedHazardEvaluator} to the summed
+     * and highest hazard levels of the given row.
+     *
+     * @param row rule-based row
+     * @return hazard level of the row
+     */
+    private int ruleBasedLevel(int row) {
+        int sensors = this.sensorCounts[row];
+        if (sensors == 0) {
+            return 0;
+        } else if (this.peaks[row] >= 100) {
+            return 100;
+        }
+        double totalHazardLevel = this.sums[row] / (double) sensors;
+        OccupancyEstimator estimator = this.estimators[row];
+        if (this.occupancySensors[row] != null) {
+            totalHazardLevel = totalHazardLevel
+                    * (this.occupancySensors[row].getHazardLevel() / 100.0);
+        } else if (estimator != null && estimator.isAvailable()) {
+            totalHazardLevel = totalHazardLevel
+                    * (estimator.getHazardLevel() / 100.0);
+        }
+        return (int) Math.min(Math.floor(totalHazardLevel), 100);
+    }
+
+    /**
+     * Lays out the given row for the given evaluator, clearing the slots
+     * it no longer uses.
+     *
+     * @param row row to lay out
+     * @param evaluator evaluator of the row's room, or null if it has none
+     */
+    private void layOut(int row, HazardEvaluator evaluator) {
+        this.evaluators[row] = evaluator;
+        this.occupancySensors[row] = null;
+        this.estimators[row] = null;
+        if (evaluator instanceof RuleBasedHazardEvaluator) {
+            RuleBasedHazardEvaluator rules =
+                    (RuleBasedHazardEvaluator) evaluator;
+            this.kinds[row] = RULE_BASED;
+            HazardSensor[] averaged = rules.getAveragedSensors();
+            if (averaged.length == 0 && rules.getOccupancySensor() != null) {
+                // the only kind is occupancy, whose level is returned as is
+                this.fill(row, new HazardSensor[] {
+                        rules.getOccupancySensor()}, null);
+            } else {
+                this.fill(row, averaged, null);
+                this.occupancySensors[row] = rules.getOccupancySensor();
+                this.estimators[row] = rules.getOccupancyEstimator();
+            }
+        } else if (evaluator instanceof WeightingBasedHazardEvaluator) {
+            WeightingBasedHazardEvaluator weights =
+                    (WeightingBasedHazardEvaluator) evaluator;
+            this.kinds[row] = WEIGHTING_BASED;
+            this.fill(row, weights.getSensors(), weights.getWeightArray());
+        } else {
+            this.kinds[row] = evaluator == null ? NONE : SCALAR;
+            this.fill(row, NO_SENSORS, null);
+        }
+    }
+
+    /**
+     * Places the given sensors in the slots of the given row, adding
+     * columns if the row has more sensors than any row before it, and
+     * clears the remaining slots.
+     *
+     * @param row row to fill
+     * @param sensors sensors of the row
+     * @param weights weighting of each sensor, or null to weight them all
+     *                by one
+     */
+    private void fill(int row, HazardSensor[] sensors, int[] weights) {
+        int slots = this.levelColumns.length;
+        if (sensors.length > slots) {
+            int capacity = this.rooms.length;
+            this.sensorColumns = Arrays.copyOf(this.sensorColumns,
+                    sensors.length);
+            this.weightColumns = Arrays.copyOf(this.weightColumns,
+                    sensors.length);
+            this.levelColumns = Arrays.copyOf(this.levelColumns,
+                    sensors.length);
+            for (int slot = slots; slot < sensors.length; slot++) {
+                this.sensorColumns[slot] = new HazardSensor[capacity];
+                this.weightColumns[slot] = new int[capacity];
+                this.levelColumns[slot] = new int[capacity];
+            }
+        }
+        for (int slot = 0; slot < this.levelColumns.length; slot++) {
+            boolean used = slot < sensors.length;
+            this.sensorColumns[slot][row] = used ? sensors[slot] : null;
+            this.weightColumns[slot][row] =
+                    !used ? 0 : weights == null ? 1 : weights[slot];
+        }
+        this.sensorCounts[row] = sensors.length;
+    }
+
+    /**
+     * Grows every column to the given number of rows.
+     *
+     * @param capacity new number of rows
+     */
+    private void grow(int capacity) {
+        this.rooms = Arrays.copyOf(this.rooms, capacity);
+        this.evaluators = Arrays.copyOf(this.evaluators, capacity);
+        this.kinds = Arrays.copyOf(this.kinds, capacity);
+        for (int slot = 0; slot < this.levelColumns.length; slot++) {
+            this.sensorColumns[slot] = Arrays.copyOf(
+                    this.sensorColumns[slot], capacity);
+            this.weightColumns[slot] = Arrays.copyOf(
+                    this.weightColumns[slot], capacity);
+            this.levelColumns[slot] = Arrays.copyOf(
+                    this.levelColumns[slot], capacity);
+        }
+        this.sensorCounts = Arrays.copyOf(this.sensorCounts, capacity);
+        this.occupancySensors = Arrays.copyOf(this.occupancySensors,
+                capacity);
+        this.estimators = Arrays.copyOf(this.estimators, capacity);
+        this.sums = Arrays.copyOf(this.sums, capacity);
+        this.peaks = Arrays.copyOf(this.peaks, capacity);
+    }
+}
@@ -3,6 +3,9 @@ package bms.hazardevaluation;
 /**
  * A component which takes all available hazard
  * sensor readings and returns a single hazard level.
+ * <p>
+ * The hazard levels of many rooms can be evaluated at once with a
+ * {@link BatchHazardEvaluator}.
  * @ass2
  */
 public interface HazardEvaluator {
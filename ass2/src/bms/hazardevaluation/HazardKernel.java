@@ -0,0 +1,22 @@
+package bms.hazardevaluation;
+
+/**
+ * Accumulates one column of sensor hazard levels into the per-room totals
+ * of a {@link BatchHazardEvaluator}.
+ */
+interface HazardKernel {
+
+    /**
+     * Adds each room's weighted hazard level to its sum, and raises each
+     * room's peak to its hazard level if higher, for the first given
+     * number of rooms.
+     *
+     * @param levels hazard level of the sensor in this column, per room
+     * @param weights weighting of the sensor in this column, per room
+     * @param sums sum of the weighted hazard levels so far, per room
+     * @param peaks highest hazard level so far, per room
+     * @param rooms number of rooms to accumulate
+     */
+    void accumulate(int[] levels, int[] weights, int[] sums, int[] peaks,
+                    int rooms);
+}
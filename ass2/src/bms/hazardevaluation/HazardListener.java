@@ -0,0 +1,41 @@
+package bms.hazardevaluation;
+
+import bms.room.Room;
+import bms.room.RoomState;
+
+/**
+ * Denotes a class that is notified whenever the {@link HazardMonitor}
+ * finds that the hazard level or state of a tracked room has changed.
+ * @ass2
+ */
+public interface HazardListener {
+    /**
+     * Called by the monitor each time an evaluation of a room finds a
+     * different hazard level or state than its last evaluation, including
+     * the first evaluation once the room is tracked.
+     * <p>
+     * The new level and state are available from
+     * {@link HazardMonitor#getHazardLevel(Room)} and
+     * {@link HazardMonitor#getRoomState(Room)}.
+     *
+     * @param room room evaluated
+     * @param previousLevel the room's hazard level last reported to the
+     *                      listeners, or 0 if it was not evaluated before
+     * @param previousState the room's state at its last evaluation, or null
+     *                      if it was not evaluated before
+     * @ass2
+     */
+    void hazardChanged(Room room, int previousLevel, RoomState previousState);
+
+    /**
+     * Called by the monitor once it stops tracking a room, after which it
+     * reports no more changes to it.
+     * <p>
+     * By default, does nothing.
+     *
+     * @param room room no longer tracked
+     * @ass2
+     */
+    default void roomUntracked(Room room) {
+    }
+}
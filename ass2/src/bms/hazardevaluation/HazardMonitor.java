@@ -0,0 +1,775 @@
+package bms.hazardevaluation;
+
+import bms.room.Room;
+import bms.room.RoomState;
+import bms.util.DeferredAction;
+import bms.util.TickPhase;
+import bms.util.TimedItem;
+import bms.util.TimedItemManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps the hazard level and state of tracked rooms up to date, evaluating
+ * calm rooms less often than rooms near a hazard threshold.
+ * <p>
+ * Rooms are evaluated on the clock of the timed item manager the monitor
+ * is registered with. Rooms should therefore be tracked by the monitor of
+ * the clock their sensors follow, see {@link #getInstance(TimedItemManager)}:
+ * the singleton for buildings run by the singleton manager, and a monitor
+ * of its own for a building simulated on its own.
+ * <p>
+ * After each evaluation a room is scheduled again according to its margin:
+ * how far its hazard level could move before it crosses one of the
+ * monitor's thresholds. Rooms which are not open, or within
+ * {@value #NEAR_MARGIN} levels of a threshold, are evaluated every minute;
+ * rooms within {@value #MID_MARGIN} levels every {@value #MID_INTERVAL}
+ * minutes; and all other rooms every {@value #CALM_INTERVAL} minutes.
+ * Rooms are kept in the buckets of a timing wheel keyed by the minute of
+ * their next evaluation, so each minute only the rooms due are visited.
+ * <p>
+ * Between evaluations, each tracked room reports the change in the hazard
+ * levels of its sensors as they take readings, see
+ * {@link #hazardMayChange(Room, int)}; the monitor attaches no listeners
+ * of its own. The hazard level of both kinds of evaluator moves by no more
+ * than the total change in the hazard levels of its sensors, so the room
+ * is re-evaluated in the same minute once that total reaches its margin.
+ * Fire drills, maintenance, new sensors and new evaluators also force a
+ * re-evaluation. Sensors going stale are noticed at the room's next
+ * scheduled evaluation.
+ * <p>
+ * Each evaluation which finds a new hazard level or state for a room is
+ * reported to the monitor's {@link HazardListener}s. The monitor does not
+ * cache hazard levels itself: it reads each room's cached level, which
+ * the room invalidates as described by {@link Room#getHazardLevel()}.
+ * @ass2
+ */
+public class HazardMonitor implements TimedItem {
+
+    /**
+     * Margin at or below which rooms are evaluated every minute
+     */
+    private static final int NEAR_MARGIN = 5;
+
+    /**
+     * Margin at or below which rooms are evaluated every
+     * {@value #MID_INTERVAL} minutes
+     */
+    private static final int MID_MARGIN = 15;
+
+    /**
+     * Minutes between evaluations of rooms within {@value #MID_MARGIN}
+     * levels of a threshold
+     */
+    private static final int MID_INTERVAL = 5;
+
+    /**
+     * Minutes between evaluations of calm rooms
+     */
+    private static final int CALM_INTERVAL = 15;
+
+    /**
+     * Number of buckets in the timing wheel, a power of two larger than
+     * the longest interval
+     */
+    private static final int WHEEL_SIZE = 16;
+
+    /**
+     * Hazard levels crossed by default
+     */
+    private static final int[] DEFAULT_THRESHOLDS = {25, 50, 75, 100};
+
+    /**
+     * Singleton instance.
+     */
+    private static HazardMonitor instance = new HazardMonitor();
+
+    /**
+     * Monitor of each topmost manager other than the singleton manager,
+     * created when first asked for
+     */
+    private static final Map<TimedItemManager, HazardMonitor> MONITORS =
+            new IdentityHashMap<>();
+
+    /**
+     * Handle of each tracked room
+     */
+    private final Map<Room, Integer> handles;
+
+    /**
+     * Tracked rooms, indexed by handle. Null for unused handles.
+     */
+    private Room[] rooms;
+
+    /**
+     * Hazard level of each room last reported to the listeners, indexed by
+     * handle. Only used to detect changes: the current level is the room's
+     * own, see {@link Room#getHazardLevel()}
+     */
+    private int[] reportedLevels;
+
+    /**
+     * State of each room at its last evaluation, indexed by handle
+     */
+    private RoomState[] states;
+
+    /**
+     * Distance to the nearest threshold at each room's last evaluation,
+     * indexed by handle
+     */
+    private int[] margins;
+
+    /**
+     * Total change in the hazard levels of each room's sensors since its
+     * last evaluation, indexed by handle
+     */
+    private int[] drifts;
+
+    /**
+     * Minute of each room's next evaluation, indexed by handle
+     */
+    private int[] dueMinutes;
+
+    /**
+     * Next node in each node's bucket, indexed by node
+     */
+    private int[] next;
+
+    /**
+     * Previous node in each node's bucket, indexed by node
+     */
+    private int[] previous;
+
+    /**
+     * Number of handles in use or reusable
+     */
+    private int count;
+
+    /**
+     * Handles no longer used by any room, to be reused
+     */
+    private int[] freeHandles;
+
+    /**
+     * Number of reusable handles
+     */
+    private int freeCount;
+
+    /**
+     * Hazard levels whose crossing is noticed straight away, ascending
+     */
+    private int[] thresholds;
+
+    /**
+     * Listeners notified each time the level or state of a room changes
+     */
+    private HazardListener[] listeners;
+
+    /**
+     * Minutes elapsed since the monitor was created
+     */
+    private int minute;
+
+    /**
+     * Number of room evaluations made
+     */
+    private long evaluations;
+
+    /**
+     * Adds to a room's drift once timed items running in parallel have
+     * finished, as the timing wheel is shared by every room
+     */
+    private final DeferredAction deferredDrift;
+
+    /**
+     * Re-evaluates a room once timed items running in parallel have
+     * finished
+     */
+    private final DeferredAction deferredRecheck;
+
+    /**
+     * Creates a new monitor tracking no rooms, with thresholds at hazard
+     * levels 25, 50, 75 and 100.
+     * <p>
+     * The monitor is registered as a timed item, see
+     * {@link TimedItemManager#registerTimedItem(TimedItem)}.
+     * @ass2
+     */
+    public HazardMonitor() {
+        this.handles = new IdentityHashMap<>();
+        this.rooms = new Room[0];
+        this.reportedLevels = new int[0];
+        this.states = new RoomState[0];
+        this.margins = new int[0];
+        this.drifts = new int[0];
+        this.dueMinutes = new int[0];
+        this.freeHandles = new int[0];
+        this.next = new int[WHEEL_SIZE];
+        this.previous = new int[WHEEL_SIZE];
+        for (int node = 0; node < WHEEL_SIZE; node++) {
+            this.next[node] = node;
+            this.previous[node] = node;
+        }
+        this.thresholds = DEFAULT_THRESHOLDS.clone();
+        this.listeners = new HazardListener[0];
+        this.deferredDrift = (room, change) ->
+                this.hazardMayChange((Room) room, change);
+        this.deferredRecheck = (room, argument) ->
+                this.recheck((Room) room);
+        TimedItemManager.getInstance().registerTimedItem(this);
+    }
+
+    /**
+     * Returns the singleton instance of the hazard monitor.
+     *
+     * @return singleton instance
+     * @ass2
+     */
+    public static HazardMonitor getInstance() {
+        return instance;
+    }
+
+    /**
+     * Returns the monitor of the clock the given manager's items follow:
+     * the monitor registered with its topmost manager, see
+     * {@link TimedItemManager#getRoot()}. This is the singleton instance
+     * for managers run by the singleton manager; other topmost managers
+     * are given a monitor of their own when first asked for, which is
+     * forgotten once it is unregistered, such as when the manager is
+     * disposed of.
+     *
+     * @param manager manager running the sensors of the rooms to track,
+     *                see {@link Room#getTimeManager()}
+     * @return monitor evaluating rooms on the manager's clock
+     * @ass2
+     */
+    public static HazardMonitor getInstance(TimedItemManager manager) {
+        TimedItemManager root = manager.getRoot();
+        if (root == TimedItemManager.getInstance()) {
+            return instance;
+        }
+        HazardMonitor monitor = MONITORS.get(root);
+        if (monitor == null) {
+            monitor = new HazardMonitor();
+            MONITORS.put(root, monitor);
+            root.registerTimedItem(monitor);
+        }
+        return monitor;
+    }
+
+    /**
+     * Returns the hazard levels whose crossing is noticed straight away.
+     *
+     * @return thresholds in ascending order
+     * @ass2
+     */
+    public int[] getThresholds() {
+        return this.thresholds.clone();
+    }
+
+    /**
+     * Adds a hazard level whose crossing must be noticed straight away,
+     * such as the level of an alert. Does nothing if it is already a
+     * threshold.
+     *
+     * @param threshold hazard level, from 1 to 100
+     * @throws IllegalArgumentException if threshold is not from 1 to 100
+     * @ass2
+     */
+    public void addThreshold(int threshold) {
+        if (threshold < 1 || threshold > 100) {
+            throw new IllegalArgumentException(
+                    "Threshold must be from 1 to 100");
+        }
+        int position = Arrays.binarySearch(this.thresholds, threshold);
+        if (position >= 0) {
+            return;
+        }
+        position = -position - 1;
+        int[] added = new int[this.thresholds.length + 1];
+        System.arraycopy(this.thresholds, 0, added, 0, position);
+        added[position] = threshold;
+        System.arraycopy(this.thresholds, position, added, position + 1,
+                this.thresholds.length - position);
+        this.thresholds = added;
+        // margins of rooms already tracked may now be too wide
+        for (int handle = 0; handle < this.count; handle++) {
+            if (this.rooms[handle] != null) {
+                this.recheck(handle);
+            }
+        }
+    }
+
+    /**
+     * Adds a listener to be notified each time an evaluation finds that
+     * the hazard level or state of a room has changed.
+     *
+     * @param listener listener to add
+     * @ass2
+     */
+    public void addListener(HazardListener listener) {
+        this.listeners = Arrays.copyOf(this.listeners,
+                this.listeners.length + 1);
+        this.listeners[this.listeners.length - 1] = listener;
+    }
+
+    /**
+     * Stops notifying the given listener of changes. Does nothing if it
+     * was not added.
+     *
+     * @param listener listener to remove
+     * @ass2
+     */
+    public void removeListener(HazardListener listener) {
+        for (int i = 0; i < this.listeners.length; i++) {
+            if (this.listeners[i] == listener) {
+                HazardListener[] remaining =
+                        new HazardListener[this.listeners.length - 1];
+                System.arraycopy(this.listeners, 0, remaining, 0, i);
+                System.arraycopy(this.listeners, i + 1, remaining, i,
+                        remaining.length - i);
+                this.listeners = remaining;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Starts keeping the hazard level and state of the given room up to
+     * date, evaluating it straight away. Does nothing if the room is
+     * already tracked.
+     * <p>
+     * The room reports its readings to the monitor until it is untracked,
+     * see {@link Room#watchHazard(HazardMonitor)}.
+     *
+     * @param room room to track
+     * @ass2
+     */
+    public void track(Room room) {
+        if (this.handles.containsKey(room)) {
+            return;
+        }
+        TimedItemManager.getInstance().wake(this);
+        int handle;
+        if (this.freeCount > 0) {
+            handle = this.freeHandles[--this.freeCount];
+        } else {
+            handle = this.count++;
+            if (handle == this.rooms.length) {
+                int capacity = Math.max(16, handle * 2);
+                this.rooms = Arrays.copyOf(this.rooms, capacity);
+                this.reportedLevels = Arrays.copyOf(this.reportedLevels,
+                        capacity);
+                this.states = Arrays.copyOf(this.states, capacity);
+                this.margins = Arrays.copyOf(this.margins, capacity);
+                this.drifts = Arrays.copyOf(this.drifts, capacity);
+                this.dueMinutes = Arrays.copyOf(this.dueMinutes, capacity);
+                this.next = Arrays.copyOf(this.next, WHEEL_SIZE + capacity);
+                this.previous = Arrays.copyOf(this.previous,
+                        WHEEL_SIZE + capacity);
+            }
+        }
+        this.rooms[handle] = room;
+        this.handles.put(room, handle);
+        room.watchHazard(this);
+        this.reportedLevels[handle] = 0;
+        int node = nodeOf(handle);
+        this.next[node] = node;
+        this.previous[node] = node;
+        this.evaluate(handle);
+        // the monitor may be asleep until after the room is due
+        TimedItemManager.getInstance().wake(this);
+    }
+
+    /**
+     * Stops keeping the given room up to date. Does nothing if the room is
+     * not tracked.
+     *
+     * @param room room to stop tracking
+     * @ass2
+     */
+    public void untrack(Room room) {
+        Integer handle = this.handles.remove(room);
+        if (handle == null) {
+            return;
+        }
+        room.unwatchHazard(this);
+        this.unlink(nodeOf(handle));
+        this.rooms[handle] = null;
+        this.states[handle] = null;
+        if (this.freeCount == this.freeHandles.length) {
+            this.freeHandles = Arrays.copyOf(this.freeHandles,
+                    Math.max(16, this.freeCount * 2));
+        }
+        this.freeHandles[this.freeCount++] = handle;
+        for (int i = 0; i < this.listeners.length; i++) {
+            this.listeners[i].roomUntracked(room);
+        }
+    }
+
+    /**
+     * Returns whether the given room is tracked.
+     *
+     * @param room room to check
+     * @return true if the room is tracked
+     * @ass2
+     */
+    public boolean isTracked(Room room) {
+        return this.handles.containsKey(room);
+    }
+
+    /**
+     * Returns the rooms tracked, in no particular order.
+     *
+     * @return list of tracked rooms
+     * @ass2
+     */
+    public List<Room> getTrackedRooms() {
+        List<Room> tracked = new ArrayList<>(this.handles.size());
+        for (int handle = 0; handle < this.count; handle++) {
+            if (this.rooms[handle] != null) {
+                tracked.add(this.rooms[handle]);
+            }
+        }
+        return tracked;
+    }
+
+    /**
+     * Returns the number of rooms tracked.
+     *
+     * @return number of tracked rooms
+     * @ass2
+     */
+    public int getTrackedCount() {
+        return this.handles.size();
+    }
+
+    /**
+     * Returns the current hazard level of the given room, or zero if it has
+     * no hazard evaluator.
+     * <p>
+     * The monitor keeps no copy of the level: it is the room's cached level,
+     * see {@link Room#getHazardLevel()}, which is only recalculated once the
+     * room has marked it stale.
+     *
+     * @param room tracked room
+     * @return hazard level of the room, from 0 to 100
+     * @throws IllegalArgumentException if the room is not tracked
+     * @ass2
+     */
+    public int getHazardLevel(Room room) {
+        return this.rooms[this.handleOf(room)].getHazardLevel();
+    }
+
+    /**
+     * Returns the state of the given room at its last evaluation.
+     *
+     * @param room tracked room
+     * @return state of the room
+     * @throws IllegalArgumentException if the room is not tracked
+     * @ass2
+     */
+    public RoomState getRoomState(Room room) {
+        return this.states[this.handleOf(room)];
+    }
+
+    /**
+     * Returns the number of minutes from the last evaluation of the given
+     * room until its next scheduled evaluation.
+     *
+     * @param room tracked room
+     * @return evaluation interval of the room, in minutes
+     * @throws IllegalArgumentException if the room is not tracked
+     * @ass2
+     */
+    public int getInterval(Room room) {
+        int handle = this.handleOf(room);
+        return intervalFor(this.margins[handle], this.states[handle]);
+    }
+
+    /**
+     * Returns the number of room evaluations made so far.
+     *
+     * @return number of evaluations
+     * @ass2
+     */
+    public long getEvaluationCount() {
+        return this.evaluations;
+    }
+
+    /**
+     * Re-evaluates the given room later in the current minute, once every
+     * sensor has taken its reading, such as after the room's fire drill
+     * or sensors change. Does nothing if the room is not tracked.
+     *
+     * @param room room to re-evaluate
+     * @ass2
+     */
+    public void recheck(Room room) {
+        if (TimedItemManager.defer(this.deferredRecheck, room, 0)) {
+            return;
+        }
+        Integer handle = this.handles.get(room);
+        if (handle != null) {
+            this.recheck(handle);
+        }
+    }
+
+    /**
+     * Adds a change in the hazard levels of the given room's sensors to the
+     * room's drift since its last evaluation, re-evaluating the room later
+     * in the current minute once the drift reaches the room's margin. A
+     * change of 100 always forces a re-evaluation, such as when a sensor
+     * reaches or leaves a hazard level of 100. Does nothing if the room is
+     * not tracked.
+     * <p>
+     * Called by tracked rooms as their sensors take readings.
+     *
+     * @param room room whose sensors took a reading
+     * @param change total change in the hazard levels of the sensors
+     * @ass2
+     */
+    public void hazardMayChange(Room room, int change) {
+        if (TimedItemManager.defer(this.deferredDrift, room, change)) {
+            return;
+        }
+        Integer handle = this.handles.get(room);
+        if (handle == null) {
+            return;
+        }
+        this.drifts[handle] += change;
+        if (change >= 100 || this.drifts[handle] >= this.margins[handle]) {
+            this.recheck(handle);
+        }
+    }
+
+    /**
+     * Advances the monitor's clock by one minute, and evaluates the rooms
+     * due.
+     * @ass2
+     */
+    @Override
+    public void elapseOneMinute() {
+        this.minute++;
+        int bucket = this.minute & (WHEEL_SIZE - 1);
+        int node = this.next[bucket];
+        while (node != bucket) {
+            int following = this.next[node];
+            int handle = node - WHEEL_SIZE;
+            if (this.dueMinutes[handle] == this.minute) {
+                this.evaluate(handle);
+            }
+            node = following;
+        }
+    }
+
+    /**
+     * Returns the phase in which the monitor is run, after the sensors of
+     * the rooms it tracks have taken their readings for the minute.
+     *
+     * @return {@link TickPhase#EVALUATORS}
+     * @ass2
+     */
+    @Override
+    public TickPhase getTickPhase() {
+        return TickPhase.EVALUATORS;
+    }
+
+    /**
+     * Returns the number of minutes until a room is next due, or
+     * {@link Integer#MAX_VALUE} if no rooms are tracked.
+     *
+     * @return minutes until the next evaluation
+     * @ass2
+     */
+    @Override
+    public int getMinutesUntilNextChange() {
+        for (int delay = 1; delay <= WHEEL_SIZE; delay++) {
+            int bucket = (this.minute + delay) & (WHEEL_SIZE - 1);
+            if (this.next[bucket] != bucket) {
+                return delay;
+            }
+        }
+        return Integer.MAX_VALUE;
+    }
+
+    /**
+     * Advances the monitor's clock by the given number of minutes, only
+     * visiting the buckets which are not empty.
+     *
+     * @param minutes number of minutes elapsed
+     * @ass2
+     */
+    @Override
+    public void elapseMinutes(int minutes) {
+        while (minutes > 0) {
+            int idle = Math.min(minutes, this.getMinutesUntilNextChange()) - 1;
+            this.minute += idle;
+            minutes -= idle;
+            this.elapseOneMinute();
+            minutes--;
+        }
+    }
+
+    /**
+     * Forgets the monitor as the monitor of its manager's clock, so that a
+     * new one is created if the manager is used again.
+     * @ass2
+     */
+    @Override
+    public void unregistered() {
+        MONITORS.values().remove(this);
+    }
+
+    /**
+     * Evaluates the room with the given handle, and schedules its next
+     * evaluation. Listeners are notified if the room's level or state
+     * changed.
+     *
+     * @param handle handle of the room
+     */
+    private void evaluate(int handle) {
+        Room room = this.rooms[handle];
+        int level = room.getHazardLevel();
+        int previousLevel = this.reportedLevels[handle];
+        RoomState previousState = this.states[handle];
+        this.reportedLevels[handle] = level;
+        this.states[handle] = room.evaluateRoomState();
+        this.margins[handle] = this.marginOf(level);
+        this.drifts[handle] = 0;
+        this.evaluations++;
+
+        this.schedule(handle, this.minute
+                + intervalFor(this.margins[handle], this.states[handle]));
+
+        if (level != previousLevel || this.states[handle] != previousState) {
+            for (int i = 0; i < this.listeners.length; i++) {
+                this.listeners[i].hazardChanged(room, previousLevel,
+                        previousState);
+            }
+        }
+    }
+
+    /**
+     * Schedules the room with the given handle to be evaluated again in
+     * the monitor's next minute, and makes sure that minute is run in the
+     * current minute of the timed item manager if it has not been yet.
+     *
+     * @param handle handle of the room
+     */
+    private void recheck(int handle) {
+        this.schedule(handle, this.minute + 1);
+        TimedItemManager.getInstance().wakeLater(this);
+    }
+
+    /**
+     * Moves the room with the given handle to the bucket of the given
+     * minute, unless it is already due sooner.
+     *
+     * @param handle handle of the room
+     * @param due minute of the room's next evaluation
+     */
+    private void schedule(int handle, int due) {
+        int node = nodeOf(handle);
+        if (this.next[node] != node && this.dueMinutes[handle] > this.minute
+                && this.dueMinutes[handle] <= due) {
+            return;
+        }
+        this.unlink(node);
+        this.dueMinutes[handle] = due;
+        this.link(node, due & (WHEEL_SIZE - 1));
+    }
+
+    /**
+     * Returns the smallest change in hazard level that could move the
+     * given level across a threshold: up to the next threshold above it,
+     * or down below the highest threshold at or under it.
+     *
+     * @param level hazard level
+     * @return margin to the nearest threshold, at least one
+     */
+    private int marginOf(int level) {
+        int margin = Integer.MAX_VALUE;
+        for (int i = 0; i < this.thresholds.length; i++) {
+            int threshold = this.thresholds[i];
+            if (threshold > level) {
+                margin = Math.min(margin, threshold - level);
+                break;
+            }
+            margin = level - threshold + 1;
+        }
+        return margin;
+    }
+
+    /**
+     * Returns the number of minutes between evaluations of a room with
+     * the given margin and state.
+     *
+     * @param margin margin to the nearest threshold
+     * @param state state of the room
+     * @return evaluation interval, in minutes
+     */
+    private static int intervalFor(int margin, RoomState state) {
+        if (state != RoomState.OPEN || margin <= NEAR_MARGIN) {
+            return 1;
+        } else if (margin <= MID_MARGIN) {
+            return MID_INTERVAL;
+        }
+        return CALM_INTERVAL;
+    }
+
+    /**
+     * Returns the handle of the given tracked room.
+     *
+     * @param room tracked room
+     * @return handle of the room
+     * @throws IllegalArgumentException if the room is not tracked
+     */
+    private int handleOf(Room room) {
+        Integer handle = this.handles.get(room);
+        if (handle == null) {
+            throw new IllegalArgumentException(
+                    "Room is not tracked: " + room);
+        }
+        return handle;
+    }
+
+    /**
+     * Returns the bucket node of the room with the given handle.
+     *
+     * @param handle handle of the room
+     * @return node of the room
+     */
+    private static int nodeOf(int handle) {
+        return WHEEL_SIZE + handle;
+    }
+
+    /**
+     * Removes a node from its bucket. Does nothing if it is in no bucket.
+     *
+     * @param node node to remove
+     */
+    private void unlink(int node) {
+        this.next[this.previous[node]] = this.next[node];
+        this.previous[this.next[node]] = this.previous[node];
+        this.next[node] = node;
+        this.previous[node] = node;
+    }
+
+    /**
+     * Adds a node to the end of the bucket with the given sentinel.
+     *
+     * @param node node to add
+     * @param sentinel sentinel of the bucket
+     */
+    private void link(int node, int sentinel) {
+        this.previous[node] = this.previous[sentinel];
+        this.next[node] = sentinel;
+        this.next[this.previous[sentinel]] = node;
+        this.previous[sentinel] = node;
+    }
+}
@@ -0,0 +1,297 @@
+package bms.hazardevaluation;
+
+import bms.room.Room;
+import bms.room.RoomState;
+import bms.util.DeferredAction;
+import bms.util.TimedItemManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Singleton class which ranks the rooms tracked by a {@link HazardMonitor}
+ * by their hazard level, such as to show the most hazardous rooms on a
+ * campus.
+ * <p>
+ * Rooms are kept in one bucket per hazard level, from 0 to 100, as linked
+ * lists threaded through arrays indexed by room handle. A room whose
+ * level changes is moved between buckets in constant time, and the
+ * highest ranked rooms are found by walking the buckets from 100 down,
+ * so a query takes time proportional to the number of rooms returned.
+ * Rooms at the same level are ranked in the order they reached it.
+ * @ass2
+ */
+public class HazardRanking implements HazardListener {
+
+    /**
+     * Number of hazard levels, and of buckets
+     */
+    private static final int LEVELS = 101;
+
+    /**
+     * Singleton instance.
+     */
+    private static HazardRanking instance =
+            new HazardRanking(HazardMonitor.getInstance());
+
+    /**
+     * Monitor whose rooms are ranked
+     */
+    private final HazardMonitor monitor;
+
+    /**
+     * Handle of each ranked room
+     */
+    private final Map<Room, Integer> handles;
+
+    /**
+     * Ranked rooms, indexed by handle. Null for unused handles.
+     */
+    private Room[] rooms;
+
+    /**
+     * Hazard level of each room, indexed by handle
+     */
+    private int[] levels;
+
+    /**
+     * Next node in the bucket of each node. Nodes 0 to 100 are the bucket
+     * of each hazard level, and node 101 + handle is the room with that
+     * handle.
+     */
+    private int[] next;
+
+    /**
+     * Previous node in the bucket of each node, indexed as in next
+     */
+    private int[] previous;
+
+    /**
+     * Number of rooms at each hazard level
+     */
+    private final int[] counts;
+
+    /**
+     * Handles released by rooms no longer tracked, ready for reuse
+     */
+    private int[] freeHandles;
+
+    /**
+     * Number of handles in freeHandles
+     */
+    private int freeCount;
+
+    /**
+     * Number of handles ever handed out
+     */
+    private int count;
+
+    /**
+     * Moves a room once timed items running in parallel have finished, as
+     * the buckets are shared by every room
+     */
+    private final DeferredAction deferredUpdate;
+
+    /**
+     * Creates a new ranking of the rooms tracked by the given monitor,
+     * which is kept up to date as the monitor evaluates them, see
+     * {@link HazardMonitor#addListener(HazardListener)}.
+     *
+     * @param monitor monitor whose rooms are ranked
+     * @ass2
+     */
+    public HazardRanking(HazardMonitor monitor) {
+        this.monitor = monitor;
+        this.handles = new IdentityHashMap<>();
+        this.rooms = new Room[0];
+        this.levels = new int[0];
+        this.next = new int[LEVELS];
+        this.previous = new int[LEVELS];
+        for (int node = 0; node < LEVELS; node++) {
+            this.next[node] = node;
+            this.previous[node] = node;
+        }
+        this.counts = new int[LEVELS];
+        this.freeHandles = new int[0];
+        this.deferredUpdate = (room, argument) -> this.update((Room) room);
+        for (Room room : monitor.getTrackedRooms()) {
+            this.update(room);
+        }
+        monitor.addListener(this);
+    }
+
+    /**
+     * Returns the singleton instance of the ranking, which ranks the rooms
+     * of {@link HazardMonitor#getInstance()}.
+     *
+     * @return singleton instance
+     * @ass2
+     */
+    public static HazardRanking getInstance() {
+        return instance;
+    }
+
+    /**
+     * Returns up to the given number of the most hazardous rooms, highest
+     * hazard level first.
+     *
+     * @param k number of rooms to return
+     * @return list of at most k rooms
+     * @throws IllegalArgumentException if k is negative
+     * @ass2
+     */
+    public List<Room> getTopRooms(int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException(
+                    "Number of rooms must not be negative");
+        }
+        List<Room> top = new ArrayList<>(Math.min(k, this.handles.size()));
+        for (int level = LEVELS - 1; level >= 0 && top.size() < k; level--) {
+            int node = this.next[level];
+            while (node != level && top.size() < k) {
+                top.add(this.rooms[node - LEVELS]);
+                node = this.next[node];
+            }
+        }
+        return top;
+    }
+
+    /**
+     * Returns the number of rooms ranked.
+     *
+     * @return number of rooms
+     * @ass2
+     */
+    public int getRankedCount() {
+        return this.handles.size();
+    }
+
+    /**
+     * Returns the number of rooms at the given hazard level.
+     *
+     * @param level hazard level, from 0 to 100
+     * @return number of rooms at the level
+     * @throws IllegalArgumentException if level is not from 0 to 100
+     * @ass2
+     */
+    public int getRoomCount(int level) {
+        if (level < 0 || level >= LEVELS) {
+            throw new IllegalArgumentException(
+                    "Level must be from 0 to 100");
+        }
+        return this.counts[level];
+    }
+
+    /**
+     * Moves the given room to the bucket of its new hazard level.
+     *
+     * @param room room evaluated
+     * @param previousLevel the room's hazard level at its last evaluation
+     * @param previousState the room's state at its last evaluation
+     * @ass2
+     */
+    @Override
+    public void hazardChanged(Room room, int previousLevel,
+                              RoomState previousState) {
+        if (!TimedItemManager.defer(this.deferredUpdate, room, 0)) {
+            this.update(room);
+        }
+    }
+
+    /**
+     * Stops ranking the given room.
+     *
+     * @param room room no longer tracked
+     * @ass2
+     */
+    @Override
+    public void roomUntracked(Room room) {
+        Integer handle = this.handles.remove(room);
+        if (handle == null) {
+            return;
+        }
+        this.unlink(LEVELS + handle);
+        this.counts[this.levels[handle]]--;
+        this.rooms[handle] = null;
+        if (this.freeCount == this.freeHandles.length) {
+            this.freeHandles = Arrays.copyOf(this.freeHandles,
+                    Math.max(16, this.freeCount * 2));
+        }
+        this.freeHandles[this.freeCount++] = handle;
+    }
+
+    /**
+     * Moves the given room to the back of the bucket of its current hazard
+     * level, ranking it first if it is not ranked yet. Does nothing if the
+     * room is not tracked by the monitor, or its level has not changed.
+     *
+     * @param room room to move
+     */
+    private void update(Room room) {
+        if (!this.monitor.isTracked(room)) {
+            return;
+        }
+        int level = this.monitor.getHazardLevel(room);
+        Integer known = this.handles.get(room);
+        int handle;
+        if (known == null) {
+            handle = this.allocate(room);
+        } else {
+            handle = known;
+            if (this.levels[handle] == level) {
+                return;
+            }
+            this.unlink(LEVELS + handle);
+            this.counts[this.levels[handle]]--;
+        }
+        this.levels[handle] = level;
+        this.counts[level]++;
+        int node = LEVELS + handle;
+        this.previous[node] = this.previous[level];
+        this.next[node] = level;
+        this.next[this.previous[level]] = node;
+        this.previous[level] = node;
+    }
+
+    /**
+     * Gives the given room a handle, reusing a released handle if there is
+     * one.
+     *
+     * @param room room to give a handle
+     * @return handle of the room
+     */
+    private int allocate(Room room) {
+        int handle;
+        if (this.freeCount > 0) {
+            handle = this.freeHandles[--this.freeCount];
+        } else {
+            handle = this.count++;
+            if (handle == this.rooms.length) {
+                int capacity = Math.max(16, handle * 2);
+                this.rooms = Arrays.copyOf(this.rooms, capacity);
+                this.levels = Arrays.copyOf(this.levels, capacity);
+                this.next = Arrays.copyOf(this.next, LEVELS + capacity);
+                this.previous = Arrays.copyOf(this.previous,
+                        LEVELS + capacity);
+            }
+        }
+        this.rooms[handle] = room;
+        this.handles.put(room, handle);
+        return handle;
+    }
+
+    /**
+     * Removes the given node from its bucket.
+     *
+     * @param node node of a ranked room
+     */
+    private void unlink(int node) {
+        this.next[this.previous[node]] = this.next[node];
+        this.previous[this.next[node]] = this.previous[node];
+        this.next[node] = node;
+        this.previous[node] = node;
+    }
+}
@@ -1,8 +1,14 @@
 package bms.hazardevaluation;
 
+import bms.room.OccupancyEstimator;
+import bms.room.Room;
 import bms.sensors.HazardSensor;
 import bms.sensors.OccupancySensor;
+import bms.sensors.SensorAggregate;
+import bms.sensors.SensorKind;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -15,18 +21,129 @@ public class RuleBasedHazardEvaluator
         implements HazardEvaluator {
 
     /**
-     * List of Hazard Sensors for RuleBasedHazardEvaluator
+     * One hazard sensor per kind of sensor evaluated: the sensor itself if
+     * it is the only one of its kind, the room's aggregate of that kind, or
+     * a group of all listed sensors of that kind
      */
-    private List<HazardSensor> sensorList;
+    private HazardSensor[] kindSensors;
+
+    /**
+     * Hazard sensors of each kind other than occupancy, taken from
+     * kindSensors
+     */
+    private HazardSensor[] averagedSensors;
+
+    /**
+     * Hazard sensor of the occupancy kind, taken from kindSensors, or null
+     */
+    private HazardSensor occupancySensor;
+
+    /**
+     * Estimator used in place of an occupancy sensor if there is none, or
+     * null
+     */
+    private OccupancyEstimator occupancyEstimator;
 
     /**
      * Creates a new rule-based hazard evaluator with the given list of sensors.
+     * <p>
+     * Sensors of the same kind are treated as a single sensor, so that each
+     * evaluation considers one hazard level per kind. The level of such a
+     * group is computed from its sensors on each evaluation; use
+     * {@link #RuleBasedHazardEvaluator(Room)} to evaluate a room from the
+     * aggregates it already keeps up to date instead.
      *
      * @param sensors sensors to be used in the hazard level calculation.
      * @ass2
      */
     public RuleBasedHazardEvaluator(List<HazardSensor> sensors) {
-        this.sensorList = sensors;
+        List<List<HazardSensor>> byKind = new ArrayList<>();
+        List<SensorKind> kinds = new ArrayList<>();
+        for (HazardSensor sensor : sensors) {
+            int index = kinds.indexOf(sensor.getKind());
+            if (index < 0) {
+                kinds.add(sensor.getKind());
+                byKind.add(new ArrayList<>());
+                index = kinds.size() - 1;
+            }
+            byKind.get(index).add(sensor);
+        }
+        this.kindSensors = new HazardSensor[kinds.size()];
+        for (int i = 0; i < kinds.size(); i++) {
+            if (byKind.get(i).size() == 1) {
+                this.kindSensors[i] = byKind.get(i).get(0);
+            } else {
+                this.kindSensors[i] = new KindGroup(kinds.get(i),
+                        byKind.get(i).toArray(new HazardSensor[0]));
+            }
+        }
+        this.compile();
+    }
+
+    /**
+     * Creates a new rule-based hazard evaluator for the hazard sensors in
+     * the given room, using the room's occupancy estimator in place of an
+     * occupancy sensor if the room has none.
+     * <p>
+     * Each kind of hazard sensor in the room at the time of creation is
+     * evaluated through the room's {@link SensorAggregate} of that kind, so
+     * an evaluation reads one incrementally maintained hazard level per
+     * kind, and sensors of those kinds added to the room later are included.
+     *
+     * @param room room whose hazard sensors are to be evaluated
+     * @ass2
+     */
+    public RuleBasedHazardEvaluator(Room room) {
+        List<HazardSensor> aggregates = new ArrayList<>();
+        for (SensorKind kind : SensorKind.values()) {
+            SensorAggregate aggregate = room.getAggregate(kind);
+            if (aggregate != null
+                    && aggregate.getSensors().get(0) instanceof HazardSensor) {
+                aggregates.add(aggregate);
+            }
+        }
+        this.kindSensors = aggregates.toArray(new HazardSensor[0]);
+        this.compile();
+        if (this.occupancySensor == null) {
+            this.occupancyEstimator = room.getOccupancyEstimator();
+        }
+    }
+
+    /**
+     * Splits the sensors of each kind into the averaged sensors and the
+     * occupancy sensor, so that evaluations need not check kinds.
+     */
+    private void compile() {
+        int averaged = 0;
+        this.averagedSensors = new HazardSensor[this.kindSensors.length];
+        for (HazardSensor sensor : this.kindSensors) {
+            if (sensor.getKind() == SensorKind.OCCUPANCY) {
+                this.occupancySensor = sensor;
+            } else {
+                this.averagedSensors[averaged++] = sensor;
+            }
+        }
+        this.averagedSensors = Arrays.copyOf(this.averagedSensors, averaged);
+    }
+
+    /**
+     * Creates a new rule-based hazard evaluator with the given list of
+     * sensors, using the given occupancy estimator in place of an
+     * occupancy sensor if the list contains none.
+     * <p>
+     * This allows a room with only CO2 sensors to scale its hazard level
+     * by its estimated occupancy.
+     *
+     * @param sensors sensors to be used in the hazard level calculation.
+     * @param occupancyEstimator estimator of the room's occupancy
+     * @ass2
+     */
+    public RuleBasedHazardEvaluator(List<HazardSensor> sensors,
+                                    OccupancyEstimator occupancyEstimator) {
+        this(sensors);
+        if (this.occupancySensor == null) {
+            this.occupancyEstimator = occupancyEstimator;
+        }
     }
 
     /**
@@ -36,65 +153,101 @@ public class RuleBasedHazardEvaluator
      * Note that square brackets [] have been used to
      * indicate mathematical grouping.
      *
+     * Sensors of the same kind are treated as a single sensor whose hazard
+     * level is that of their {@link SensorAggregate}: the highest hazard
+     * level of the sensors, or for occupancy sensors the hazard level of
+     * their total occupancy against their total capacity.
+     *
      * If there are no sensors, return 0.
      *
-     * If there is only one sensor, return that sensor's
+     * If there is only one kind of sensor, return that kind's
      * current hazard level as per HazardSensor.getHazardLevel().
      *
-     * If there is more than one sensor:
+     * If there is more than one kind of sensor:
      *
-     * If any sensor that is not an OccupancySensor
+     * If any kind of sensor that is not an OccupancySensor
      * has a hazard level of 100, return 100.
      *
-     * Calculate the average hazard level of all sensors that
+     * Calculate the average hazard level of all kinds of sensor that
      * are not an OccupancySensor.
      * Floating point division should be used when finding the average.
      * If there is an OccupancySensor in the list, multiply the average
-     * calculated in the previous step by [the occupancy sensor's
+     * calculated in the previous step by [the occupancy sensors'
      * current hazard level divided by 100, using floating point division].
+     * If there is none but an occupancy estimator was given and it has an
+     * estimate, the estimator counts as an additional kind of sensor and
+     * its hazard level is used instead.
      * Return the final average rounded to the nearest integer between 0 and 100.
-     * You can assume that there is no more than one
-     * OccupancySensor in the list passed to the constructor.
+     *
+     * The sensors are sorted by kind when the evaluator is created, so an
+     * evaluation reads each hazard level once, in a single pass which stops
+     * at the first level of 100.
      *
      * @return calculated hazard level according to a set of rules
      * @ass2
      */
     public int evaluateHazardLevel() {
         // Checks to see if list of sensors is empty or
-        // only contains one hazard sensor
-        if (sensorList.isEmpty()) {
+        // only contains one kind of hazard sensor
+        boolean estimated = this.occupancyEstimator != null
+                && this.occupancyEstimator.isAvailable();
+        if (this.kindSensors.length == 0) {
             return 0;
-        } else if (sensorList.size() == 1) {
-            return sensorList.get(0).getHazardLevel();
+        } else if (this.kindSensors.length == 1 && !estimated) {
+            return this.kindSensors[0].getHazardLevel();
         }
-        double totalHazardLevel = 0;
-        int numSensor = 0;
-        int sensorPos = 0;
-        boolean occSensor = false;
+        long hazardLevelSum = 0;
         // Evaluates hazard level according to rules given
-        for (HazardSensor sensor : sensorList) {
-            if ((sensor.getHazardLevel() >= 100) &&
-                    (!(sensor instanceof OccupancySensor)) ) {
+        for (int i = 0; i < this.averagedSensors.length; i++) {
+            int hazardLevel = this.averagedSensors[i].getHazardLevel();
+            if (hazardLevel >= 100) {
                 return 100;
             }
-            if (sensor instanceof OccupancySensor) {
-                occSensor = true;
-                sensorPos = sensorList.indexOf(sensor);
-            }
-            if (!(sensor instanceof OccupancySensor)) {
-                totalHazardLevel += sensor.getHazardLevel();
-                numSensor += 1;
-            }
+            hazardLevelSum += hazardLevel;
         }
-        totalHazardLevel = totalHazardLevel / numSensor;
-        if (occSensor) {
+        double totalHazardLevel =
+                hazardLevelSum / (double) this.averagedSensors.length;
+        if (this.occupancySensor != null) {
             totalHazardLevel = totalHazardLevel *
-                    ((sensorList.get(sensorPos).getHazardLevel())/100.0);
+                    (this.occupancySensor.getHazardLevel() / 100.0);
+        } else if (estimated) {
+            totalHazardLevel = totalHazardLevel *
+                    (this.occupancyEstimator.getHazardLevel() / 100.0);
         }
         return (int) Math.min(Math.floor(totalHazardLevel), 100);
 
     }
 
+    /**
+     * Returns the hazard sensors of each kind other than occupancy, whose
+     * hazard levels are averaged.
+     *
+     * @return averaged sensors, not to be modified
+     */
+    HazardSensor[] getAveragedSensors() {
+        return this.averagedSensors;
+    }
+
+    /**
+     * Returns the hazard sensor of the occupancy kind, or null if there is
+     * none.
+     *
+     * @return occupancy sensor
+     */
+    HazardSensor getOccupancySensor() {
+        return this.occupancySensor;
+    }
+
+    /**
+     * Returns the estimator used in place of an occupancy sensor, or null
+     * if there is none.
+     *
+     * @return occupancy estimator
+     */
+    OccupancyEstimator getOccupancyEstimator() {
+        return this.occupancyEstimator;
+    }
+
     /**
      * Returns the string representation of this
      * hazard evaluator.
@@ -110,4 +263,73 @@ public class RuleBasedHazardEvaluator
     public String toString() {
         return "RuleBased";
     }
+
+    /**
+     * Several listed sensors of the same kind, treated as one hazard sensor
+     * whose hazard level is computed from its members when read, in the same
+     * way as a {@link SensorAggregate} but without listening to the members.
+     */
+    private static class KindGroup implements HazardSensor {
+
+        /**
+         * Kind of every sensor in the group
+         */
+        private final SensorKind kind;
+
+        /**
+         * Sensors in the group
+         */
+        private final HazardSensor[] members;
+
+        /**
+         * Creates a group of the given sensors of the given kind.
+         *
+         * @param kind kind of the sensors
+         * @param members sensors in the group
+         */
+        private KindGroup(SensorKind kind, HazardSensor[] members) {
+            this.kind = kind;
+            this.members = members;
+        }
+
+        @Override
+        public SensorKind getKind() {
+            return this.kind;
+        }
+
+        @Override
+        public int getCurrentReading() {
+            long total = 0;
+            int max = 0;
+            for (HazardSensor member : this.members) {
+                total += member.getCurrentReading();
+                max = Math.max(max, member.getCurrentReading());
+            }
+            if (this.kind == SensorKind.OCCUPANCY) {
+                return (int) Math.min(total, Integer.MAX_VALUE);
+            }
+            return max;
+        }
+
+        @Override
+        public int getHazardLevel() {
+            if (this.kind == SensorKind.OCCUPANCY) {
+                long occupancy = 0;
+                long capacity = 0;
+                for (HazardSensor member : this.members) {
+                    occupancy += member.getCurrentReading();
+                    capacity += ((OccupancySensor) member).getCapacity();
+                }
+                if (occupancy >= capacity) {
+                    return 100;
+                }
+                return (int) Math.round(100.0 * occupancy / capacity);
+            }
+            int max = 0;
+            for (HazardSensor member : this.members) {
+                max = Math.max(max, member.getHazardLevel());
+            }
+            return max;
+        }
+    }
 }
@@ -0,0 +1,41 @@
+package bms.hazardevaluation;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Kernel accumulating columns with the vector API, as many rooms at once
+ * as the preferred vector shape of the platform holds.
+ * <p>
+ * Needs the {@code jdk.incubator.vector} module, which must be added with
+ * {@code --add-modules jdk.incubator.vector} both to compile this class and
+ * to use it at run time; {@link BatchHazardEvaluator} only loads it if the
+ * module is present.
+ */
+class VectorHazardKernel implements HazardKernel {
+
+    /**
+     * Shape of the vectors used
+     */
+    private static final VectorSpecies<Integer> SPECIES =
+            IntVector.SPECIES_PREFERRED;
+
+    @Override
+    public void accumulate(int[] levels, int[] weights, int[] sums,
+                           int[] peaks, int rooms) {
+        int row = 0;
+        int bound = SPECIES.loopBound(rooms);
+        for (; row < bound; row += SPECIES.length()) {
+            IntVector level = IntVector.fromArray(SPECIES, levels, row);
+            IntVector weight = IntVector.fromArray(SPECIES, weights, row);
+            IntVector.fromArray(SPECIES, sums, row).add(level.mul(weight))
+                    .intoArray(sums, row);
+            IntVector.fromArray(SPECIES, peaks, row).max(level)
+                    .intoArray(peaks, row);
+        }
+        for (; row < rooms; row++) {
+            sums[row] += levels[row] * weights[row];
+            peaks[row] = Math.max(peaks[row], levels[row]);
+        }
+    }
+}
@@ -19,9 +19,15 @@ public class WeightingBasedHazardEvaluator
         implements HazardEvaluator {
 
     /**
-     * Mapping of sensors to their respective weightings
+     * Sensors whose hazard levels are weighted, in the order they were
+     * given
      */
-    private Map<HazardSensor, Integer> sensorWeights;
+    private HazardSensor[] sensors;
+
+    /**
+     * Weighting of each sensor, indexed as in sensors
+     */
+    private int[] weightings;
 
     /**
      * Creates a new weighting-based hazard evaluator
@@ -29,6 +35,9 @@ public class WeightingBasedHazardEvaluator
      *
      * Each weighting must be between 0 and 100 inclusive,
      * and the total sum of all weightings must equal 100.
+     * <p>
+     * The sensors and their weightings are copied into arrays in the map's
+     * iteration order, which is the order of {@link #getWeightings()}.
      *
      * @param sensors mapping of sensors to their respective weighting
      * @throws IllegalArgumentException weighted average of
@@ -37,18 +46,46 @@ public class WeightingBasedHazardEvaluator
      */
     public WeightingBasedHazardEvaluator(Map<HazardSensor, Integer> sensors)
             throws IllegalArgumentException {
+        this(new ArrayList<>(sensors.keySet()),
+                new ArrayList<>(sensors.values()));
+    }
+
+    /**
+     * Creates a new weighting-based hazard evaluator with the given
+     * sensors, each weighted by the weighting at the same position.
+     * <p>
+     * Unlike a map, the lists may hold several sensors which are equal,
+     * such as two sensors of one kind with the same readings, each with a
+     * weighting of its own. The weightings must follow the same rules as
+     * for {@link #WeightingBasedHazardEvaluator(Map)}.
+     *
+     * @param sensors sensors to weight, in order
+     * @param weightings weighting of each sensor, in the same order
+     * @throws IllegalArgumentException if the lists differ in size, a
+     * weighting is out of range, or the weightings do not sum to 100
+     * @ass2
+     */
+    public WeightingBasedHazardEvaluator(List<HazardSensor> sensors,
+                                         List<Integer> weightings)
+            throws IllegalArgumentException {
+        if (sensors.size() != weightings.size()) {
+            throw new IllegalArgumentException();
+        }
         int totalWeight = 0;
-        for (Map.Entry<HazardSensor, Integer> entry : sensors.entrySet()) {
-            if (entry.getValue() < 0 || entry.getValue() > 100 ) {
+        this.sensors = new HazardSensor[sensors.size()];
+        this.weightings = new int[sensors.size()];
+        for (int i = 0; i < this.sensors.length; i++) {
+            int weighting = weightings.get(i);
+            if (weighting < 0 || weighting > 100) {
                 throw new IllegalArgumentException();
             }
-            totalWeight += entry.getValue();
+            totalWeight += weighting;
+            this.sensors[i] = sensors.get(i);
+            this.weightings[i] = weighting;
         }
-        if (totalWeight > 100 || totalWeight < 100) {
+        if (totalWeight != 100) {
             throw new IllegalArgumentException();
         }
-        this.sensorWeights = sensors;
-
     }
 
     /**
@@ -65,32 +102,70 @@ public class WeightingBasedHazardEvaluator
      * @ass2
      */
     public int evaluateHazardLevel() {
-        double totalWeight = 0;
-        for (Map.Entry<HazardSensor, Integer> entry :
-                this.sensorWeights.entrySet()) {
-            totalWeight += (entry.getKey().getHazardLevel() * entry.getValue())
-                    / 100.0;
+        long weightedSum = 0;
+        for (int i = 0; i < this.sensors.length; i++) {
+            weightedSum += this.sensors[i].getHazardLevel()
+                    * this.weightings[i];
         }
-        return (int) Math.min(Math.floor(totalWeight /
-                this.sensorWeights.size()), 100);
+        return (int) Math.min(Math.floor(weightedSum / 100.0 /
+                this.sensors.length), 100);
     }
 
     /**
      * Returns a list containing the weightings associated
      * with all of the sensors monitored by this hazard evaluator.
+     * <p>
+     * The weightings are in the order the sensors were given to the
+     * constructor.
      *
      * @return weightings
      * @ass2
      */
     public List<Integer> getWeightings() {
-        List<Integer> weightList = new ArrayList<>();
-        for (Integer i :
-                this.sensorWeights.values()) {
-            weightList.add(i);
+        List<Integer> weightList = new ArrayList<>(this.weightings.length);
+        for (int weighting : this.weightings) {
+            weightList.add(weighting);
         }
         return weightList;
     }
 
+    /**
+     * Returns the weighting associated with the given sensor, or 0 if the
+     * sensor is not monitored by this hazard evaluator.
+     *
+     * @param sensor sensor to find the weighting of
+     * @return sensor's weighting, 0 to 100
+     * @ass2
+     */
+    public int getWeighting(HazardSensor sensor) {
+        for (int i = 0; i < this.sensors.length; i++) {
+            if (this.sensors[i] == sensor) {
+                return this.weightings[i];
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Returns the sensors whose hazard levels are weighted, in the order
+     * of {@link #getWeightings()}.
+     *
+     * @return weighted sensors, not to be modified
+     */
+    HazardSensor[] getSensors() {
+        return this.sensors;
+    }
+
+    /**
+     * Returns the weighting of each sensor, in the order of
+     * {@link #getSensors()}.
+     *
+     * @return weightings, not to be modified
+     */
+    int[] getWeightArray() {
+        return this.weightings;
+    }
+
     /**
      * Returns the string representation of this hazard evaluator.
      *
@@ -0,0 +1,209 @@
+package bms.room;
+
+/**
+ * Singleton model relating carbon dioxide (CO2) levels to the number of
+ * people in a room, calibrated online from rooms that have both CO2 and
+ * occupancy sensors.
+ * <p>
+ * Occupant density (people per square metre) is modelled as a linear
+ * function of the CO2 level above the outdoor baseline and the rate at
+ * which the CO2 level is changing. The coefficients are fitted by
+ * recursive least squares, starting from a weak prior, so each calibration
+ * sample and each prediction takes constant time.
+ * <p>
+ * The model also learns the typical capacity per square metre of rooms
+ * with occupancy sensors, used to estimate the capacity of rooms without
+ * one.
+ * @ass2
+ */
+public class OccupancyCalibration {
+    /**
+     * CO2 level of outdoor air, in ppm
+     */
+    public static final int OUTDOOR_CO2 = 400;
+
+    /**
+     * Initial occupant density per 1000ppm of CO2 above outdoor levels
+     */
+    private static final double PRIOR_DENSITY_PER_KPPM = 0.25;
+
+    /**
+     * Initial variance of each coefficient; larger values let calibration
+     * samples override the prior sooner
+     */
+    private static final double PRIOR_VARIANCE = 1.0;
+
+    /**
+     * Initial capacity per square metre
+     */
+    private static final double PRIOR_CAPACITY_DENSITY = 0.5;
+
+    /**
+     * Weight of the prior capacity density, in calibration samples
+     */
+    private static final int PRIOR_CAPACITY_SAMPLES = 10;
+
+    /**
+     * Singleton instance.
+     */
+    private static OccupancyCalibration instance = new OccupancyCalibration();
+
+    /**
+     * Coefficients of the model: intercept, CO2 level (per 1000ppm above
+     * outdoor levels) and CO2 rate of change (per 100ppm per minute)
+     */
+    private final double[] coefficients;
+
+    /**
+     * Covariance of the coefficients, row-major 3x3
+     */
+    private final double[] covariance;
+
+    /**
+     * Sum of the capacity per square metre of every calibration sample,
+     * including the prior
+     */
+    private double capacityDensitySum;
+
+    /**
+     * Number of calibration samples taken, excluding the prior
+     */
+    private int samples;
+
+    /**
+     * Creates a new, uncalibrated model.
+     * @ass2
+     */
+    public OccupancyCalibration() {
+        this.coefficients = new double[] {0, PRIOR_DENSITY_PER_KPPM, 0};
+        this.covariance = new double[9];
+        for (int i = 0; i < 3; i++) {
+            this.covariance[i * 3 + i] = PRIOR_VARIANCE;
+        }
+        this.capacityDensitySum = PRIOR_CAPACITY_DENSITY
+                * PRIOR_CAPACITY_SAMPLES;
+    }
+
+    /**
+     * Returns the singleton instance of the occupancy calibration.
+     *
+     * @return singleton instance
+     * @ass2
+     */
+    public static OccupancyCalibration getInstance() {
+        return instance;
+    }
+
+    /**
+     * Returns the number of calibration samples taken.
+     *
+     * @return number of samples
+     * @ass2
+     */
+    public int getSampleCount() {
+        return this.samples;
+    }
+
+    /**
+     * Adds a calibration sample from a room with both CO2 and occupancy
+     * sensors.
+     *
+     * @param co2 CO2 level in the room, in ppm
+     * @param co2Rate rate of change of the CO2 level, in ppm per minute
+     * @param occupancy number of people in the room
+     * @param capacity total capacity of the room's occupancy sensors
+     * @param area area of the room in square metres
+     * @ass2
+     */
+    public void calibrate(double co2, double co2Rate, long occupancy,
+                          long capacity, double area) {
+        double x1 = levelFeature(co2);
+        double x2 = rateFeature(co2Rate);
+        double density = occupancy / area;
+
+        // recursive least squares update: gain = P x / (1 + x' P x)
+        double[] p = this.covariance;
+        double px0 = p[0] + p[1] * x1 + p[2] * x2;
+        double px1 = p[3] + p[4] * x1 + p[5] * x2;
+        double px2 = p[6] + p[7] * x1 + p[8] * x2;
+        double denominator = 1 + px0 + x1 * px1 + x2 * px2;
+        double error = density - this.predict(x1, x2);
+        double k0 = px0 / denominator;
+        double k1 = px1 / denominator;
+        double k2 = px2 / denominator;
+        this.coefficients[0] += k0 * error;
+        this.coefficients[1] += k1 * error;
+        this.coefficients[2] += k2 * error;
+
+        // P = P - k (P x)'
+        p[0] -= k0 * px0;
+        p[1] -= k0 * px1;
+        p[2] -= k0 * px2;
+        p[3] -= k1 * px0;
+        p[4] -= k1 * px1;
+        p[5] -= k1 * px2;
+        p[6] -= k2 * px0;
+        p[7] -= k2 * px1;
+        p[8] -= k2 * px2;
+
+        this.capacityDensitySum += capacity / area;
+        this.samples++;
+    }
+
+    /**
+     * Returns the estimated number of people per square metre in a room
+     * with the given CO2 level and rate of change. Never negative.
+     *
+     * @param co2 CO2 level in the room, in ppm
+     * @param co2Rate rate of change of the CO2 level, in ppm per minute
+     * @return estimated occupant density
+     * @ass2
+     */
+    public double estimateDensity(double co2, double co2Rate) {
+        return Math.max(0,
+                this.predict(levelFeature(co2), rateFeature(co2Rate)));
+    }
+
+    /**
+     * Returns the typical capacity per square metre of calibrated rooms.
+     *
+     * @return estimated capacity density
+     * @ass2
+     */
+    public double getCapacityDensity() {
+        return this.capacityDensitySum
+                / (this.samples + PRIOR_CAPACITY_SAMPLES);
+    }
+
+    /**
+     * Returns the model's prediction for the given features.
+     *
+     * @param x1 CO2 level feature
+     * @param x2 CO2 rate feature
+     * @return predicted occupant density
+     */
+    private double predict(double x1, double x2) {
+        return this.coefficients[0] + this.coefficients[1] * x1
+                + this.coefficients[2] * x2;
+    }
+
+    /**
+     * Scales a CO2 level to thousands of ppm above outdoor levels.
+     *
+     * @param co2 CO2 level in ppm
+     * @return CO2 level feature
+     */
+    private static double levelFeature(double co2) {
+        return Math.max(0, co2 - OUTDOOR_CO2) / 1000;
+    }
+
+    /**
+     * Scales a CO2 rate of change to hundreds of ppm per minute.
+     *
+     * @param co2Rate rate of change in ppm per minute
+     * @return CO2 rate feature
+     */
+    private static double rateFeature(double co2Rate) {
+        return co2Rate / 100;
+    }
+}
@@ -0,0 +1,290 @@
+package bms.room;
+
+import bms.sensors.ReadingListener;
+import bms.sensors.SensorAggregate;
+import bms.sensors.SensorKind;
+import bms.sensors.TimedSensor;
+import bms.util.DeferredAction;
+import bms.util.TimedItemManager;
+
+/**
+ * Estimates the number of people in a room by fusing its carbon dioxide
+ * (CO2) and occupancy sensors.
+ * <p>
+ * The estimator follows the mean CO2 level of the room and a smoothed rate
+ * of change, updated in constant time whenever one of the room's CO2
+ * sensors takes a new reading. If the room has occupancy sensors, their
+ * total is reported as the occupancy and each new minute of readings is
+ * used to calibrate the shared {@link OccupancyCalibration}. Otherwise the
+ * occupancy is inferred from the CO2 level using the calibrated model.
+ * @ass2
+ */
+public class OccupancyEstimator implements ReadingListener {
+
+    /**
+     * Smoothing factor of the CO2 rate of change
+     */
+    private static final double RATE_SMOOTHING = 0.3;
+
+    /**
+     * Calibrates the shared model once timed items running in parallel
+     * have finished, so that samples are added in a deterministic order
+     */
+    private static final DeferredAction DEFERRED_CALIBRATION =
+            (estimator, argument) -> ((OccupancyEstimator) estimator)
+                    .calibrate();
+
+    /**
+     * Room whose occupancy is estimated
+     */
+    private final Room room;
+
+    /**
+     * Model relating CO2 levels to occupancy
+     */
+    private final OccupancyCalibration calibration;
+
+    /**
+     * Minute of the most recent CO2 update, or -1 if none
+     */
+    private int lastMinute;
+
+    /**
+     * Mean CO2 level at the most recent update
+     */
+    private double level;
+
+    /**
+     * Mean CO2 level at the end of the previous minute with an update
+     */
+    private double previousLevel;
+
+    /**
+     * Minute of the previous minute with an update
+     */
+    private int previousMinute;
+
+    /**
+     * Smoothed rate of change up to the previous minute with an update
+     */
+    private double previousRate;
+
+    /**
+     * Smoothed rate of change of the mean CO2 level, in ppm per minute
+     */
+    private double rate;
+
+    /**
+     * Creates an estimator for the given room, calibrated by the given
+     * model.
+     *
+     * @param room room whose occupancy is estimated
+     * @param calibration model relating CO2 levels to occupancy
+     * @ass2
+     */
+    public OccupancyEstimator(Room room, OccupancyCalibration calibration) {
+        this.room = room;
+        this.calibration = calibration;
+        this.lastMinute = -1;
+        this.previousMinute = -1;
+    }
+
+    /**
+     * Starts following the readings of a CO2 sensor in the room.
+     *
+     * @param sensor CO2 sensor in the room
+     * @ass2
+     */
+    public void track(TimedSensor sensor) {
+        if (this.lastMinute < 0) {
+            this.lastMinute = sensor.getTimeElapsed();
+            this.level = sensor.getCurrentReading();
+        }
+        sensor.addReadingListener(this);
+    }
+
+    /**
+     * Updates the CO2 rate of change when one of the room's CO2 sensors
+     * takes a new reading, and calibrates the model on the first update
+     * of each minute if the room has occupancy sensors.
+     *
+     * @param sensor sensor that took the reading
+     * @param previousReading the sensor's reading before this update
+     * @ass2
+     */
+    @Override
+    public void readingUpdated(TimedSensor sensor, int previousReading) {
+        SensorAggregate co2 = this.room.getAggregate(SensorKind.CO2);
+        if (co2 == null) {
+            // every CO2 sensor has been retired
+            return;
+        }
+        int minute = sensor.getStoredTimeElapsed();
+        double level = co2.getMeanReading();
+        if (minute != this.lastMinute) {
+            if (this.lastMinute >= 0) {
+                // the level seen at the last update is final for its minute
+                this.previousLevel = this.level;
+                this.previousMinute = this.lastMinute;
+                this.previousRate = this.rate;
+                if (!TimedItemManager.defer(DEFERRED_CALIBRATION, this, 0)) {
+                    this.calibrate();
+                }
+            }
+            this.lastMinute = minute;
+        }
+        this.level = level;
+        if (this.previousMinute >= 0) {
+            double minuteRate = (level - this.previousLevel)
+                    / (minute - this.previousMinute);
+            this.rate = this.previousRate
+                    + RATE_SMOOTHING * (minuteRate - this.previousRate);
+        }
+    }
+
+    /**
+     * Restarts the CO2 rate of change from the room's new mean level once
+     * one of its CO2 sensors is retired, as the retired sensor's reading
+     * no longer counts towards the mean. The smoothed rate so far is kept
+     * unless the room has no CO2 sensors left.
+     *
+     * @param sensor sensor that was unregistered
+     * @ass2
+     */
+    @Override
+    public void sensorRetired(TimedSensor sensor) {
+        SensorAggregate co2 = this.room.getAggregate(SensorKind.CO2);
+        this.previousMinute = -1;
+        if (co2 == null) {
+            this.lastMinute = -1;
+            this.level = 0;
+            this.rate = 0;
+            this.previousRate = 0;
+        } else {
+            this.level = co2.getMeanReading();
+        }
+    }
+
+    /**
+     * Returns the smoothed rate of change of the room's mean CO2 level.
+     *
+     * @return CO2 rate of change in ppm per minute
+     * @ass2
+     */
+    public double getCo2Rate() {
+        return this.rate;
+    }
+
+    /**
+     * Returns whether an occupancy estimate is available, that is whether
+     * the room has any CO2 or occupancy sensors.
+     *
+     * @return true if occupancy can be estimated
+     * @ass2
+     */
+    public boolean isAvailable() {
+        return this.room.getAggregate(SensorKind.CO2) != null
+                || this.isMeasured();
+    }
+
+    /**
+     * Returns whether the room has occupancy sensors, in which case the
+     * occupancy is measured rather than inferred.
+     *
+     * @return true if occupancy is measured
+     * @ass2
+     */
+    public boolean isMeasured() {
+        return this.room.getAggregate(SensorKind.OCCUPANCY) != null;
+    }
+
+    /**
+     * Returns the number of people in the room: the total of its occupancy
+     * sensors if it has any, otherwise the number inferred from its CO2
+     * level.
+     *
+     * @return estimated number of people in the room
+     * @ass2
+     */
+    public int getEstimatedOccupancy() {
+        SensorAggregate occupancy =
+                this.room.getAggregate(SensorKind.OCCUPANCY);
+        if (occupancy != null) {
+            return (int) Math.min(occupancy.getReadingSum(),
+                    Integer.MAX_VALUE);
+        }
+        SensorAggregate co2 = this.room.getAggregate(SensorKind.CO2);
+        if (co2 == null) {
+            return 0;
+        }
+        return (int) Math.round(this.calibration.estimateDensity(
+                co2.getMeanReading(), this.rate) * this.room.getArea());
+    }
+
+    /**
+     * Returns the capacity of the room: the total of its occupancy sensors'
+     * capacities if it has any, otherwise an estimate from its area and
+     * the capacity per square metre of calibrated rooms. At least one.
+     *
+     * @return estimated capacity of the room
+     * @ass2
+     */
+    public int getEstimatedCapacity() {
+        SensorAggregate occupancy =
+                this.room.getAggregate(SensorKind.OCCUPANCY);
+        if (occupancy != null) {
+            return (int) Math.max(1, Math.min(occupancy.getCapacitySum(),
+                    Integer.MAX_VALUE));
+        }
+        return (int) Math.max(1, Math.round(
+                this.calibration.getCapacityDensity() * this.room.getArea()));
+    }
+
+    /**
+     * Returns the occupancy hazard level of the room, calculated from the
+     * estimated occupancy and capacity as in
+     * {@link bms.sensors.OccupancySensor#getHazardLevel()}.
+     *
+     * @return estimated occupancy hazard level, 0 to 100
+     * @ass2
+     */
+    public int getHazardLevel() {
+        SensorAggregate occupancy =
+                this.room.getAggregate(SensorKind.OCCUPANCY);
+        if (occupancy != null) {
+            return occupancy.getHazardLevel();
+        }
+        int estimate = this.getEstimatedOccupancy();
+        int capacity = this.getEstimatedCapacity();
+        if (estimate >= capacity) {
+            return 100;
+        }
+        return (int) Math.round(100.0 * estimate / capacity);
+    }
+
+    /**
+     * Returns the occupancy comfort level of the room, 100 minus
+     * {@link #getHazardLevel()}.
+     *
+     * @return estimated occupancy comfort level, 0 to 100
+     * @ass2
+     */
+    public int getComfortLevel() {
+        return 100 - this.getHazardLevel();
+    }
+
+    /**
+     * Adds the room's state at the end of the previous minute to the
+     * calibration, if the room has occupancy sensors.
+     */
+    private void calibrate() {
+        SensorAggregate occupancy =
+                this.room.getAggregate(SensorKind.OCCUPANCY);
+        if (occupancy == null || this.room.getArea() <= 0) {
+            return;
+        }
+        this.calibration.calibrate(this.previousLevel, this.previousRate,
+                occupancy.getReadingSum(), occupancy.getCapacitySum(),
+                this.room.getArea());
+    }
+}
@@ -2,15 +2,25 @@ package bms.room;
 
 import bms.exceptions.DuplicateSensorException;
 import bms.hazardevaluation.HazardEvaluator;
+import bms.hazardevaluation.HazardMonitor;
 import bms.hazardevaluation.WeightingBasedHazardEvaluator;
+import bms.sensors.AnomalyMonitor;
+import bms.sensors.HazardSensor;
+import bms.sensors.ReadingListener;
 import bms.sensors.Sensor;
-import bms.sensors.TemperatureSensor;
+import bms.sensors.SensorAggregate;
+import bms.sensors.SensorHealthMonitor;
+import bms.sensors.SensorKind;
+import bms.sensors.TimedSensor;
 import bms.util.Encodable;
+import bms.util.ReadingDistributions;
+import bms.util.TimedItem;
+import bms.util.TimedItemManager;
 
 import java.text.DecimalFormat;
 import java.text.NumberFormat;
 import java.util.ArrayList;
-import java.util.Comparator;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -41,11 +51,19 @@ public class Room implements Encodable {
     private RoomType type;
 
     /**
-     * List of sensors located in the room. Rooms may only have up to one of
-     * each type of sensor. Alphabetically sorted by class name.
+     * List of sensors located in the room. Rooms may have any number of
+     * each kind of sensor. Alphabetically sorted by kind name, which is the
+     * sensor's class name, then in order of addition.
      */
     private List<Sensor> sensors;
 
+    /**
+     * Aggregates of the sensors located in the room, indexed by
+     * {@link SensorKind#getId()}. Aggregates of kinds with no sensor in
+     * the room are null.
+     */
+    private SensorAggregate[] aggregates;
+
     /**
      * Area of the room in square metres.
      */
@@ -73,6 +91,52 @@ public class Room implements Encodable {
      */
     private HazardEvaluator hazardEvaluator;
 
+    /**
+     * Hazard level last calculated by the room's hazard evaluator, the only
+     * copy kept of it, see {@link #getHazardLevel()}
+     */
+    private int hazardLevel;
+
+    /**
+     * Whether the cached hazard level must be recalculated before it is
+     * next returned, see {@link #getHazardLevel()}
+     */
+    private boolean hazardLevelStale;
+
+    /**
+     * Estimator of the number of people in the room
+     */
+    private OccupancyEstimator occupancyEstimator;
+
+    /**
+     * Timed items woken whenever the room may start or stop evacuating
+     */
+    private List<TimedItem> evacuationWatchers;
+
+    /**
+     * Hazard monitors tracking the room, told of each change in the hazard
+     * levels of its sensors
+     */
+    private List<HazardMonitor> hazardMonitors;
+
+    /**
+     * Whether the room's temperature sensors reported a fire at their last
+     * reading
+     */
+    private boolean onFire;
+
+    /**
+     * Manager of the room's timed sensors, or null until the room is given
+     * one, in which case they are registered with the singleton manager
+     */
+    private TimedItemManager timeManager;
+
+    /**
+     * Monitor tracking the room's timed sensors, that of the clock of the
+     * room's time manager, see {@link SensorHealthMonitor#getInstance(
+     * TimedItemManager)}
+     */
+    private SensorHealthMonitor healthMonitor;
 
     /**
      * Creates a new room with the given room number.
@@ -88,9 +152,18 @@ public class Room implements Encodable {
         this.area = area;
 
         this.sensors = new ArrayList<>();
+        this.aggregates = new SensorAggregate[SensorKind.count()];
         this.fireDrill = false;
         this.maintenanceOngoing = false;
         this.hazardEvaluator = null;
+        this.hazardLevelStale = true;
+        this.occupancyEstimator = new OccupancyEstimator(this,
+                OccupancyCalibration.getInstance());
+        this.evacuationWatchers = new ArrayList<>();
+        this.hazardMonitors = new ArrayList<>();
+        this.onFire = false;
+        this.timeManager = null;
+        this.healthMonitor = SensorHealthMonitor.getInstance();
     }
 
     /**
@@ -171,6 +244,17 @@ public class Room implements Encodable {
         return new ArrayList<>(this.sensors);
     }
 
+    /**
+     * Returns the number of sensors in the room, without copying the room's
+     * list of sensors.
+     *
+     * @return number of sensors in the room
+     * @ass2
+     */
+    public int getSensorCount() {
+        return this.sensors.size();
+    }
+
     /**
      * Change the status of the fire drill to the given value.
      *
@@ -178,7 +262,171 @@ public class Room implements Encodable {
      * @ass1
      */
     public void setFireDrill(boolean fireDrill) {
+        if (fireDrill == this.fireDrill) {
+            return;
+        }
+        this.wakeEvacuationWatchers();
         this.fireDrill = fireDrill;
+        this.wakeEvacuationWatchers();
+        this.recheckHazard();
+    }
+
+    /**
+     * Registers a timed item to be woken whenever the room may start or
+     * stop evacuating, see {@link TimedItemManager#wake(TimedItem)}.
+     * <p>
+     * Watchers are woken both before and after a fire drill starts or
+     * stops, and when the room's temperature sensors start or stop
+     * reporting a fire.
+     *
+     * @param watcher timed item to wake
+     * @ass2
+     */
+    public void watchEvacuation(TimedItem watcher) {
+        this.evacuationWatchers.add(watcher);
+    }
+
+    /**
+     * Stops waking the given timed item when the room may start or stop
+     * evacuating. Does nothing if it is not watching the room.
+     *
+     * @param watcher timed item to stop waking
+     * @ass2
+     */
+    public void unwatchEvacuation(TimedItem watcher) {
+        for (int i = 0; i < this.evacuationWatchers.size(); i++) {
+            if (this.evacuationWatchers.get(i) == watcher) {
+                this.evacuationWatchers.remove(i);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Reports the changes in the hazard levels of the room's sensors to the
+     * given monitor, see {@link HazardMonitor#hazardMayChange(Room, int)},
+     * and asks it to re-evaluate the room whenever its fire drill,
+     * maintenance, sensors or hazard evaluator change. Does nothing if the
+     * monitor is already watching the room.
+     * <p>
+     * Called by the monitor when it starts tracking the room, see
+     * {@link HazardMonitor#track(Room)}.
+     *
+     * @param monitor monitor tracking the room
+     * @ass2
+     */
+    public void watchHazard(HazardMonitor monitor) {
+        for (int i = 0; i < this.hazardMonitors.size(); i++) {
+            if (this.hazardMonitors.get(i) == monitor) {
+                return;
+            }
+        }
+        this.hazardMonitors.add(monitor);
+    }
+
+    /**
+     * Stops reporting to the given monitor. Does nothing if it is not
+     * watching the room.
+     *
+     * @param monitor monitor no longer tracking the room
+     * @ass2
+     */
+    public void unwatchHazard(HazardMonitor monitor) {
+        for (int i = 0; i < this.hazardMonitors.size(); i++) {
+            if (this.hazardMonitors.get(i) == monitor) {
+                this.hazardMonitors.remove(i);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Returns a new list of the hazard monitors watching the room.
+     * <p>
+     * Adding or removing monitors from this list does not affect the
+     * room's internal list.
+     *
+     * @return monitors tracking the room
+     * @ass2
+     */
+    public List<HazardMonitor> getHazardMonitors() {
+        return new ArrayList<>(this.hazardMonitors);
+    }
+
+    /**
+     * Registers the room's timed sensors with the given manager. Sensors
+     * added later are registered with it too.
+     * <p>
+     * If the manager follows another clock than the room's last manager,
+     * the sensors are moved to the health monitor of the new clock, see
+     * {@link SensorHealthMonitor#getInstance(TimedItemManager)}.
+     *
+     * @param timeManager manager of the room's timed sensors
+     * @see TimedItemManager#registerTimedItem(TimedItem)
+     * @ass2
+     */
+    public void setTimeManager(TimedItemManager timeManager) {
+        this.timeManager = timeManager;
+        SensorHealthMonitor health =
+                SensorHealthMonitor.getInstance(timeManager);
+        for (Sensor sensor : this.sensors) {
+            if (sensor instanceof TimedSensor) {
+                timeManager.registerTimedItem((TimedSensor) sensor);
+                if (health != this.healthMonitor) {
+                    this.healthMonitor.untrack((TimedSensor) sensor);
+                    health.track((TimedSensor) sensor);
+                }
+            }
+        }
+        this.healthMonitor = health;
+    }
+
+    /**
+     * Returns the manager the room's timed sensors are registered with: the
+     * one last given, see {@link #setTimeManager(TimedItemManager)}, or the
+     * singleton manager if none has been.
+     *
+     * @return manager of the room's timed sensors
+     * @ass2
+     */
+    public TimedItemManager getTimeManager() {
+        if (this.timeManager == null) {
+            return TimedItemManager.getInstance();
+        }
+        return this.timeManager;
+    }
+
+    /**
+     * Wakes every timed item watching for the room's evacuation.
+     */
+    private void wakeEvacuationWatchers() {
+        for (int i = 0; i < this.evacuationWatchers.size(); i++) {
+            TimedItemManager.getInstance().wake(this.evacuationWatchers.get(i));
+        }
+    }
+
+    /**
+     * Asks every hazard monitor watching the room to re-evaluate it.
+     */
+    private void recheckHazard() {
+        for (int i = 0; i < this.hazardMonitors.size(); i++) {
+            this.hazardMonitors.get(i).recheck(this);
+        }
+    }
+
+    /**
+     * Wakes the evacuation watchers if the room's temperature sensors have
+     * started or stopped reporting a fire.
+     */
+    private void checkFire() {
+        SensorAggregate temperatureSensors =
+                this.getAggregate(SensorKind.TEMPERATURE);
+        boolean fire = temperatureSensors != null
+                && temperatureSensors.getHazardLevel() >= 100;
+        if (fire != this.onFire) {
+            this.onFire = fire;
+            this.wakeEvacuationWatchers();
+        }
     }
 
     /**
@@ -189,6 +437,7 @@ public class Room implements Encodable {
      */
     public void setMaintenance(boolean maintenance) {
         this.maintenanceOngoing = maintenance;
+        this.recheckHazard();
     }
 
     /**
@@ -209,6 +458,52 @@ public class Room implements Encodable {
      */
     public void setHazardEvaluator(HazardEvaluator hazardEvaluator) {
         this.hazardEvaluator = hazardEvaluator;
+        this.hazardLevelStale = true;
+        this.recheckHazard();
+    }
+
+    /**
+     * Returns the hazard level calculated by the room's hazard evaluator,
+     * or 0 if the room has none.
+     * <p>
+     * The level is cached by the room, and {@link HazardMonitor}s read this
+     * cache rather than keeping copies. The cache is invalidated, and the
+     * level recalculated on its next use, when and only when:
+     * <ul>
+     * <li>the current reading of one of the room's timed sensors
+     * changes;</li>
+     * <li>a CO2 sensor takes a reading in a room without an occupancy
+     * sensor, as the room's estimated occupancy follows the rate of change
+     * of its CO2 readings;</li>
+     * <li>a sensor is added to the room, see {@link #addSensor(Sensor)}, or
+     * one of its timed sensors is retired;</li>
+     * <li>the room's hazard evaluator is replaced, see
+     * {@link #setHazardEvaluator(HazardEvaluator)}.</li>
+     * </ul>
+     * Evaluators should therefore only use sensors located in the room.
+     *
+     * @return room's current hazard level, 0 to 100
+     * @see HazardEvaluator#evaluateHazardLevel()
+     * @ass2
+     */
+    public int getHazardLevel() {
+        if (this.hazardLevelStale) {
+            this.hazardLevel = this.hazardEvaluator == null ? 0
+                    : this.hazardEvaluator.evaluateHazardLevel();
+            this.hazardLevelStale = false;
+        }
+        return this.hazardLevel;
+    }
+
+    /**
+     * Returns the estimator of the number of people in this room, which
+     * infers occupancy from CO2 levels if the room has no occupancy sensor.
+     *
+     * @return room's occupancy estimator
+     * @ass2
+     */
+    public OccupancyEstimator getOccupancyEstimator() {
+        return this.occupancyEstimator;
     }
 
     /**
@@ -222,38 +517,121 @@ public class Room implements Encodable {
      * @ass1
      */
     public Sensor getSensor(String sensorType) {
-        for (Sensor s : this.getSensors()) {
-            if (s.getClass().getSimpleName().equals(sensorType)) {
-                return s;
-            }
+        SensorKind kind = SensorKind.forName(sensorType);
+        if (kind == null) {
+            return null;
+        }
+        return this.getSensor(kind);
+    }
+
+    /**
+     * Return the first sensor of the given kind added to the room if there
+     * is one; return null otherwise.
+     *
+     * @param kind the kind of sensor, e.g. {@link SensorKind#CO2}
+     * @return the first sensor in this room of the given kind; null if none
+     * found
+     * @ass2
+     */
+    public Sensor getSensor(SensorKind kind) {
+        SensorAggregate aggregate = this.getAggregate(kind);
+        if (aggregate == null) {
+            return null;
+        }
+        return aggregate.getSensors().get(0);
+    }
+
+    /**
+     * Returns the aggregate of all sensors of the given kind in the room,
+     * or null if there are none.
+     * <p>
+     * The aggregate's readings and hazard levels are kept up to date as the
+     * sensors take new readings. Sensors that have been retired, see
+     * {@link bms.sensors.ReadingListener#sensorRetired(TimedSensor)}, are
+     * removed from it.
+     *
+     * @param kind the kind of sensor, e.g. {@link SensorKind#OCCUPANCY}
+     * @return aggregate of the sensors of the given kind; null if none found
+     * @ass2
+     */
+    public SensorAggregate getAggregate(SensorKind kind) {
+        if (kind.getId() >= this.aggregates.length) {
+            return null;
+        }
+        SensorAggregate aggregate = this.aggregates[kind.getId()];
+        if (aggregate == null || aggregate.getCount() == 0) {
+            return null;
         }
-        return null;
+        return aggregate;
     }
 
     /**
-     * Adds a sensor to the room if a sensor of the same type is not
-     * already in the room.
+     * Adds a sensor to the room if it is not already in the room. A room
+     * may have several sensors of the same kind.
      * <p>
      * The list of sensors should be sorted after adding the new sensor, in
-     * alphabetical order by simple class name ({@link Class#getSimpleName()}).
+     * alphabetical order by simple class name ({@link Class#getSimpleName()}),
+     * with sensors of the same kind in the order they were added.
+     * <p>
+     * The sensor's readings are tracked by the campus-wide
+     * {@link ReadingDistributions}, and checked for anomalies by the
+     * {@link AnomalyMonitor}.
+     * <p>
+     * A timed sensor is registered with the room's time manager, see
+     * {@link #setTimeManager(TimedItemManager)}, or with the singleton
+     * {@link TimedItemManager} if the room has none yet.
      *
      * @param sensor the sensor to add to the room
-     * @throws DuplicateSensorException if the sensor to add is of the
-     * same type as a sensor already in this room
+     * @throws DuplicateSensorException if the sensor to add is already in
+     * this room
      * @ass1
      */
     public void addSensor(Sensor sensor)
             throws DuplicateSensorException {
         this.hazardEvaluator = null;
-        for (Sensor s : sensors) {
-            if (s.getClass().equals(sensor.getClass())) {
+        this.hazardLevelStale = true;
+        SensorKind kind = sensor.getKind();
+        for (Sensor s : this.sensors) {
+            if (s == sensor) {
                 throw new DuplicateSensorException(
-                        "Duplicate sensor of type: "
-                                + s.getClass().getSimpleName());
+                        "Sensor already in room: " + kind.getName());
+            }
+        }
+        if (kind == SensorKind.TEMPERATURE) {
+            this.wakeEvacuationWatchers();
+        }
+        if (kind.getId() >= this.aggregates.length) {
+            this.aggregates = Arrays.copyOf(this.aggregates,
+                    SensorKind.count());
+        }
+        if (this.aggregates[kind.getId()] == null) {
+            this.aggregates[kind.getId()] = new SensorAggregate(kind);
+        }
+        this.aggregates[kind.getId()].addSensor(sensor);
+        if (sensor instanceof TimedSensor) {
+            this.getTimeManager().registerTimedItem((TimedSensor) sensor);
+            AnomalyMonitor.getInstance().monitor((TimedSensor) sensor);
+            this.healthMonitor.track((TimedSensor) sensor);
+            if (kind == SensorKind.CO2) {
+                this.occupancyEstimator.track((TimedSensor) sensor);
             }
+            ((TimedSensor) sensor).addReadingListener(
+                    new SensorWatch((TimedSensor) sensor));
+        }
+        if (kind == SensorKind.TEMPERATURE) {
+            this.checkFire();
+            this.wakeEvacuationWatchers();
+        }
+
+        // insert in place to keep the list sorted by kind name
+        int position = 0;
+        while (position < this.sensors.size() && this.sensors.get(position)
+                .getKind().getName().compareTo(kind.getName()) <= 0) {
+            position++;
         }
-        sensors.add(sensor);
-        sensors.sort(Comparator.comparing(s -> s.getClass().getSimpleName()));
+        this.sensors.add(position, sensor);
+        ReadingDistributions.getInstance().registerSensor(sensor, this.type);
+        this.recheckHazard();
     }
 
     /**
@@ -262,13 +640,17 @@ public class Room implements Encodable {
      * A priority list below is used to determine what the returned
      * status must be. Higher in the list has higher priority.
      *
-     * If there is a TemperatureSensor in the room and it reports
-     * a hazard level of 100, the room state is always EVACUATE since
+     * If any TemperatureSensor in the room reports a hazard level of 100, the room state is always EVACUATE since
      * the room is on fire.
      *
      * If there is currently a fire drill in progress,
      * the room state is always EVACUATE.
      *
+     * If any timed sensor in the room has gone quiet on the clock of the
+     * room's time manager, see
+     * {@link SensorHealthMonitor#isStale(TimedSensor)}, and there is no fire
+     * drill or fire alarm, the room state is ERROR.
+     *
      * If there is maintenance in progress and there is no fire drill or
      * fire alarm, the room state is MAINTENANCE.
      *
@@ -278,12 +660,15 @@ public class Room implements Encodable {
      * @ass2
      */
     public RoomState evaluateRoomState() {
-        TemperatureSensor temperatureSensor =
-                (TemperatureSensor) this.getSensor("TemperatureSensor");
-        if (temperatureSensor != null && temperatureSensor.getHazardLevel() >= 100) {
+        SensorAggregate temperatureSensors =
+                this.getAggregate(SensorKind.TEMPERATURE);
+        if (temperatureSensors != null
+                && temperatureSensors.getHazardLevel() >= 100) {
             return RoomState.EVACUATE;
         } else if (this.fireDrillOngoing()) {
             return RoomState.EVACUATE;
+        } else if (this.hasStaleSensor()) {
+            return RoomState.ERROR;
         } else if (this.maintenanceOngoing() && !this.fireDrillOngoing()) {
             return RoomState.MAINTENANCE;
         } else {
@@ -291,6 +676,23 @@ public class Room implements Encodable {
         }
     }
 
+    /**
+     * Returns whether any timed sensor in the room is stale.
+     *
+     * @return true if a sensor in the room has gone quiet
+     */
+    private boolean hasStaleSensor() {
+        SensorHealthMonitor health = this.healthMonitor;
+        for (int i = 0; i < this.sensors.size(); i++) {
+            Sensor sensor = this.sensors.get(i);
+            if (sensor instanceof TimedSensor
+                    && health.isStale((TimedSensor) sensor)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * Returns true if and only if this room is equal
      * to the other given room.
@@ -410,10 +812,8 @@ public class Room implements Encodable {
      *
      * where 'weightingX' is the weighting (0-100) associated with the
      * Xth sensor in the alphabetically sorted list of this room's sensors,
-     * from 1 to N.
-     * You can assume that the order of the weightings returned by
-     * WeightingBasedHazardEvaluator.getWeightings() is the same
-     * as the order of sensors returned by getSensors().
+     * from 1 to N, see
+     * {@link WeightingBasedHazardEvaluator#getWeighting(HazardSensor)}.
      *
      * System.lineSeparator() should be used to separate lines.
      * There should be no newline at the end of the string.
@@ -442,17 +842,18 @@ public class Room implements Encodable {
         outputString += System.lineSeparator();
         // Evaluates if the HazardEvaluator is a WeightingBasedHazardEvaluator
         if (weightEvaluator) {
-            List weights = ((WeightingBasedHazardEvaluator)
-                    hazardEvaluator).getWeightings();
-            for (Sensor sensor : getSensors()) {
+            WeightingBasedHazardEvaluator weights =
+                    (WeightingBasedHazardEvaluator) hazardEvaluator;
+            for (Sensor sensor : this.sensors) {
                 if (sensor instanceof Encodable) {
-                    int index = getSensors().indexOf(sensor);
+                    int weighting = sensor instanceof HazardSensor
+                            ? weights.getWeighting((HazardSensor) sensor) : 0;
                     outputString += ((Encodable) sensor).encode() + "@" +
-                            weights.get(index) + System.lineSeparator();
+                            weighting + System.lineSeparator();
                  }
             }
         } else {
-            for (Sensor sensor : getSensors()) {
+            for (Sensor sensor : this.sensors) {
                 if (sensor instanceof Encodable) {
                     outputString += ((Encodable) sensor).encode() +
                             System.lineSeparator();
@@ -462,4 +863,95 @@ public class Room implements Encodable {
 
         return outputString;
     }
+
+    /**
+     * Follows the readings of one of the room's timed sensors, marking the
+     * cached hazard level stale when a reading may change it, reporting the
+     * change in the sensor's hazard level to the room's hazard monitors,
+     * and checking for a fire if it is a temperature sensor.
+     */
+    private class SensorWatch implements ReadingListener {
+        /**
+         * Hazard level of the sensor at its last reading, or 0 if it is
+         * not a hazard sensor
+         */
+        private int lastLevel;
+
+        /**
+         * Creates a watch of the given sensor from its current reading.
+         *
+         * @param sensor sensor to follow
+         */
+        private SensorWatch(TimedSensor sensor) {
+            this.lastLevel = hazardLevelOf(sensor);
+        }
+
+        /**
+         * Handles the sensor's new reading.
+         *
+         * @param sensor sensor that took the reading
+         * @param previousReading the sensor's reading before this update
+         */
+        @Override
+        public void readingUpdated(TimedSensor sensor, int previousReading) {
+            SensorKind kind = sensor.getKind();
+            boolean changed = sensor.getCurrentReading() != previousReading;
+            int level = hazardLevelOf(sensor);
+            int change = Math.abs(level - this.lastLevel);
+            if ((level >= 100) != (this.lastLevel >= 100)) {
+                change = 100;
+            }
+            this.lastLevel = level;
+            // estimated occupancy follows the rate of change of CO2
+            // readings, not their hazard levels
+            if (kind == SensorKind.CO2
+                    && getAggregate(SensorKind.OCCUPANCY) == null) {
+                hazardLevelStale = true;
+                if (changed) {
+                    change = 100;
+                }
+            }
+            if (changed) {
+                hazardLevelStale = true;
+            }
+            if (change > 0) {
+                for (int i = 0; i < hazardMonitors.size(); i++) {
+                    hazardMonitors.get(i).hazardMayChange(Room.this, change);
+                }
+            }
+            if (kind == SensorKind.TEMPERATURE) {
+                checkFire();
+            }
+        }
+
+        /**
+         * Marks the cached hazard level stale, as the sensor has left the
+         * room's aggregates, checks for a fire if it was a temperature
+         * sensor, and asks the room's monitors to re-evaluate the room.
+         *
+         * @param sensor sensor that was retired
+         */
+        @Override
+        public void sensorRetired(TimedSensor sensor) {
+            hazardLevelStale = true;
+            if (sensor.getKind() == SensorKind.TEMPERATURE) {
+                checkFire();
+            }
+            recheckHazard();
+        }
+
+        /**
+         * Returns the hazard level of the given sensor.
+         *
+         * @param sensor sensor to check
+         * @return hazard level of the sensor, or 0 if it is not a hazard
+         * sensor
+         */
+        private int hazardLevelOf(TimedSensor sensor) {
+            if (sensor instanceof HazardSensor) {
+                return ((HazardSensor) sensor).getHazardLevel();
+            }
+            return 0;
+        }
+    }
 }
@@ -0,0 +1,151 @@
+package bms.sensors;
+
+/**
+ * Online anomaly detector for the readings of one timed sensor.
+ * <p>
+ * The detector keeps an exponentially weighted moving average and variance
+ * of the sensor's readings. Each new reading is compared against them
+ * before they are updated: a reading whose z-score exceeds the monitor's
+ * threshold is reported as a {@link AnomalyType#DEVIATION}, and a reading
+ * that changed faster than the rate limit for the sensor's kind is
+ * reported as a {@link AnomalyType#RATE_OF_CHANGE}. Deviations are not
+ * reported until the detector has seen enough readings to warm up.
+ * <p>
+ * Each update takes constant time and allocates nothing.
+ * @ass2
+ */
+public class AnomalyDetector implements ReadingListener {
+
+    /**
+     * Weight of each new reading in the moving average and variance
+     */
+    private static final double SMOOTHING = 0.1;
+
+    /**
+     * Number of readings seen before deviations are reported
+     */
+    private static final int WARM_UP_READINGS = 10;
+
+    /**
+     * Smallest standard deviation used for z-scores, so that sensors with
+     * constant readings still report a sudden change
+     */
+    private static final double MIN_DEVIATION = 1.0;
+
+    /**
+     * Monitor that anomalies are reported to
+     */
+    private final AnomalyMonitor monitor;
+
+    /**
+     * Moving average of the readings
+     */
+    private double mean;
+
+    /**
+     * Moving variance of the readings
+     */
+    private double variance;
+
+    /**
+     * Number of readings seen, up to the number needed to warm up
+     */
+    private int readings;
+
+    /**
+     * Creates a detector for the given sensor, starting from its current
+     * reading.
+     *
+     * @param sensor sensor to detect anomalies of
+     * @param monitor monitor that anomalies are reported to
+     * @ass2
+     */
+    public AnomalyDetector(TimedSensor sensor, AnomalyMonitor monitor) {
+        this.monitor = monitor;
+        this.restart(sensor);
+    }
+
+    /**
+     * Forgets the readings seen so far, starting again from the given
+     * sensor's current reading.
+     *
+     * @param sensor sensor to detect anomalies of
+     */
+    private void restart(TimedSensor sensor) {
+        this.mean = sensor.getCurrentReading();
+        this.variance = 0;
+        this.readings = 1;
+    }
+
+    /**
+     * Returns the moving average of the sensor's readings.
+     *
+     * @return average reading
+     * @ass2
+     */
+    public double getMean() {
+        return this.mean;
+    }
+
+    /**
+     * Returns the moving standard deviation of the sensor's readings.
+     *
+     * @return standard deviation of the readings
+     * @ass2
+     */
+    public double getStandardDeviation() {
+        return Math.sqrt(this.variance);
+    }
+
+    /**
+     * Checks the sensor's new reading for anomalies, then adds it to the
+     * moving average and variance.
+     *
+     * @param sensor sensor that took the reading
+     * @param previousReading the sensor's reading before this update
+     * @ass2
+     */
+    @Override
+    public void readingUpdated(TimedSensor sensor, int previousReading) {
+        int reading = sensor.getCurrentReading();
+
+        double rate = Math.abs(reading - previousReading)
+                / (double) sensor.getUpdateFrequency();
+        if (rate > this.monitor.getRateLimit(sensor.getKind())) {
+            this.monitor.report(sensor, AnomalyType.RATE_OF_CHANGE, reading,
+                    rate);
+        }
+
+        double difference = reading - this.mean;
+        if (this.readings >= WARM_UP_READINGS) {
+            double zScore = difference
+                    / Math.max(Math.sqrt(this.variance), MIN_DEVIATION);
+            if (Math.abs(zScore) > this.monitor.getThreshold()) {
+                this.monitor.report(sensor, AnomalyType.DEVIATION, reading,
+                        zScore);
+            }
+        }
+
+        double increment = SMOOTHING * difference;
+        this.mean += increment;
+        this.variance = (1 - SMOOTHING)
+                * (this.variance + difference * increment);
+        if (this.readings < WARM_UP_READINGS) {
+            this.readings++;
+        }
+    }
+
+    /**
+     * Discards the anomalies of the retired sensor still queued by the
+     * monitor, and forgets its readings, so that the detector warms up
+     * again should the sensor be registered again.
+     *
+     * @param sensor sensor that was unregistered
+     * @ass2
+     */
+    @Override
+    public void sensorRetired(TimedSensor sensor) {
+        this.monitor.forget(sensor);
+        this.restart(sensor);
+    }
+}
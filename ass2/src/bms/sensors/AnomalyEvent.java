@@ -0,0 +1,126 @@
+package bms.sensors;
+
+/**
+ * Anomalous reading detected by an {@link AnomalyDetector}.
+ *
+ * @ass2
+ */
+public class AnomalyEvent {
+
+    /**
+     * Sensor that took the reading
+     */
+    private final TimedSensor sensor;
+
+    /**
+     * Kind of anomaly detected
+     */
+    private final AnomalyType type;
+
+    /**
+     * Sensor's time elapsed when the reading was taken, in minutes
+     */
+    private final int minute;
+
+    /**
+     * Anomalous reading
+     */
+    private final int reading;
+
+    /**
+     * Z-score of the reading for deviations, or rate of change in readings
+     * per minute for rate of change anomalies
+     */
+    private final double score;
+
+    /**
+     * Creates a new anomaly event.
+     *
+     * @param sensor sensor that took the reading
+     * @param type kind of anomaly detected
+     * @param minute sensor's time elapsed when the reading was taken
+     * @param reading anomalous reading
+     * @param score z-score or rate of change of the reading
+     * @ass2
+     */
+    public AnomalyEvent(TimedSensor sensor, AnomalyType type, int minute,
+                        int reading, double score) {
+        this.sensor = sensor;
+        this.type = type;
+        this.minute = minute;
+        this.reading = reading;
+        this.score = score;
+    }
+
+    /**
+     * Returns the sensor that took the anomalous reading.
+     *
+     * @return sensor
+     * @ass2
+     */
+    public TimedSensor getSensor() {
+        return this.sensor;
+    }
+
+    /**
+     * Returns the kind of anomaly detected.
+     *
+     * @return anomaly type
+     * @ass2
+     */
+    public AnomalyType getType() {
+        return this.type;
+    }
+
+    /**
+     * Returns the sensor's time elapsed when the reading was taken.
+     *
+     * @return minute of the reading
+     * @ass2
+     */
+    public int getMinute() {
+        return this.minute;
+    }
+
+    /**
+     * Returns the anomalous reading.
+     *
+     * @return reading
+     * @ass2
+     */
+    public int getReading() {
+        return this.reading;
+    }
+
+    /**
+     * Returns the z-score of the reading for deviations, or its rate of
+     * change in readings per minute for rate of change anomalies.
+     *
+     * @return anomaly score
+     * @ass2
+     */
+    public double getScore() {
+        return this.score;
+    }
+
+    /**
+     * Returns the human-readable string representation of this event.
+     * <p>
+     * The format of the string to return is
+     * "AnomalyEvent: type='type', sensor='kind', minute='minute',
+     * reading='reading', score='score'"
+     * without the single quotes, where the score is formatted to two (2)
+     * decimal places.
+     *
+     * @return string representation of this event
+     * @ass2
+     */
+    @Override
+    public String toString() {
+        return String.format(
+                "AnomalyEvent: type=%s, sensor=%s, minute=%d, reading=%d, "
+                        + "score=%.2f",
+                this.type, this.sensor.getKind(), this.minute, this.reading,
+                this.score);
+    }
+}
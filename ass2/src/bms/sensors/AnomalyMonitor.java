@@ -0,0 +1,371 @@
+package bms.sensors;
+
+import bms.util.DeferredAction;
+import bms.util.TimedItemManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Singleton class which collects the anomalies detected in sensor readings
+ * onto a bounded event queue.
+ * <p>
+ * Sensors are monitored by attaching an {@link AnomalyDetector} to them,
+ * see {@link AnomalyMonitor#monitor(TimedSensor)}. Detected anomalies are
+ * stored in preallocated ring buffers, so reporting an anomaly allocates
+ * nothing. When the queue is full the oldest anomaly is dropped to make
+ * room for the new one, and counted by {@link #getDroppedCount()}.
+ * <p>
+ * Rooms monitor their timed sensors when they are added.
+ * @ass2
+ */
+public class AnomalyMonitor {
+    /**
+     * Default maximum number of anomalies held in the queue
+     */
+    private static final int DEFAULT_CAPACITY = 4096;
+
+    /**
+     * Default z-score above which a reading is a deviation
+     */
+    private static final double DEFAULT_THRESHOLD = 4.0;
+
+    /**
+     * Singleton instance.
+     */
+    private static AnomalyMonitor instance =
+            new AnomalyMonitor(DEFAULT_CAPACITY);
+
+    /**
+     * Sensor of each queued anomaly
+     */
+    private final TimedSensor[] sensors;
+
+    /**
+     * Type of each queued anomaly
+     */
+    private final AnomalyType[] types;
+
+    /**
+     * Minute of each queued anomaly
+     */
+    private final int[] minutes;
+
+    /**
+     * Reading of each queued anomaly
+     */
+    private final int[] readings;
+
+    /**
+     * Score of each queued anomaly
+     */
+    private final double[] scores;
+
+    /**
+     * Position of the oldest anomaly in the queue
+     */
+    private int head;
+
+    /**
+     * Number of anomalies in the queue
+     */
+    private int size;
+
+    /**
+     * Number of anomalies dropped because the queue was full
+     */
+    private long dropped;
+
+    /**
+     * Z-score above which a reading is a deviation
+     */
+    private double threshold;
+
+    /**
+     * Largest change in reading per minute allowed for each sensor kind,
+     * indexed by {@link SensorKind#getId()}
+     */
+    private int[] rateLimits;
+
+    /**
+     * Queues an anomaly once timed items running in parallel have
+     * finished, so that anomalies are queued in a deterministic order
+     */
+    private final DeferredAction deferredReport;
+
+    /**
+     * Removes a retired sensor's anomalies once timed items running in
+     * parallel have finished, after the anomalies deferred before it
+     */
+    private final DeferredAction deferredForget;
+
+    /**
+     * Creates a new monitor whose queue holds up to the given number of
+     * anomalies.
+     * <p>
+     * Default rate limits are 1000ppm per minute for CO2 sensors, 30dB per
+     * minute for noise sensors, 5 degrees per minute for temperature
+     * sensors and 50 people per minute for occupancy sensors. Other kinds
+     * have no rate limit.
+     *
+     * @param capacity maximum number of anomalies held
+     * @throws IllegalArgumentException if capacity is less than one
+     * @ass2
+     */
+    public AnomalyMonitor(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException(
+                    "Anomaly queue capacity must be at least one");
+        }
+        this.sensors = new TimedSensor[capacity];
+        this.types = new AnomalyType[capacity];
+        this.minutes = new int[capacity];
+        this.readings = new int[capacity];
+        this.scores = new double[capacity];
+        this.threshold = DEFAULT_THRESHOLD;
+        this.rateLimits = new int[0];
+        this.setRateLimit(SensorKind.CO2, 1000);
+        this.setRateLimit(SensorKind.NOISE, 30);
+        this.setRateLimit(SensorKind.TEMPERATURE, 5);
+        this.setRateLimit(SensorKind.OCCUPANCY, 50);
+        this.deferredReport = (event, argument) -> this.queue(
+                (AnomalyEvent) event);
+        this.deferredForget = (sensor, argument) -> this.forget(
+                (TimedSensor) sensor);
+    }
+
+    /**
+     * Returns the singleton instance of the anomaly monitor.
+     *
+     * @return singleton instance
+     * @ass2
+     */
+    public static AnomalyMonitor getInstance() {
+        return instance;
+    }
+
+    /**
+     * Attaches a new anomaly detector to the given sensor, reporting to
+     * this monitor.
+     *
+     * @param sensor sensor to monitor
+     * @return the sensor's detector
+     * @ass2
+     */
+    public AnomalyDetector monitor(TimedSensor sensor) {
+        AnomalyDetector detector = new AnomalyDetector(sensor, this);
+        sensor.addReadingListener(detector);
+        return detector;
+    }
+
+    /**
+     * Returns the z-score above which a reading is reported as a deviation.
+     *
+     * @return deviation threshold
+     * @ass2
+     */
+    public double getThreshold() {
+        return this.threshold;
+    }
+
+    /**
+     * Sets the z-score above which a reading is reported as a deviation.
+     *
+     * @param threshold new deviation threshold
+     * @throws IllegalArgumentException if threshold is not positive
+     * @ass2
+     */
+    public void setThreshold(double threshold) {
+        if (!(threshold > 0)) {
+            throw new IllegalArgumentException(
+                    "Deviation threshold must be positive");
+        }
+        this.threshold = threshold;
+    }
+
+    /**
+     * Returns the largest change in reading per minute allowed for sensors
+     * of the given kind before a rate of change anomaly is reported.
+     *
+     * @param kind kind of sensor
+     * @return rate limit, in readings per minute
+     * @ass2
+     */
+    public int getRateLimit(SensorKind kind) {
+        if (kind.getId() >= this.rateLimits.length) {
+            return Integer.MAX_VALUE;
+        }
+        return this.rateLimits[kind.getId()];
+    }
+
+    /**
+     * Sets the largest change in reading per minute allowed for sensors of
+     * the given kind before a rate of change anomaly is reported.
+     *
+     * @param kind kind of sensor
+     * @param limit new rate limit, in readings per minute
+     * @throws IllegalArgumentException if limit is negative
+     * @ass2
+     */
+    public void setRateLimit(SensorKind kind, int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException(
+                    "Rate limit must be non-negative");
+        }
+        if (kind.getId() >= this.rateLimits.length) {
+            int oldLength = this.rateLimits.length;
+            this.rateLimits = Arrays.copyOf(this.rateLimits,
+                    Math.max(SensorKind.count(), kind.getId() + 1));
+            Arrays.fill(this.rateLimits, oldLength, this.rateLimits.length,
+                    Integer.MAX_VALUE);
+        }
+        this.rateLimits[kind.getId()] = limit;
+    }
+
+    /**
+     * Returns the number of anomalies waiting in the queue.
+     *
+     * @return number of queued anomalies
+     * @ass2
+     */
+    public int getPendingCount() {
+        return this.size;
+    }
+
+    /**
+     * Returns the number of anomalies dropped because the queue was full.
+     *
+     * @return number of dropped anomalies
+     * @ass2
+     */
+    public long getDroppedCount() {
+        return this.dropped;
+    }
+
+    /**
+     * Removes and returns the oldest anomaly in the queue, or null if the
+     * queue is empty.
+     *
+     * @return oldest queued anomaly
+     * @ass2
+     */
+    public AnomalyEvent poll() {
+        if (this.size == 0) {
+            return null;
+        }
+        int slot = this.head;
+        AnomalyEvent event = new AnomalyEvent(this.sensors[slot],
+                this.types[slot], this.minutes[slot], this.readings[slot],
+                this.scores[slot]);
+        this.sensors[slot] = null;
+        this.head = (this.head + 1) % this.sensors.length;
+        this.size--;
+        return event;
+    }
+
+    /**
+     * Removes and returns every anomaly in the queue, oldest first.
+     *
+     * @return list of queued anomalies
+     * @ass2
+     */
+    public List<AnomalyEvent> drain() {
+        List<AnomalyEvent> events = new ArrayList<>(this.size);
+        while (this.size > 0) {
+            events.add(this.poll());
+        }
+        return events;
+    }
+
+    /**
+     * Adds an anomaly to the queue, dropping the oldest anomaly if the
+     * queue is full.
+     * <p>
+     * Called while the sensor's reading listeners are notified, so the
+     * anomaly is dated with the sensor's stored time elapsed, see
+     * {@link TimedSensor#getStoredTimeElapsed()}.
+     *
+     * @param sensor sensor that took the reading
+     * @param type kind of anomaly
+     * @param reading anomalous reading
+     * @param score z-score or rate of change of the reading
+     */
+    void report(TimedSensor sensor, AnomalyType type, int reading,
+                double score) {
+        this.add(sensor, type, sensor.getStoredTimeElapsed(), reading,
+                score);
+    }
+
+    /**
+     * Adds an anomaly taken at the given minute to the queue, dropping the
+     * oldest anomaly if the queue is full.
+     *
+     * @param sensor sensor that took the reading
+     * @param type kind of anomaly
+     * @param minute sensor's time elapsed when the reading was taken
+     * @param reading anomalous reading
+     * @param score z-score or rate of change of the reading
+     */
+    private void add(TimedSensor sensor, AnomalyType type, int minute,
+                     int reading, double score) {
+        if (TimedItemManager.isDeferring()) {
+            TimedItemManager.defer(this.deferredReport, new AnomalyEvent(
+                    sensor, type, minute, reading, score), 0);
+            return;
+        }
+        if (this.size == this.sensors.length) {
+            this.head = (this.head + 1) % this.sensors.length;
+            this.size--;
+            this.dropped++;
+        }
+        int slot = (this.head + this.size) % this.sensors.length;
+        this.sensors[slot] = sensor;
+        this.types[slot] = type;
+        this.minutes[slot] = minute;
+        this.readings[slot] = reading;
+        this.scores[slot] = score;
+        this.size++;
+    }
+
+    /**
+     * Removes the anomalies of the given sensor from the queue, keeping the
+     * order of the others.
+     *
+     * @param sensor sensor whose anomalies are removed
+     */
+    void forget(TimedSensor sensor) {
+        if (TimedItemManager.defer(this.deferredForget, sensor, 0)) {
+            return;
+        }
+        int kept = 0;
+        for (int i = 0; i < this.size; i++) {
+            int from = (this.head + i) % this.sensors.length;
+            if (this.sensors[from] == sensor) {
+                continue;
+            }
+            int to = (this.head + kept) % this.sensors.length;
+            this.sensors[to] = this.sensors[from];
+            this.types[to] = this.types[from];
+            this.minutes[to] = this.minutes[from];
+            this.readings[to] = this.readings[from];
+            this.scores[to] = this.scores[from];
+            kept++;
+        }
+        for (int i = kept; i < this.size; i++) {
+            this.sensors[(this.head + i) % this.sensors.length] = null;
+        }
+        this.size = kept;
+    }
+
+    /**
+     * Adds an anomaly deferred while timed items were run in parallel to
+     * the queue.
+     *
+     * @param event deferred anomaly
+     */
+    private void queue(AnomalyEvent event) {
+        this.add(event.getSensor(), event.getType(), event.getMinute(),
+                event.getReading(), event.getScore());
+    }
+}
@@ -0,0 +1,13 @@
+package bms.sensors;
+
+/**
+ * Enum to represent the kinds of anomaly detected in sensor readings.
+ *
+ * @ass2
+ */
+public enum AnomalyType {
+    /** Reading far from the sensor's recent mean, relative to its spread. */
+    DEVIATION,
+    /** Reading changed faster than the sensor kind's rate limit. */
+    RATE_OF_CHANGE
+}
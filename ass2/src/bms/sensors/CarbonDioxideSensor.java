@@ -5,7 +5,8 @@ package bms.sensors;
  * per million (ppm).
  * @ass1
  */
-public class CarbonDioxideSensor extends TimedSensor implements HazardSensor {
+public class CarbonDioxideSensor extends TimedSensor
+        implements HazardSensor, ComfortSensor {
 
     /**
      * The ideal value for this sensor, where the comfort level is highest.
@@ -19,6 +20,16 @@ public class CarbonDioxideSensor extends TimedSensor implements HazardSensor {
      */
     private int variationLimit;
 
+    /**
+     * Hazard level of each reading, built on first use
+     */
+    private byte[] hazardLevels;
+
+    /**
+     * Comfort level of each reading, built on first use
+     */
+    private byte[] comfortLevels;
+
     /**
      * Creates a new carbon dioxide sensor with the given sensor readings,
      * update frequency, ideal CO2 value and acceptable variation limit.
@@ -64,6 +75,17 @@ public class CarbonDioxideSensor extends TimedSensor implements HazardSensor {
         this.variationLimit = variationLimit;
     }
 
+    /**
+     * Returns the kind of this sensor, {@link SensorKind#CO2}.
+     *
+     * @return the sensor's kind
+     * @ass2
+     */
+    @Override
+    public SensorKind getKind() {
+        return SensorKind.CO2;
+    }
+
     /**
      * Returns the sensor's CO2 variation limit.
      *
@@ -108,7 +130,20 @@ public class CarbonDioxideSensor extends TimedSensor implements HazardSensor {
      */
     @Override
     public int getHazardLevel() {
-        final int currentReading = this.getCurrentReading();
+        if (this.hazardLevels == null) {
+            this.hazardLevels = this.tabulate(this::hazardLevelOf);
+        }
+        return this.hazardLevels[this.getReadingIndex()];
+    }
+
+    /**
+     * Returns the hazard level of the given reading, as described by
+     * {@link #getHazardLevel()}.
+     *
+     * @param currentReading CO2 reading in ppm
+     * @return hazard level of the reading, 0 to 100
+     */
+    private int hazardLevelOf(int currentReading) {
         if (currentReading < 1000) {
             return 0;
         }
@@ -155,7 +190,21 @@ public class CarbonDioxideSensor extends TimedSensor implements HazardSensor {
      * @ass2
      */
     public int getComfortLevel() {
-        double diffReading = Math.abs(this.idealValue - getCurrentReading());
+        if (this.comfortLevels == null) {
+            this.comfortLevels = this.tabulate(this::comfortLevelOf);
+        }
+        return this.comfortLevels[this.getReadingIndex()];
+    }
+
+    /**
+     * Returns the comfort level of the given reading, as described by
+     * {@link #getComfortLevel()}.
+     *
+     * @param currentReading CO2 reading in ppm
+     * @return comfort level of the reading, 0 to 100
+     */
+    private int comfortLevelOf(int currentReading) {
+        double diffReading = Math.abs(this.idealValue - currentReading);
         double varLimit = getVariationLimit();
         if (diffReading >= varLimit) {
             return 0;
@@ -0,0 +1,127 @@
+package bms.sensors;
+
+/**
+ * Summary of the readings a sensor observed over one bucket of a
+ * history tier.
+ *
+ * @ass2
+ */
+public class HistoryBucket {
+
+    /**
+     * Minute (of the sensor's time elapsed) at which the bucket starts
+     */
+    private final int startMinute;
+
+    /**
+     * Smallest reading in the bucket
+     */
+    private final int min;
+
+    /**
+     * Largest reading in the bucket
+     */
+    private final int max;
+
+    /**
+     * Mean of the readings in the bucket
+     */
+    private final double average;
+
+    /**
+     * Number of minutes of readings in the bucket
+     */
+    private final int count;
+
+    /**
+     * Creates a new history bucket.
+     *
+     * @param startMinute minute at which the bucket starts
+     * @param min smallest reading in the bucket
+     * @param max largest reading in the bucket
+     * @param average mean of the readings in the bucket
+     * @param count number of minutes of readings in the bucket
+     * @ass2
+     */
+    public HistoryBucket(int startMinute, int min, int max, double average,
+                         int count) {
+        this.startMinute = startMinute;
+        this.min = min;
+        this.max = max;
+        this.average = average;
+        this.count = count;
+    }
+
+    /**
+     * Returns the minute at which this bucket starts.
+     *
+     * @return start minute of the bucket
+     * @ass2
+     */
+    public int getStartMinute() {
+        return this.startMinute;
+    }
+
+    /**
+     * Returns the smallest reading in this bucket.
+     *
+     * @return minimum reading
+     * @ass2
+     */
+    public int getMin() {
+        return this.min;
+    }
+
+    /**
+     * Returns the largest reading in this bucket.
+     *
+     * @return maximum reading
+     * @ass2
+     */
+    public int getMax() {
+        return this.max;
+    }
+
+    /**
+     * Returns the mean of the readings in this bucket.
+     *
+     * @return average reading
+     * @ass2
+     */
+    public double getAverage() {
+        return this.average;
+    }
+
+    /**
+     * Returns the number of minutes of readings in this bucket.
+     *
+     * @return number of readings
+     * @ass2
+     */
+    public int getCount() {
+        return this.count;
+    }
+
+    /**
+     * Returns the human-readable string representation of this bucket.
+     *
+     * The format of the string to return is
+     * "HistoryBucket: start='start', min='min', max='max', avg='average',
+     * count='count'"
+     * without the single quotes, where the average is formatted to one (1)
+     * decimal place.
+     *
+     * For example: "HistoryBucket: start=15, min=690, max=740, avg=715.0,
+     * count=15"
+     *
+     * @return string representation of this bucket
+     * @ass2
+     */
+    @Override
+    public String toString() {
+        return String.format(
+                "HistoryBucket: start=%d, min=%d, max=%d, avg=%.1f, count=%d",
+                this.startMinute, this.min, this.max, this.average,
+                this.count);
+    }
+}
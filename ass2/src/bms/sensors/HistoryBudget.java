@@ -0,0 +1,265 @@
+package bms.sensors;
+
+import bms.util.DeferredAction;
+import bms.util.TimedItemManager;
+
+/**
+ * Shared memory budget and retention settings for sensor histories.
+ * <p>
+ * Each rollup tier keeps at most its configured number of buckets per
+ * sensor. Raw minute readings are additionally limited across all sensors
+ * sharing the budget: once the total number of raw readings reaches the
+ * budget, the oldest raw reading of any sensor is evicted to make room
+ * for the new one. Rollups are built as readings arrive, so evicting raw
+ * readings never affects the coarser tiers.
+ * <p>
+ * The singleton instance is used by all timed sensors by default.
+ * @ass2
+ */
+public class HistoryBudget {
+    /**
+     * Default number of raw readings kept across all sensors
+     */
+    private static final int DEFAULT_RAW_BUDGET = 1 << 20;
+
+    /**
+     * Initial capacity of the raw reading queue
+     */
+    private static final int INITIAL_CAPACITY = 1024;
+
+    /**
+     * Singleton instance.
+     */
+    private static HistoryBudget instance =
+            new HistoryBudget(DEFAULT_RAW_BUDGET);
+
+    /**
+     * Maximum number of raw readings kept across all sensors
+     */
+    private int rawBudget;
+
+    /**
+     * Owner of each run of consecutive raw readings counted against the
+     * budget, oldest first
+     */
+    private SensorHistory[] owners;
+
+    /**
+     * Number of raw readings in each run
+     */
+    private int[] lengths;
+
+    /**
+     * Position of the oldest run in the queue
+     */
+    private int head;
+
+    /**
+     * Number of runs in the queue
+     */
+    private int runs;
+
+    /**
+     * Number of raw readings counted against the budget
+     */
+    private int size;
+
+    /**
+     * Number of buckets kept per sensor, indexed by
+     * {@link HistoryTier#ordinal()}.
+     */
+    private int[] retention;
+
+    /**
+     * Counts a raw reading once timed items running in parallel have
+     * finished, so that evictions happen in a deterministic order
+     */
+    private final DeferredAction deferredAdd;
+
+    /**
+     * Creates a new history budget with default retention for each tier:
+     * one day of raw minutes, one week of fifteen minute buckets,
+     * thirty days of hourly buckets and one year of daily buckets.
+     *
+     * @param rawBudget maximum number of raw readings kept across all sensors
+     * @throws IllegalArgumentException if rawBudget is less than one
+     * @ass2
+     */
+    public HistoryBudget(int rawBudget) {
+        if (rawBudget < 1) {
+            throw new IllegalArgumentException(
+                    "Raw reading budget must be at least one");
+        }
+        this.rawBudget = rawBudget;
+        this.owners = new SensorHistory[Math.min(INITIAL_CAPACITY, rawBudget)];
+        this.lengths = new int[this.owners.length];
+        this.retention = new int[HistoryTier.values().length];
+        this.retention[HistoryTier.MINUTE.ordinal()] = 24 * 60;
+        this.retention[HistoryTier.FIFTEEN_MINUTES.ordinal()] = 7 * 24 * 4;
+        this.retention[HistoryTier.HOUR.ordinal()] = 30 * 24;
+        this.retention[HistoryTier.DAY.ordinal()] = 365;
+        this.deferredAdd = (owner, count) ->
+                this.addRawReadings((SensorHistory) owner, count);
+    }
+
+    /**
+     * Returns the singleton instance of the history budget.
+     *
+     * @return singleton instance
+     * @ass2
+     */
+    public static HistoryBudget getInstance() {
+        return instance;
+    }
+
+    /**
+     * Returns the maximum number of raw readings kept across all sensors.
+     *
+     * @return raw reading budget
+     * @ass2
+     */
+    public int getRawBudget() {
+        return this.rawBudget;
+    }
+
+    /**
+     * Sets the maximum number of raw readings kept across all sensors,
+     * evicting the oldest raw readings straight away if more are held.
+     *
+     * @param rawBudget new raw reading budget
+     * @throws IllegalArgumentException if rawBudget is less than one
+     * @ass2
+     */
+    public void setRawBudget(int rawBudget) {
+        if (rawBudget < 1) {
+            throw new IllegalArgumentException(
+                    "Raw reading budget must be at least one");
+        }
+        this.rawBudget = rawBudget;
+        this.evict((long) this.size - rawBudget);
+    }
+
+    /**
+     * Returns the number of raw readings currently counted against the
+     * budget.
+     *
+     * @return number of raw readings held
+     * @ass2
+     */
+    public int getRawReadingCount() {
+        return this.size;
+    }
+
+    /**
+     * Returns the maximum number of buckets of the given tier kept for
+     * each sensor.
+     *
+     * @param tier history tier
+     * @return retention of the tier, in buckets
+     * @ass2
+     */
+    public int getRetention(HistoryTier tier) {
+        return this.retention[tier.ordinal()];
+    }
+
+    /**
+     * Sets the maximum number of buckets of the given tier kept for each
+     * sensor. Histories holding more buckets than this drop their oldest
+     * buckets as new ones are added.
+     *
+     * @param tier history tier
+     * @param buckets new retention of the tier, in buckets
+     * @throws IllegalArgumentException if buckets is less than one
+     * @ass2
+     */
+    public void setRetention(HistoryTier tier, int buckets) {
+        if (buckets < 1) {
+            throw new IllegalArgumentException(
+                    "Retention must be at least one bucket");
+        }
+        this.retention[tier.ordinal()] = buckets;
+    }
+
+    /**
+     * Counts the given number of new raw readings of the given history
+     * against the budget, evicting the oldest raw readings held by any
+     * history once the budget is full.
+     * <p>
+     * Consecutive readings of the same history are counted as one run, so
+     * the queue only grows when histories record in turn.
+     * <p>
+     * Deferred while timed items are run in parallel, as the evicted
+     * readings may belong to a sensor in another building.
+     *
+     * @param owner history that recorded the readings
+     * @param count number of readings recorded
+     */
+    void addRawReadings(SensorHistory owner, int count) {
+        if (TimedItemManager.defer(this.deferredAdd, owner, count)) {
+            return;
+        }
+        long excess = this.evict((long) this.size + count - this.rawBudget);
+        if (excess > 0) {
+            // more readings than the whole budget, evicted straight away
+            owner.releaseRawReadings((int) excess);
+            count -= (int) excess;
+        }
+
+        int newest = (this.head + this.runs - 1 + this.owners.length)
+                % this.owners.length;
+        if (this.runs > 0 && this.owners[newest] == owner) {
+            this.lengths[newest] += count;
+        } else {
+            if (this.runs == this.owners.length) {
+                this.grow();
+            }
+            int run = (this.head + this.runs) % this.owners.length;
+            this.owners[run] = owner;
+            this.lengths[run] = count;
+            this.runs++;
+        }
+        this.size += count;
+    }
+
+    /**
+     * Evicts up to the given number of the oldest raw readings held.
+     *
+     * @param excess number of readings to evict
+     * @return number of readings that could not be evicted, as too few
+     * are held
+     */
+    private long evict(long excess) {
+        while (excess > 0 && this.runs > 0) {
+            int removed = (int) Math.min(excess, this.lengths[this.head]);
+            SensorHistory oldest = this.owners[this.head];
+            this.lengths[this.head] -= removed;
+            if (this.lengths[this.head] == 0) {
+                this.owners[this.head] = null;
+                this.head = (this.head + 1) % this.owners.length;
+                this.runs--;
+            }
+            this.size -= removed;
+            excess -= removed;
+            oldest.releaseRawReadings(removed);
+        }
+        return excess;
+    }
+
+    /**
+     * Increases the capacity of the queue of raw reading owners.
+     */
+    private void grow() {
+        int capacity = (int) Math.min((long) this.owners.length * 2,
+                this.rawBudget);
+        SensorHistory[] resizedOwners = new SensorHistory[capacity];
+        int[] resizedLengths = new int[capacity];
+        for (int i = 0; i < this.runs; i++) {
+            int run = (this.head + i) % this.owners.length;
+            resizedOwners[i] = this.owners[run];
+            resizedLengths[i] = this.lengths[run];
+        }
+        this.owners = resizedOwners;
+        this.lengths = resizedLengths;
+        this.head = 0;
+    }
+}
@@ -0,0 +1,42 @@
+package bms.sensors;
+
+/**
+ * Enum to represent the resolutions at which a sensor's reading history
+ * is kept.
+ *
+ * @ass2
+ */
+public enum HistoryTier {
+    /** Raw readings, one per minute. */
+    MINUTE(1),
+    /** Fifteen minute rollups. */
+    FIFTEEN_MINUTES(15),
+    /** Hourly rollups. */
+    HOUR(60),
+    /** Daily rollups. */
+    DAY(1440);
+
+    /**
+     * Number of minutes summarised by one bucket of this tier
+     */
+    private final int minutes;
+
+    /**
+     * Creates a tier whose buckets each summarise the given number of minutes.
+     *
+     * @param minutes minutes per bucket
+     */
+    HistoryTier(int minutes) {
+        this.minutes = minutes;
+    }
+
+    /**
+     * Returns the number of minutes summarised by one bucket of this tier.
+     *
+     * @return minutes per bucket
+     * @ass2
+     */
+    public int getMinutes() {
+        return this.minutes;
+    }
+}
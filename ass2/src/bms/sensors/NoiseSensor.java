@@ -13,6 +13,16 @@ public class NoiseSensor extends TimedSensor implements HazardSensor, ComfortSen
      */
     private static final int referenceDB = 70;
 
+    /**
+     * Hazard level of each reading, built on first use
+     */
+    private byte[] hazardLevels;
+
+    /**
+     * Comfort level of each reading, built on first use
+     */
+    private byte[] comfortLevels;
+
     /**
      * Creates a new noise sensor with the given sensor readings and update
      * frequency.
@@ -26,6 +36,17 @@ public class NoiseSensor extends TimedSensor implements HazardSensor, ComfortSen
         super(sensorReadings, updateFrequency);
     }
 
+    /**
+     * Returns the kind of this sensor, {@link SensorKind#NOISE}.
+     *
+     * @return the sensor's kind
+     * @ass2
+     */
+    @Override
+    public SensorKind getKind() {
+        return SensorKind.NOISE;
+    }
+
     /**
      * Calculates the relative loudness level compared to a reference of 70.0
      * decibels.
@@ -48,7 +69,18 @@ public class NoiseSensor extends TimedSensor implements HazardSensor, ComfortSen
      * @ass1
      */
     public double calculateRelativeLoudness() {
-        return Math.pow(2, (this.getCurrentReading() - referenceDB) / 10.0);
+        return relativeLoudnessOf(this.getCurrentReading());
+    }
+
+    /**
+     * Returns the relative loudness of the given reading compared to 70.0
+     * decibels, as described by {@link #calculateRelativeLoudness()}.
+     *
+     * @param reading loudness reading in decibels
+     * @return relative loudness of the reading to 70dB
+     */
+    private static double relativeLoudnessOf(int reading) {
+        return Math.pow(2, (reading - referenceDB) / 10.0);
     }
 
     /**
@@ -71,7 +103,21 @@ public class NoiseSensor extends TimedSensor implements HazardSensor, ComfortSen
      */
     @Override
     public int getHazardLevel() {
-        double relativeLoudnessMult100 = this.calculateRelativeLoudness() * 100;
+        if (this.hazardLevels == null) {
+            this.hazardLevels = this.tabulate(NoiseSensor::hazardLevelOf);
+        }
+        return this.hazardLevels[this.getReadingIndex()];
+    }
+
+    /**
+     * Returns the hazard level of the given reading, as described by
+     * {@link #getHazardLevel()}.
+     *
+     * @param reading loudness reading in decibels
+     * @return hazard level of the reading, 0 to 100
+     */
+    private static int hazardLevelOf(int reading) {
+        double relativeLoudnessMult100 = relativeLoudnessOf(reading) * 100;
         return (int) Math.min(Math.floor(relativeLoudnessMult100), 100);
     }
 
@@ -95,7 +141,21 @@ public class NoiseSensor extends TimedSensor implements HazardSensor, ComfortSen
      * @ass2
      */
     public int getComfortLevel() {
-        double comfortLevel = (1 - this.calculateRelativeLoudness());
+        if (this.comfortLevels == null) {
+            this.comfortLevels = this.tabulate(NoiseSensor::comfortLevelOf);
+        }
+        return this.comfortLevels[this.getReadingIndex()];
+    }
+
+    /**
+     * Returns the comfort level of the given reading, as described by
+     * {@link #getComfortLevel()}.
+     *
+     * @param reading loudness reading in decibels
+     * @return comfort level of the reading, 0 to 100
+     */
+    private static int comfortLevelOf(int reading) {
+        double comfortLevel = (1 - relativeLoudnessOf(reading));
         if (comfortLevel < 0) {
             return 0;
         } else {
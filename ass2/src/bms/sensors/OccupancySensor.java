@@ -12,6 +12,16 @@ public class OccupancySensor extends TimedSensor
      */
     private int capacity;
 
+    /**
+     * Hazard level of each reading, built on first use
+     */
+    private byte[] hazardLevels;
+
+    /**
+     * Comfort level of each reading, built on first use
+     */
+    private byte[] comfortLevels;
+
     /**
      * Creates a new occupancy sensor with the given sensor readings, update
      * frequency and capacity.
@@ -36,6 +46,17 @@ public class OccupancySensor extends TimedSensor
         this.capacity = capacity;
     }
 
+    /**
+     * Returns the kind of this sensor, {@link SensorKind#OCCUPANCY}.
+     *
+     * @return the sensor's kind
+     * @ass2
+     */
+    @Override
+    public SensorKind getKind() {
+        return SensorKind.OCCUPANCY;
+    }
+
     /**
      * Returns the capacity of this occupancy sensor.
      *
@@ -67,8 +88,20 @@ public class OccupancySensor extends TimedSensor
      */
     @Override
     public int getHazardLevel() {
-        final int currentReading = this.getCurrentReading();
+        if (this.hazardLevels == null) {
+            this.hazardLevels = this.tabulate(this::hazardLevelOf);
+        }
+        return this.hazardLevels[this.getReadingIndex()];
+    }
 
+    /**
+     * Returns the hazard level of the given reading, as described by
+     * {@link #getHazardLevel()}.
+     *
+     * @param currentReading number of people in the room
+     * @return hazard level of the reading, 0 to 100
+     */
+    private int hazardLevelOf(int currentReading) {
         if (currentReading >= this.capacity) {
             return 100;
         }
@@ -99,7 +132,20 @@ public class OccupancySensor extends TimedSensor
      * @ass2
      */
     public int getComfortLevel() {
-        final int currentReading = this.getCurrentReading();
+        if (this.comfortLevels == null) {
+            this.comfortLevels = this.tabulate(this::comfortLevelOf);
+        }
+        return this.comfortLevels[this.getReadingIndex()];
+    }
+
+    /**
+     * Returns the comfort level of the given reading, as described by
+     * {@link #getComfortLevel()}.
+     *
+     * @param currentReading number of people in the room
+     * @return comfort level of the reading, 0 to 100
+     */
+    private int comfortLevelOf(int currentReading) {
         if (currentReading > this.capacity) {
             return 0;
         }
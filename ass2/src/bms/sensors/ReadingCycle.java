@@ -0,0 +1,167 @@
+package bms.sensors;
+
+/**
+ * The readings of a timed sensor as a function of the minute, which repeat
+ * in a fixed cycle of the sensor's readings array times its update
+ * frequency.
+ * <p>
+ * Sums over any span of minutes are answered from prefix sums over one
+ * cycle, and the minimum and maximum over spans of a whole cycle or more
+ * from the cycle's extremes, so whole cycles of readings can be recorded
+ * without visiting each minute.
+ */
+final class ReadingCycle {
+    /**
+     * Readings taken one update apart
+     */
+    private final int[] readings;
+
+    /**
+     * Number of minutes each reading lasts
+     */
+    private final int updateFrequency;
+
+    /**
+     * Number of minutes in one cycle of readings
+     */
+    private final int period;
+
+    /**
+     * Sum of the readings of the first i minutes of a cycle, indexed by i
+     */
+    private final long[] prefixSums;
+
+    /**
+     * Smallest reading of the cycle
+     */
+    private final int min;
+
+    /**
+     * Largest reading of the cycle
+     */
+    private final int max;
+
+    /**
+     * Creates the cycle of the given readings.
+     *
+     * @param readings non-empty array of readings, one per update
+     * @param updateFrequency number of minutes each reading lasts
+     */
+    ReadingCycle(int[] readings, int updateFrequency) {
+        this.readings = readings;
+        this.updateFrequency = updateFrequency;
+        this.period = readings.length * updateFrequency;
+        this.prefixSums = new long[this.period + 1];
+        int min = Integer.MAX_VALUE;
+        int max = Integer.MIN_VALUE;
+        for (int minute = 0; minute < this.period; minute++) {
+            int reading = readings[minute / updateFrequency];
+            this.prefixSums[minute + 1] = this.prefixSums[minute] + reading;
+            min = Math.min(min, reading);
+            max = Math.max(max, reading);
+        }
+        this.min = min;
+        this.max = max;
+    }
+
+    /**
+     * Returns the reading observed during the given minute.
+     *
+     * @param minute minute of the sensor's time elapsed, at least zero
+     * @return reading of the minute
+     */
+    int readingAt(int minute) {
+        return this.readings[minute % this.period / this.updateFrequency];
+    }
+
+    /**
+     * Returns the first minute after the given one at which the reading
+     * is next updated.
+     *
+     * @param minute minute of the sensor's time elapsed, at least zero
+     * @return minute of the next update
+     */
+    int nextUpdate(int minute) {
+        return (minute / this.updateFrequency + 1) * this.updateFrequency;
+    }
+
+    /**
+     * Returns the sum of the readings of the minutes from start, inclusive,
+     * to end, exclusive.
+     *
+     * @param start first minute of the span
+     * @param end minute after the last of the span
+     * @return sum of one reading per minute
+     */
+    long sum(int start, int end) {
+        return this.sumUntil(end) - this.sumUntil(start);
+    }
+
+    /**
+     * Returns the smallest reading of the minutes from start, inclusive, to
+     * end, exclusive.
+     *
+     * @param start first minute of the span
+     * @param end minute after the last of the span, after start
+     * @return minimum reading
+     */
+    int min(int start, int end) {
+        if (end - start >= this.period) {
+            return this.min;
+        }
+        int min = Integer.MAX_VALUE;
+        for (int minute = start; minute < end;
+                minute = this.nextUpdate(minute)) {
+            min = Math.min(min, this.readingAt(minute));
+        }
+        return min;
+    }
+
+    /**
+     * Returns the largest reading of the minutes from start, inclusive, to
+     * end, exclusive.
+     *
+     * @param start first minute of the span
+     * @param end minute after the last of the span, after start
+     * @return maximum reading
+     */
+    int max(int start, int end) {
+        if (end - start >= this.period) {
+            return this.max;
+        }
+        int max = Integer.MIN_VALUE;
+        for (int minute = start; minute < end;
+                minute = this.nextUpdate(minute)) {
+            max = Math.max(max, this.readingAt(minute));
+        }
+        return max;
+    }
+
+    /**
+     * Adds the readings of the minutes from start, inclusive, to end,
+     * exclusive, to the given statistics, one call per reading.
+     *
+     * @param statistics statistics to add to
+     * @param start first minute to add
+     * @param end minute after the last to add
+     */
+    void addTo(RollingStatistics statistics, int start, int end) {
+        int minute = start;
+        while (minute < end) {
+            int next = Math.min(end, this.nextUpdate(minute));
+            statistics.add(this.readingAt(minute), next - minute);
+            minute = next;
+        }
+    }
+
+    /**
+     * Returns the sum of the readings of the minutes before the given one.
+     *
+     * @param minute minute after the last of the span
+     * @return sum of one reading per minute
+     */
+    private long sumUntil(int minute) {
+        return minute / this.period * this.prefixSums[this.period]
+                + this.prefixSums[minute % this.period];
+    }
+}
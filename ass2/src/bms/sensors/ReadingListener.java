@@ -0,0 +1,37 @@
+package bms.sensors;
+
+/**
+ * Denotes a class that is notified whenever a timed sensor takes a new
+ * reading.
+ * @ass2
+ */
+public interface ReadingListener {
+    /**
+     * Called by a timed sensor each time it takes a new reading, that is
+     * every {@link TimedSensor#getUpdateFrequency()} minutes. The new
+     * reading may be equal to the previous one.
+     * <p>
+     * The new reading is available from
+     * {@link TimedSensor#getCurrentReading()}, and its minute from
+     * {@link TimedSensor#getStoredTimeElapsed()}; listeners should not call
+     * methods which bring the sensor up to date, such as
+     * {@link TimedSensor#getTimeElapsed()}, while it is being run.
+     *
+     * @param sensor sensor that took the reading
+     * @param previousReading the sensor's reading before this update
+     * @ass2
+     */
+    void readingUpdated(TimedSensor sensor, int previousReading);
+
+    /**
+     * Called by a timed sensor once it has been unregistered from its timed
+     * item manager, after which it takes no more readings.
+     * <p>
+     * By default, does nothing.
+     *
+     * @param sensor sensor that was unregistered
+     * @ass2
+     */
+    default void sensorRetired(TimedSensor sensor) {
+    }
+}
@@ -0,0 +1,405 @@
+package bms.sensors;
+
+/**
+ * Keeps the minimum, maximum, mean and variance of a sensor's readings
+ * over a sliding window of the most recent minutes.
+ *
+ * Readings are stored as runs of equal values, so a reading that stays
+ * the same for several minutes only takes up one entry. The minimum and
+ * maximum are tracked with monotonic deques of runs, and the mean and
+ * variance with running sums, so adding readings costs O(1) amortised
+ * and no statistic ever rescans the window.
+ *
+ * @ass2
+ */
+public class RollingStatistics {
+
+    /**
+     * Initial number of runs the buffers can hold before growing
+     */
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * Length of the window in minutes
+     */
+    private final int windowLength;
+
+    /**
+     * Largest number of runs the buffers will ever need to hold
+     */
+    private final int maxCapacity;
+
+    /**
+     * Values of the runs in the window, indexed by run id
+     */
+    private int[] runValues;
+
+    /**
+     * Number of minutes each run in the window lasted, indexed by run id
+     */
+    private int[] runLengths;
+
+    /**
+     * Id of the oldest run still in the window
+     */
+    private int oldestRun;
+
+    /**
+     * Id that will be given to the next new run
+     */
+    private int nextRun;
+
+    /**
+     * Total number of minutes currently covered by the window
+     */
+    private int minutes;
+
+    /**
+     * Sum of all readings in the window (one per minute)
+     */
+    private long sum;
+
+    /**
+     * Sum of the squares of all readings in the window (one per minute)
+     */
+    private long sumOfSquares;
+
+    /**
+     * Run ids in increasing order of value, front is the minimum
+     */
+    private final MonotonicDeque minimums;
+
+    /**
+     * Run ids in decreasing order of value, front is the maximum
+     */
+    private final MonotonicDeque maximums;
+
+    /**
+     * Creates new, empty rolling statistics over the given number of minutes.
+     *
+     * @param windowLength length of the window in minutes
+     * @throws IllegalArgumentException if windowLength is less than one
+     * @ass2
+     */
+    public RollingStatistics(int windowLength) {
+        if (windowLength < 1) {
+            throw new IllegalArgumentException(
+                    "Window length must be at least one minute");
+        }
+        this.windowLength = windowLength;
+        this.maxCapacity = Integer.highestOneBit(windowLength) << 1;
+        int capacity = Math.min(INITIAL_CAPACITY, this.maxCapacity);
+        this.runValues = new int[capacity];
+        this.runLengths = new int[capacity];
+        this.minimums = new MonotonicDeque(capacity, true);
+        this.maximums = new MonotonicDeque(capacity, false);
+    }
+
+    /**
+     * Returns the length of the window in minutes.
+     *
+     * @return window length in minutes
+     * @ass2
+     */
+    public int getWindowLength() {
+        return this.windowLength;
+    }
+
+    /**
+     * Returns the number of minutes of readings currently in the window.
+     * This is less than the window length until the window has filled up.
+     *
+     * @return number of minutes of readings in the window
+     * @ass2
+     */
+    public int getCount() {
+        return this.minutes;
+    }
+
+    /**
+     * Returns the smallest reading in the window, or 0 if it is empty.
+     *
+     * @return minimum reading in the window
+     * @ass2
+     */
+    public int getMin() {
+        if (this.minutes == 0) {
+            return 0;
+        }
+        return this.value(this.minimums.front());
+    }
+
+    /**
+     * Returns the largest reading in the window, or 0 if it is empty.
+     *
+     * @return maximum reading in the window
+     * @ass2
+     */
+    public int getMax() {
+        if (this.minutes == 0) {
+            return 0;
+        }
+        return this.value(this.maximums.front());
+    }
+
+    /**
+     * Returns the mean of the readings in the window, or 0 if it is empty.
+     *
+     * @return mean reading in the window
+     * @ass2
+     */
+    public double getMean() {
+        if (this.minutes == 0) {
+            return 0;
+        }
+        return (double) this.sum / this.minutes;
+    }
+
+    /**
+     * Returns the (population) variance of the readings in the window,
+     * or 0 if it is empty.
+     *
+     * @return variance of the readings in the window
+     * @ass2
+     */
+    public double getVariance() {
+        if (this.minutes == 0) {
+            return 0;
+        }
+        double mean = this.getMean();
+        double variance = (double) this.sumOfSquares / this.minutes
+                - mean * mean;
+        // Guard against tiny negative values from rounding
+        return Math.max(variance, 0);
+    }
+
+    /**
+     * Records that the given reading was observed for the given number
+     * of consecutive minutes, dropping readings that fall out of the window.
+     *
+     * @param reading reading that was observed
+     * @param duration number of minutes the reading was observed for
+     * @ass2
+     */
+    public void add(int reading, int duration) {
+        if (duration <= 0) {
+            return;
+        }
+        if (duration >= this.windowLength) {
+            this.clear();
+            duration = this.windowLength;
+        }
+        if (this.nextRun != this.oldestRun
+                && this.value(this.nextRun - 1) == reading) {
+            // Same as the newest run, so just make it longer
+            this.runLengths[(this.nextRun - 1) & this.mask()] += duration;
+        } else {
+            if (this.nextRun - this.oldestRun == this.runValues.length) {
+                this.grow();
+            }
+            int run = this.nextRun++;
+            this.runValues[run & this.mask()] = reading;
+            this.runLengths[run & this.mask()] = duration;
+            this.minimums.push(run);
+            this.maximums.push(run);
+        }
+        this.minutes += duration;
+        this.sum += (long) reading * duration;
+        this.sumOfSquares += (long) reading * reading * duration;
+        this.evict(this.minutes - this.windowLength);
+    }
+
+    /**
+     * Removes all readings from the window.
+     *
+     * @ass2
+     */
+    public void clear() {
+        this.oldestRun = this.nextRun;
+        this.minutes = 0;
+        this.sum = 0;
+        this.sumOfSquares = 0;
+        this.minimums.clear();
+        this.maximums.clear();
+    }
+
+    /**
+     * Removes the given number of the oldest minutes from the window.
+     *
+     * @param excess number of minutes to remove
+     */
+    private void evict(int excess) {
+        while (excess > 0) {
+            int slot = this.oldestRun & this.mask();
+            int removed = Math.min(excess, this.runLengths[slot]);
+            long reading = this.runValues[slot];
+            this.runLengths[slot] -= removed;
+            this.minutes -= removed;
+            this.sum -= reading * removed;
+            this.sumOfSquares -= reading * reading * removed;
+            excess -= removed;
+            if (this.runLengths[slot] == 0) {
+                this.minimums.expire(this.oldestRun);
+                this.maximums.expire(this.oldestRun);
+                this.oldestRun++;
+            }
+        }
+    }
+
+    /**
+     * Doubles the number of runs the buffers can hold.
+     */
+    private void grow() {
+        int capacity = Math.min(this.runValues.length << 1, this.maxCapacity);
+        int[] values = new int[capacity];
+        int[] lengths = new int[capacity];
+        for (int run = this.oldestRun; run != this.nextRun; run++) {
+            values[run & (capacity - 1)] = this.runValues[run & this.mask()];
+            lengths[run & (capacity - 1)] = this.runLengths[run & this.mask()];
+        }
+        this.runValues = values;
+        this.runLengths = lengths;
+        this.minimums.grow(capacity);
+        this.maximums.grow(capacity);
+    }
+
+    /**
+     * Returns the bit mask used to map run ids to buffer slots.
+     *
+     * @return buffer slot mask
+     */
+    private int mask() {
+        return this.runValues.length - 1;
+    }
+
+    /**
+     * Returns the value of the run with the given id.
+     *
+     * @param run id of a run in the window
+     * @return reading of the run
+     */
+    private int value(int run) {
+        return this.runValues[run & this.mask()];
+    }
+
+    /**
+     * Returns the human-readable string representation of these statistics.
+     *
+     * The format of the string to return is
+     * "min='min', max='max', mean='mean', var='variance'"
+     * without the single quotes, where the mean and variance are formatted
+     * to one (1) decimal place.
+     *
+     * For example: "min=690, max=740, mean=715.0, var=625.0"
+     *
+     * @return string representation of these statistics
+     * @ass2
+     */
+    @Override
+    public String toString() {
+        return String.format("min=%d, max=%d, mean=%.1f, var=%.1f",
+                this.getMin(), this.getMax(), this.getMean(),
+                this.getVariance());
+    }
+
+    /**
+     * Double ended queue of run ids whose values are kept in monotonic
+     * order, so the extreme value of the window is always at the front.
+     */
+    private class MonotonicDeque {
+
+        /**
+         * Ring buffer of run ids
+         */
+        private int[] runs;
+
+        /**
+         * Position of the front of the queue in the ring buffer
+         */
+        private int head;
+
+        /**
+         * Number of run ids in the queue
+         */
+        private int size;
+
+        /**
+         * Whether the front holds the minimum (true) or maximum (false)
+         */
+        private final boolean minimum;
+
+        /**
+         * Creates a new empty deque.
+         *
+         * @param capacity initial capacity, a power of two
+         * @param minimum true to track the minimum, false for the maximum
+         */
+        private MonotonicDeque(int capacity, boolean minimum) {
+            this.runs = new int[capacity];
+            this.minimum = minimum;
+        }
+
+        /**
+         * Returns the run id at the front of the queue.
+         *
+         * @return id of the run holding the extreme value
+         */
+        private int front() {
+            return this.runs[this.head];
+        }
+
+        /**
+         * Adds a new run at the back, dropping any runs it dominates.
+         *
+         * @param run id of the newest run
+         */
+        private void push(int run) {
+            int reading = value(run);
+            while (this.size > 0) {
+                int back = value(this.runs[(this.head + this.size - 1)
+                        & (this.runs.length - 1)]);
+                if (this.minimum ? back < reading : back > reading) {
+                    break;
+                }
+                this.size--;
+            }
+            this.runs[(this.head + this.size) & (this.runs.length - 1)] = run;
+            this.size++;
+        }
+
+        /**
+         * Removes the given run from the front if it is there.
+         *
+         * @param run id of the run leaving the window
+         */
+        private void expire(int run) {
+            if (this.size > 0 && this.runs[this.head] == run) {
+                this.head = (this.head + 1) & (this.runs.length - 1);
+                this.size--;
+            }
+        }
+
+        /**
+         * Removes all run ids from the queue.
+         */
+        private void clear() {
+            this.head = 0;
+            this.size = 0;
+        }
+
+        /**
+         * Resizes the ring buffer, keeping the queued run ids in order.
+         *
+         * @param capacity new capacity, a power of two
+         */
+        private void grow(int capacity) {
+            int[] resized = new int[capacity];
+            for (int i = 0; i < this.size; i++) {
+                resized[i] = this.runs[(this.head + i)
+                        & (this.runs.length - 1)];
+            }
+            this.runs = resized;
+            this.head = 0;
+        }
+    }
+}
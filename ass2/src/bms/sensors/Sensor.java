@@ -16,4 +16,12 @@ public interface Sensor {
      * @ass1
      */
     int getCurrentReading();
+
+    /**
+     * Returns the registered kind of this sensor.
+     *
+     * @return the sensor's kind
+     * @ass2
+     */
+    SensorKind getKind();
 }
@@ -0,0 +1,395 @@
+package bms.sensors;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Aggregate of the current readings and hazard levels of a group of
+ * sensors of the same kind, such as all the CO2 sensors in one room.
+ * <p>
+ * The sum and maximum of the sensors' readings and hazard levels are
+ * updated incrementally as each timed sensor takes a new reading, so they
+ * can be read in constant time. A maximum is only recomputed from the
+ * members when the sensor holding it drops below it.
+ * <p>
+ * The aggregate can itself be used as a hazard sensor, see
+ * {@link #getHazardLevel()}.
+ * @ass2
+ */
+public class SensorAggregate implements HazardSensor {
+
+    /**
+     * Kind of every sensor in the aggregate
+     */
+    private final SensorKind kind;
+
+    /**
+     * Sensors in the aggregate, in order of addition
+     */
+    private final List<Sensor> sensors;
+
+    /**
+     * Last known reading of each sensor, in order of addition
+     */
+    private int[] readings;
+
+    /**
+     * Last known hazard level of each sensor, in order of addition
+     */
+    private int[] hazardLevels;
+
+    /**
+     * Listener keeping each sensor's reading up to date, in order of
+     * addition; null for sensors that are not timed sensors
+     */
+    private Member[] members;
+
+    /**
+     * Sum of the readings of all sensors
+     */
+    private long readingSum;
+
+    /**
+     * Largest reading of any sensor
+     */
+    private int maxReading;
+
+    /**
+     * Sum of the hazard levels of all sensors
+     */
+    private long hazardSum;
+
+    /**
+     * Largest hazard level of any sensor
+     */
+    private int maxHazardLevel;
+
+    /**
+     * Sum of the capacities of all occupancy sensors
+     */
+    private long capacitySum;
+
+    /**
+     * Creates a new, empty aggregate of sensors of the given kind.
+     *
+     * @param kind kind of the sensors to aggregate
+     * @ass2
+     */
+    public SensorAggregate(SensorKind kind) {
+        this.kind = kind;
+        this.sensors = new ArrayList<>();
+        this.readings = new int[1];
+        this.hazardLevels = new int[1];
+        this.members = new Member[1];
+    }
+
+    /**
+     * Adds a sensor to the aggregate. If the sensor is a timed sensor,
+     * the aggregate is kept up to date as it takes new readings, and the
+     * sensor is removed from the aggregate once it is retired, see
+     * {@link ReadingListener#sensorRetired(TimedSensor)}.
+     *
+     * @param sensor sensor to add
+     * @throws IllegalArgumentException if the sensor is not of this
+     * aggregate's kind
+     * @ass2
+     */
+    public void addSensor(Sensor sensor) {
+        if (sensor.getKind() != this.kind) {
+            throw new IllegalArgumentException("Cannot aggregate a "
+                    + sensor.getKind() + " with sensors of kind " + this.kind);
+        }
+        int index = this.sensors.size();
+        if (index == this.readings.length) {
+            this.readings = Arrays.copyOf(this.readings, index * 2);
+            this.hazardLevels = Arrays.copyOf(this.hazardLevels, index * 2);
+            this.members = Arrays.copyOf(this.members, index * 2);
+        }
+        this.sensors.add(sensor);
+
+        int reading = sensor.getCurrentReading();
+        int hazardLevel = hazardLevelOf(sensor);
+        this.readings[index] = reading;
+        this.hazardLevels[index] = hazardLevel;
+        this.readingSum += reading;
+        this.hazardSum += hazardLevel;
+        if (index == 0 || reading > this.maxReading) {
+            this.maxReading = reading;
+        }
+        if (index == 0 || hazardLevel > this.maxHazardLevel) {
+            this.maxHazardLevel = hazardLevel;
+        }
+        if (sensor instanceof OccupancySensor) {
+            this.capacitySum += ((OccupancySensor) sensor).getCapacity();
+        }
+        if (sensor instanceof TimedSensor) {
+            this.members[index] = new Member(index);
+            ((TimedSensor) sensor).addReadingListener(this.members[index]);
+        }
+    }
+
+    /**
+     * Returns the kind of the sensors in this aggregate.
+     *
+     * @return kind of sensor aggregated
+     * @ass2
+     */
+    @Override
+    public SensorKind getKind() {
+        return this.kind;
+    }
+
+    /**
+     * Returns the sensors in this aggregate, in the order they were added.
+     *
+     * @return unmodifiable list of sensors
+     * @ass2
+     */
+    public List<Sensor> getSensors() {
+        return Collections.unmodifiableList(this.sensors);
+    }
+
+    /**
+     * Returns the number of sensors in this aggregate.
+     *
+     * @return number of sensors
+     * @ass2
+     */
+    public int getCount() {
+        return this.sensors.size();
+    }
+
+    /**
+     * Returns the largest current reading of any sensor in this aggregate,
+     * or zero (0) if it has no sensors.
+     *
+     * @return maximum reading
+     * @ass2
+     */
+    public int getMaxReading() {
+        return this.sensors.isEmpty() ? 0 : this.maxReading;
+    }
+
+    /**
+     * Returns the sum of the current readings of the sensors in this
+     * aggregate, eg. the total number of people in a room for occupancy
+     * sensors.
+     *
+     * @return sum of readings
+     * @ass2
+     */
+    public long getReadingSum() {
+        return this.readingSum;
+    }
+
+    /**
+     * Returns the mean current reading of the sensors in this aggregate,
+     * or zero (0) if it has no sensors.
+     *
+     * @return mean reading
+     * @ass2
+     */
+    public double getMeanReading() {
+        if (this.sensors.isEmpty()) {
+            return 0;
+        }
+        return (double) this.readingSum / this.sensors.size();
+    }
+
+    /**
+     * Returns the largest current hazard level of any hazard sensor in
+     * this aggregate, or zero (0) if it has none.
+     *
+     * @return maximum hazard level, 0 to 100
+     * @ass2
+     */
+    public int getMaxHazardLevel() {
+        return this.sensors.isEmpty() ? 0 : this.maxHazardLevel;
+    }
+
+    /**
+     * Returns the mean current hazard level of the sensors in this
+     * aggregate, or zero (0) if it has no sensors.
+     *
+     * @return mean hazard level, 0 to 100
+     * @ass2
+     */
+    public double getMeanHazardLevel() {
+        if (this.sensors.isEmpty()) {
+            return 0;
+        }
+        return (double) this.hazardSum / this.sensors.size();
+    }
+
+    /**
+     * Returns the sum of the capacities of the occupancy sensors in this
+     * aggregate, or zero (0) for other kinds of sensor.
+     *
+     * @return total capacity
+     * @ass2
+     */
+    public long getCapacitySum() {
+        return this.capacitySum;
+    }
+
+    /**
+     * Returns the current reading of the aggregate: the total reading for
+     * occupancy sensors, and the largest reading otherwise. The total is
+     * capped at {@link Integer#MAX_VALUE}.
+     *
+     * @return aggregate reading
+     * @ass2
+     */
+    @Override
+    public int getCurrentReading() {
+        if (this.kind == SensorKind.OCCUPANCY) {
+            return (int) Math.min(this.readingSum, Integer.MAX_VALUE);
+        }
+        return this.getMaxReading();
+    }
+
+    /**
+     * Returns the hazard level of the aggregate.
+     * <p>
+     * For occupancy sensors this is the hazard level of the room's total
+     * occupancy against its total capacity, computed as in
+     * {@link OccupancySensor#getHazardLevel()}. For other kinds of sensor
+     * it is the largest hazard level of any sensor, as the most hazardous
+     * part of a room determines the hazard of the whole room.
+     * <p>
+     * For an aggregate of one sensor, this is that sensor's hazard level.
+     *
+     * @return aggregate hazard level, 0 to 100
+     * @ass2
+     */
+    @Override
+    public int getHazardLevel() {
+        if (this.kind == SensorKind.OCCUPANCY && !this.sensors.isEmpty()) {
+            if (this.readingSum >= this.capacitySum) {
+                return 100;
+            }
+            return (int) Math.round(100.0 * this.readingSum
+                    / this.capacitySum);
+        }
+        return this.getMaxHazardLevel();
+    }
+
+    /**
+     * Returns the hazard level of a sensor, or zero (0) if it is not a
+     * hazard sensor.
+     *
+     * @param sensor sensor to return the hazard level of
+     * @return hazard level of the sensor
+     */
+    private static int hazardLevelOf(Sensor sensor) {
+        if (sensor instanceof HazardSensor) {
+            return ((HazardSensor) sensor).getHazardLevel();
+        }
+        return 0;
+    }
+
+    /**
+     * Removes the sensor at the given position from the aggregate, moving
+     * the sensors after it down one position.
+     *
+     * @param index position of the sensor to remove
+     */
+    private void remove(int index) {
+        Sensor sensor = this.sensors.remove(index);
+        int count = this.sensors.size();
+        this.readingSum -= this.readings[index];
+        this.hazardSum -= this.hazardLevels[index];
+        if (sensor instanceof OccupancySensor) {
+            this.capacitySum -= ((OccupancySensor) sensor).getCapacity();
+        }
+        System.arraycopy(this.readings, index + 1, this.readings, index,
+                count - index);
+        System.arraycopy(this.hazardLevels, index + 1, this.hazardLevels,
+                index, count - index);
+        System.arraycopy(this.members, index + 1, this.members, index,
+                count - index);
+        this.members[count] = null;
+        for (int i = index; i < count; i++) {
+            if (this.members[i] != null) {
+                this.members[i].index = i;
+            }
+        }
+        if (count > 0) {
+            this.rescanMaxima();
+        }
+    }
+
+    /**
+     * Recomputes the largest reading and hazard level from every member.
+     */
+    private void rescanMaxima() {
+        this.maxReading = this.readings[0];
+        this.maxHazardLevel = this.hazardLevels[0];
+        for (int i = 1; i < this.sensors.size(); i++) {
+            this.maxReading = Math.max(this.maxReading, this.readings[i]);
+            this.maxHazardLevel = Math.max(this.maxHazardLevel,
+                    this.hazardLevels[i]);
+        }
+    }
+
+    /**
+     * Updates the aggregate when one of its sensors takes a new reading.
+     */
+    private class Member implements ReadingListener {
+
+        /**
+         * Position of the sensor in the aggregate, or -1 once it has been
+         * removed
+         */
+        private int index;
+
+        /**
+         * Creates a listener for the sensor at the given position.
+         *
+         * @param index position of the sensor in the aggregate
+         */
+        private Member(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public void readingUpdated(TimedSensor sensor, int previousReading) {
+            int reading = sensor.getCurrentReading();
+            if (this.index < 0 || reading == readings[this.index]) {
+                return;
+            }
+            int hazardLevel = hazardLevelOf(sensor);
+            int oldReading = readings[this.index];
+            int oldHazardLevel = hazardLevels[this.index];
+            readings[this.index] = reading;
+            hazardLevels[this.index] = hazardLevel;
+            readingSum += reading - oldReading;
+            hazardSum += hazardLevel - oldHazardLevel;
+
+            if ((reading < oldReading && oldReading == maxReading)
+                    || (hazardLevel < oldHazardLevel
+                    && oldHazardLevel == maxHazardLevel)) {
+                rescanMaxima();
+            } else {
+                maxReading = Math.max(maxReading, reading);
+                maxHazardLevel = Math.max(maxHazardLevel, hazardLevel);
+            }
+        }
+
+        /**
+         * Removes the retired sensor from the aggregate, so that its last
+         * reading no longer counts towards the aggregate's.
+         *
+         * @param sensor sensor that was unregistered
+         */
+        @Override
+        public void sensorRetired(TimedSensor sensor) {
+            if (this.index >= 0) {
+                remove(this.index);
+                this.index = -1;
+            }
+        }
+    }
+}
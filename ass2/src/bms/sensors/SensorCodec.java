@@ -0,0 +1,22 @@
+package bms.sensors;
+
+/**
+ * Creates a sensor from the fields of its encoded representation.
+ * @ass2
+ */
+public interface SensorCodec {
+    /**
+     * Creates a sensor from the colon-separated fields that follow the
+     * sensor's kind name in its encoded representation, as returned by
+     * {@link bms.util.Encodable#encode()}.
+     * <p>
+     * For example, the fields of "NoiseSensor:55,62,69:3" are "55,62,69"
+     * and "3".
+     *
+     * @param fields fields of the encoded sensor, excluding its kind name
+     * @return decoded sensor
+     * @throws IllegalArgumentException if any field is invalid
+     * @ass2
+     */
+    Sensor decode(String[] fields) throws IllegalArgumentException;
+}
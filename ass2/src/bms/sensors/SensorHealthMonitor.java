@@ -0,0 +1,629 @@
+package bms.sensors;
+
+import bms.util.DeferredAction;
+import bms.util.TickPhase;
+import bms.util.TimedItem;
+import bms.util.TimedItemManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tracks when each sensor last took a reading, and which sensors have gone
+ * quiet, against the clock of the timed item manager running the sensors.
+ * <p>
+ * A sensor is stale once more than its update frequency multiplied by the
+ * monitor's tolerance (rounded up) minutes have passed since its last
+ * update. Updates are recorded automatically each time a tracked sensor
+ * takes a new reading, and can also be recorded by external feeds through
+ * {@link #recordUpdate(TimedSensor)}.
+ * <p>
+ * Each tracked sensor is kept in a bucket of a timing wheel, keyed by the
+ * minute at which it will become stale. Recording an update moves the
+ * sensor to a later bucket in constant time, and each minute only the
+ * bucket that has just expired is visited, so the cost of finding stale
+ * sensors is proportional to the number of sensors going stale rather than
+ * the number of sensors tracked. Stale sensors are kept on their own list
+ * until their next update. The monitor sleeps through the minutes in which
+ * no bucket expires, see {@link #getMinutesUntilNextChange()}, and is
+ * brought up to date whenever it is read or updated.
+ * <p>
+ * One monitor is kept per clock, registered with the topmost manager
+ * running the sensors, see {@link #getInstance(TimedItemManager)}: the
+ * singleton for buildings run by the singleton manager, and a monitor of
+ * its own for a building simulated on its own. Rooms track their timed
+ * sensors with the monitor of their time manager when they are added, and
+ * report {@link bms.room.RoomState#ERROR} while any of them is stale.
+ * Sensors stop being tracked once they are unregistered from their timed
+ * item manager.
+ * @ass2
+ */
+public class SensorHealthMonitor implements TimedItem {
+    /**
+     * Default multiple of a sensor's update frequency after which it is
+     * stale
+     */
+    private static final double DEFAULT_TOLERANCE = 2.0;
+
+    /**
+     * Number of buckets in the timing wheel, a power of two
+     */
+    private static final int WHEEL_SIZE = 64;
+
+    /**
+     * Node of the sentinel of the stale list. Nodes below it are the
+     * sentinels of the wheel's buckets, nodes above it are sensors.
+     */
+    private static final int STALE = WHEEL_SIZE;
+
+    /**
+     * Singleton instance.
+     */
+    private static SensorHealthMonitor instance =
+            new SensorHealthMonitor(DEFAULT_TOLERANCE);
+
+    /**
+     * Monitor of each topmost manager other than the singleton manager,
+     * created when first asked for
+     */
+    private static final Map<TimedItemManager, SensorHealthMonitor> MONITORS =
+            new IdentityHashMap<>();
+
+    /**
+     * Multiple of a sensor's update frequency after which it is stale
+     */
+    private final double tolerance;
+
+    /**
+     * Handle of each tracked sensor
+     */
+    private final Map<TimedSensor, Integer> handles;
+
+    /**
+     * Tracked sensors, indexed by handle. Null for unused handles.
+     */
+    private TimedSensor[] sensors;
+
+    /**
+     * Listener recording the updates of each tracked sensor, indexed by
+     * handle
+     */
+    private Updater[] updaters;
+
+    /**
+     * Minute of each sensor's last update, indexed by handle
+     */
+    private int[] lastUpdates;
+
+    /**
+     * Minute at which each sensor becomes stale, indexed by handle
+     */
+    private int[] deadlines;
+
+    /**
+     * Next node in each node's list, indexed by node
+     */
+    private int[] next;
+
+    /**
+     * Previous node in each node's list, indexed by node
+     */
+    private int[] previous;
+
+    /**
+     * Number of handles in use or reusable
+     */
+    private int count;
+
+    /**
+     * Handles no longer used by any sensor, to be reused
+     */
+    private int[] freeHandles;
+
+    /**
+     * Number of reusable handles
+     */
+    private int freeCount;
+
+    /**
+     * Number of stale sensors
+     */
+    private int staleCount;
+
+    /**
+     * Minutes elapsed since the monitor was created
+     */
+    private int minute;
+
+    /**
+     * Buckets of the timing wheel which may hold a sensor, one bit per
+     * bucket. Bits are set as sensors are linked, and cleared once their
+     * bucket is found empty.
+     */
+    private long occupied;
+
+    /**
+     * Minute at which the monitor last reported it next changes, or
+     * {@link Integer#MAX_VALUE} if no bucket was occupied
+     */
+    private int nextChange = Integer.MAX_VALUE;
+
+    /**
+     * Records an update once timed items running in parallel have
+     * finished, as the timing wheel is shared by every sensor
+     */
+    private final DeferredAction deferredUpdate;
+
+    /**
+     * Creates a new monitor tracking no sensors, which considers a sensor
+     * stale after the given multiple of its update frequency.
+     * <p>
+     * The monitor is registered as a timed item, see
+     * {@link TimedItemManager#registerTimedItem(TimedItem)}.
+     *
+     * @param tolerance multiple of the update frequency after which a
+     *                  sensor is stale
+     * @throws IllegalArgumentException if tolerance is less than one
+     * @ass2
+     */
+    public SensorHealthMonitor(double tolerance) {
+        if (!(tolerance >= 1)) {
+            throw new IllegalArgumentException(
+                    "Staleness tolerance must be at least one");
+        }
+        this.tolerance = tolerance;
+        this.handles = new IdentityHashMap<>();
+        this.sensors = new TimedSensor[0];
+        this.updaters = new Updater[0];
+        this.lastUpdates = new int[0];
+        this.deadlines = new int[0];
+        this.freeHandles = new int[0];
+        this.next = new int[STALE + 1];
+        this.previous = new int[STALE + 1];
+        for (int node = 0; node <= STALE; node++) {
+            this.next[node] = node;
+            this.previous[node] = node;
+        }
+        this.deferredUpdate = this::updateIfTracked;
+        TimedItemManager.getInstance().registerTimedItem(this);
+    }
+
+    /**
+     * Returns the singleton instance of the sensor health monitor.
+     *
+     * @return singleton instance
+     * @ass2
+     */
+    public static SensorHealthMonitor getInstance() {
+        return instance;
+    }
+
+    /**
+     * Returns the monitor of the clock the given manager's items follow:
+     * the monitor registered with its topmost manager, see
+     * {@link TimedItemManager#getRoot()}. This is the singleton instance
+     * for managers run by the singleton manager; other topmost managers
+     * are given a monitor of their own when first asked for, which is
+     * forgotten once it is unregistered, such as when the manager is
+     * disposed of.
+     *
+     * @param manager manager running the sensors to track
+     * @return monitor measuring staleness against the manager's clock
+     * @ass2
+     */
+    public static SensorHealthMonitor getInstance(TimedItemManager manager) {
+        TimedItemManager root = manager.getRoot();
+        if (root == TimedItemManager.getInstance()) {
+            return instance;
+        }
+        SensorHealthMonitor monitor = MONITORS.get(root);
+        if (monitor == null) {
+            monitor = new SensorHealthMonitor(DEFAULT_TOLERANCE);
+            MONITORS.put(root, monitor);
+            root.registerTimedItem(monitor);
+        }
+        return monitor;
+    }
+
+    /**
+     * Returns the multiple of a sensor's update frequency after which it
+     * is stale.
+     *
+     * @return staleness tolerance
+     * @ass2
+     */
+    public double getTolerance() {
+        return this.tolerance;
+    }
+
+    /**
+     * Returns the number of minutes elapsed since the monitor was created.
+     *
+     * @return current minute
+     * @ass2
+     */
+    public int getCurrentMinute() {
+        this.catchUp();
+        return this.minute;
+    }
+
+    /**
+     * Starts tracking the given sensor, counting the current minute as its
+     * last update. Does nothing if the sensor is already tracked.
+     *
+     * @param sensor sensor to track
+     * @ass2
+     */
+    public void track(TimedSensor sensor) {
+        if (this.handles.containsKey(sensor)) {
+            return;
+        }
+        int handle;
+        if (this.freeCount > 0) {
+            handle = this.freeHandles[--this.freeCount];
+        } else {
+            handle = this.count++;
+            if (handle == this.sensors.length) {
+                int capacity = Math.max(16, handle * 2);
+                this.sensors = Arrays.copyOf(this.sensors, capacity);
+                this.updaters = Arrays.copyOf(this.updaters, capacity);
+                this.lastUpdates = Arrays.copyOf(this.lastUpdates, capacity);
+                this.deadlines = Arrays.copyOf(this.deadlines, capacity);
+                this.next = Arrays.copyOf(this.next, STALE + 1 + capacity);
+                this.previous = Arrays.copyOf(this.previous,
+                        STALE + 1 + capacity);
+            }
+        }
+        this.sensors[handle] = sensor;
+        this.handles.put(sensor, handle);
+        // a reused handle may still hold the deadline of its last sensor
+        this.deadlines[handle] = Integer.MAX_VALUE;
+        int node = nodeOf(handle);
+        this.next[node] = node;
+        this.previous[node] = node;
+        this.update(handle);
+        this.updaters[handle] = new Updater(handle);
+        sensor.addReadingListener(this.updaters[handle]);
+    }
+
+    /**
+     * Stops tracking the given sensor. Does nothing if the sensor is not
+     * tracked.
+     *
+     * @param sensor sensor to stop tracking
+     * @ass2
+     */
+    public void untrack(TimedSensor sensor) {
+        Integer handle = this.handles.remove(sensor);
+        if (handle == null) {
+            return;
+        }
+        int node = nodeOf(handle);
+        if (this.deadlines[handle] <= this.minute && this.next[node] != node) {
+            this.staleCount--;
+        }
+        this.unlink(node);
+        sensor.removeReadingListener(this.updaters[handle]);
+        this.sensors[handle] = null;
+        this.updaters[handle] = null;
+        if (this.freeCount == this.freeHandles.length) {
+            this.freeHandles = Arrays.copyOf(this.freeHandles,
+                    Math.max(16, this.freeCount * 2));
+        }
+        this.freeHandles[this.freeCount++] = handle;
+    }
+
+    /**
+     * Returns the number of sensors tracked.
+     *
+     * @return number of tracked sensors
+     * @ass2
+     */
+    public int getTrackedCount() {
+        return this.handles.size();
+    }
+
+    /**
+     * Records that the given sensor has just taken a reading. Called by
+     * external feeds supplying the sensor's readings.
+     *
+     * @param sensor sensor that took a reading
+     * @throws IllegalArgumentException if the sensor is not tracked
+     * @ass2
+     */
+    public void recordUpdate(TimedSensor sensor) {
+        this.update(this.handleOf(sensor));
+    }
+
+    /**
+     * Returns the minute of the given sensor's last update, according to
+     * {@link #getCurrentMinute()}.
+     *
+     * @param sensor tracked sensor
+     * @return minute of the sensor's last update
+     * @throws IllegalArgumentException if the sensor is not tracked
+     * @ass2
+     */
+    public int getLastUpdate(TimedSensor sensor) {
+        this.catchUp();
+        return this.lastUpdates[this.handleOf(sensor)];
+    }
+
+    /**
+     * Returns whether the given sensor is stale. Sensors that are not
+     * tracked are never stale.
+     *
+     * @param sensor sensor to check
+     * @return true if the sensor is tracked and stale
+     * @ass2
+     */
+    public boolean isStale(TimedSensor sensor) {
+        this.catchUp();
+        Integer handle = this.handles.get(sensor);
+        return handle != null && this.deadlines[handle] <= this.minute;
+    }
+
+    /**
+     * Returns the number of stale sensors.
+     *
+     * @return number of stale sensors
+     * @ass2
+     */
+    public int getStaleCount() {
+        this.catchUp();
+        return this.staleCount;
+    }
+
+    /**
+     * Returns every stale sensor, in the order they became stale. Takes
+     * time proportional to the number of stale sensors.
+     *
+     * @return list of stale sensors
+     * @ass2
+     */
+    public List<TimedSensor> getStaleSensors() {
+        this.catchUp();
+        List<TimedSensor> stale = new ArrayList<>(this.staleCount);
+        for (int node = this.next[STALE]; node != STALE;
+                node = this.next[node]) {
+            stale.add(this.sensors[node - STALE - 1]);
+        }
+        return stale;
+    }
+
+    /**
+     * Advances the monitor's clock by one minute, and moves the sensors
+     * whose deadline has passed onto the stale list.
+     * @ass2
+     */
+    @Override
+    public void elapseOneMinute() {
+        this.minute++;
+        int bucket = this.minute & (WHEEL_SIZE - 1);
+        int node = this.next[bucket];
+        while (node != bucket) {
+            int following = this.next[node];
+            // buckets are shared by deadlines a multiple of the wheel apart
+            if (this.deadlines[node - STALE - 1] <= this.minute) {
+                this.unlink(node);
+                this.link(node, STALE);
+                this.staleCount++;
+            }
+            node = following;
+        }
+    }
+
+    /**
+     * Returns the phase in which the monitor is run, after the sensors it
+     * tracks have taken their readings for the minute.
+     *
+     * @return {@link TickPhase#EVALUATORS}
+     * @ass2
+     */
+    @Override
+    public TickPhase getTickPhase() {
+        return TickPhase.EVALUATORS;
+    }
+
+    /**
+     * Returns the number of minutes until the next non-empty bucket of the
+     * timing wheel expires, or {@link Integer#MAX_VALUE} if every bucket is
+     * empty.
+     *
+     * @return minutes until a sensor may next become stale
+     * @ass2
+     */
+    @Override
+    public int getMinutesUntilNextChange() {
+        int first = (this.minute + 1) & (WHEEL_SIZE - 1);
+        while (this.occupied != 0) {
+            // bit i of the rotated mask is the bucket expiring in i + 1
+            int delay = Long.numberOfTrailingZeros(
+                    Long.rotateRight(this.occupied, first)) + 1;
+            int bucket = (this.minute + delay) & (WHEEL_SIZE - 1);
+            if (this.next[bucket] != bucket) {
+                this.nextChange = this.minute + delay;
+                return delay;
+            }
+            this.occupied &= ~(1L << bucket);
+        }
+        this.nextChange = Integer.MAX_VALUE;
+        return Integer.MAX_VALUE;
+    }
+
+    /**
+     * Advances the monitor's clock by the given number of minutes, only
+     * visiting the buckets which are not empty.
+     *
+     * @param minutes number of minutes elapsed
+     * @ass2
+     */
+    @Override
+    public void elapseMinutes(int minutes) {
+        while (minutes > 0) {
+            int idle = Math.min(minutes, this.getMinutesUntilNextChange()) - 1;
+            this.minute += idle;
+            minutes -= idle;
+            this.elapseOneMinute();
+            minutes--;
+        }
+    }
+
+    /**
+     * Forgets the monitor as the monitor of its manager's clock, so that a
+     * new one is created if the manager is used again.
+     * @ass2
+     */
+    @Override
+    public void unregistered() {
+        MONITORS.values().remove(this);
+    }
+
+    /**
+     * Brings the monitor's clock up to date, if it is asleep.
+     */
+    private void catchUp() {
+        TimedItemManager.getInstance().wake(this);
+    }
+
+    /**
+     * Records an update of the sensor with the given handle, moving it to
+     * the bucket of its new deadline.
+     * <p>
+     * The monitor is brought up to date first, and woken again afterwards
+     * if the new deadline is earlier than the minute it sleeps until.
+     *
+     * @param handle handle of the sensor
+     */
+    private void update(int handle) {
+        this.catchUp();
+        int node = nodeOf(handle);
+        if (this.deadlines[handle] <= this.minute && this.next[node] != node) {
+            this.staleCount--;
+        }
+        this.unlink(node);
+        this.lastUpdates[handle] = this.minute;
+        int allowance = (int) Math.ceil(
+                this.sensors[handle].getUpdateFrequency() * this.tolerance);
+        // stale once more than the allowance has passed, not at exactly it
+        this.deadlines[handle] = this.minute + allowance + 1;
+        this.link(node, this.deadlines[handle] & (WHEEL_SIZE - 1));
+        if (this.deadlines[handle] < this.nextChange) {
+            this.catchUp();
+        }
+    }
+
+    /**
+     * Records an update of the given sensor, unless it has stopped being
+     * tracked under the given handle since its updater was created.
+     *
+     * @param sensor sensor that took a reading
+     * @param handle handle of the sensor when its updater was created
+     */
+    private void updateIfTracked(Object sensor, int handle) {
+        if (this.sensors[handle] == sensor) {
+            this.update(handle);
+        }
+    }
+
+    /**
+     * Returns the handle of the given tracked sensor.
+     *
+     * @param sensor tracked sensor
+     * @return handle of the sensor
+     * @throws IllegalArgumentException if the sensor is not tracked
+     */
+    private int handleOf(TimedSensor sensor) {
+        Integer handle = this.handles.get(sensor);
+        if (handle == null) {
+            throw new IllegalArgumentException(
+                    "Sensor is not tracked: " + sensor);
+        }
+        return handle;
+    }
+
+    /**
+     * Returns the list node of the sensor with the given handle.
+     *
+     * @param handle handle of the sensor
+     * @return node of the sensor
+     */
+    private static int nodeOf(int handle) {
+        return STALE + 1 + handle;
+    }
+
+    /**
+     * Removes a node from its list. Does nothing if it is in no list.
+     *
+     * @param node node to remove
+     */
+    private void unlink(int node) {
+        this.next[this.previous[node]] = this.next[node];
+        this.previous[this.next[node]] = this.previous[node];
+        this.next[node] = node;
+        this.previous[node] = node;
+    }
+
+    /**
+     * Adds a node to the end of the list with the given sentinel.
+     *
+     * @param node node to add
+     * @param sentinel sentinel of the list
+     */
+    private void link(int node, int sentinel) {
+        if (sentinel < WHEEL_SIZE) {
+            this.occupied |= 1L << sentinel;
+        }
+        this.previous[node] = this.previous[sentinel];
+        this.next[node] = sentinel;
+        this.next[this.previous[sentinel]] = node;
+        this.previous[sentinel] = node;
+    }
+
+    /**
+     * Records an update each time a tracked sensor takes a new reading,
+     * and stops tracking it once it is retired.
+     */
+    private class Updater implements ReadingListener {
+        /**
+         * Handle of the sensor
+         */
+        private final int handle;
+
+        /**
+         * Creates an updater for the sensor with the given handle.
+         *
+         * @param handle handle of the sensor
+         */
+        private Updater(int handle) {
+            this.handle = handle;
+        }
+
+        /**
+         * Records an update of the sensor.
+         *
+         * @param sensor sensor that took the reading
+         * @param previousReading the sensor's reading before this update
+         */
+        @Override
+        public void readingUpdated(TimedSensor sensor, int previousReading) {
+            if (!TimedItemManager.defer(SensorHealthMonitor.this.deferredUpdate,
+                    sensor, this.handle)) {
+                SensorHealthMonitor.this.updateIfTracked(sensor, this.handle);
+            }
+        }
+
+        /**
+         * Stops tracking the sensor.
+         *
+         * @param sensor sensor that was unregistered
+         */
+        @Override
+        public void sensorRetired(TimedSensor sensor) {
+            SensorHealthMonitor.this.untrack(sensor);
+        }
+    }
+}
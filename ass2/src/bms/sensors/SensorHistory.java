@@ -0,0 +1,443 @@
+package bms.sensors;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Records every reading observed by a sensor at several resolutions.
+ * <p>
+ * Raw minute readings are kept until they are evicted by the sensor's
+ * retention or by the shared {@link HistoryBudget}. As each reading
+ * arrives it is also rolled up into fifteen minute, hourly and daily
+ * buckets holding the minimum, maximum, average and count of the readings
+ * in the bucket. Every tier is a bounded ring buffer, so the memory used
+ * by a history does not grow with the length of the simulation.
+ * @ass2
+ */
+public class SensorHistory {
+
+    /**
+     * Initial number of entries in each ring buffer
+     */
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * Budget and retention settings shared with other histories
+     */
+    private final HistoryBudget budget;
+
+    /**
+     * Number of minutes recorded so far; the minute of the next reading
+     */
+    private int minute;
+
+    /**
+     * Ring buffer of raw readings, one per minute
+     */
+    private int[] rawReadings;
+
+    /**
+     * Position of the oldest raw reading in the ring buffer
+     */
+    private int rawHead;
+
+    /**
+     * Number of raw readings held
+     */
+    private int rawSize;
+
+    /**
+     * Number of readings counted against the budget that this history has
+     * already dropped because of its own retention
+     */
+    private int releasedRawReadings;
+
+    /**
+     * Rollup tiers, indexed by {@link HistoryTier#ordinal()} - 1
+     */
+    private final Rollup[] rollups;
+
+    /**
+     * Creates a new, empty history counted against the given budget.
+     *
+     * @param budget budget and retention settings to use
+     * @ass2
+     */
+    public SensorHistory(HistoryBudget budget) {
+        this.budget = budget;
+        this.rawReadings = new int[INITIAL_CAPACITY];
+        HistoryTier[] tiers = HistoryTier.values();
+        this.rollups = new Rollup[tiers.length - 1];
+        for (int i = 1; i < tiers.length; i++) {
+            this.rollups[i - 1] = new Rollup(tiers[i]);
+        }
+    }
+
+    /**
+     * Returns the number of minutes of readings recorded by this history,
+     * including readings that have since been evicted.
+     *
+     * @return number of minutes recorded
+     * @ass2
+     */
+    public int getMinutesRecorded() {
+        return this.minute;
+    }
+
+    /**
+     * Records the reading observed during the next minute.
+     *
+     * @param reading reading observed by the sensor
+     * @ass2
+     */
+    public void record(int reading) {
+        this.record(reading, 1);
+    }
+
+    /**
+     * Records the same reading observed during each of the given number of
+     * next minutes, as {@link #record(int)} would once per minute.
+     * <p>
+     * Takes time proportional to the number of raw readings kept and
+     * buckets started, rather than the number of minutes.
+     *
+     * @param reading reading observed by the sensor
+     * @param minutes number of minutes the reading was observed for
+     * @ass2
+     */
+    public void record(int reading, int minutes) {
+        if (minutes <= 0) {
+            return;
+        }
+        int stored = this.reserveRawReadings(minutes);
+        for (int i = 0; i < stored; i++) {
+            this.rawReadings[(this.rawHead + this.rawSize)
+                    % this.rawReadings.length] = reading;
+            this.rawSize++;
+        }
+        this.budget.addRawReadings(this, stored);
+
+        for (Rollup rollup : this.rollups) {
+            rollup.add(this.minute, reading, minutes);
+        }
+        this.minute += minutes;
+    }
+
+    /**
+     * Records the readings of the given cycle during each of the given
+     * number of next minutes, as {@link #record(int)} would once per
+     * minute. The minutes of the history are the minutes of the cycle.
+     * <p>
+     * Only the raw readings and buckets that are kept by the retention
+     * are computed, each bucket from the cycle's sums and extremes, so
+     * recording whole cycles takes time proportional to the retention
+     * rather than the number of minutes.
+     *
+     * @param cycle readings observed by the sensor
+     * @param minutes number of minutes to record
+     */
+    void record(ReadingCycle cycle, int minutes) {
+        if (minutes <= 0) {
+            return;
+        }
+        int end = this.minute + minutes;
+        int stored = this.reserveRawReadings(minutes);
+        for (int minute = end - stored; minute < end; minute++) {
+            this.rawReadings[(this.rawHead + this.rawSize)
+                    % this.rawReadings.length] = cycle.readingAt(minute);
+            this.rawSize++;
+        }
+        this.budget.addRawReadings(this, stored);
+
+        for (Rollup rollup : this.rollups) {
+            rollup.add(cycle, this.minute, end);
+        }
+        this.minute = end;
+    }
+
+    /**
+     * Returns the buckets held for the given tier, oldest first.
+     * <p>
+     * Raw readings are returned as one bucket per minute.
+     *
+     * @param tier tier to return buckets for
+     * @return list of buckets in chronological order
+     * @ass2
+     */
+    public List<HistoryBucket> getBuckets(HistoryTier tier) {
+        List<HistoryBucket> buckets = new ArrayList<>();
+        if (tier == HistoryTier.MINUTE) {
+            int start = this.minute - this.rawSize;
+            for (int i = 0; i < this.rawSize; i++) {
+                int reading = this.rawReadings[(this.rawHead + i)
+                        % this.rawReadings.length];
+                buckets.add(new HistoryBucket(start + i, reading, reading,
+                        reading, 1));
+            }
+        } else {
+            this.rollups[tier.ordinal() - 1].addBucketsTo(buckets);
+        }
+        return buckets;
+    }
+
+    /**
+     * Releases the given number of raw readings counted against the
+     * budget, evicting this history's oldest raw readings unless they have
+     * already been dropped.
+     *
+     * @param count number of readings to release
+     */
+    void releaseRawReadings(int count) {
+        int released = Math.min(count, this.releasedRawReadings);
+        this.releasedRawReadings -= released;
+        this.dropOldestRawReadings(count - released);
+    }
+
+    /**
+     * Makes room for the raw readings of the given number of next minutes,
+     * dropping the oldest raw readings beyond the retention.
+     *
+     * @param minutes number of minutes to be recorded
+     * @return number of the newest of those minutes whose readings must be
+     * stored and counted against the budget, the others being dropped
+     * straight away
+     */
+    private int reserveRawReadings(int minutes) {
+        int retention = this.budget.getRetention(HistoryTier.MINUTE);
+        int kept = (int) Math.min(retention, (long) this.rawSize + minutes);
+        int dropped = this.rawSize + minutes - kept;
+        int droppedHeld = Math.min(dropped, this.rawSize);
+        this.dropOldestRawReadings(droppedHeld);
+        this.releasedRawReadings += droppedHeld;
+
+        // readings dropped straight away are never stored, nor counted
+        // against the budget
+        int stored = minutes - (dropped - droppedHeld);
+        while (this.rawSize + stored > this.rawReadings.length) {
+            this.growRawReadings();
+        }
+        return stored;
+    }
+
+    /**
+     * Removes the given number of the oldest raw readings from the ring
+     * buffer.
+     *
+     * @param count number of readings to remove
+     */
+    private void dropOldestRawReadings(int count) {
+        this.rawHead = (this.rawHead + count) % this.rawReadings.length;
+        this.rawSize -= count;
+    }
+
+    /**
+     * Doubles the capacity of the raw reading ring buffer.
+     */
+    private void growRawReadings() {
+        int[] resized = new int[this.rawReadings.length * 2];
+        for (int i = 0; i < this.rawSize; i++) {
+            resized[i] = this.rawReadings[(this.rawHead + i)
+                    % this.rawReadings.length];
+        }
+        this.rawReadings = resized;
+        this.rawHead = 0;
+    }
+
+    /**
+     * Ring buffer of the buckets of one rollup tier.
+     */
+    private class Rollup {
+
+        /**
+         * Tier this rollup holds buckets for
+         */
+        private final HistoryTier tier;
+
+        /**
+         * Smallest reading of each bucket
+         */
+        private int[] mins;
+
+        /**
+         * Largest reading of each bucket
+         */
+        private int[] maxes;
+
+        /**
+         * Sum of the readings of each bucket
+         */
+        private long[] sums;
+
+        /**
+         * Number of readings in each bucket
+         */
+        private int[] counts;
+
+        /**
+         * Position of the oldest bucket in the ring buffer
+         */
+        private int head;
+
+        /**
+         * Number of buckets held
+         */
+        private int size;
+
+        /**
+         * Index (start minute divided by bucket length) of the newest bucket
+         */
+        private int newestIndex;
+
+        /**
+         * Creates an empty rollup for the given tier.
+         *
+         * @param tier tier to hold buckets for
+         */
+        private Rollup(HistoryTier tier) {
+            this.tier = tier;
+            this.mins = new int[INITIAL_CAPACITY];
+            this.maxes = new int[INITIAL_CAPACITY];
+            this.sums = new long[INITIAL_CAPACITY];
+            this.counts = new int[INITIAL_CAPACITY];
+        }
+
+        /**
+         * Adds a reading observed during each of the given number of
+         * minutes, starting at the given minute.
+         *
+         * @param minute minute at which the reading was first observed
+         * @param reading reading observed
+         * @param minutes number of minutes the reading was observed for
+         */
+        private void add(int minute, int reading, int minutes) {
+            int length = this.tier.getMinutes();
+            while (minutes > 0) {
+                int index = minute / length;
+                int span = Math.min(minutes, (index + 1) * length - minute);
+                this.addToBucket(index, reading, reading,
+                        (long) reading * span, span);
+                minute += span;
+                minutes -= span;
+            }
+        }
+
+        /**
+         * Adds the readings of the given cycle during the minutes from
+         * start, inclusive, to end, exclusive, skipping the buckets that
+         * the tier's retention would drop straight away.
+         *
+         * @param cycle readings observed by the sensor
+         * @param start first minute to add
+         * @param end minute after the last to add
+         */
+        private void add(ReadingCycle cycle, int start, int end) {
+            int length = this.tier.getMinutes();
+            int firstKept = (end - 1) / length
+                    - budget.getRetention(this.tier) + 1;
+            int oldestIndex = this.newestIndex - this.size + 1;
+            if (this.size > 0 && firstKept > oldestIndex) {
+                int dropped = Math.min(this.size, firstKept - oldestIndex);
+                this.head = (this.head + dropped) % this.counts.length;
+                this.size -= dropped;
+            }
+            int minute = Math.max(start, firstKept * length);
+            while (minute < end) {
+                int index = minute / length;
+                int next = Math.min(end, (index + 1) * length);
+                this.addToBucket(index, cycle.min(minute, next),
+                        cycle.max(minute, next), cycle.sum(minute, next),
+                        next - minute);
+                minute = next;
+            }
+        }
+
+        /**
+         * Adds readings to the bucket with the given index, starting it
+         * if it is not the newest bucket.
+         *
+         * @param index index of the bucket
+         * @param min smallest reading added
+         * @param max largest reading added
+         * @param sum sum of the readings added
+         * @param count number of readings added
+         */
+        private void addToBucket(int index, int min, int max, long sum,
+                                 int count) {
+            if (this.size == 0 || index != this.newestIndex) {
+                this.open(index, min);
+            }
+            int slot = (this.head + this.size - 1) % this.counts.length;
+            this.mins[slot] = Math.min(this.mins[slot], min);
+            this.maxes[slot] = Math.max(this.maxes[slot], max);
+            this.sums[slot] += sum;
+            this.counts[slot] += count;
+        }
+
+        /**
+         * Starts a new, empty bucket, dropping the oldest buckets if the
+         * tier's retention has been reached.
+         *
+         * @param index index of the new bucket
+         * @param reading first reading of the new bucket
+         */
+        private void open(int index, int reading) {
+            int retention = budget.getRetention(this.tier);
+            while (this.size >= retention) {
+                this.head = (this.head + 1) % this.counts.length;
+                this.size--;
+            }
+            if (this.size == this.counts.length) {
+                this.grow(Math.min(this.counts.length * 2, retention));
+            }
+            int slot = (this.head + this.size) % this.counts.length;
+            this.mins[slot] = reading;
+            this.maxes[slot] = reading;
+            this.sums[slot] = 0;
+            this.counts[slot] = 0;
+            this.size++;
+            this.newestIndex = index;
+        }
+
+        /**
+         * Resizes the ring buffer, keeping the buckets in order.
+         *
+         * @param capacity new capacity
+         */
+        private void grow(int capacity) {
+            int[] resizedMins = new int[capacity];
+            int[] resizedMaxes = new int[capacity];
+            long[] resizedSums = new long[capacity];
+            int[] resizedCounts = new int[capacity];
+            for (int i = 0; i < this.size; i++) {
+                int slot = (this.head + i) % this.counts.length;
+                resizedMins[i] = this.mins[slot];
+                resizedMaxes[i] = this.maxes[slot];
+                resizedSums[i] = this.sums[slot];
+                resizedCounts[i] = this.counts[slot];
+            }
+            this.mins = resizedMins;
+            this.maxes = resizedMaxes;
+            this.sums = resizedSums;
+            this.counts = resizedCounts;
+            this.head = 0;
+        }
+
+        /**
+         * Adds the buckets held by this rollup to the given list,
+         * oldest first.
+         *
+         * @param buckets list to add buckets to
+         */
+        private void addBucketsTo(List<HistoryBucket> buckets) {
+            int length = this.tier.getMinutes();
+            for (int i = 0; i < this.size; i++) {
+                int slot = (this.head + i) % this.counts.length;
+                int start = (this.newestIndex - (this.size - 1 - i)) * length;
+                buckets.add(new HistoryBucket(start, this.mins[slot],
+                        this.maxes[slot],
+                        (double) this.sums[slot] / this.counts[slot],
+                        this.counts[slot]));
+            }
+        }
+    }
+}
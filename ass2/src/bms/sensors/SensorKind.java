@@ -0,0 +1,229 @@
+package bms.sensors;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Registered kind of sensor.
+ * <p>
+ * Every kind has a dense integer id, assigned in order of registration
+ * starting from zero, so that per-kind data can be kept in arrays indexed
+ * by {@link #getId()} rather than looked up by class name. Each kind also
+ * has a codec which creates sensors of the kind from their encoded
+ * representation, so new kinds of sensor can be loaded from save files by
+ * registering them with {@link #register(String, int, SensorCodec)}.
+ * @ass2
+ */
+public final class SensorKind {
+
+    /**
+     * Registered kinds, indexed by id
+     */
+    private static final List<SensorKind> kinds = new ArrayList<>();
+
+    /**
+     * Registered kinds, by name
+     */
+    private static final Map<String, SensorKind> kindsByName = new HashMap<>();
+
+    /** Carbon dioxide sensor. */
+    public static final SensorKind CO2 = register("CarbonDioxideSensor", 4,
+            fields -> new CarbonDioxideSensor(parseReadings(fields[0]),
+                    Integer.parseInt(fields[1]), Integer.parseInt(fields[2]),
+                    Integer.parseInt(fields[3])));
+
+    /** Noise sensor. */
+    public static final SensorKind NOISE = register("NoiseSensor", 2,
+            fields -> new NoiseSensor(parseReadings(fields[0]),
+                    Integer.parseInt(fields[1])));
+
+    /** Occupancy sensor. */
+    public static final SensorKind OCCUPANCY = register("OccupancySensor", 3,
+            fields -> new OccupancySensor(parseReadings(fields[0]),
+                    Integer.parseInt(fields[1]), Integer.parseInt(fields[2])));
+
+    /** Temperature sensor. */
+    public static final SensorKind TEMPERATURE = register("TemperatureSensor",
+            1, fields -> new TemperatureSensor(parseReadings(fields[0])));
+
+    /**
+     * Dense id of this kind
+     */
+    private final int id;
+
+    /**
+     * Name of this kind, as used in encoded sensors
+     */
+    private final String name;
+
+    /**
+     * Number of fields following the name in an encoded sensor
+     */
+    private final int fieldCount;
+
+    /**
+     * Codec creating sensors of this kind
+     */
+    private final SensorCodec codec;
+
+    /**
+     * Creates a new sensor kind.
+     *
+     * @param id dense id of the kind
+     * @param name name of the kind
+     * @param fieldCount number of fields in an encoded sensor
+     * @param codec codec creating sensors of the kind
+     */
+    private SensorKind(int id, String name, int fieldCount,
+                       SensorCodec codec) {
+        this.id = id;
+        this.name = name;
+        this.fieldCount = fieldCount;
+        this.codec = codec;
+    }
+
+    /**
+     * Registers a new kind of sensor, assigning it the next unused id.
+     * <p>
+     * The name must be the name that sensors of the kind begin their
+     * encoded representation with, which is by convention their simple
+     * class name.
+     *
+     * @param name name of the kind
+     * @param fieldCount number of colon-separated fields that follow the
+     *                   name in an encoded sensor of this kind
+     * @param codec codec creating sensors of this kind from those fields
+     * @return the registered kind
+     * @throws IllegalArgumentException if a kind with the given name is
+     * already registered, or fieldCount is less than one
+     * @ass2
+     */
+    public static synchronized SensorKind register(String name, int fieldCount,
+                                                   SensorCodec codec) {
+        if (kindsByName.containsKey(name)) {
+            throw new IllegalArgumentException(
+                    "Sensor kind already registered: " + name);
+        }
+        if (fieldCount < 1) {
+            throw new IllegalArgumentException(
+                    "Encoded sensors must have at least one field");
+        }
+        SensorKind kind = new SensorKind(kinds.size(), name, fieldCount,
+                codec);
+        kinds.add(kind);
+        kindsByName.put(name, kind);
+        return kind;
+    }
+
+    /**
+     * Returns the kind registered with the given name, or null if none
+     * exists.
+     *
+     * @param name name of the kind, eg. "NoiseSensor" (no quotes)
+     * @return kind with the given name; null if none found
+     * @ass2
+     */
+    public static SensorKind forName(String name) {
+        return kindsByName.get(name);
+    }
+
+    /**
+     * Returns the number of kinds registered. Every kind's id is less
+     * than this number.
+     *
+     * @return number of registered kinds
+     * @ass2
+     */
+    public static int count() {
+        return kinds.size();
+    }
+
+    /**
+     * Returns every registered kind, in order of id.
+     *
+     * @return list of registered kinds
+     * @ass2
+     */
+    public static List<SensorKind> values() {
+        return Collections.unmodifiableList(new ArrayList<>(kinds));
+    }
+
+    /**
+     * Returns the dense id of this kind.
+     *
+     * @return id of this kind
+     * @ass2
+     */
+    public int getId() {
+        return this.id;
+    }
+
+    /**
+     * Returns the name of this kind.
+     *
+     * @return name of this kind
+     * @ass2
+     */
+    public String getName() {
+        return this.name;
+    }
+
+    /**
+     * Returns the number of colon-separated fields that follow the name in
+     * an encoded sensor of this kind.
+     *
+     * @return number of encoded fields
+     * @ass2
+     */
+    public int getFieldCount() {
+        return this.fieldCount;
+    }
+
+    /**
+     * Creates a sensor of this kind from the fields of its encoded
+     * representation, see {@link SensorCodec#decode(String[])}.
+     * <p>
+     * Only the first {@link #getFieldCount()} fields are used.
+     *
+     * @param fields fields of the encoded sensor, excluding its kind name
+     * @return decoded sensor
+     * @throws IllegalArgumentException if there are too few fields or any
+     * field is invalid
+     * @ass2
+     */
+    public Sensor decode(String[] fields) throws IllegalArgumentException {
+        if (fields.length < this.fieldCount) {
+            throw new IllegalArgumentException(
+                    "Too few fields for sensor kind: " + this.name);
+        }
+        return this.codec.decode(fields);
+    }
+
+    /**
+     * Parses a comma-separated list of sensor readings.
+     *
+     * @param readings comma-separated readings
+     * @return array of readings
+     * @throws NumberFormatException if any reading is not an integer
+     */
+    private static int[] parseReadings(String readings) {
+        return Arrays.stream(readings.split(","))
+                .mapToInt(Integer::parseInt).toArray();
+    }
+
+    /**
+     * Returns the human-readable string representation of this kind, its
+     * name.
+     *
+     * @return name of this kind
+     * @ass2
+     */
+    @Override
+    public String toString() {
+        return this.name;
+    }
+}
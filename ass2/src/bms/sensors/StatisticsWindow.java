@@ -0,0 +1,40 @@
+package bms.sensors;
+
+/**
+ * Enum to represent the sliding windows over which a sensor keeps
+ * rolling statistics of its readings.
+ *
+ * @ass2
+ */
+public enum StatisticsWindow {
+    /** The last 15 minutes. */
+    FIFTEEN_MINUTES(15),
+    /** The last hour. */
+    ONE_HOUR(60),
+    /** The last day. */
+    ONE_DAY(1440);
+
+    /**
+     * Length of the window in minutes
+     */
+    private final int minutes;
+
+    /**
+     * Creates a window covering the given number of minutes.
+     *
+     * @param minutes length of the window in minutes
+     */
+    StatisticsWindow(int minutes) {
+        this.minutes = minutes;
+    }
+
+    /**
+     * Returns the length of this window in minutes.
+     *
+     * @return window length in minutes
+     * @ass2
+     */
+    public int getMinutes() {
+        return this.minutes;
+    }
+}
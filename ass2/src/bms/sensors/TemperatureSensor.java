@@ -6,6 +6,15 @@ package bms.sensors;
  */
 public class TemperatureSensor extends TimedSensor implements HazardSensor, ComfortSensor {
 
+    /**
+     * Hazard level of each reading, built on first use
+     */
+    private byte[] hazardLevels;
+
+    /**
+     * Comfort level of each reading, built on first use
+     */
+    private byte[] comfortLevels;
 
     /**
      * Creates a new temperature sensor with the given sensor readings and
@@ -22,6 +31,17 @@ public class TemperatureSensor extends TimedSensor implements HazardSensor, Comf
         super(sensorReadings, 1);
     }
 
+    /**
+     * Returns the kind of this sensor, {@link SensorKind#TEMPERATURE}.
+     *
+     * @return the sensor's kind
+     * @ass2
+     */
+    @Override
+    public SensorKind getKind() {
+        return SensorKind.TEMPERATURE;
+    }
+
     /**
      * Returns the hazard level as detected by this sensor.
      * <p>
@@ -36,7 +56,22 @@ public class TemperatureSensor extends TimedSensor implements HazardSensor, Comf
      */
     @Override
     public int getHazardLevel() {
-        if (this.getCurrentReading() >= 68) {
+        if (this.hazardLevels == null) {
+            this.hazardLevels =
+                    this.tabulate(TemperatureSensor::hazardLevelOf);
+        }
+        return this.hazardLevels[this.getReadingIndex()];
+    }
+
+    /**
+     * Returns the hazard level of the given reading, as described by
+     * {@link #getHazardLevel()}.
+     *
+     * @param reading temperature reading in degrees Celsius
+     * @return hazard level of the reading, 0 or 100
+     */
+    private static int hazardLevelOf(int reading) {
+        if (reading >= 68) {
             return 100;
         }
         return 0;
@@ -64,16 +99,31 @@ public class TemperatureSensor extends TimedSensor implements HazardSensor, Comf
      * @ass2
      */
     public int getComfortLevel() {
-        if (this.getCurrentReading() >= 20 && this.getCurrentReading() <= 26) {
+        if (this.comfortLevels == null) {
+            this.comfortLevels =
+                    this.tabulate(TemperatureSensor::comfortLevelOf);
+        }
+        return this.comfortLevels[this.getReadingIndex()];
+    }
+
+    /**
+     * Returns the comfort level of the given reading, as described by
+     * {@link #getComfortLevel()}.
+     *
+     * @param reading temperature reading in degrees Celsius
+     * @return comfort level of the reading, 0 to 100
+     */
+    private static int comfortLevelOf(int reading) {
+        if (reading >= 20 && reading <= 26) {
             return 100;
-        } else if (this.getCurrentReading() >= 31 || this.getCurrentReading() <= 15) {
+        } else if (reading >= 31 || reading <= 15) {
             return 0;
         } else {
             int returnComfort = 0;
-            if (this.getCurrentReading() < 20) {
-                returnComfort = 100 - ((20 - this.getCurrentReading()) * 20);
-            } else if (this.getCurrentReading() > 26) {
-                returnComfort =  100 - ((this.getCurrentReading() - 26) * 20);
+            if (reading < 20) {
+                returnComfort = 100 - ((20 - reading) * 20);
+            } else if (reading > 26) {
+                returnComfort =  100 - ((reading - 26) * 20);
             }
             return returnComfort;
         }
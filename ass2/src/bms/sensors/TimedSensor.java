@@ -1,10 +1,12 @@
 package bms.sensors;
 
 import bms.util.Encodable;
+import bms.util.TickPhase;
 import bms.util.TimedItem;
 import bms.util.TimedItemManager;
 
 import java.util.Arrays;
+import java.util.function.IntUnaryOperator;
 
 /**
  * An abstract class to represent a sensor that iterates through observed values
@@ -24,6 +26,11 @@ public abstract class TimedSensor implements TimedItem, Sensor, Encodable {
      */
     private int currentReading;
 
+    /**
+     * Index of the current reading in the array of readings.
+     */
+    private int readingIndex;
+
     /**
      * The amount of time in minutes that the sensor has been running
      * (according to the system, not real life).
@@ -36,6 +43,34 @@ public abstract class TimedSensor implements TimedItem, Sensor, Encodable {
      */
     private int updateFrequency;
 
+    /**
+     * Rolling statistics of the readings, indexed by
+     * {@link StatisticsWindow#ordinal()}.
+     */
+    private RollingStatistics[] statistics;
+
+    /**
+     * History of every reading observed by the sensor.
+     */
+    private SensorHistory history;
+
+    /**
+     * The sensor's readings as a function of the minute.
+     */
+    private ReadingCycle cycle;
+
+    /**
+     * Minute of the last reading recorded in the statistics and history.
+     * Readings are only recorded once the statistics or history are next
+     * returned, see {@link #catchUp()}.
+     */
+    private int recordedUntil;
+
+    /**
+     * Listeners notified each time the sensor takes a new reading.
+     */
+    private ReadingListener[] listeners;
+
     /**
      * Creates a new timed sensor, using the provided list of sensor readings.
      * These represent "raw" data values, and have different meanings depending
@@ -50,8 +85,10 @@ public abstract class TimedSensor implements TimedItem, Sensor, Encodable {
      * to {@link TimedSensor#getCurrentReading()} after calling the
      * constructor must return the first element of the given array.
      * <p>
-     * The sensor should be registered as a timed item, see
-     * {@link TimedItemManager#registerTimedItem(TimedItem)}.
+     * The sensor is registered as a timed item with the singleton manager,
+     * see {@link TimedItemManager#registerTimedItem(TimedItem)}. A room
+     * moves the sensor to its own time manager when the sensor is added,
+     * see {@link bms.room.Room#addSensor(Sensor)}.
      *
      * @param sensorReadings a non-empty array of sensor readings
      * @param updateFrequency indicates how often the sensor readings updates,
@@ -79,8 +116,21 @@ public abstract class TimedSensor implements TimedItem, Sensor, Encodable {
         }
         this.sensorReadings = sensorReadings;
         this.currentReading = sensorReadings[0];
+        this.readingIndex = 0;
         this.updateFrequency = updateFrequency;
         this.timeElapsed = 0;
+        this.statistics =
+                new RollingStatistics[StatisticsWindow.values().length];
+        for (StatisticsWindow window : StatisticsWindow.values()) {
+            this.statistics[window.ordinal()] =
+                    new RollingStatistics(window.getMinutes());
+            this.statistics[window.ordinal()].add(this.currentReading, 1);
+        }
+        this.history = new SensorHistory(HistoryBudget.getInstance());
+        this.history.record(this.currentReading);
+        this.cycle = new ReadingCycle(sensorReadings, updateFrequency);
+        this.recordedUntil = 0;
+        this.listeners = new ReadingListener[0];
         TimedItemManager.getInstance().registerTimedItem(this);
     }
 
@@ -94,18 +144,163 @@ public abstract class TimedSensor implements TimedItem, Sensor, Encodable {
         return this.currentReading;
     }
 
+    /**
+     * Returns the index of the current reading in this sensor's array of
+     * readings.
+     *
+     * @return index of the current reading
+     * @ass2
+     */
+    protected int getReadingIndex() {
+        return this.readingIndex;
+    }
+
+    /**
+     * Computes a level (such as a hazard or comfort level) for every
+     * reading in this sensor's array of readings.
+     * <p>
+     * As the readings repeat in a fixed cycle, the table returned holds
+     * every level the sensor will ever report, and can be indexed with
+     * {@link #getReadingIndex()} instead of recomputing the level for the
+     * current reading.
+     *
+     * @param level function computing the level of a reading, 0 to 100
+     * @return table of levels, one per reading
+     * @ass2
+     */
+    protected byte[] tabulate(IntUnaryOperator level) {
+        byte[] table = new byte[this.sensorReadings.length];
+        for (int i = 0; i < this.sensorReadings.length; i++) {
+            table[i] = (byte) level.applyAsInt(this.sensorReadings[i]);
+        }
+        return table;
+    }
+
+    /**
+     * Returns the rolling statistics of this sensor's readings over the
+     * given window, including the current reading.
+     *
+     * @param window window over which to return statistics
+     * @return rolling statistics for the window
+     * @ass2
+     */
+    public RollingStatistics getStatistics(StatisticsWindow window) {
+        TimedItemManager.getInstance().wake(this);
+        this.catchUp();
+        return this.statistics[window.ordinal()];
+    }
+
+    /**
+     * Returns the history of readings observed by this sensor, one reading
+     * per minute since the sensor was instantiated.
+     *
+     * @return the sensor's reading history
+     * @ass2
+     */
+    public SensorHistory getHistory() {
+        TimedItemManager.getInstance().wake(this);
+        this.catchUp();
+        return this.history;
+    }
+
+    /**
+     * Records the readings taken since the statistics and history were
+     * last returned.
+     * <p>
+     * As the readings repeat in a fixed cycle, they are recorded from the
+     * cycle rather than minute by minute: each window of statistics only
+     * takes the readings of its last minutes, one run per reading, and the
+     * history only computes the raw readings and buckets it keeps.
+     */
+    private void catchUp() {
+        int minutes = this.timeElapsed - this.recordedUntil;
+        if (minutes <= 0) {
+            return;
+        }
+        int end = this.timeElapsed + 1;
+        for (RollingStatistics windowStatistics : this.statistics) {
+            int start = end - minutes;
+            if (minutes >= windowStatistics.getWindowLength()) {
+                // older readings would leave the window straight away
+                windowStatistics.clear();
+                start = end - windowStatistics.getWindowLength();
+            }
+            this.cycle.addTo(windowStatistics, start, end);
+        }
+        this.history.record(this.cycle, minutes);
+        this.recordedUntil = this.timeElapsed;
+    }
+
+    /**
+     * Adds a listener to be notified each time this sensor takes a new
+     * reading.
+     *
+     * @param listener listener to add
+     * @ass2
+     */
+    public void addReadingListener(ReadingListener listener) {
+        this.listeners = Arrays.copyOf(this.listeners,
+                this.listeners.length + 1);
+        this.listeners[this.listeners.length - 1] = listener;
+    }
+
+    /**
+     * Stops notifying the given listener of this sensor's readings. Does
+     * nothing if it was not added.
+     * <p>
+     * May be called by a listener while it is being notified; listeners
+     * already being notified of the reading still are.
+     *
+     * @param listener listener to remove
+     * @ass2
+     */
+    public void removeReadingListener(ReadingListener listener) {
+        for (int i = 0; i < this.listeners.length; i++) {
+            if (this.listeners[i] == listener) {
+                ReadingListener[] remaining =
+                        new ReadingListener[this.listeners.length - 1];
+                System.arraycopy(this.listeners, 0, remaining, 0, i);
+                System.arraycopy(this.listeners, i + 1, remaining, i,
+                        remaining.length - i);
+                this.listeners = remaining;
+                return;
+            }
+        }
+    }
+
     /**
      * Returns the number of minutes that have elapsed since the sensor was
      * instantiated. Should return 0 immediately after the constructor is
      * called.
+     * <p>
+     * The sensor is first brought up to date by its timed item manager, see
+     * {@link TimedItemManager#wake(TimedItem)}.
      *
      * @return the sensor's time elapsed in minutes
      * @ass1
      */
     public int getTimeElapsed() {
+        TimedItemManager.getInstance().wake(this);
         return timeElapsed;
     }
 
+    /**
+     * Returns the number of minutes that had elapsed since the sensor was
+     * instantiated when its timed item manager last ran it, without
+     * bringing it up to date.
+     * <p>
+     * While the sensor's reading listeners are notified, this is the
+     * minute of the new reading. At other times the sensor may be asleep
+     * until its reading next changes, so this may be less than
+     * {@link #getTimeElapsed()}.
+     *
+     * @return the sensor's stored time elapsed in minutes
+     * @ass2
+     */
+    public int getStoredTimeElapsed() {
+        return this.timeElapsed;
+    }
+
     /**
      * Returns the number of minutes in between updates to the current sensor
      * reading.
@@ -144,7 +339,80 @@ public abstract class TimedSensor implements TimedItem, Sensor, Encodable {
         // frequency
         int index = timeRemainingInRotation / this.updateFrequency;
 
+        int previousReading = this.currentReading;
+        this.readingIndex = index;
         this.currentReading = this.sensorReadings[index];
+
+        if (this.timeElapsed % this.updateFrequency == 0) {
+            ReadingListener[] notified = this.listeners;
+            for (int i = 0; i < notified.length; i++) {
+                notified[i].readingUpdated(this, previousReading);
+            }
+        }
+    }
+
+    /**
+     * Returns the phase in which sensors are run, the first of each
+     * minute.
+     *
+     * @return {@link TickPhase#SENSORS}
+     * @ass2
+     */
+    @Override
+    public TickPhase getTickPhase() {
+        return TickPhase.SENSORS;
+    }
+
+    /**
+     * Returns the number of minutes until the current sensor reading is
+     * next updated, see {@link #elapseOneMinute()}.
+     *
+     * @return minutes until the next reading, 1 to the update frequency
+     * @ass2
+     */
+    @Override
+    public int getMinutesUntilNextChange() {
+        return this.updateFrequency - this.timeElapsed % this.updateFrequency;
+    }
+
+    /**
+     * Increments the time elapsed (in minutes) by the given number of
+     * minutes, updating the current sensor reading as
+     * {@link #elapseOneMinute()} would.
+     * <p>
+     * Minutes in which the reading does not change are skipped without
+     * recomputing the reading.
+     *
+     * @param minutes number of minutes elapsed
+     * @ass2
+     */
+    @Override
+    public void elapseMinutes(int minutes) {
+        while (minutes > 0) {
+            int untilChange = this.getMinutesUntilNextChange();
+            int unchanged = Math.min(minutes, untilChange - 1);
+            if (unchanged > 0) {
+                this.timeElapsed += unchanged;
+                minutes -= unchanged;
+            }
+            if (minutes > 0) {
+                this.elapseOneMinute();
+                minutes--;
+            }
+        }
+    }
+
+    /**
+     * Notifies the sensor's listeners that it takes no more readings, see
+     * {@link ReadingListener#sensorRetired(TimedSensor)}.
+     * @ass2
+     */
+    @Override
+    public void unregistered() {
+        ReadingListener[] notified = this.listeners;
+        for (int i = 0; i < notified.length; i++) {
+            notified[i].sensorRetired(this);
+        }
     }
 
     /**
@@ -156,6 +424,10 @@ public abstract class TimedSensor implements TimedItem, Sensor, Encodable {
      * be the same type (i.e. the same subclass of TimedSensor)
      * have the same update frequency
      * have the same sensor readings array (in the same order)
+     * <p>
+     * The sensors' current readings and stored times elapsed are compared
+     * as well, see {@link #getStoredTimeElapsed()}; neither sensor is
+     * brought up to date.
      *
      * @param obj other object to compare equality
      * @return true if equal, false otherwise
@@ -170,7 +442,7 @@ public abstract class TimedSensor implements TimedItem, Sensor, Encodable {
         }
         TimedSensor timedSensor = (TimedSensor) obj;
         return this.currentReading == timedSensor.getCurrentReading() &&
-                this.timeElapsed == timedSensor.getTimeElapsed() &&
+                this.timeElapsed == timedSensor.timeElapsed &&
                 this.updateFrequency == timedSensor.getUpdateFrequency() &&
                 Arrays.equals(this.sensorReadings, timedSensor.sensorReadings);
 
@@ -0,0 +1,22 @@
+package bms.util;
+
+/**
+ * Denotes an update to state shared between buildings, which must be
+ * deferred while timed item managers are run in parallel.
+ * <p>
+ * Deferred actions are queued with
+ * {@link TimedItemManager#defer(DeferredAction, Object, int)} and run once
+ * every child manager has been run, in the order the children would have
+ * been run sequentially.
+ * @ass2
+ */
+public interface DeferredAction {
+    /**
+     * Applies the deferred update.
+     *
+     * @param subject object the update applies to
+     * @param argument integer argument of the update
+     * @ass2
+     */
+    void runDeferred(Object subject, int argument);
+}
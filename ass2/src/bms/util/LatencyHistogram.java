@@ -0,0 +1,243 @@
+package bms.util;
+
+/**
+ * Histogram of durations in nanoseconds, such as the time taken to run a
+ * timed item.
+ * <p>
+ * Durations are counted in log-linear buckets: durations below 32ns are
+ * counted exactly, and longer durations share a bucket with durations
+ * within 1/32 of their length, so every percentile returned is within
+ * about 3% of the true value. Recording a duration takes constant time
+ * and allocates nothing, and the histogram takes the same space however
+ * many durations it holds.
+ * <p>
+ * Two histograms can be merged by adding their bucket counts, see
+ * {@link #add(LatencyHistogram)}.
+ * @ass2
+ */
+public class LatencyHistogram {
+
+    /**
+     * Number of bits needed to index a bucket within a power of two
+     */
+    private static final int SUB_BUCKET_BITS = 5;
+
+    /**
+     * Number of buckets per power of two, above the exact range
+     */
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    /**
+     * Total number of buckets, enough for any non-negative long
+     */
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    /**
+     * Number of durations in each bucket
+     */
+    private final long[] counts;
+
+    /**
+     * Number of durations recorded
+     */
+    private long count;
+
+    /**
+     * Sum of the durations recorded
+     */
+    private long total;
+
+    /**
+     * Shortest duration recorded
+     */
+    private long min;
+
+    /**
+     * Longest duration recorded
+     */
+    private long max;
+
+    /**
+     * Creates a new, empty histogram.
+     * @ass2
+     */
+    public LatencyHistogram() {
+        this.counts = new long[BUCKETS];
+        this.reset();
+    }
+
+    /**
+     * Records a duration. Negative durations are recorded as zero.
+     *
+     * @param nanos duration in nanoseconds
+     * @ass2
+     */
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        this.counts[bucketOf(nanos)]++;
+        this.count++;
+        this.total += nanos;
+        this.min = Math.min(this.min, nanos);
+        this.max = Math.max(this.max, nanos);
+    }
+
+    /**
+     * Adds every duration recorded by the given histogram to this one.
+     *
+     * @param other histogram to merge into this one
+     * @ass2
+     */
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < BUCKETS; i++) {
+            this.counts[i] += other.counts[i];
+        }
+        this.count += other.count;
+        this.total += other.total;
+        this.min = Math.min(this.min, other.min);
+        this.max = Math.max(this.max, other.max);
+    }
+
+    /**
+     * Removes every duration recorded.
+     * @ass2
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            this.counts[i] = 0;
+        }
+        this.count = 0;
+        this.total = 0;
+        this.min = Long.MAX_VALUE;
+        this.max = 0;
+    }
+
+    /**
+     * Returns the number of durations recorded.
+     *
+     * @return number of durations
+     * @ass2
+     */
+    public long getCount() {
+        return this.count;
+    }
+
+    /**
+     * Returns the sum of the durations recorded, in nanoseconds.
+     *
+     * @return total duration
+     * @ass2
+     */
+    public long getTotal() {
+        return this.total;
+    }
+
+    /**
+     * Returns the shortest duration recorded, or zero if none have been.
+     *
+     * @return shortest duration in nanoseconds
+     * @ass2
+     */
+    public long getMin() {
+        return this.count == 0 ? 0 : this.min;
+    }
+
+    /**
+     * Returns the longest duration recorded, or zero if none have been.
+     *
+     * @return longest duration in nanoseconds
+     * @ass2
+     */
+    public long getMax() {
+        return this.max;
+    }
+
+    /**
+     * Returns the mean duration recorded, or zero if none have been.
+     *
+     * @return mean duration in nanoseconds
+     * @ass2
+     */
+    public double getMean() {
+        return this.count == 0 ? 0 : (double) this.total / this.count;
+    }
+
+    /**
+     * Returns the duration below which the given percentage of recorded
+     * durations fall: the largest duration in the bucket holding that
+     * percentile, and no more than the longest duration recorded.
+     *
+     * @param percentile percentage of durations, from 0 to 100
+     * @return duration at the percentile in nanoseconds, or zero if no
+     * durations have been recorded
+     * @throws IllegalArgumentException if percentile is not from 0 to 100
+     * @ass2
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (!(percentile >= 0 && percentile <= 100)) {
+            throw new IllegalArgumentException(
+                    "Percentile must be from 0 to 100");
+        }
+        if (this.count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1,
+                (long) Math.ceil(percentile / 100 * this.count));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += this.counts[i];
+            if (seen >= rank) {
+                return Math.min(this.max, highestInBucket(i));
+            }
+        }
+        return this.max;
+    }
+
+    /**
+     * Returns a summary of the histogram, with durations in microseconds.
+     *
+     * @return summary of the histogram
+     * @ass2
+     */
+    @Override
+    public String toString() {
+        return String.format("count=%d, mean=%.1fus, p50=%.1fus, "
+                        + "p99=%.1fus, max=%.1fus", this.count,
+                this.getMean() / 1000,
+                this.getValueAtPercentile(50) / 1000.0,
+                this.getValueAtPercentile(99) / 1000.0,
+                this.max / 1000.0);
+    }
+
+    /**
+     * Returns the bucket counting the given duration.
+     *
+     * @param nanos non-negative duration
+     * @return index of the bucket
+     */
+    private static int bucketOf(long nanos) {
+        if (nanos < SUB_BUCKETS) {
+            return (int) nanos;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(nanos) - SUB_BUCKET_BITS;
+        return ((shift + 1) << SUB_BUCKET_BITS)
+                + (int) (nanos >>> shift) - SUB_BUCKETS;
+    }
+
+    /**
+     * Returns the largest duration counted by the given bucket.
+     *
+     * @param bucket index of the bucket
+     * @return largest duration of the bucket
+     */
+    private static long highestInBucket(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = (bucket >>> SUB_BUCKET_BITS) - 1;
+        long lowest = (long) (SUB_BUCKETS + (bucket & (SUB_BUCKETS - 1)))
+                << shift;
+        return lowest + (1L << shift) - 1;
+    }
+}
@@ -0,0 +1,27 @@
+package bms.util;
+
+/**
+ * Enum to represent what a simulation clock does when it falls behind the
+ * wall clock, such as when a minute takes longer to run than the time
+ * between minutes.
+ *
+ * @ass2
+ */
+public enum OverrunPolicy {
+    /**
+     * Runs the minutes missed together, up to the clock's catch-up limit,
+     * so simulated time keeps pace with the wall clock. At most one more
+     * limit of missed minutes is kept for later; the rest are dropped.
+     */
+    CATCH_UP,
+    /**
+     * Runs one minute and skips the rest, keeping the clock aligned to the
+     * wall clock; the skipped minutes are never simulated.
+     */
+    DROP,
+    /**
+     * Runs one minute and restarts the clock from the current time, so
+     * simulated time runs slower than the wall clock.
+     */
+    SLOW_DOWN
+}
@@ -0,0 +1,251 @@
+package bms.util;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Runs the children of a timed item manager concurrently for one minute.
+ * <p>
+ * Child managers are the partitions of a campus: each building registers
+ * its items with a manager of its own, added as a child of the campus, see
+ * {@link TimedItemManager#addChild(TimedItemManager)}. The children are
+ * split into ranges, a few per thread of the pool, and each range is run
+ * in order on a single thread. Updates to state shared between children
+ * are deferred while they run, see
+ * {@link TimedItemManager#defer(DeferredAction, Object, int)}, and applied
+ * in the order of the children once every child has been run.
+ */
+final class ParallelTick {
+    /**
+     * Number of tasks created per thread of the fork-join pool
+     */
+    private static final int TASKS_PER_THREAD = 4;
+
+    /**
+     * Task running children on the current thread, or null outside the
+     * parallel phase of a minute
+     */
+    private static final ThreadLocal<ChildTask> CURRENT_TASK =
+            new ThreadLocal<>();
+
+    /**
+     * Tasks running children in parallel, reused each minute
+     */
+    private ChildTask[] tasks = new ChildTask[0];
+
+    /**
+     * Task forking the child tasks of a minute
+     */
+    private final RootTask rootTask = new RootTask();
+
+    /**
+     * Runs the given children for one minute on the given pool, one task
+     * per range of children, then applies the updates deferred by the
+     * tasks once they have all completed.
+     *
+     * @param pool fork-join pool to run the children on
+     * @param children child managers, of which the first childCount are run
+     * @param childCount number of children to run
+     */
+    void run(ForkJoinPool pool, TimedItemManager[] children, int childCount) {
+        int taskCount = Math.min(childCount,
+                pool.getParallelism() * TASKS_PER_THREAD);
+        if (this.tasks.length < taskCount) {
+            int oldLength = this.tasks.length;
+            this.tasks = Arrays.copyOf(this.tasks, taskCount);
+            for (int i = oldLength; i < taskCount; i++) {
+                this.tasks[i] = new ChildTask();
+            }
+        }
+        for (int i = 0; i < taskCount; i++) {
+            ChildTask task = this.tasks[i];
+            task.reinitialize();
+            task.children = children;
+            task.start = (int) ((long) childCount * i / taskCount);
+            task.end = (int) ((long) childCount * (i + 1) / taskCount);
+        }
+        this.rootTask.reinitialize();
+        this.rootTask.tasks = this.tasks;
+        this.rootTask.taskCount = taskCount;
+        try {
+            pool.invoke(this.rootTask);
+        } finally {
+            for (int i = 0; i < taskCount; i++) {
+                this.tasks[i].children = null;
+            }
+        }
+
+        for (int i = 0; i < taskCount; i++) {
+            this.tasks[i].runDeferred();
+        }
+    }
+
+    /**
+     * Defers an update if called while children are being run in
+     * parallel.
+     *
+     * @param action update to defer
+     * @param subject object the update applies to
+     * @param argument integer argument of the update
+     * @return true if the action was deferred
+     */
+    static boolean defer(DeferredAction action, Object subject, int argument) {
+        ChildTask task = CURRENT_TASK.get();
+        if (task == null) {
+            return false;
+        }
+        task.defer(action, subject, argument);
+        return true;
+    }
+
+    /**
+     * Returns the child manager being run by the calling thread, or null
+     * outside the parallel phase of a minute.
+     *
+     * @return child being run, or null
+     */
+    static TimedItemManager currentChild() {
+        ChildTask task = CURRENT_TASK.get();
+        return task == null ? null : task.child;
+    }
+
+    /**
+     * Returns whether the calling thread is running children in parallel.
+     *
+     * @return true during the parallel phase of a minute
+     */
+    static boolean isRunning() {
+        return CURRENT_TASK.get() != null;
+    }
+
+    /**
+     * Forks the child tasks of a minute and waits for them all.
+     */
+    private static final class RootTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Child tasks, of which the first taskCount are run
+         */
+        private transient ChildTask[] tasks;
+
+        /**
+         * Number of child tasks to run
+         */
+        private int taskCount;
+
+        /**
+         * Runs every child task, the first on this thread.
+         */
+        @Override
+        protected void compute() {
+            for (int i = 1; i < this.taskCount; i++) {
+                this.tasks[i].fork();
+            }
+            this.tasks[0].invoke();
+            for (int i = 1; i < this.taskCount; i++) {
+                this.tasks[i].join();
+            }
+        }
+    }
+
+    /**
+     * Runs a range of child managers for one minute, recording the updates
+     * they defer.
+     */
+    private static final class ChildTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Child managers of the manager being run
+         */
+        private transient TimedItemManager[] children;
+
+        /**
+         * Index of the first child to run
+         */
+        private int start;
+
+        /**
+         * Index after the last child to run
+         */
+        private int end;
+
+        /**
+         * Child being run
+         */
+        private transient TimedItemManager child;
+
+        /**
+         * Deferred actions, in the order they were deferred
+         */
+        private transient DeferredAction[] actions = new DeferredAction[16];
+
+        /**
+         * Subject of each deferred action
+         */
+        private transient Object[] subjects = new Object[16];
+
+        /**
+         * Argument of each deferred action
+         */
+        private int[] arguments = new int[16];
+
+        /**
+         * Number of deferred actions
+         */
+        private int deferred;
+
+        /**
+         * Runs the children in the task's range, in order.
+         */
+        @Override
+        protected void compute() {
+            CURRENT_TASK.set(this);
+            try {
+                for (int i = this.start; i < this.end; i++) {
+                    this.child = this.children[i];
+                    this.child.elapseOneMinute();
+                }
+            } finally {
+                this.child = null;
+                CURRENT_TASK.set(null);
+            }
+        }
+
+        /**
+         * Records an action to run once every child has been run.
+         *
+         * @param action update to defer
+         * @param subject object the update applies to
+         * @param argument integer argument of the update
+         */
+        private void defer(DeferredAction action, Object subject,
+                           int argument) {
+            if (this.deferred == this.actions.length) {
+                int capacity = this.deferred * 2;
+                this.actions = Arrays.copyOf(this.actions, capacity);
+                this.subjects = Arrays.copyOf(this.subjects, capacity);
+                this.arguments = Arrays.copyOf(this.arguments, capacity);
+            }
+            this.actions[this.deferred] = action;
+            this.subjects[this.deferred] = subject;
+            this.arguments[this.deferred] = argument;
+            this.deferred++;
+        }
+
+        /**
+         * Runs the deferred actions in order, and forgets them.
+         */
+        private void runDeferred() {
+            for (int i = 0; i < this.deferred; i++) {
+                this.actions[i].runDeferred(this.subjects[i],
+                        this.arguments[i]);
+                this.actions[i] = null;
+                this.subjects[i] = null;
+            }
+            this.deferred = 0;
+        }
+    }
+}
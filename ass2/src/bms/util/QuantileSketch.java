@@ -0,0 +1,306 @@
+package bms.util;
+
+/**
+ * Mergeable sketch of a distribution of non-negative integer values,
+ * supporting removal as well as insertion.
+ * <p>
+ * Values are counted in log-linear buckets: values below 256 are counted
+ * exactly, and larger values share a bucket with values within 1/128 of
+ * their size, so every quantile returned is within 0.8% of the true value.
+ * Bucket counts are kept in a Fenwick (binary indexed) tree, so answering a
+ * quantile takes time proportional to the logarithm of the number of
+ * buckets, regardless of how many values the sketch holds. Changes to the
+ * counts are collected per bucket and only applied to the tree when the
+ * sketch is next read, so adding, removing and replacing values take
+ * constant time, and values replaced back and forth between reads cost
+ * nothing to apply.
+ * <p>
+ * Two sketches can be merged by adding their bucket counts.
+ * @ass2
+ */
+public class QuantileSketch {
+
+    /**
+     * Number of buckets per power of two, above the exact range
+     */
+    private static final int SUB_BUCKETS = 128;
+
+    /**
+     * Number of bits needed to index a bucket within a power of two
+     */
+    private static final int SUB_BUCKET_BITS = 7;
+
+    /**
+     * Values below this are counted in a bucket of their own
+     */
+    private static final int EXACT_LIMIT = 2 * SUB_BUCKETS;
+
+    /**
+     * Total number of buckets, enough for any non-negative int
+     */
+    private static final int BUCKETS = EXACT_LIMIT
+            + (31 - SUB_BUCKET_BITS - 1) * SUB_BUCKETS;
+
+    /**
+     * Fenwick tree of bucket counts, one-based
+     */
+    private final int[] tree;
+
+    /**
+     * Change to each bucket's count not yet applied to the tree, indexed
+     * by bucket
+     */
+    private final int[] pending;
+
+    /**
+     * Buckets changed since the tree was last brought up to date, of
+     * which the first changedCount are used
+     */
+    private final int[] changedBuckets;
+
+    /**
+     * Number of changed buckets listed
+     */
+    private int changedCount;
+
+    /**
+     * Number of values held
+     */
+    private int count;
+
+    /**
+     * Creates a new, empty sketch.
+     * @ass2
+     */
+    public QuantileSketch() {
+        this.tree = new int[BUCKETS + 1];
+        this.pending = new int[BUCKETS];
+        this.changedBuckets = new int[BUCKETS];
+        this.count = 0;
+    }
+
+    /**
+     * Returns the number of values held by this sketch.
+     *
+     * @return number of values
+     * @ass2
+     */
+    public int getCount() {
+        return this.count;
+    }
+
+    /**
+     * Adds a value to this sketch.
+     *
+     * @param value value to add
+     * @throws IllegalArgumentException if value is negative
+     * @ass2
+     */
+    public void add(int value) {
+        this.update(bucketOf(value), 1);
+        this.count++;
+    }
+
+    /**
+     * Removes one occurrence of a value previously added to this sketch.
+     * <p>
+     * Removing a value that was never added leaves the sketch in an
+     * undefined state.
+     *
+     * @param value value to remove
+     * @throws IllegalArgumentException if value is negative
+     * @ass2
+     */
+    public void remove(int value) {
+        this.update(bucketOf(value), -1);
+        this.count--;
+    }
+
+    /**
+     * Replaces one occurrence of a value with another value.
+     *
+     * @param oldValue value to remove
+     * @param newValue value to add
+     * @throws IllegalArgumentException if either value is negative
+     * @ass2
+     */
+    public void replace(int oldValue, int newValue) {
+        int oldBucket = bucketOf(oldValue);
+        int newBucket = bucketOf(newValue);
+        if (oldBucket != newBucket) {
+            this.update(oldBucket, -1);
+            this.update(newBucket, 1);
+        }
+    }
+
+    /**
+     * Adds every value held by another sketch to this sketch.
+     *
+     * @param other sketch to merge into this sketch
+     * @ass2
+     */
+    public void merge(QuantileSketch other) {
+        this.applyPending();
+        other.applyPending();
+        // Fenwick trees are linear in the counts, so adding them node by
+        // node gives the tree of the summed counts
+        for (int i = 1; i < this.tree.length; i++) {
+            this.tree[i] += other.tree[i];
+        }
+        this.count += other.count;
+    }
+
+    /**
+     * Returns the value at the given quantile of the values held by this
+     * sketch, eg. 0.5 for the median or 0.95 for the 95th percentile.
+     * <p>
+     * The value returned is accurate to within 0.8%. If the sketch is
+     * empty, zero (0) is returned.
+     *
+     * @param quantile quantile to return, between 0 and 1 (inclusive)
+     * @return approximate value at the given quantile
+     * @throws IllegalArgumentException if quantile is less than 0 or
+     * greater than 1
+     * @ass2
+     */
+    public int getQuantile(double quantile) {
+        if (quantile < 0 || quantile > 1) {
+            throw new IllegalArgumentException(
+                    "Quantile must be between 0 and 1 (inclusive)");
+        }
+        if (this.count <= 0) {
+            return 0;
+        }
+        int rank = Math.max(1, (int) Math.ceil(quantile * this.count));
+        this.applyPending();
+
+        // descend the tree to find the first bucket whose cumulative count
+        // reaches the rank
+        int position = 0;
+        int remaining = rank;
+        for (int step = Integer.highestOneBit(BUCKETS); step > 0; step >>= 1) {
+            int next = position + step;
+            if (next <= BUCKETS && this.tree[next] < remaining) {
+                position = next;
+                remaining -= this.tree[next];
+            }
+        }
+        return valueOf(position);
+    }
+
+    /**
+     * Returns the value at the given percentile of the values held by
+     * this sketch. Equivalent to {@code getQuantile(percentile / 100)}.
+     *
+     * @param percentile percentile to return, between 0 and 100 (inclusive)
+     * @return approximate value at the given percentile
+     * @throws IllegalArgumentException if percentile is less than 0 or
+     * greater than 100
+     * @ass2
+     */
+    public int getPercentile(double percentile) {
+        return this.getQuantile(percentile / 100);
+    }
+
+    /**
+     * Removes every value from this sketch.
+     * @ass2
+     */
+    public void clear() {
+        for (int i = 0; i < this.tree.length; i++) {
+            this.tree[i] = 0;
+        }
+        for (int i = 0; i < this.changedCount; i++) {
+            this.pending[this.changedBuckets[i]] = 0;
+        }
+        this.changedCount = 0;
+        this.count = 0;
+    }
+
+    /**
+     * Adds the given amount to the count of a bucket, once the tree is
+     * next brought up to date.
+     *
+     * @param bucket zero-based bucket index
+     * @param amount amount to add
+     */
+    private void update(int bucket, int amount) {
+        if (this.pending[bucket] == 0) {
+            // a bucket whose change cancelled out may be listed twice
+            if (this.changedCount == this.changedBuckets.length) {
+                this.applyPending();
+            }
+            this.changedBuckets[this.changedCount++] = bucket;
+        }
+        this.pending[bucket] += amount;
+    }
+
+    /**
+     * Applies the pending change to each changed bucket's count to the
+     * tree.
+     */
+    private void applyPending() {
+        for (int i = 0; i < this.changedCount; i++) {
+            int bucket = this.changedBuckets[i];
+            int amount = this.pending[bucket];
+            this.pending[bucket] = 0;
+            for (int j = bucket + 1; j < this.tree.length; j += j & -j) {
+                this.tree[j] += amount;
+            }
+        }
+        this.changedCount = 0;
+    }
+
+    /**
+     * Returns the index of the bucket counting the given value.
+     *
+     * @param value non-negative value
+     * @return zero-based bucket index
+     */
+    private static int bucketOf(int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException(
+                    "Sketch values must be non-negative");
+        }
+        if (value < EXACT_LIMIT) {
+            return value;
+        }
+        int exponent = 31 - Integer.numberOfLeadingZeros(value);
+        int shift = exponent - SUB_BUCKET_BITS;
+        return EXACT_LIMIT + (shift - 1) * SUB_BUCKETS
+                + (value >> shift) - SUB_BUCKETS;
+    }
+
+    /**
+     * Returns the value represented by a bucket, the midpoint of the
+     * values it counts.
+     *
+     * @param bucket zero-based bucket index
+     * @return representative value of the bucket
+     */
+    private static int valueOf(int bucket) {
+        if (bucket < EXACT_LIMIT) {
+            return bucket;
+        }
+        int shift = (bucket - EXACT_LIMIT) / SUB_BUCKETS + 1;
+        int mantissa = (bucket - EXACT_LIMIT) % SUB_BUCKETS + SUB_BUCKETS;
+        return (mantissa << shift) + ((1 << shift) >> 1);
+    }
+
+    /**
+     * Returns the human-readable string representation of this sketch.
+     * <p>
+     * The format of the string to return is
+     * "QuantileSketch: count='count', p50='p50', p95='p95', p99='p99'"
+     * without the single quotes.
+     *
+     * @return string representation of this sketch
+     * @ass2
+     */
+    @Override
+    public String toString() {
+        return String.format("QuantileSketch: count=%d, p50=%d, p95=%d, p99=%d",
+                this.count, this.getPercentile(50), this.getPercentile(95),
+                this.getPercentile(99));
+    }
+}
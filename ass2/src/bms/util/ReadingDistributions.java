@@ -0,0 +1,236 @@
+package bms.util;
+
+import bms.room.RoomType;
+import bms.sensors.ReadingListener;
+import bms.sensors.Sensor;
+import bms.sensors.TimedSensor;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Singleton class which tracks the distribution of the current readings of
+ * every sensor in every room.
+ * <p>
+ * A {@link QuantileSketch} is kept for each class of sensor, across all
+ * rooms, and for each class of sensor within each type of room. Sketches
+ * are updated as sensors take new readings, so percentiles of the current
+ * readings can be answered at any time without scanning every sensor.
+ * <p>
+ * Rooms register their sensors with this class when they are added, see
+ * {@link ReadingDistributions#registerSensor(Sensor, RoomType)}.
+ * @ass2
+ */
+public class ReadingDistributions {
+    /**
+     * Singleton instance.
+     */
+    private static ReadingDistributions instance = new ReadingDistributions();
+
+    /**
+     * Sketch of the current readings of each class of sensor, across all
+     * rooms
+     */
+    private Map<Class<? extends Sensor>, QuantileSketch> bySensorType;
+
+    /**
+     * Sketch of the current readings of each class of sensor, for each
+     * type of room
+     */
+    private Map<RoomType, Map<Class<? extends Sensor>, QuantileSketch>>
+            byRoomType;
+
+    /**
+     * Creates a new set of distributions with no registered sensors.
+     */
+    private ReadingDistributions() {
+        this.bySensorType = new HashMap<>();
+        this.byRoomType = new EnumMap<>(RoomType.class);
+        for (RoomType type : RoomType.values()) {
+            this.byRoomType.put(type, new HashMap<>());
+        }
+    }
+
+    /**
+     * Returns the singleton instance of the reading distributions.
+     *
+     * @return singleton instance
+     * @ass2
+     */
+    public static ReadingDistributions getInstance() {
+        return instance;
+    }
+
+    /**
+     * Registers a sensor located in a room of the given type.
+     * <p>
+     * The sensor's current reading is added to the distributions of its
+     * class, and the distributions are kept up to date as the sensor takes
+     * new readings. Sensors that are not timed sensors have no readings and
+     * are ignored.
+     *
+     * @param sensor sensor to register
+     * @param roomType type of the room containing the sensor
+     * @ass2
+     */
+    public void registerSensor(Sensor sensor, RoomType roomType) {
+        if (!(sensor instanceof TimedSensor)) {
+            return;
+        }
+        TimedSensor timedSensor = (TimedSensor) sensor;
+        QuantileSketch all = this.getSketch(timedSensor.getClass());
+        QuantileSketch ofRoomType =
+                this.getSketch(timedSensor.getClass(), roomType);
+        all.add(timedSensor.getCurrentReading());
+        ofRoomType.add(timedSensor.getCurrentReading());
+        timedSensor.addReadingListener(
+                new SketchUpdater(all, ofRoomType));
+    }
+
+    /**
+     * Returns the sketch of the current readings of all sensors of the
+     * given class, across all rooms.
+     * <p>
+     * The sketch returned is live, and must not be modified by the caller.
+     *
+     * @param sensorType class of sensor
+     * @return sketch of current readings
+     * @ass2
+     */
+    public QuantileSketch getSketch(Class<? extends Sensor> sensorType) {
+        return this.bySensorType.computeIfAbsent(sensorType,
+                k -> new QuantileSketch());
+    }
+
+    /**
+     * Returns the sketch of the current readings of all sensors of the
+     * given class in rooms of the given type.
+     * <p>
+     * The sketch returned is live, and must not be modified by the caller.
+     *
+     * @param sensorType class of sensor
+     * @param roomType type of room
+     * @return sketch of current readings
+     * @ass2
+     */
+    public QuantileSketch getSketch(Class<? extends Sensor> sensorType,
+                                    RoomType roomType) {
+        return this.byRoomType.get(roomType).computeIfAbsent(sensorType,
+                k -> new QuantileSketch());
+    }
+
+    /**
+     * Moves a sensor's reading between buckets of the sketches it counts
+     * towards whenever the sensor takes a new reading.
+     */
+    private static class SketchUpdater implements ReadingListener {
+
+        /**
+         * Applies the pending change once timed items running in parallel
+         * have finished, as sketches are shared between buildings
+         */
+        private static final DeferredAction DEFERRED_REPLACE =
+                (updater, argument) -> ((SketchUpdater) updater).replace();
+
+        /**
+         * Removes a retired sensor's reading once timed items running in
+         * parallel have finished, after any change still pending
+         */
+        private static final DeferredAction DEFERRED_REMOVE =
+                (updater, reading) -> ((SketchUpdater) updater).remove(
+                        reading);
+
+        /**
+         * Sketch of all sensors of the same class
+         */
+        private final QuantileSketch all;
+
+        /**
+         * Sketch of sensors of the same class in the same type of room
+         */
+        private final QuantileSketch ofRoomType;
+
+        /**
+         * Reading to remove from the sketches when the pending change is
+         * applied
+         */
+        private int pendingOld;
+
+        /**
+         * Reading to add to the sketches when the pending change is applied
+         */
+        private int pendingNew;
+
+        /**
+         * Whether a change is pending
+         */
+        private boolean pending;
+
+        /**
+         * Creates an updater for the given sketches.
+         *
+         * @param all sketch of all sensors of the same class
+         * @param ofRoomType sketch of sensors of the same class in the same
+         *                   type of room
+         */
+        private SketchUpdater(QuantileSketch all, QuantileSketch ofRoomType) {
+            this.all = all;
+            this.ofRoomType = ofRoomType;
+        }
+
+        @Override
+        public void readingUpdated(TimedSensor sensor, int previousReading) {
+            int reading = sensor.getCurrentReading();
+            if (reading == previousReading) {
+                return;
+            }
+            if (!this.pending) {
+                this.pendingOld = previousReading;
+                this.pending = true;
+                if (!TimedItemManager.defer(DEFERRED_REPLACE, this, 0)) {
+                    this.pendingNew = reading;
+                    this.replace();
+                    return;
+                }
+            }
+            this.pendingNew = reading;
+        }
+
+        /**
+         * Removes the retired sensor's last reading from both sketches, so
+         * that it no longer counts towards the distributions.
+         *
+         * @param sensor sensor that was unregistered
+         */
+        @Override
+        public void sensorRetired(TimedSensor sensor) {
+            int reading = sensor.getCurrentReading();
+            if (!TimedItemManager.defer(DEFERRED_REMOVE, this, reading)) {
+                this.remove(reading);
+            }
+        }
+
+        /**
+         * Removes a reading from both sketches.
+         *
+         * @param reading reading to remove
+         */
+        private void remove(int reading) {
+            this.all.remove(reading);
+            this.ofRoomType.remove(reading);
+        }
+
+        /**
+         * Replaces the pending old reading with the pending new reading in
+         * both sketches.
+         */
+        private void replace() {
+            this.pending = false;
+            if (this.pendingOld != this.pendingNew) {
+                this.all.replace(this.pendingOld, this.pendingNew);
+                this.ofRoomType.replace(this.pendingOld, this.pendingNew);
+            }
+        }
+    }
+}
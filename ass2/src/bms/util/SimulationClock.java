@@ -0,0 +1,300 @@
+package bms.util;
+
+import java.util.function.IntConsumer;
+
+/**
+ * Paces a simulation against the wall clock, running one simulated minute
+ * per fixed interval of wall time.
+ * <p>
+ * The clock is advanced with the current wall time, typically once per
+ * rendered frame, and runs the minutes that have become due since it was
+ * last advanced. If more than one minute is due, because a frame or a
+ * minute took longer than the interval, the clock has overrun and handles
+ * the missed minutes according to its {@link OverrunPolicy}. Overruns and
+ * the minutes dropped or caught up are counted, so the effective speed of
+ * the simulation can be reported.
+ * @ass2
+ */
+public class SimulationClock {
+
+    /**
+     * Default largest number of minutes run at once when catching up
+     */
+    private static final int DEFAULT_CATCH_UP_LIMIT = 60;
+
+    /**
+     * Wall time between simulated minutes, in nanoseconds
+     */
+    private final long interval;
+
+    /**
+     * Runs the given number of simulated minutes
+     */
+    private final IntConsumer simulation;
+
+    /**
+     * What to do with minutes missed after an overrun
+     */
+    private OverrunPolicy policy;
+
+    /**
+     * Largest number of minutes run at once when catching up
+     */
+    private int catchUpLimit;
+
+    /**
+     * Whether the clock has been started
+     */
+    private boolean started;
+
+    /**
+     * Wall time at which the clock was started
+     */
+    private long startTime;
+
+    /**
+     * Wall time at which the next minute is due
+     */
+    private long nextDue;
+
+    /**
+     * Number of minutes due but not run when the clock was last advanced
+     */
+    private long backlog;
+
+    /**
+     * Number of simulated minutes run
+     */
+    private long minutesRun;
+
+    /**
+     * Number of times more than one minute was due at once
+     */
+    private long overruns;
+
+    /**
+     * Number of minutes skipped by the drop policy, or beyond the backlog
+     * kept by the catch-up policy
+     */
+    private long minutesDropped;
+
+    /**
+     * Number of extra minutes run by the catch-up policy
+     */
+    private long minutesCaughtUp;
+
+    /**
+     * Creates a new clock running one minute of the given simulation per
+     * interval, catching up after overruns.
+     *
+     * @param interval wall time between simulated minutes, in nanoseconds
+     * @param simulation runs the given number of simulated minutes
+     * @throws IllegalArgumentException if interval is less than one
+     * @ass2
+     */
+    public SimulationClock(long interval, IntConsumer simulation) {
+        if (interval < 1) {
+            throw new IllegalArgumentException(
+                    "Interval must be at least one nanosecond");
+        }
+        this.interval = interval;
+        this.simulation = simulation;
+        this.policy = OverrunPolicy.CATCH_UP;
+        this.catchUpLimit = DEFAULT_CATCH_UP_LIMIT;
+    }
+
+    /**
+     * Returns the policy used after overruns.
+     *
+     * @return overrun policy
+     * @ass2
+     */
+    public OverrunPolicy getPolicy() {
+        return this.policy;
+    }
+
+    /**
+     * Sets the policy used after overruns.
+     *
+     * @param policy new overrun policy
+     * @ass2
+     */
+    public void setPolicy(OverrunPolicy policy) {
+        this.policy = policy;
+    }
+
+    /**
+     * Returns the largest number of minutes run at once when catching up.
+     *
+     * @return catch-up limit, in minutes
+     * @ass2
+     */
+    public int getCatchUpLimit() {
+        return this.catchUpLimit;
+    }
+
+    /**
+     * Sets the largest number of minutes run at once when catching up.
+     * Up to the limit of minutes beyond those run are kept as a backlog
+     * and run when the clock is next advanced; any more are dropped, so a
+     * simulation that stays slower than the wall clock falls behind by at
+     * most the limit rather than ever further.
+     *
+     * @param minutes new catch-up limit, in minutes
+     * @throws IllegalArgumentException if minutes is less than one
+     * @ass2
+     */
+    public void setCatchUpLimit(int minutes) {
+        if (minutes < 1) {
+            throw new IllegalArgumentException(
+                    "Catch-up limit must be at least one minute");
+        }
+        this.catchUpLimit = minutes;
+    }
+
+    /**
+     * Runs the minutes due at the given wall time.
+     * <p>
+     * The first call starts the clock, and the first minute is due one
+     * interval later.
+     *
+     * @param now current wall time, in nanoseconds
+     * @return number of minutes run
+     * @ass2
+     */
+    public int advance(long now) {
+        if (!this.started) {
+            this.started = true;
+            this.startTime = now;
+            this.nextDue = now + this.interval;
+            return 0;
+        }
+        if (now - this.nextDue < 0) {
+            return 0;
+        }
+        long due = (now - this.nextDue) / this.interval + 1;
+        int minutes = 1;
+        if (due > 1) {
+            this.overruns++;
+            switch (this.policy) {
+                case CATCH_UP:
+                    minutes = (int) Math.min(due, this.catchUpLimit);
+                    this.minutesCaughtUp += minutes - 1;
+                    // keep at most one more batch of missed minutes
+                    long skipped = Math.max(0,
+                            due - minutes - this.catchUpLimit);
+                    this.minutesDropped += skipped;
+                    due -= skipped;
+                    this.nextDue += skipped * this.interval;
+                    break;
+                case DROP:
+                    this.minutesDropped += due - 1;
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        this.backlog = this.policy == OverrunPolicy.CATCH_UP
+                ? due - minutes : 0;
+        if (this.policy == OverrunPolicy.DROP) {
+            this.nextDue += due * this.interval;
+        } else if (this.policy == OverrunPolicy.SLOW_DOWN) {
+            this.nextDue = now + this.interval;
+        } else {
+            this.nextDue += minutes * this.interval;
+        }
+        this.minutesRun += minutes;
+        this.simulation.accept(minutes);
+        return minutes;
+    }
+
+    /**
+     * Restarts the clock from the given wall time without running the
+     * minutes due, such as while the simulation is paused. Counters are
+     * kept.
+     *
+     * @param now current wall time, in nanoseconds
+     * @ass2
+     */
+    public void resync(long now) {
+        if (this.started) {
+            this.startTime += now - this.nextDue + this.interval;
+        } else {
+            this.started = true;
+            this.startTime = now;
+        }
+        this.nextDue = now + this.interval;
+        this.backlog = 0;
+    }
+
+    /**
+     * Returns the number of minutes behind the wall clock, as of the last
+     * time the clock was advanced.
+     *
+     * @return minutes due but not yet run
+     * @ass2
+     */
+    public long getBacklog() {
+        return this.backlog;
+    }
+
+    /**
+     * Returns the number of simulated minutes run.
+     *
+     * @return minutes run
+     * @ass2
+     */
+    public long getMinutesRun() {
+        return this.minutesRun;
+    }
+
+    /**
+     * Returns the number of times the clock has overrun, finding more than
+     * one minute due at once.
+     *
+     * @return number of overruns
+     * @ass2
+     */
+    public long getOverrunCount() {
+        return this.overruns;
+    }
+
+    /**
+     * Returns the number of minutes skipped by the drop policy, or beyond
+     * the backlog kept by the catch-up policy, see
+     * {@link #setCatchUpLimit(int)}.
+     *
+     * @return minutes dropped
+     * @ass2
+     */
+    public long getMinutesDropped() {
+        return this.minutesDropped;
+    }
+
+    /**
+     * Returns the number of extra minutes run together by the catch-up
+     * policy.
+     *
+     * @return minutes caught up
+     * @ass2
+     */
+    public long getMinutesCaughtUp() {
+        return this.minutesCaughtUp;
+    }
+
+    /**
+     * Returns the number of simulated minutes run per second of wall time
+     * since the clock was started, not counting time spent resynced.
+     *
+     * @param now current wall time, in nanoseconds
+     * @return effective simulated minutes per wall second
+     * @ass2
+     */
+    public double getMinutesPerSecond(long now) {
+        if (!this.started || now - this.startTime <= 0) {
+            return 0;
+        }
+        return this.minutesRun * 1e9 / (now - this.startTime);
+    }
+}
@@ -2,6 +2,7 @@ package bms.util;
 
 import bms.building.Building;
 import bms.floor.Floor;
+import bms.room.OccupancyEstimator;
 import bms.room.Room;
 import bms.room.RoomState;
 import bms.room.RoomType;
@@ -147,19 +148,31 @@ public class StudyRoomRecommender {
      * average comfort level of a room based on its
      * number of sensors
      *
+     * If the room has no occupancy sensor but its occupancy can be
+     * estimated from its CO2 sensors, the estimated occupancy comfort
+     * is included in the average as an additional sensor.
+     *
      * @param room room which average comfort is to be calculated
      * @return the average comfort level of the room
      * @ass2
      */
     private static double averageComfort(Room room) {
-        double numSensors = room.getSensors().size();
+        double numSensors = 0;
         double totalComfort = 0;
+        for (Sensor sensor : room.getSensors()) {
+            if (sensor instanceof ComfortSensor) {
+                totalComfort += ((ComfortSensor) sensor).getComfortLevel();
+                numSensors++;
+            }
+        }
+        OccupancyEstimator estimator = room.getOccupancyEstimator();
+        if (!estimator.isMeasured() && estimator.isAvailable()) {
+            totalComfort += estimator.getComfortLevel();
+            numSensors++;
+        }
         if (numSensors == 0) {
             return 0;
         }
-        for (Sensor sensor : room.getSensors()) {
-            totalComfort += ((ComfortSensor) sensor).getComfortLevel();
-        }
         return totalComfort / numSensors;
     }
 
@@ -0,0 +1,176 @@
+package bms.util;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Metrics sampled by one timed item manager, not counting its children.
+ * <p>
+ * Once a sample interval is set, every that many items run are timed into
+ * a histogram of item latencies and a histogram per class of item, and
+ * every minute run is timed into a histogram of tick latencies. The
+ * histograms are only created once sampling is first turned on.
+ */
+final class TickMetrics {
+    /**
+     * Number of items run per item timed, or zero if sampling is off
+     */
+    private int sampleInterval;
+
+    /**
+     * Number of items left to run before the next one is timed
+     */
+    private int sampleCountdown;
+
+    /**
+     * Number of items run while sampling
+     */
+    private long itemsRun;
+
+    /**
+     * Time taken by the items timed, or null until sampling is turned on
+     */
+    private LatencyHistogram itemLatency;
+
+    /**
+     * Time taken by each minute run, or null until sampling is turned on
+     */
+    private LatencyHistogram tickLatency;
+
+    /**
+     * Time taken by the items timed, by class of item
+     */
+    private Map<Class<?>, LatencyHistogram> classLatencies;
+
+    /**
+     * Returns whether sampling is on.
+     *
+     * @return true if a sample interval is set
+     */
+    boolean isSampling() {
+        return this.sampleInterval > 0;
+    }
+
+    /**
+     * Returns the number of items run per item timed.
+     *
+     * @return sample interval, or zero if sampling is off
+     */
+    int getSampleInterval() {
+        return this.sampleInterval;
+    }
+
+    /**
+     * Sets the number of items run per item timed, or zero to turn
+     * sampling off, keeping the metrics recorded so far.
+     *
+     * @param interval sample interval, at least zero
+     */
+    void setSampleInterval(int interval) {
+        if (interval > 0 && this.itemLatency == null) {
+            this.itemLatency = new LatencyHistogram();
+            this.tickLatency = new LatencyHistogram();
+            this.classLatencies = new HashMap<>();
+        }
+        this.sampleInterval = interval;
+        this.sampleCountdown = interval;
+    }
+
+    /**
+     * Runs an item while sampling, timing it if it is the last of the
+     * current sample interval.
+     *
+     * @param timedItem item to run
+     * @param minutes number of minutes to run it for
+     */
+    void runSampled(TimedItem timedItem, int minutes) {
+        this.itemsRun++;
+        if (--this.sampleCountdown > 0) {
+            timedItem.elapseMinutes(minutes);
+            return;
+        }
+        this.sampleCountdown = this.sampleInterval;
+        long start = System.nanoTime();
+        timedItem.elapseMinutes(minutes);
+        long nanos = System.nanoTime() - start;
+        this.itemLatency.record(nanos);
+        this.classLatencies.computeIfAbsent(timedItem.getClass(),
+                type -> new LatencyHistogram()).record(nanos);
+    }
+
+    /**
+     * Records the time taken by a minute run while sampling.
+     *
+     * @param nanos duration of the minute, in nanoseconds
+     */
+    void recordTick(long nanos) {
+        this.tickLatency.record(nanos);
+    }
+
+    /**
+     * Returns the number of items run while sampling.
+     *
+     * @return number of items run
+     */
+    long getItemsRun() {
+        return this.itemsRun;
+    }
+
+    /**
+     * Returns the total time taken by the minutes run while sampling.
+     *
+     * @return total duration of the minutes timed, in nanoseconds
+     */
+    long getTickNanos() {
+        return this.tickLatency == null ? 0 : this.tickLatency.getTotal();
+    }
+
+    /**
+     * Adds the item latencies recorded to the given histogram.
+     *
+     * @param latency histogram to add to
+     */
+    void addItemLatencyTo(LatencyHistogram latency) {
+        if (this.itemLatency != null) {
+            latency.add(this.itemLatency);
+        }
+    }
+
+    /**
+     * Adds the minute durations recorded to the given histogram.
+     *
+     * @param latency histogram to add to
+     */
+    void addTickLatencyTo(LatencyHistogram latency) {
+        if (this.tickLatency != null) {
+            latency.add(this.tickLatency);
+        }
+    }
+
+    /**
+     * Adds the item latencies recorded by class to the given map.
+     *
+     * @param latencies map from class of item to histogram to add to
+     */
+    void addClassLatenciesTo(Map<Class<?>, LatencyHistogram> latencies) {
+        if (this.classLatencies != null) {
+            for (Map.Entry<Class<?>, LatencyHistogram> entry
+                    : this.classLatencies.entrySet()) {
+                latencies.computeIfAbsent(entry.getKey(),
+                        type -> new LatencyHistogram()).add(entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Discards the metrics recorded.
+     */
+    void reset() {
+        this.itemsRun = 0;
+        if (this.itemLatency != null) {
+            this.itemLatency.reset();
+            this.tickLatency.reset();
+            this.classLatencies.clear();
+        }
+    }
+}
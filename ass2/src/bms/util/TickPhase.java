@@ -0,0 +1,19 @@
+package bms.util;
+
+/**
+ * Enum to represent the phases of a minute run by a timed item manager.
+ * <p>
+ * Items due in the same minute are run one phase at a time, in the order
+ * the phases are declared, so that items acting on sensor readings see
+ * the readings of the minute being run.
+ *
+ * @ass2
+ */
+public enum TickPhase {
+    /** Sensors taking their readings for the minute. */
+    SENSORS,
+    /** Items evaluating sensor readings, such as health monitors. */
+    EVALUATORS,
+    /** Items acting on the state of rooms, such as maintenance schedules. */
+    SCHEDULES
+}
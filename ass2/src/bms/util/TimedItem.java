@@ -12,4 +12,61 @@ public interface TimedItem {
      * @ass1
      */
     void elapseOneMinute();
+
+    /**
+     * Returns the number of minutes until this item next needs to be
+     * woken, at least one. The timed item manager does not call this item
+     * in between, and instead passes the minutes skipped to
+     * {@link #elapseMinutes(int)} when it is next woken.
+     * <p>
+     * Items are asked again after each time they are woken. By default,
+     * items are woken every minute.
+     *
+     * @return minutes until the item next changes
+     * @ass2
+     */
+    default int getMinutesUntilNextChange() {
+        return 1;
+    }
+
+    /**
+     * Returns the phase of the minute in which this item is run, see
+     * {@link TickPhase}. Items due in the same minute are run phase by
+     * phase, and in order of registration within a phase.
+     * <p>
+     * By default, items are run in the last phase, after sensors and
+     * evaluators.
+     *
+     * @return phase in which the item is run
+     * @ass2
+     */
+    default TickPhase getTickPhase() {
+        return TickPhase.SCHEDULES;
+    }
+
+    /**
+     * Called by TimedItemManager when the item is woken, with the number of
+     * minutes that have elapsed since it was last woken.
+     * <p>
+     * By default, calls {@link #elapseOneMinute()} once per minute.
+     *
+     * @param minutes number of minutes elapsed, at least one
+     * @ass2
+     */
+    default void elapseMinutes(int minutes) {
+        for (int i = 0; i < minutes; i++) {
+            this.elapseOneMinute();
+        }
+    }
+
+    /**
+     * Called by TimedItemManager once the item has been unregistered, after
+     * which it is no longer woken. Items should release anything that
+     * tracks them on their behalf.
+     * <p>
+     * By default, does nothing.
+     * @ass2
+     */
+    default void unregistered() {
+    }
 }
@@ -1,12 +1,20 @@
 package bms.util;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 
 /**
- * Singleton class which manages all the timed items.
+ * Manages timed items, running them as time elapses. The singleton, see
+ * {@link #getInstance()}, is the root manager: it runs the buildings and
+ * items not given a manager of their own.
  * <p>
- * All classes that implement TimedItem must be registered with this manager,
+ * All classes that implement TimedItem must be registered with a manager,
  * which will allow their {@link TimedItemManager#elapseOneMinute()} method to
  * be called at regular time intervals.
  * <p>
@@ -14,25 +22,276 @@ import java.util.List;
  * {@link TimedItemManager#registerTimedItem(TimedItem)} ()} and passing itself,
  * the manager will ensure that its {@code elapseOneMinute()} method is called
  * at regular intervals.
+ * <p>
+ * Items are only woken when they declare they will next change, see
+ * {@link TimedItem#getMinutesUntilNextChange()}. Sleeping items are kept in
+ * a hierarchical timing wheel of four levels of 256 buckets each, the first
+ * level one minute per bucket and each further level 256 times coarser.
+ * Each minute the manager runs the items in the current first-level
+ * bucket, after moving down the items of any coarser bucket whose range
+ * has just begun. The items of the bucket are run one
+ * {@link TickPhase} at a time, sensors first, so that evaluators and
+ * schedules always act on the readings of the minute being run. An item
+ * is moved down at most three times before it is woken, so the cost of a
+ * minute is proportional to the number of items woken rather than the
+ * number registered.
+ * <p>
+ * Several minutes can be run at once with {@link #elapseMinutes(int)},
+ * which jumps the clock straight from one minute in which an item is due
+ * to the next, skipping the minutes in between. Fast-forwarding a campus
+ * therefore costs the number of changes made rather than the number of
+ * minutes simulated.
+ * <p>
+ * Besides the singleton, independent managers can be created, such as one
+ * per building, each with its own clock and items. A manager can be added
+ * as a child of another, such as a campus, which then runs its children
+ * each minute before its own items; buildings are children of the
+ * singleton unless given another manager. Each item is registered with at
+ * most one manager, and registering it with another moves it there.
+ * <p>
+ * Items are run until they are unregistered, either one at a time with
+ * {@link #unregisterTimedItem(TimedItem)} or together with the rest of a
+ * manager's items with {@link #dispose()}. A manager can also be given an
+ * owner, such as its building, which it only refers to weakly: once the
+ * owner has been garbage collected, the manager's items are orphaned, and
+ * are disposed of at the start of the next minute of the topmost manager.
+ * <p>
+ * If a fork-join pool is set with {@link #setParallelPool(ForkJoinPool)},
+ * the children of a manager are run concurrently, each child on a single
+ * thread. Updates to state shared between children are deferred during
+ * this phase, see {@link #defer(DeferredAction, Object, int)}, and applied
+ * in the order of the children once every child has been run, before the
+ * manager's own items. The outcome of a minute is therefore the same
+ * however many threads run it.
+ * <p>
+ * Once a sample interval is set with {@link #setSampleInterval(int)},
+ * every that many items run are timed, and each minute run is timed, into
+ * latency histograms kept per manager and per class of item. Sampling is
+ * off by default, in which case nothing is counted or timed.
  * @ass1
  */
 public class TimedItemManager implements TimedItem {
+    /**
+     * Number of bits of the due minute covered by each wheel level
+     */
+    private static final int LEVEL_BITS = 8;
+
+    /**
+     * Number of buckets in each wheel level
+     */
+    private static final int LEVEL_SIZE = 1 << LEVEL_BITS;
+
+    /**
+     * Number of wheel levels, enough to cover every int minute
+     */
+    private static final int LEVELS = 4;
+
+    /**
+     * Number of list nodes used as bucket sentinels; nodes above them are
+     * items
+     */
+    private static final int SENTINELS = LEVELS * LEVEL_SIZE;
+
+    /**
+     * Longest time an item is left asleep, so that due minutes never wrap
+     * around
+     */
+    private static final int MAX_DELAY = 1 << 30;
+
+    /**
+     * Phases of each minute, in the order they are run.
+     */
+    private static final TickPhase[] PHASES = TickPhase.values();
+
+    /**
+     * Manager each timed item is registered with. Only changed outside the
+     * parallel phase of a minute.
+     */
+    private static final Map<TimedItem, TimedItemManager> OWNERS =
+            new IdentityHashMap<>();
+
+    /**
+     * Queue of the references to owners that have been garbage collected
+     */
+    private static final ReferenceQueue<Object> RELEASED =
+            new ReferenceQueue<>();
+
     /**
      * Singleton instance.
      */
     private static TimedItemManager instance = new TimedItemManager();
 
     /**
-     * List of timed items currently registered with the manager.
+     * Handle of each registered item.
+     */
+    private Map<TimedItem, Integer> handles;
+
+    /**
+     * Registered items, indexed by handle. Null for unused handles.
+     */
+    private TimedItem[] timedItems;
+
+    /**
+     * Order in which each item was registered, indexed by handle.
+     */
+    private int[] sequences;
+
+    /**
+     * Ordinal of the tick phase of each item, indexed by handle.
+     */
+    private int[] phases;
+
+    /**
+     * Minute at which each item is next woken, indexed by handle.
+     */
+    private int[] dueMinutes;
+
+    /**
+     * Minute at which each item was last woken, indexed by handle.
+     */
+    private int[] lastMinutes;
+
+    /**
+     * Next node in each node's bucket, indexed by node.
+     */
+    private int[] next;
+
+    /**
+     * Previous node in each node's bucket, indexed by node.
+     */
+    private int[] previous;
+
+    /**
+     * Handles no longer used by any item, to be reused.
+     */
+    private int[] freeHandles;
+
+    /**
+     * Number of reusable handles.
+     */
+    private int freeCount;
+
+    /**
+     * Number of handles in use or reusable.
+     */
+    private int handleCount;
+
+    /**
+     * Number of registrations so far, used to order items.
+     */
+    private int registrations;
+
+    /**
+     * Registration order and handle of the items being woken this minute,
+     * one array per tick phase, with the order in the high half of each
+     * element.
+     */
+    private long[][] batches;
+
+    /**
+     * Number of items of each tick phase being woken this minute.
+     */
+    private int[] batchSizes;
+
+    /**
+     * Number of minutes elapsed, including the minute being run.
+     */
+    private int minute;
+
+    /**
+     * Whether the current minute is being run.
+     */
+    private boolean ticking;
+
+    /**
+     * Manager running this manager each minute, or null.
+     */
+    private TimedItemManager parent;
+
+    /**
+     * Managers run by this manager each minute, in order of addition.
+     */
+    private TimedItemManager[] children;
+
+    /**
+     * Number of children.
+     */
+    private int childCount;
+
+    /**
+     * Weak reference to the object owning this manager, or null if it has
+     * no owner.
+     */
+    private OwnerReference owner;
+
+    /**
+     * Pool running children in parallel, or null to run sequentially.
+     */
+    private ForkJoinPool pool;
+
+    /**
+     * Runs children in parallel, or null until they are first run so
+     */
+    private ParallelTick parallelTick;
+
+    /**
+     * Wakes an item once every child has been run.
+     */
+    private final DeferredAction waker;
+
+    /**
+     * Wakes an item later in the minute once every child has been run.
      */
-    private List<TimedItem> timedItems;
+    private final DeferredAction lateWaker;
+
+    /**
+     * Registers an item once every child has been run.
+     */
+    private final DeferredAction registrar;
+
+    /**
+     * Unregisters an item once every child has been run.
+     */
+    private final DeferredAction unregistrar;
+
+    /**
+     * Metrics sampled by this manager, not counting its children
+     */
+    private final TickMetrics metrics;
 
     /**
      * Creates a new timed item manager with an empty list of registered items.
+     * <p>
+     * Other than the singleton instance, a new manager is only run when its
+     * {@link #elapseOneMinute()} method is called, or once it is added to
+     * another manager, see {@link #addChild(TimedItemManager)}.
      * @ass1
      */
-    private TimedItemManager() {
-        this.timedItems = new ArrayList<>();
+    public TimedItemManager() {
+        this.handles = new IdentityHashMap<>();
+        this.timedItems = new TimedItem[0];
+        this.sequences = new int[0];
+        this.phases = new int[0];
+        this.dueMinutes = new int[0];
+        this.lastMinutes = new int[0];
+        this.next = new int[SENTINELS];
+        this.previous = new int[SENTINELS];
+        for (int node = 0; node < SENTINELS; node++) {
+            this.next[node] = node;
+            this.previous[node] = node;
+        }
+        this.freeHandles = new int[0];
+        this.batches = new long[PHASES.length][16];
+        this.batchSizes = new int[PHASES.length];
+        this.children = new TimedItemManager[0];
+        this.metrics = new TickMetrics();
+        this.waker = (subject, argument) -> this.wake((TimedItem) subject);
+        this.lateWaker = (subject, argument) ->
+                this.wakeLater((TimedItem) subject);
+        this.registrar = (subject, argument) ->
+                this.registerTimedItem((TimedItem) subject);
+        this.unregistrar = (subject, argument) ->
+                this.unregisterTimedItem((TimedItem) subject);
     }
 
     /**
@@ -50,22 +309,883 @@ public class TimedItemManager implements TimedItem {
      * <p>
      * After calling this method, the manager will call the given timed item's
      * {@code elapseOneMinute()} method at regular intervals.
+     * <p>
+     * If the item is registered with another manager, it is first brought
+     * up to date by that manager and then moved to this one. Does nothing
+     * if the item is already registered with this manager. Items registered
+     * while children are run in parallel are registered once every child
+     * has been run.
      *
      * @param timedItem a timed item to register with the manager
      * @ass1
      */
     public void registerTimedItem(TimedItem timedItem) {
-        this.timedItems.add(timedItem);
+        if (defer(this.registrar, timedItem, 0)) {
+            return;
+        }
+        TimedItemManager owner = OWNERS.get(timedItem);
+        if (owner == this) {
+            return;
+        } else if (owner != null) {
+            owner.wake(timedItem);
+            owner.remove(timedItem);
+        }
+
+        int handle;
+        if (this.freeCount > 0) {
+            handle = this.freeHandles[--this.freeCount];
+        } else {
+            handle = this.handleCount++;
+            if (handle == this.timedItems.length) {
+                this.grow();
+            }
+        }
+        this.timedItems[handle] = timedItem;
+        this.sequences[handle] = this.registrations++;
+        this.phases[handle] = timedItem.getTickPhase().ordinal();
+        this.handles.put(timedItem, handle);
+        OWNERS.put(timedItem, this);
+        int node = SENTINELS + handle;
+        this.next[node] = node;
+        this.previous[node] = node;
+        this.lastMinutes[handle] = this.minute;
+        this.schedule(handle);
+    }
+
+    /**
+     * Unregisters a timed item, after bringing it up to date. The manager
+     * will no longer call the item's {@code elapseOneMinute()} method, and
+     * calls its {@link TimedItem#unregistered()} method instead.
+     * <p>
+     * The item is unregistered from the manager it is registered with,
+     * whichever manager this method is called on. Does nothing if the item
+     * is not registered. Items unregistered while children are run in
+     * parallel are unregistered once every child has been run.
+     *
+     * @param timedItem a timed item to unregister
+     * @ass2
+     */
+    public void unregisterTimedItem(TimedItem timedItem) {
+        if (defer(this.unregistrar, timedItem, 0)) {
+            return;
+        }
+        TimedItemManager owner = OWNERS.get(timedItem);
+        if (owner == null) {
+            return;
+        }
+        owner.wake(timedItem);
+        owner.remove(timedItem);
+        timedItem.unregistered();
+    }
+
+    /**
+     * Unregisters every item of this manager and of its children, without
+     * bringing them up to date, and stops this manager being run by its
+     * parent. The manager can still be used afterwards.
+     * <p>
+     * Must not be called while children are run in parallel.
+     * @ass2
+     */
+    public void dispose() {
+        for (int i = this.childCount - 1; i >= 0; i--) {
+            this.children[i].dispose();
+        }
+        for (int handle = 0; handle < this.handleCount; handle++) {
+            TimedItem timedItem = this.timedItems[handle];
+            if (timedItem != null) {
+                this.remove(timedItem);
+                timedItem.unregistered();
+            }
+        }
+        if (this.parent != null) {
+            this.parent.removeChild(this);
+        }
+    }
+
+    /**
+     * Sets the object owning this manager, such as its building. The
+     * manager only refers to it weakly; once it has been garbage collected
+     * the manager is disposed of, see {@link #dispose()}.
+     *
+     * @param owner object owning this manager
+     * @ass2
+     */
+    public void setOwner(Object owner) {
+        this.owner = new OwnerReference(owner, this);
+    }
+
+    /**
+     * Returns the number of items registered with this manager or its
+     * children, directly or through other managers, that are not orphaned.
+     *
+     * @return number of live items
+     * @see #getOrphanedItemCount()
+     * @ass2
+     */
+    public int getLiveItemCount() {
+        return this.countItems(false, false);
+    }
+
+    /**
+     * Returns the number of items registered with this manager or its
+     * children, directly or through other managers, whose manager's owner
+     * has been garbage collected and which are yet to be disposed of.
+     *
+     * @return number of orphaned items
+     * @see #setOwner(Object)
+     * @ass2
+     */
+    public int getOrphanedItemCount() {
+        return this.countItems(true, false);
+    }
+
+    /**
+     * Returns the manager the given item is registered with.
+     *
+     * @param timedItem timed item
+     * @return manager of the item, or null if it is not registered
+     * @ass2
+     */
+    public static TimedItemManager getManager(TimedItem timedItem) {
+        return OWNERS.get(timedItem);
+    }
+
+    /**
+     * Returns the number of items registered with this manager, not
+     * counting the items of its children.
+     *
+     * @return number of registered items
+     * @ass2
+     */
+    public int getItemCount() {
+        return this.handles.size();
+    }
+
+    /**
+     * Adds a manager to be run by this manager each minute, after the
+     * children already added and before this manager's own items.
+     *
+     * @param child manager to run
+     * @throws IllegalArgumentException if the child already has a parent,
+     * or is this manager or one of its ancestors
+     * @ass2
+     */
+    public void addChild(TimedItemManager child) {
+        if (child.parent != null) {
+            throw new IllegalArgumentException(
+                    "Manager is already run by another manager");
+        }
+        if (this.isRunBy(child)) {
+            throw new IllegalArgumentException(
+                    "Manager cannot be run by itself");
+        }
+        if (this.childCount == this.children.length) {
+            this.children = Arrays.copyOf(this.children,
+                    Math.max(4, this.childCount * 2));
+        }
+        this.children[this.childCount++] = child;
+        child.parent = this;
+        child.setSampleInterval(this.metrics.getSampleInterval());
+    }
+
+    /**
+     * Stops running the given child manager. Does nothing if it is not a
+     * child of this manager.
+     *
+     * @param child manager to stop running
+     * @ass2
+     */
+    public void removeChild(TimedItemManager child) {
+        for (int i = 0; i < this.childCount; i++) {
+            if (this.children[i] == child) {
+                System.arraycopy(this.children, i + 1, this.children, i,
+                        this.childCount - i - 1);
+                this.children[--this.childCount] = null;
+                child.parent = null;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Returns the manager running this manager each minute.
+     *
+     * @return parent manager, or null if it has none
+     * @ass2
+     */
+    public TimedItemManager getParent() {
+        return this.parent;
+    }
+
+    /**
+     * Returns the topmost manager running this manager: the manager whose
+     * clock this manager's items follow. This is the manager itself if it
+     * has no parent, and the singleton for buildings run by it.
+     *
+     * @return topmost ancestor of this manager, or this manager
+     * @ass2
+     */
+    public TimedItemManager getRoot() {
+        TimedItemManager root = this;
+        while (root.parent != null) {
+            root = root.parent;
+        }
+        return root;
+    }
+
+    /**
+     * Returns the pool running children in parallel, or null if they are
+     * run sequentially.
+     *
+     * @return fork-join pool, or null
+     * @ass2
+     */
+    public ForkJoinPool getParallelPool() {
+        return this.pool;
+    }
+
+    /**
+     * Sets the pool used to run this manager's children in parallel, or
+     * null to run them sequentially.
+     *
+     * @param pool fork-join pool, or null
+     * @ass2
+     */
+    public void setParallelPool(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Returns the number of items run per item timed.
+     *
+     * @return sample interval, or zero if sampling is off
+     * @ass2
+     */
+    public int getSampleInterval() {
+        return this.metrics.getSampleInterval();
+    }
+
+    /**
+     * Sets the number of items run per item timed by this manager and its
+     * children, or zero to turn sampling off. While sampling is on, every
+     * minute run is also timed.
+     * <p>
+     * Metrics recorded so far are kept; see {@link #resetMetrics()}.
+     *
+     * @param interval sample interval, or zero to turn sampling off
+     * @throws IllegalArgumentException if interval is negative
+     * @ass2
+     */
+    public void setSampleInterval(int interval) {
+        if (interval < 0) {
+            throw new IllegalArgumentException(
+                    "Sample interval must not be negative");
+        }
+        this.metrics.setSampleInterval(interval);
+        for (int i = 0; i < this.childCount; i++) {
+            this.children[i].setSampleInterval(interval);
+        }
+    }
+
+    /**
+     * Returns the time taken by the items timed by this manager and its
+     * children, such as the items of a building.
+     *
+     * @return new histogram of item latencies, in nanoseconds
+     * @ass2
+     */
+    public LatencyHistogram getItemLatency() {
+        LatencyHistogram latency = new LatencyHistogram();
+        this.addItemLatencyTo(latency);
+        return latency;
+    }
+
+    /**
+     * Returns the time taken by the items timed by this manager and its
+     * children, by class of item.
+     *
+     * @return map from class of item to a new histogram of its latencies
+     * @ass2
+     */
+    public Map<Class<?>, LatencyHistogram> getClassLatencies() {
+        Map<Class<?>, LatencyHistogram> latencies = new HashMap<>();
+        this.addClassLatenciesTo(latencies);
+        return latencies;
+    }
+
+    /**
+     * Returns the time taken by each minute run by this manager while
+     * sampling, including the time taken to run its children.
+     *
+     * @return new histogram of minute durations, in nanoseconds
+     * @ass2
+     */
+    public LatencyHistogram getTickLatency() {
+        LatencyHistogram latency = new LatencyHistogram();
+        this.metrics.addTickLatencyTo(latency);
+        return latency;
+    }
+
+    /**
+     * Returns the number of items run by this manager and its children
+     * while sampling.
+     *
+     * @return number of items run
+     * @ass2
+     */
+    public long getItemsRun() {
+        long items = this.metrics.getItemsRun();
+        for (int i = 0; i < this.childCount; i++) {
+            items += this.children[i].getItemsRun();
+        }
+        return items;
     }
 
     /**
-     * Calls {@code elapseOneMinute()} on each registered timed item.
+     * Returns the number of items run by this manager and its children per
+     * second spent running minutes while sampling.
+     *
+     * @return items run per second, or zero if no minutes have been timed
+     * @ass2
+     */
+    public double getItemsRunPerSecond() {
+        long nanos = this.metrics.getTickNanos();
+        if (nanos == 0) {
+            return 0;
+        }
+        return this.getItemsRun() * 1e9 / nanos;
+    }
+
+    /**
+     * Discards the metrics recorded by this manager and its children.
+     * @ass2
+     */
+    public void resetMetrics() {
+        this.metrics.reset();
+        for (int i = 0; i < this.childCount; i++) {
+            this.children[i].resetMetrics();
+        }
+    }
+
+    /**
+     * Defers an update to shared state if called while children are being
+     * run in parallel. The action is run once every child has been run, in
+     * the order children and items would have run it sequentially.
+     * <p>
+     * Returns false, without deferring the action, outside the parallel
+     * phase of a minute; the caller should then apply the update itself.
+     *
+     * @param action update to defer
+     * @param subject object the update applies to
+     * @param argument integer argument of the update
+     * @return true if the action was deferred
+     * @ass2
+     */
+    public static boolean defer(DeferredAction action, Object subject,
+                                int argument) {
+        return ParallelTick.defer(action, subject, argument);
+    }
+
+    /**
+     * Returns whether updates to shared state made by the calling thread
+     * would currently be deferred, see
+     * {@link #defer(DeferredAction, Object, int)}.
+     * <p>
+     * Lets callers avoid building the subject of a deferred update when it
+     * would be applied straight away.
+     *
+     * @return true if called while children are being run in parallel
+     * @ass2
+     */
+    public static boolean isDeferring() {
+        return ParallelTick.isRunning();
+    }
+
+    /**
+     * Returns the number of minutes elapsed since the manager was created.
+     *
+     * @return current minute
+     * @ass2
+     */
+    public int getCurrentMinute() {
+        return this.minute;
+    }
+
+    /**
+     * Brings the given item up to the current minute of its manager and
+     * asks it again when it next changes.
+     * <p>
+     * Items must be woken whenever something outside them may bring their
+     * next change forward, before that change takes effect. Items also
+     * wake themselves to bring state that depends on the time elapsed up
+     * to date before it is read. If called while
+     * a minute is being run, the item is run for that minute too, if it has
+     * not been already. Does nothing if the item is not registered.
+     * <p>
+     * The item is woken by the manager it is registered with, whichever
+     * manager this method is called on.
+     *
+     * @param timedItem registered item to wake
+     * @ass2
+     */
+    public void wake(TimedItem timedItem) {
+        TimedItemManager owner = OWNERS.get(timedItem);
+        if (owner == null) {
+            return;
+        }
+        TimedItemManager child = ParallelTick.currentChild();
+        if (child != null && !owner.isRunBy(child)) {
+            // items of other children may be running on other threads
+            ParallelTick.defer(this.waker, timedItem, 0);
+            return;
+        }
+        int handle = owner.handles.get(timedItem);
+        owner.run(handle);
+        owner.schedule(handle);
+    }
+
+    /**
+     * Asks the manager of the given item to run it later in the minute
+     * being run, after the items already due, if it has not been run in
+     * that minute yet; otherwise, or if no minute is being run, the item
+     * is run at the start of the next minute. Does nothing if the item is
+     * not registered, or is already due by then.
+     * <p>
+     * Unlike {@link #wake(TimedItem)}, the item is not run straight away,
+     * so it sees the state left by the items run before it, such as every
+     * sensor of the minute.
+     *
+     * @param timedItem registered item to run
+     * @ass2
+     */
+    public void wakeLater(TimedItem timedItem) {
+        TimedItemManager owner = OWNERS.get(timedItem);
+        if (owner == null) {
+            return;
+        }
+        TimedItemManager child = ParallelTick.currentChild();
+        if (child != null && !owner.isRunBy(child)) {
+            ParallelTick.defer(this.lateWaker, timedItem, 0);
+            return;
+        }
+        int handle = owner.handles.get(timedItem);
+        int due = owner.minute + 1;
+        if (owner.ticking && owner.lastMinutes[handle] != owner.minute) {
+            due = owner.minute;
+        }
+        if (due - owner.dueMinutes[handle] < 0) {
+            owner.dueMinutes[handle] = due;
+            int node = SENTINELS + handle;
+            owner.unlink(node);
+            owner.link(node, owner.bucketOf(due));
+        }
+    }
+
+    /**
+     * Runs each child manager for one minute, then calls
+     * {@code elapseOneMinute()} on each registered timed item.
+     * <p>
+     * Only the items due this minute are woken, in order of registration.
+     * Items woken early by items run this minute are not run again.
      * @ass1
      */
     @Override
     public void elapseOneMinute() {
-        for (TimedItem timedItem : this.timedItems) {
-            timedItem.elapseOneMinute();
+        boolean sampling = this.metrics.isSampling();
+        long start = sampling ? System.nanoTime() : 0;
+        if (this.parent == null && !ParallelTick.isRunning()) {
+            disposeOrphans();
+        }
+        this.minute++;
+        this.ticking = true;
+        if (this.pool != null && this.childCount > 0
+                && !ParallelTick.isRunning()) {
+            if (this.parallelTick == null) {
+                this.parallelTick = new ParallelTick();
+            }
+            this.parallelTick.run(this.pool, this.children, this.childCount);
+        } else {
+            for (int i = 0; i < this.childCount; i++) {
+                this.children[i].elapseOneMinute();
+            }
+        }
+
+        for (int level = LEVELS - 1; level > 0; level--) {
+            if ((this.minute & ((1 << (level * LEVEL_BITS)) - 1)) == 0) {
+                this.cascade(level);
+            }
+        }
+        int bucket = this.minute & (LEVEL_SIZE - 1);
+        while (this.next[bucket] != bucket) {
+            for (int node = this.next[bucket]; node != bucket;
+                    node = this.next[node]) {
+                int handle = node - SENTINELS;
+                int phase = this.phases[handle];
+                int size = this.batchSizes[phase]++;
+                if (size == this.batches[phase].length) {
+                    this.batches[phase] =
+                            Arrays.copyOf(this.batches[phase], size * 2);
+                }
+                this.batches[phase][size] =
+                        ((long) this.sequences[handle] << 32) | handle;
+            }
+            for (int phase = 0; phase < PHASES.length; phase++) {
+                this.runPhase(phase);
+            }
+        }
+        this.ticking = false;
+        if (sampling) {
+            this.metrics.recordTick(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Runs the items of the given tick phase collected from the current
+     * bucket, in order of registration.
+     *
+     * @param phase ordinal of the tick phase to run
+     */
+    private void runPhase(int phase) {
+        long[] batch = this.batches[phase];
+        int size = this.batchSizes[phase];
+        this.batchSizes[phase] = 0;
+        Arrays.sort(batch, 0, size);
+        for (int i = 0; i < size; i++) {
+            int handle = (int) batch[i];
+            // items may be moved away by items run before them
+            if (this.timedItems[handle] != null
+                    && this.dueMinutes[handle] == this.minute) {
+                this.run(handle);
+                this.schedule(handle);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of minutes until an item of this manager or of
+     * one of its children is next due, or {@link Integer#MAX_VALUE} if no
+     * items are registered.
+     * <p>
+     * Finds the earliest non-empty bucket of the timing wheel, which takes
+     * at most one pass over the wheel's buckets per manager.
+     *
+     * @return minutes until the next item is due, at least one
+     * @ass2
+     */
+    @Override
+    public int getMinutesUntilNextChange() {
+        int delay = this.minutesUntilNextDue();
+        for (int i = 0; i < this.childCount; i++) {
+            delay = Math.min(delay,
+                    this.children[i].getMinutesUntilNextChange());
+        }
+        return delay;
+    }
+
+    /**
+     * Runs the given number of minutes, as if {@link #elapseOneMinute()}
+     * was called once per minute.
+     * <p>
+     * Minutes in which no item of this manager or of its children is due
+     * are skipped rather than run, so only the minutes in which something
+     * changes cost anything.
+     *
+     * @param minutes number of minutes to run
+     * @ass2
+     */
+    @Override
+    public void elapseMinutes(int minutes) {
+        while (minutes > 0) {
+            int idle = minutes == 1 ? 0 : Math.min(minutes,
+                    this.getMinutesUntilNextChange()) - 1;
+            if (idle > 0) {
+                this.skip(idle);
+                minutes -= idle;
+            }
+            this.elapseOneMinute();
+            minutes--;
+        }
+    }
+
+    /**
+     * Advances the clocks of this manager and its children by the given
+     * number of minutes, in which no item is due.
+     * <p>
+     * The coarser wheel buckets whose range begins in the skipped minutes
+     * are moved down, as they would have been one minute at a time.
+     *
+     * @param minutes number of minutes to skip
+     */
+    private void skip(int minutes) {
+        int from = this.minute;
+        this.minute += minutes;
+        for (int level = LEVELS - 1; level > 0; level--) {
+            int shift = level * LEVEL_BITS;
+            if ((from >>> shift) != (this.minute >>> shift)) {
+                this.cascade(level);
+            }
+        }
+        for (int i = 0; i < this.childCount; i++) {
+            this.children[i].skip(minutes);
+        }
+    }
+
+    /**
+     * Returns the number of minutes until the next item of this manager is
+     * due, not counting its children.
+     *
+     * @return minutes until the next item is due, or
+     * {@link Integer#MAX_VALUE} if no items are registered
+     */
+    private int minutesUntilNextDue() {
+        for (int level = 0; level < LEVELS; level++) {
+            int shift = level * LEVEL_BITS;
+            // items due later in the current bucket sit at finer levels
+            for (int index = ((this.minute >>> shift) & (LEVEL_SIZE - 1)) + 1;
+                    index < LEVEL_SIZE; index++) {
+                int bucket = level * LEVEL_SIZE + index;
+                if (this.next[bucket] != bucket) {
+                    int delay = Integer.MAX_VALUE;
+                    for (int node = this.next[bucket]; node != bucket;
+                            node = this.next[node]) {
+                        delay = Math.min(delay,
+                                this.dueMinutes[node - SENTINELS]
+                                        - this.minute);
+                    }
+                    return delay;
+                }
+            }
+        }
+        return Integer.MAX_VALUE;
+    }
+
+    /**
+     * Disposes of the managers whose owners have been garbage collected
+     * since this was last called.
+     */
+    private static void disposeOrphans() {
+        Reference<?> released;
+        while ((released = RELEASED.poll()) != null) {
+            TimedItemManager manager = ((OwnerReference) released).manager;
+            // managers may have been given another owner since
+            if (manager.owner == released) {
+                manager.dispose();
+            }
+        }
+    }
+
+    /**
+     * Returns the number of either live or orphaned items in this
+     * manager's subtree.
+     *
+     * @param orphaned whether to count orphaned rather than live items
+     * @param released whether an ancestor's owner has been collected
+     * @return number of items counted
+     */
+    private int countItems(boolean orphaned, boolean released) {
+        if (this.owner != null && this.owner.get() == null) {
+            released = true;
+        }
+        int count = released == orphaned ? this.handles.size() : 0;
+        for (int i = 0; i < this.childCount; i++) {
+            count += this.children[i].countItems(orphaned, released);
+        }
+        return count;
+    }
+
+    /**
+     * Returns whether this manager is the given manager or is run by it,
+     * directly or through other managers.
+     *
+     * @param manager possible ancestor
+     * @return true if this manager is in the given manager's subtree
+     */
+    private boolean isRunBy(TimedItemManager manager) {
+        for (TimedItemManager ancestor = this; ancestor != null;
+                ancestor = ancestor.parent) {
+            if (ancestor == manager) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Stops managing the given registered item, freeing its handle.
+     *
+     * @param timedItem registered item
+     */
+    private void remove(TimedItem timedItem) {
+        int handle = this.handles.remove(timedItem);
+        OWNERS.remove(timedItem);
+        this.unlink(SENTINELS + handle);
+        this.timedItems[handle] = null;
+        if (this.freeCount == this.freeHandles.length) {
+            this.freeHandles = Arrays.copyOf(this.freeHandles,
+                    Math.max(16, this.freeCount * 2));
+        }
+        this.freeHandles[this.freeCount++] = handle;
+    }
+
+    /**
+     * Doubles the number of handles available.
+     */
+    private void grow() {
+        int capacity = Math.max(16, this.timedItems.length * 2);
+        this.timedItems = Arrays.copyOf(this.timedItems, capacity);
+        this.sequences = Arrays.copyOf(this.sequences, capacity);
+        this.phases = Arrays.copyOf(this.phases, capacity);
+        this.dueMinutes = Arrays.copyOf(this.dueMinutes, capacity);
+        this.lastMinutes = Arrays.copyOf(this.lastMinutes, capacity);
+        this.next = Arrays.copyOf(this.next, SENTINELS + capacity);
+        this.previous = Arrays.copyOf(this.previous, SENTINELS + capacity);
+    }
+
+    /**
+     * Runs the item with the given handle for the minutes elapsed since it
+     * was last woken, if any.
+     *
+     * @param handle handle of the item
+     */
+    private void run(int handle) {
+        int minutes = this.minute - this.lastMinutes[handle];
+        if (minutes > 0) {
+            this.lastMinutes[handle] = this.minute;
+            if (this.metrics.isSampling()) {
+                this.metrics.runSampled(this.timedItems[handle], minutes);
+            } else {
+                this.timedItems[handle].elapseMinutes(minutes);
+            }
+        }
+    }
+
+    /**
+     * Adds the item latencies of this manager and its children to the
+     * given histogram.
+     *
+     * @param latency histogram to add to
+     */
+    private void addItemLatencyTo(LatencyHistogram latency) {
+        this.metrics.addItemLatencyTo(latency);
+        for (int i = 0; i < this.childCount; i++) {
+            this.children[i].addItemLatencyTo(latency);
+        }
+    }
+
+    /**
+     * Adds the item latencies by class of this manager and its children
+     * to the given map.
+     *
+     * @param latencies map from class of item to histogram to add to
+     */
+    private void addClassLatenciesTo(
+            Map<Class<?>, LatencyHistogram> latencies) {
+        this.metrics.addClassLatenciesTo(latencies);
+        for (int i = 0; i < this.childCount; i++) {
+            this.children[i].addClassLatenciesTo(latencies);
+        }
+    }
+
+    /**
+     * Places the item with the given handle in the bucket of the minute at
+     * which it next changes.
+     *
+     * @param handle handle of the item
+     */
+    private void schedule(int handle) {
+        int delay = Math.min(MAX_DELAY, Math.max(1,
+                this.timedItems[handle].getMinutesUntilNextChange()));
+        int due = this.lastMinutes[handle] + delay;
+        if (due - this.minute <= 0) {
+            due = this.minute + 1;
+        }
+        this.dueMinutes[handle] = due;
+        int node = SENTINELS + handle;
+        this.unlink(node);
+        this.link(node, this.bucketOf(due));
+    }
+
+    /**
+     * Moves the items in the current bucket of the given wheel level down
+     * to finer levels, now that the bucket's range has begun.
+     *
+     * @param level wheel level to cascade, at least one
+     */
+    private void cascade(int level) {
+        int bucket = level * LEVEL_SIZE
+                + ((this.minute >>> (level * LEVEL_BITS)) & (LEVEL_SIZE - 1));
+        int node = this.next[bucket];
+        while (node != bucket) {
+            int following = this.next[node];
+            this.unlink(node);
+            this.link(node, this.bucketOf(this.dueMinutes[node - SENTINELS]));
+            node = following;
+        }
+    }
+
+    /**
+     * Returns the bucket holding items due at the given minute: the bucket
+     * of the coarsest level at which the minute differs from the current
+     * one.
+     *
+     * @param due minute at which the item is due
+     * @return sentinel node of the bucket
+     */
+    private int bucketOf(int due) {
+        int difference = due ^ this.minute;
+        int level = 0;
+        while (level < LEVELS - 1
+                && (difference >>> ((level + 1) * LEVEL_BITS)) != 0) {
+            level++;
+        }
+        return level * LEVEL_SIZE
+                + ((due >>> (level * LEVEL_BITS)) & (LEVEL_SIZE - 1));
+    }
+
+    /**
+     * Removes a node from its bucket. Does nothing if it is in no bucket.
+     *
+     * @param node node to remove
+     */
+    private void unlink(int node) {
+        this.next[this.previous[node]] = this.next[node];
+        this.previous[this.next[node]] = this.previous[node];
+        this.next[node] = node;
+        this.previous[node] = node;
+    }
+
+    /**
+     * Adds a node to the end of the bucket with the given sentinel.
+     *
+     * @param node node to add
+     * @param sentinel sentinel of the bucket
+     */
+    private void link(int node, int sentinel) {
+        this.previous[node] = this.previous[sentinel];
+        this.next[node] = sentinel;
+        this.next[this.previous[sentinel]] = node;
+        this.previous[sentinel] = node;
+    }
+
+    /**
+     * Weak reference to the owner of a manager, queued once the owner has
+     * been garbage collected.
+     */
+    private static class OwnerReference extends WeakReference<Object> {
+        /**
+         * Manager owned by the referent
+         */
+        private final TimedItemManager manager;
+
+        /**
+         * Creates a reference to the given owner of the given manager.
+         *
+         * @param owner object owning the manager
+         * @param manager manager owned
+         */
+        private OwnerReference(Object owner, TimedItemManager manager) {
+            super(owner, RELEASED);
+            this.manager = manager;
         }
     }
 }
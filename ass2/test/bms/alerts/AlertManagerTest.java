@@ -0,0 +1,204 @@
+package bms.alerts;
+
+import bms.hazardevaluation.HazardMonitor;
+import bms.room.Room;
+import bms.room.RoomState;
+import bms.room.RoomType;
+import bms.util.TimedItemManager;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.InputStreamReader;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+public class AlertManagerTest {
+
+    private HazardMonitor monitor;
+    private AlertManager alerts;
+    private ListAlertSink list;
+    private Room room;
+
+    @Before
+    public void createManager() {
+        monitor = HazardMonitor.getInstance();
+        alerts = new AlertManager(monitor);
+        list = new ListAlertSink(10);
+        alerts.addSink(list, 10);
+        room = new Room(101, RoomType.OFFICE, 20);
+        room.setHazardEvaluator(() -> 0);
+        monitor.track(room);
+    }
+
+    @After
+    public void removeManager() {
+        monitor.untrack(room);
+        monitor.removeListener(alerts);
+        alerts.removeSink(list);
+        TimedItemManager.getInstance().unregisterTimedItem(alerts);
+    }
+
+    private void setHazardLevel(int level) {
+        room.setHazardEvaluator(() -> level);
+    }
+
+    private static void elapse(int minutes) {
+        for (int i = 0; i < minutes; i++) {
+            TimedItemManager.getInstance().elapseOneMinute();
+        }
+    }
+
+    @Test
+    public void raisedOnceDebounced() throws Exception {
+        HazardLevelRule rule = new HazardLevelRule(75, 10, 3);
+        alerts.addRule(rule);
+        setHazardLevel(80);
+        elapse(3);
+        Assert.assertFalse(alerts.isRaised(rule, room));
+        elapse(1);
+        Assert.assertTrue(alerts.isRaised(rule, room));
+        Assert.assertEquals(alerts.getAlertCount(), 1);
+
+        Assert.assertTrue(alerts.awaitDelivery(5000));
+        List<Alert> delivered = list.getAlerts();
+        Assert.assertEquals(delivered.size(), 1);
+        Assert.assertEquals(delivered.get(0).getStatus(), AlertStatus.RAISED);
+        Assert.assertEquals(delivered.get(0).getRoom(), room);
+        Assert.assertEquals(delivered.get(0).getHazardLevel(), 80);
+    }
+
+    @Test
+    public void briefSpikesAreIgnored() {
+        HazardLevelRule rule = new HazardLevelRule(75, 10, 3);
+        alerts.addRule(rule);
+        setHazardLevel(80);
+        elapse(2);
+        setHazardLevel(20);
+        elapse(5);
+        Assert.assertFalse(alerts.isRaised(rule, room));
+        Assert.assertEquals(alerts.getAlertCount(), 0);
+    }
+
+    @Test
+    public void clearedBeyondHysteresis() throws Exception {
+        HazardLevelRule rule = new HazardLevelRule(75, 10, 0);
+        alerts.addRule(rule);
+        setHazardLevel(80);
+        elapse(1);
+        Assert.assertTrue(alerts.isRaised(rule, room));
+
+        // within the hysteresis, the rule stays raised
+        setHazardLevel(70);
+        elapse(1);
+        Assert.assertTrue(alerts.isRaised(rule, room));
+        setHazardLevel(60);
+        elapse(1);
+        Assert.assertFalse(alerts.isRaised(rule, room));
+
+        Assert.assertTrue(alerts.awaitDelivery(5000));
+        List<Alert> delivered = list.getAlerts();
+        Assert.assertEquals(delivered.size(), 2);
+        Assert.assertEquals(delivered.get(1).getStatus(),
+                AlertStatus.CLEARED);
+        Assert.assertEquals(delivered.get(1).getHazardLevel(), 60);
+    }
+
+    @Test
+    public void evacuationRaisesAlert() {
+        RoomStateRule rule = new RoomStateRule(RoomState.EVACUATE, 0);
+        alerts.addRule(rule);
+        room.setFireDrill(true);
+        elapse(1);
+        Assert.assertTrue(alerts.isRaised(rule, room));
+        room.setFireDrill(false);
+        elapse(1);
+        Assert.assertFalse(alerts.isRaised(rule, room));
+        Assert.assertEquals(alerts.getAlertCount(), 2);
+    }
+
+    @Test
+    public void fullSinksDropAlerts() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AlertSink blocked = alert -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+        alerts.addSink(blocked, 1);
+        alerts.addRule(new HazardLevelRule(50, 0, 0));
+        for (int i = 0; i < 4; i++) {
+            setHazardLevel(i % 2 == 0 ? 80 : 10);
+            elapse(1);
+        }
+        Assert.assertEquals(alerts.getAlertCount(), 4);
+        Assert.assertTrue(alerts.getDroppedCount() >= 2);
+        release.countDown();
+        Assert.assertTrue(alerts.awaitDelivery(5000));
+        Assert.assertEquals(list.getAlerts().size(), 4);
+        alerts.removeSink(blocked);
+    }
+
+    @Test
+    public void faultySinksCountFailures() throws Exception {
+        AlertSink faulty = alert -> {
+            throw new IllegalStateException("sink broken");
+        };
+        alerts.addSink(faulty, 10);
+        alerts.addRule(new HazardLevelRule(50, 0, 0));
+        setHazardLevel(80);
+        elapse(1);
+        setHazardLevel(10);
+        elapse(1);
+        Assert.assertTrue(alerts.awaitDelivery(5000));
+        Assert.assertEquals(alerts.getFailedCount(), 2);
+        Assert.assertEquals(list.getAlerts().size(), 2);
+        alerts.removeSink(faulty);
+    }
+
+    @Test
+    public void logAndSocketSinks() throws Exception {
+        File log = File.createTempFile("alerts", ".log");
+        log.deleteOnExit();
+        LogFileAlertSink logSink = new LogFileAlertSink(log.getPath());
+        try (ServerSocket server = new ServerSocket(0, 1,
+                InetAddress.getLoopbackAddress())) {
+            server.setSoTimeout(5000);
+            SocketAlertSink socketSink =
+                    new SocketAlertSink(server.getLocalPort());
+            alerts.addSink(logSink, 10);
+            alerts.addSink(socketSink, 10);
+            alerts.addRule(new HazardLevelRule(50, 0, 0));
+            setHazardLevel(90);
+            elapse(1);
+
+            try (Socket client = server.accept();
+                 BufferedReader reader = new BufferedReader(
+                         new InputStreamReader(client.getInputStream(),
+                                 StandardCharsets.UTF_8))) {
+                Assert.assertEquals(reader.readLine(),
+                        "Alert: status=RAISED, rule=hazard>=50 for 0 "
+                                + "minutes, room=#101, minute="
+                                + list.getAlerts().get(0).getMinute()
+                                + ", hazard=90, state=OPEN");
+            }
+            Assert.assertTrue(alerts.awaitDelivery(5000));
+            List<String> lines = Files.readAllLines(log.toPath());
+            Assert.assertEquals(lines.size(), 1);
+            Assert.assertTrue(lines.get(0).startsWith(
+                    "Alert: status=RAISED, rule=hazard>=50"));
+            alerts.removeSink(logSink);
+            alerts.removeSink(socketSink);
+        }
+    }
+}
@@ -1,10 +1,12 @@
 package bms.building;
 
 import bms.exceptions.FileFormatException;
+import bms.floor.Floor;
 import bms.floor.MaintenanceSchedule;
 import bms.hazardevaluation.WeightingBasedHazardEvaluator;
 import bms.room.Room;
 import bms.room.RoomType;
+import bms.sensors.HazardSensor;
 import bms.sensors.CarbonDioxideSensor;
 import bms.sensors.NoiseSensor;
 import bms.sensors.OccupancySensor;
@@ -13,8 +15,11 @@ import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 public class BuildingInitialiserTest {
@@ -276,6 +281,40 @@ public class BuildingInitialiserTest {
         Assert.assertEquals(andrew.getFloorByNumber(1).getRooms().size(), 0);
     }
 
+    @Test
+    public void identicalWeightedSensors() throws Exception {
+        Building building = new Building("Twin");
+        Floor floor = new Floor(1, 10, 10);
+        building.addFloor(floor);
+        Room room = new Room(101, RoomType.OFFICE, 20);
+        floor.addRoom(room);
+        CarbonDioxideSensor first =
+                new CarbonDioxideSensor(new int[]{700, 900}, 2, 600, 200);
+        CarbonDioxideSensor second =
+                new CarbonDioxideSensor(new int[]{700, 900}, 2, 600, 200);
+        room.addSensor(first);
+        room.addSensor(second);
+        List<HazardSensor> sensors = Arrays.asList(first, second);
+        room.setHazardEvaluator(new WeightingBasedHazardEvaluator(
+                sensors, Arrays.asList(30, 70)));
+        Assert.assertTrue(room.encode().contains("@30"));
+        Assert.assertTrue(room.encode().contains("@70"));
+
+        File save = File.createTempFile("twin", ".txt");
+        save.deleteOnExit();
+        Files.writeString(save.toPath(), building.encode());
+        Building loaded = BuildingInitialiser.loadBuildings(
+                save.getPath()).get(0);
+        Room loadedRoom = loaded.getFloorByNumber(1).getRoomByNumber(101);
+        Assert.assertEquals(loadedRoom.getSensors().size(), 2);
+        Assert.assertEquals(((WeightingBasedHazardEvaluator)
+                loadedRoom.getHazardEvaluator()).getWeightings(),
+                Arrays.asList(30, 70));
+        Assert.assertEquals(loadedRoom.encode(), room.encode());
+        building.decommission();
+        loaded.decommission();
+    }
+
     @Test(expected = FileFormatException.class)
     public void testFloorNotEqualRead() throws IOException, FileFormatException {
         testBuildings = BuildingInitialiser.loadBuildings("saves/FloorNotEqual.txt");
@@ -397,11 +436,6 @@ public class BuildingInitialiserTest {
         testBuildings = BuildingInitialiser.loadBuildings("saves/RoomInvalidWeightEvaluatorWeights.txt");
     }
 
-    @Test(expected = FileFormatException.class)
-    public void testRoomDuplicateSensors() throws IOException, FileFormatException {
-        testBuildings = BuildingInitialiser.loadBuildings("saves/RoomDuplicateSensors.txt");
-    }
-
     @Test(expected = FileFormatException.class)
     public void testRoomWrongSensorType() throws IOException, FileFormatException {
         testBuildings = BuildingInitialiser.loadBuildings("saves/RoomWrongSensorType.txt");
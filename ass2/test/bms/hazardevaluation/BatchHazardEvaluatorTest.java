@@ -0,0 +1,153 @@
+package bms.hazardevaluation;
+
+import bms.exceptions.DuplicateSensorException;
+import bms.room.Room;
+import bms.room.RoomType;
+import bms.sensors.*;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+public class BatchHazardEvaluatorTest {
+
+    @Test
+    public void matchesEachRoom() throws DuplicateSensorException {
+        for (BatchHazardEvaluator batch : Arrays.asList(
+                new BatchHazardEvaluator(),
+                new BatchHazardEvaluator(BatchHazardEvaluator.SCALAR_KERNEL))) {
+            Random random = new Random(48);
+            List<Room> rooms = new ArrayList<>();
+            List<TimedSensor> sensors = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                Room room = new Room(100 + i, RoomType.STUDY, 40);
+                rooms.add(room);
+                addSensors(random, room, i, sensors);
+                batch.track(room);
+            }
+            Assert.assertEquals(batch.getTrackedCount(), 200);
+
+            int[] levels = new int[200];
+            for (int minute = 0; minute < 20; minute++) {
+                if (minute == 10) {
+                    // replaced and discarded evaluators are laid out again
+                    for (int i = 0; i < 200; i += 7) {
+                        Room room = rooms.get(i);
+                        room.setHazardEvaluator(new RuleBasedHazardEvaluator(
+                                room));
+                    }
+                    rooms.get(3).addSensor(new NoiseSensor(new int[] {99}, 1));
+                }
+                batch.evaluateAll(levels);
+                for (int i = 0; i < rooms.size(); i++) {
+                    Room room = rooms.get(i);
+                    HazardEvaluator evaluator = room.getHazardEvaluator();
+                    Assert.assertEquals(levels[i], evaluator == null ? 0
+                            : evaluator.evaluateHazardLevel());
+                }
+                for (TimedSensor sensor : sensors) {
+                    sensor.elapseOneMinute();
+                }
+            }
+        }
+    }
+
+    @Test
+    public void untrackMovesLastRoom() throws DuplicateSensorException {
+        BatchHazardEvaluator batch = new BatchHazardEvaluator();
+        Room quiet = new Room(101, RoomType.OFFICE, 20);
+        Room loud = new Room(102, RoomType.OFFICE, 20);
+        Room hot = new Room(103, RoomType.OFFICE, 20);
+        NoiseSensor noise = new NoiseSensor(new int[] {50}, 1);
+        TemperatureSensor temperature =
+                new TemperatureSensor(new int[] {90});
+        loud.addSensor(noise);
+        loud.setHazardEvaluator(new RuleBasedHazardEvaluator(loud));
+        hot.addSensor(temperature);
+        hot.setHazardEvaluator(new RuleBasedHazardEvaluator(hot));
+        batch.track(quiet);
+        batch.track(loud);
+        batch.track(hot);
+        batch.track(loud);
+        Assert.assertEquals(batch.getTrackedCount(), 3);
+
+        batch.untrack(quiet);
+        Assert.assertFalse(batch.isTracked(quiet));
+        Assert.assertEquals(batch.getTrackedRooms(), Arrays.asList(hot, loud));
+        int[] levels = new int[2];
+        batch.evaluateAll(levels);
+        Assert.assertEquals(levels[0], hot.getHazardLevel());
+        Assert.assertEquals(levels[1], loud.getHazardLevel());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void arrayTooShort() {
+        BatchHazardEvaluator batch = new BatchHazardEvaluator();
+        batch.track(new Room(101, RoomType.OFFICE, 20));
+        batch.evaluateAll(new int[0]);
+    }
+
+    private static void addSensors(Random random, Room room, int i,
+                                   List<TimedSensor> sensors)
+            throws DuplicateSensorException {
+        NoiseSensor noise = new NoiseSensor(readings(random, 30, 90),
+                1 + random.nextInt(3));
+        TemperatureSensor temperature = new TemperatureSensor(
+                readings(random, 18, 72));
+        OccupancySensor occupancy = new OccupancySensor(
+                readings(random, 0, 40), 1, 30);
+        CarbonDioxideSensor co2 = new CarbonDioxideSensor(
+                readings(random, 400, 2000), 1, 700, 300);
+        sensors.addAll(Arrays.asList(noise, temperature, occupancy, co2));
+        switch (i % 6) {
+            case 0:
+                for (Sensor sensor : Arrays.asList(noise, temperature,
+                        occupancy, co2)) {
+                    room.addSensor(sensor);
+                }
+                room.setHazardEvaluator(new RuleBasedHazardEvaluator(room));
+                break;
+            case 1:
+                Map<HazardSensor, Integer> weightings = new LinkedHashMap<>();
+                weightings.put(noise, 10);
+                weightings.put(co2, 55);
+                weightings.put(occupancy, 35);
+                room.addSensor(noise);
+                room.addSensor(co2);
+                room.addSensor(occupancy);
+                room.setHazardEvaluator(
+                        new WeightingBasedHazardEvaluator(weightings));
+                break;
+            case 2:
+                room.addSensor(occupancy);
+                room.setHazardEvaluator(new RuleBasedHazardEvaluator(room));
+                break;
+            case 3:
+                // occupancy is estimated from the room's CO2 readings
+                room.addSensor(co2);
+                room.addSensor(noise);
+                room.setHazardEvaluator(new RuleBasedHazardEvaluator(room));
+                break;
+            case 4:
+                room.addSensor(noise);
+                room.setHazardEvaluator(() -> noise.getHazardLevel() / 2);
+                break;
+            default:
+                // no evaluator
+                room.addSensor(temperature);
+        }
+    }
+
+    private static int[] readings(Random random, int min, int max) {
+        int[] readings = new int[5];
+        for (int i = 0; i < readings.length; i++) {
+            readings[i] = min + random.nextInt(max - min + 1);
+        }
+        return readings;
+    }
+}
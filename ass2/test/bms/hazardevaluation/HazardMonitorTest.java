@@ -0,0 +1,183 @@
+package bms.hazardevaluation;
+
+import bms.building.Building;
+import bms.floor.Floor;
+import bms.room.Room;
+import bms.room.RoomState;
+import bms.room.RoomType;
+import bms.sensors.HazardSensor;
+import bms.sensors.NoiseSensor;
+import bms.sensors.TemperatureSensor;
+import bms.util.TimedItemManager;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+public class HazardMonitorTest {
+
+    private HazardMonitor monitor;
+    private Building building;
+    private Room room;
+
+    @Before
+    public void createBuilding() throws Exception {
+        monitor = HazardMonitor.getInstance();
+        building = new Building("Monitored");
+        building.addFloor(new Floor(1, 10, 10));
+        room = new Room(101, RoomType.OFFICE, 20);
+        building.getFloorByNumber(1).addRoom(room);
+    }
+
+    @After
+    public void decommission() {
+        monitor.untrack(room);
+        building.decommission();
+    }
+
+    private void addTemperatureSensor(int[] readings) throws Exception {
+        TemperatureSensor sensor = new TemperatureSensor(readings);
+        room.addSensor(sensor);
+        List<HazardSensor> sensors = Arrays.asList(sensor);
+        room.setHazardEvaluator(new RuleBasedHazardEvaluator(sensors));
+    }
+
+    private static void elapse(int minutes) {
+        for (int i = 0; i < minutes; i++) {
+            TimedItemManager.getInstance().elapseOneMinute();
+        }
+    }
+
+    @Test
+    public void calmRoomsAreEvaluatedLessOften() throws Exception {
+        addTemperatureSensor(new int[] {20, 21, 22});
+        monitor.track(room);
+        long before = monitor.getEvaluationCount();
+        elapse(60);
+        Assert.assertEquals(monitor.getInterval(room), 15);
+        Assert.assertEquals(monitor.getEvaluationCount() - before, 4);
+        Assert.assertEquals(monitor.getHazardLevel(room), 0);
+        Assert.assertEquals(monitor.getRoomState(room), RoomState.OPEN);
+    }
+
+    @Test
+    public void crossingThresholdForcesRecheck() throws Exception {
+        addTemperatureSensor(new int[] {20, 20, 20, 20, 70});
+        monitor.track(room);
+        elapse(3);
+        Assert.assertEquals(monitor.getHazardLevel(room), 0);
+        elapse(1);
+        // re-evaluated in the same minute the sensor caught fire
+        Assert.assertEquals(monitor.getHazardLevel(room), 100);
+        Assert.assertEquals(monitor.getRoomState(room), RoomState.EVACUATE);
+        Assert.assertEquals(monitor.getInterval(room), 1);
+        elapse(1);
+        Assert.assertEquals(monitor.getHazardLevel(room), 0);
+        Assert.assertEquals(monitor.getRoomState(room), RoomState.OPEN);
+    }
+
+    @Test
+    public void fireDrillForcesRecheck() throws Exception {
+        addTemperatureSensor(new int[] {20});
+        monitor.track(room);
+        elapse(2);
+        room.setFireDrill(true);
+        elapse(1);
+        Assert.assertEquals(monitor.getRoomState(room), RoomState.EVACUATE);
+        room.setFireDrill(false);
+        elapse(1);
+        Assert.assertEquals(monitor.getRoomState(room), RoomState.OPEN);
+    }
+
+    @Test
+    public void addedThresholdsNarrowMargins() throws Exception {
+        addTemperatureSensor(new int[] {20});
+        monitor.track(room);
+        Assert.assertEquals(monitor.getInterval(room), 15);
+        HazardMonitor custom = new HazardMonitor();
+        custom.addThreshold(3);
+        custom.track(room);
+        Assert.assertEquals(custom.getInterval(room), 1);
+        Assert.assertEquals(custom.getThresholds()[0], 3);
+        custom.untrack(room);
+        TimedItemManager.getInstance().unregisterTimedItem(custom);
+    }
+
+    @Test
+    public void retrackingDoesNotDoubleCount() throws Exception {
+        // hazard level 12, then 20: within the margin of 13 to 25
+        NoiseSensor sensor = new NoiseSensor(new int[] {40, 47}, 1);
+        room.addSensor(sensor);
+        room.setHazardEvaluator(new RuleBasedHazardEvaluator(
+                Arrays.asList(sensor)));
+        monitor.track(room);
+        monitor.untrack(room);
+        monitor.track(room);
+        HazardMonitor other = new HazardMonitor();
+        other.track(room);
+        other.untrack(room);
+        Assert.assertEquals(room.getHazardMonitors(),
+                Arrays.asList(monitor));
+        long before = monitor.getEvaluationCount();
+        elapse(1);
+        Assert.assertEquals(monitor.getEvaluationCount(), before);
+        Assert.assertEquals(monitor.getInterval(room), 5);
+    }
+
+    @Test
+    public void levelsReadFromRoomCache() throws Exception {
+        NoiseSensor sensor = new NoiseSensor(new int[] {40, 47}, 1);
+        room.addSensor(sensor);
+        room.setHazardEvaluator(new RuleBasedHazardEvaluator(
+                Arrays.asList(sensor)));
+        monitor.track(room);
+        Assert.assertEquals(monitor.getHazardLevel(room), 12);
+        elapse(1);
+        // not re-evaluated yet, but the room's cache was invalidated
+        Assert.assertEquals(monitor.getInterval(room), 5);
+        Assert.assertEquals(monitor.getHazardLevel(room), 20);
+        Assert.assertEquals(monitor.getHazardLevel(room),
+                room.getHazardLevel());
+    }
+
+    @Test
+    public void decommissionUntracksRooms() throws Exception {
+        addTemperatureSensor(new int[] {20});
+        monitor.track(room);
+        building.decommission();
+        Assert.assertFalse(monitor.isTracked(room));
+        Assert.assertEquals(room.getHazardMonitors().size(), 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void untrackedRoomsHaveNoLevel() {
+        monitor.getHazardLevel(room);
+    }
+
+    @Test
+    public void soloBuildingEvaluatedOnItsOwnClock() throws Exception {
+        Building solo = new Building("Solo", null);
+        solo.addFloor(new Floor(1, 10, 10));
+        Room soloRoom = new Room(101, RoomType.OFFICE, 20);
+        solo.getFloorByNumber(1).addRoom(soloRoom);
+        HazardMonitor soloMonitor =
+                HazardMonitor.getInstance(soloRoom.getTimeManager());
+        Assert.assertNotSame(soloMonitor, monitor);
+        Assert.assertSame(HazardMonitor.getInstance(room.getTimeManager()),
+                monitor);
+
+        soloMonitor.track(soloRoom);
+        long evaluations = soloMonitor.getEvaluationCount();
+        soloRoom.setHazardEvaluator(() -> 80);
+        TimedItemManager.getInstance().elapseOneMinute();
+        Assert.assertEquals(soloMonitor.getEvaluationCount(), evaluations);
+        solo.getTimeManager().elapseOneMinute();
+        Assert.assertEquals(soloMonitor.getEvaluationCount(),
+                evaluations + 1);
+        solo.decommission();
+        Assert.assertFalse(soloMonitor.isTracked(soloRoom));
+    }
+}
@@ -0,0 +1,84 @@
+package bms.hazardevaluation;
+
+import bms.room.Room;
+import bms.room.RoomType;
+import bms.util.TimedItemManager;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class HazardRankingTest {
+
+    private HazardMonitor monitor;
+    private HazardRanking ranking;
+    private List<Room> rooms;
+
+    @Before
+    public void createRanking() {
+        monitor = HazardMonitor.getInstance();
+        rooms = new ArrayList<>();
+        int[] levels = {30, 90, 10, 90, 60};
+        for (int i = 0; i < levels.length; i++) {
+            Room room = new Room(101 + i, RoomType.OFFICE, 20);
+            int level = levels[i];
+            room.setHazardEvaluator(() -> level);
+            rooms.add(room);
+        }
+        // rooms tracked before the ranking is created are ranked too
+        monitor.track(rooms.get(0));
+        ranking = new HazardRanking(monitor);
+        for (Room room : rooms) {
+            monitor.track(room);
+        }
+    }
+
+    @After
+    public void untrackRooms() {
+        for (Room room : rooms) {
+            monitor.untrack(room);
+        }
+        monitor.removeListener(ranking);
+    }
+
+    @Test
+    public void highestLevelsFirst() {
+        Assert.assertEquals(ranking.getRankedCount(), 5);
+        Assert.assertEquals(ranking.getTopRooms(3), Arrays.asList(
+                rooms.get(1), rooms.get(3), rooms.get(4)));
+        Assert.assertEquals(ranking.getTopRooms(10).size(), 5);
+        Assert.assertEquals(ranking.getTopRooms(0), Collections.emptyList());
+        Assert.assertEquals(ranking.getRoomCount(90), 2);
+        Assert.assertEquals(ranking.getRoomCount(50), 0);
+    }
+
+    @Test
+    public void changedLevelsMoveRooms() {
+        rooms.get(2).setHazardEvaluator(() -> 95);
+        rooms.get(1).setHazardEvaluator(() -> 0);
+        TimedItemManager.getInstance().elapseOneMinute();
+        Assert.assertEquals(ranking.getTopRooms(3), Arrays.asList(
+                rooms.get(2), rooms.get(3), rooms.get(4)));
+        Assert.assertEquals(ranking.getTopRooms(5).get(4), rooms.get(1));
+        Assert.assertEquals(ranking.getRoomCount(90), 1);
+    }
+
+    @Test
+    public void untrackedRoomsLeave() {
+        monitor.untrack(rooms.get(1));
+        Assert.assertEquals(ranking.getRankedCount(), 4);
+        Assert.assertEquals(ranking.getTopRooms(1),
+                Collections.singletonList(rooms.get(3)));
+        Assert.assertEquals(ranking.getRoomCount(90), 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeCount() {
+        ranking.getTopRooms(-1);
+    }
+}
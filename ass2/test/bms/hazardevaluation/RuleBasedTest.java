@@ -1,5 +1,7 @@
 package bms.hazardevaluation;
 
+import bms.room.Room;
+import bms.room.RoomType;
 import bms.sensors.*;
 import org.junit.Assert;
 import org.junit.Test;
@@ -100,4 +102,59 @@ public class RuleBasedTest {
         Assert.assertEquals(hh.evaluateHazardLevel(), hazardLevel);
 
     }
+
+    @Test
+    public void evalHazardAsReadingsChange() {
+        NoiseSensor noiseSensor = new NoiseSensor(new int[]{52,42,53,56},2);
+        TemperatureSensor tempSensor = new TemperatureSensor(new int[]{22,24,70,23,21});
+        OccupancySensor occuSensor = new OccupancySensor(new int[]{10,20,0},1,30);
+        CarbonDioxideSensor carbonSensor = new CarbonDioxideSensor(new int[]{690,740}, 5, 700,150);
+        CarbonDioxideSensor otherCarbonSensor = new CarbonDioxideSensor(new int[]{800,600,900}, 1, 700,150);
+        sensorList = new ArrayList<>();
+        sensorList.add(carbonSensor);
+        sensorList.add(occuSensor);
+        sensorList.add(noiseSensor);
+        sensorList.add(otherCarbonSensor);
+        sensorList.add(tempSensor);
+        HazardEvaluator hh = new RuleBasedHazardEvaluator(sensorList);
+        for (int minute = 0; minute < 30; minute++) {
+            int carbonLevel = Math.max(carbonSensor.getHazardLevel(),
+                    otherCarbonSensor.getHazardLevel());
+            int hazardLevel = 100;
+            if (tempSensor.getHazardLevel() < 100 && carbonLevel < 100) {
+                hazardLevel = (int) Math.min(Math.floor(((noiseSensor.getHazardLevel() +
+                        tempSensor.getHazardLevel() +
+                        carbonLevel)/3.0) * occuSensor.getHazardLevel()/100.0), 100);
+            }
+            Assert.assertEquals(hh.evaluateHazardLevel(), hazardLevel);
+            for (HazardSensor sensor : sensorList) {
+                ((TimedSensor) sensor).elapseOneMinute();
+            }
+        }
+    }
+
+    @Test
+    public void evalHazardFromRoomAggregates() throws Exception {
+        Room room = new Room(101, RoomType.OFFICE, 20);
+        NoiseSensor noiseSensor = new NoiseSensor(new int[]{52,42,53,56},2);
+        CarbonDioxideSensor carbonSensor = new CarbonDioxideSensor(new int[]{690,740}, 5, 700,150);
+        CarbonDioxideSensor otherCarbonSensor = new CarbonDioxideSensor(new int[]{800,600,900}, 1, 700,150);
+        room.addSensor(noiseSensor);
+        room.addSensor(carbonSensor);
+        room.addSensor(otherCarbonSensor);
+        HazardEvaluator hh = new RuleBasedHazardEvaluator(room);
+        sensorList = new ArrayList<>();
+        sensorList.add(noiseSensor);
+        sensorList.add(carbonSensor);
+        sensorList.add(otherCarbonSensor);
+        HazardEvaluator listed = new RuleBasedHazardEvaluator(sensorList,
+                room.getOccupancyEstimator());
+        for (int minute = 0; minute < 10; minute++) {
+            Assert.assertEquals(hh.evaluateHazardLevel(),
+                    listed.evaluateHazardLevel());
+            noiseSensor.elapseOneMinute();
+            carbonSensor.elapseOneMinute();
+            otherCarbonSensor.elapseOneMinute();
+        }
+    }
 }
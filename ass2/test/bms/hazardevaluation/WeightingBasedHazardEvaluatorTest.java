@@ -1,6 +1,9 @@
 package bms.hazardevaluation;
 
+import bms.exceptions.DuplicateSensorException;
 import bms.exceptions.FileFormatException;
+import bms.room.Room;
+import bms.room.RoomType;
 import bms.sensors.*;
 import org.junit.Assert;
 import org.junit.Test;
@@ -104,4 +107,28 @@ public class WeightingBasedHazardEvaluatorTest {
         Assert.assertEquals(((WeightingBasedHazardEvaluator) hh).evaluateHazardLevel(), hazardLevel);
     }
 
+    @Test
+    public void weightingsFollowSensors() throws DuplicateSensorException {
+        map = new LinkedHashMap<>();
+        HazardSensor tempSensor = new TemperatureSensor(new int[]{52,42,53,56});
+        HazardSensor noiseSensor = new NoiseSensor(new int[]{52,42,53,56},2);
+        map.put(tempSensor, 70);
+        map.put(noiseSensor, 30);
+        WeightingBasedHazardEvaluator hh = new WeightingBasedHazardEvaluator(map);
+        Assert.assertEquals(hh.getWeightings(), Arrays.asList(70, 30));
+        Assert.assertEquals(hh.getWeighting(noiseSensor), 30);
+        Assert.assertEquals(hh.getWeighting(tempSensor), 70);
+        Assert.assertEquals(hh.getWeighting(
+                new NoiseSensor(new int[]{52,42,53,56},2)), 0);
+
+        // the room lists its noise sensor first, unlike the map
+        Room room = new Room(101, RoomType.STUDY, 20);
+        room.addSensor(tempSensor);
+        room.addSensor(noiseSensor);
+        room.setHazardEvaluator(hh);
+        String[] lines = room.encode().split(System.lineSeparator());
+        Assert.assertEquals(lines[1], ((NoiseSensor) noiseSensor).encode() + "@30");
+        Assert.assertEquals(lines[2], ((TemperatureSensor) tempSensor).encode() + "@70");
+    }
+
 }
@@ -0,0 +1,77 @@
+package bms.room;
+
+import bms.exceptions.DuplicateSensorException;
+import bms.hazardevaluation.RuleBasedHazardEvaluator;
+import bms.sensors.CarbonDioxideSensor;
+import bms.sensors.HazardSensor;
+import bms.sensors.OccupancySensor;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class OccupancyEstimatorTest {
+
+    @Test
+    public void calibrationConverges() {
+        OccupancyCalibration calibration = new OccupancyCalibration();
+        for (int i = 0; i < 200; i++) {
+            int co2 = 400 + (i % 20) * 100;
+            // 0.8 people per square metre per 1000ppm, in a 50m2 room
+            long occupancy = Math.round(0.8 * (co2 - 400) / 1000 * 50);
+            calibration.calibrate(co2, 0, occupancy, 40, 50);
+        }
+        Assert.assertEquals(calibration.getSampleCount(), 200);
+        Assert.assertEquals(calibration.estimateDensity(1400, 0), 0.8, 0.02);
+        Assert.assertEquals(calibration.getCapacityDensity(), 0.79, 0.01);
+        Assert.assertEquals(calibration.estimateDensity(300, 0), 0, 0.02);
+    }
+
+    @Test
+    public void measuredOccupancyWins() throws DuplicateSensorException {
+        Room room = new Room(101, RoomType.STUDY, 50);
+        room.addSensor(new CarbonDioxideSensor(new int[] {1500, 1600}, 1,
+                600, 400));
+        room.addSensor(new OccupancySensor(new int[] {12, 14}, 1, 30));
+        OccupancyEstimator estimator = room.getOccupancyEstimator();
+        Assert.assertTrue(estimator.isMeasured());
+        Assert.assertEquals(estimator.getEstimatedOccupancy(), 12);
+        Assert.assertEquals(estimator.getEstimatedCapacity(), 30);
+        Assert.assertEquals(estimator.getHazardLevel(), 40);
+    }
+
+    @Test
+    public void estimateFromCo2() throws DuplicateSensorException {
+        Room room = new Room(102, RoomType.STUDY, 50);
+        Assert.assertFalse(room.getOccupancyEstimator().isAvailable());
+        CarbonDioxideSensor sensor = new CarbonDioxideSensor(
+                new int[] {600, 800, 1000, 1200}, 1, 600, 400);
+        room.addSensor(sensor);
+        OccupancyEstimator estimator = room.getOccupancyEstimator();
+        Assert.assertTrue(estimator.isAvailable());
+        Assert.assertFalse(estimator.isMeasured());
+
+        int before = estimator.getEstimatedOccupancy();
+        sensor.elapseOneMinute();
+        sensor.elapseOneMinute();
+        Assert.assertTrue(estimator.getCo2Rate() > 0);
+        Assert.assertTrue(estimator.getEstimatedOccupancy() > before);
+    }
+
+    @Test
+    public void ruleBasedUsesEstimate() throws DuplicateSensorException {
+        Room room = new Room(103, RoomType.OFFICE, 50);
+        CarbonDioxideSensor sensor = new CarbonDioxideSensor(
+                new int[] {2500}, 1, 600, 400);
+        room.addSensor(sensor);
+        List<HazardSensor> sensors = new ArrayList<>();
+        sensors.add(sensor);
+        Assert.assertEquals(new RuleBasedHazardEvaluator(sensors)
+                .evaluateHazardLevel(), 50);
+        int expected = (int) Math.floor(
+                50 * room.getOccupancyEstimator().getHazardLevel() / 100.0);
+        Assert.assertEquals(new RuleBasedHazardEvaluator(sensors,
+                room.getOccupancyEstimator()).evaluateHazardLevel(), expected);
+    }
+}
@@ -0,0 +1,89 @@
+package bms.room;
+
+import bms.exceptions.DuplicateSensorException;
+import bms.hazardevaluation.RuleBasedHazardEvaluator;
+import bms.sensors.HazardSensor;
+import bms.sensors.NoiseSensor;
+import bms.sensors.TemperatureSensor;
+import bms.util.TimedItemManager;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+public class RoomTest {
+
+    private Room room;
+    private NoiseSensor noise;
+    private int evaluations;
+
+    @Before
+    public void createRoom() throws DuplicateSensorException {
+        room = new Room(101, RoomType.OFFICE, 30);
+        noise = new NoiseSensor(new int[] {50, 50, 70}, 1);
+        room.addSensor(noise);
+        evaluations = 0;
+        room.setHazardEvaluator(() -> {
+            evaluations++;
+            return noise.getHazardLevel();
+        });
+    }
+
+    @Test
+    public void hazardLevelIsCached() {
+        int level = room.getHazardLevel();
+        Assert.assertEquals(room.getHazardLevel(), level);
+        Assert.assertEquals(room.getHazardLevel(), level);
+        Assert.assertEquals(evaluations, 1);
+    }
+
+    @Test
+    public void changedReadingRecalculates() {
+        room.getHazardLevel();
+        // the reading stays at 50
+        noise.elapseOneMinute();
+        room.getHazardLevel();
+        Assert.assertEquals(evaluations, 1);
+
+        noise.elapseOneMinute();
+        Assert.assertEquals(room.getHazardLevel(), noise.getHazardLevel());
+        Assert.assertEquals(evaluations, 2);
+    }
+
+    @Test
+    public void replacedEvaluatorRecalculates()
+            throws DuplicateSensorException {
+        room.getHazardLevel();
+        room.setHazardEvaluator(() -> 42);
+        Assert.assertEquals(room.getHazardLevel(), 42);
+
+        // adding a sensor removes the room's evaluator
+        TemperatureSensor temperature =
+                new TemperatureSensor(new int[] {70});
+        room.addSensor(temperature);
+        Assert.assertEquals(room.getHazardLevel(), 0);
+
+        List<HazardSensor> sensors = Arrays.asList(noise, temperature);
+        room.setHazardEvaluator(new RuleBasedHazardEvaluator(sensors));
+        Assert.assertEquals(room.getHazardLevel(), 100);
+    }
+
+    @Test
+    public void sensorsRegisteredByRoom() throws DuplicateSensorException {
+        // sensors start with the singleton, as do rooms with no manager
+        Assert.assertSame(TimedItemManager.getManager(noise),
+                TimedItemManager.getInstance());
+        TemperatureSensor loose = new TemperatureSensor(new int[] {20});
+        Assert.assertSame(TimedItemManager.getManager(loose),
+                TimedItemManager.getInstance());
+
+        TimedItemManager building = new TimedItemManager();
+        room.setTimeManager(building);
+        room.addSensor(loose);
+        Assert.assertSame(TimedItemManager.getManager(noise), building);
+        Assert.assertSame(TimedItemManager.getManager(loose), building);
+        building.dispose();
+    }
+}
@@ -0,0 +1,78 @@
+package bms.sensors;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+
+public class AnomalyMonitorTest {
+
+    private AnomalyMonitor monitor;
+
+    @Before
+    public void createMonitor() {
+        monitor = new AnomalyMonitor(3);
+    }
+
+    @Test
+    public void deviationAfterWarmUp() {
+        int[] readings = new int[30];
+        for (int i = 0; i < readings.length; i++) {
+            readings[i] = 40 + i % 3;
+        }
+        readings[25] = 90;
+        NoiseSensor sensor = new NoiseSensor(readings, 1);
+        monitor.setRateLimit(SensorKind.NOISE, 100);
+        monitor.monitor(sensor);
+        for (int i = 0; i < 25; i++) {
+            sensor.elapseOneMinute();
+        }
+        List<AnomalyEvent> events = monitor.drain();
+        Assert.assertEquals(events.size(), 1);
+        Assert.assertEquals(events.get(0).getType(), AnomalyType.DEVIATION);
+        Assert.assertEquals(events.get(0).getReading(), 90);
+        Assert.assertEquals(events.get(0).getMinute(), 25);
+        Assert.assertSame(events.get(0).getSensor(), sensor);
+        Assert.assertEquals(monitor.getPendingCount(), 0);
+    }
+
+    @Test
+    public void rateOfChange() {
+        TemperatureSensor sensor = new TemperatureSensor(
+                new int[] {21, 22, 40, 41});
+        monitor.monitor(sensor);
+        sensor.elapseOneMinute();
+        Assert.assertNull(monitor.poll());
+        sensor.elapseOneMinute();
+        AnomalyEvent event = monitor.poll();
+        Assert.assertEquals(event.getType(), AnomalyType.RATE_OF_CHANGE);
+        Assert.assertEquals(event.getScore(), 18, 0.001);
+    }
+
+    @Test
+    public void boundedQueueDropsOldest() {
+        TemperatureSensor sensor = new TemperatureSensor(new int[] {20, 60});
+        monitor.monitor(sensor);
+        for (int i = 0; i < 5; i++) {
+            sensor.elapseOneMinute();
+        }
+        Assert.assertEquals(monitor.getPendingCount(), 3);
+        Assert.assertEquals(monitor.getDroppedCount(), 2);
+        Assert.assertEquals(monitor.poll().getMinute(), 3);
+    }
+
+    @Test
+    public void retiredSensorsForgotten() {
+        TemperatureSensor retired = new TemperatureSensor(new int[] {20, 60});
+        TemperatureSensor kept = new TemperatureSensor(new int[] {20, 60});
+        monitor.monitor(retired);
+        monitor.monitor(kept);
+        retired.elapseOneMinute();
+        kept.elapseOneMinute();
+        Assert.assertEquals(monitor.getPendingCount(), 2);
+        retired.unregistered();
+        Assert.assertEquals(monitor.getPendingCount(), 1);
+        Assert.assertSame(monitor.poll().getSensor(), kept);
+    }
+}
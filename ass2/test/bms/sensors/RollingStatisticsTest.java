@@ -0,0 +1,97 @@
+package bms.sensors;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class RollingStatisticsTest {
+
+    @Test
+    public void emptyWindow() {
+        RollingStatistics statistics = new RollingStatistics(15);
+        Assert.assertEquals(statistics.getCount(), 0);
+        Assert.assertEquals(statistics.getMin(), 0);
+        Assert.assertEquals(statistics.getMax(), 0);
+        Assert.assertEquals(statistics.getMean(), 0, 0.001);
+        Assert.assertEquals(statistics.getVariance(), 0, 0.001);
+    }
+
+    @Test
+    public void partialWindow() {
+        RollingStatistics statistics = new RollingStatistics(15);
+        statistics.add(690, 1);
+        statistics.add(740, 1);
+        Assert.assertEquals(statistics.getCount(), 2);
+        Assert.assertEquals(statistics.getMin(), 690);
+        Assert.assertEquals(statistics.getMax(), 740);
+        Assert.assertEquals(statistics.getMean(), 715, 0.001);
+        Assert.assertEquals(statistics.getVariance(), 625, 0.001);
+    }
+
+    @Test
+    public void oldReadingsLeaveWindow() {
+        RollingStatistics statistics = new RollingStatistics(3);
+        statistics.add(100, 1);
+        statistics.add(5, 1);
+        statistics.add(7, 1);
+        Assert.assertEquals(statistics.getMax(), 100);
+        statistics.add(6, 1);
+        Assert.assertEquals(statistics.getCount(), 3);
+        Assert.assertEquals(statistics.getMax(), 7);
+        Assert.assertEquals(statistics.getMin(), 5);
+        Assert.assertEquals(statistics.getMean(), 6, 0.001);
+    }
+
+    @Test
+    public void repeatedReadings() {
+        RollingStatistics statistics = new RollingStatistics(10);
+        statistics.add(1, 4);
+        statistics.add(9, 8);
+        Assert.assertEquals(statistics.getCount(), 10);
+        Assert.assertEquals(statistics.getMin(), 1);
+        Assert.assertEquals(statistics.getMean(), (2 + 72) / 10.0, 0.001);
+        statistics.add(3, 20);
+        Assert.assertEquals(statistics.getMin(), 3);
+        Assert.assertEquals(statistics.getMax(), 3);
+        Assert.assertEquals(statistics.getVariance(), 0, 0.001);
+    }
+
+    @Test
+    public void sensorTracksReadings() {
+        TimedSensor sensor = new NoiseSensor(new int[]{52, 42, 53, 56}, 2);
+        for (int i = 0; i < 8; i++) {
+            sensor.elapseOneMinute();
+        }
+        RollingStatistics statistics =
+                sensor.getStatistics(StatisticsWindow.FIFTEEN_MINUTES);
+        Assert.assertEquals(statistics.getCount(), 9);
+        Assert.assertEquals(statistics.getMin(), 42);
+        Assert.assertEquals(statistics.getMax(), 56);
+        Assert.assertEquals(statistics.getMean(),
+                (52 * 3 + 42 * 2 + 53 * 2 + 56 * 2) / 9.0, 0.001);
+    }
+
+    @Test
+    public void sensorCatchesUpOnRead() {
+        int[] readings = {52, 42, 53, 56, 41};
+        TimedSensor sensor = new NoiseSensor(readings, 3);
+        RollingStatistics expected = new RollingStatistics(60);
+        expected.add(readings[0], 1);
+        int minute = 0;
+        for (int span : new int[] {1, 4, 14, 59, 60, 61, 700}) {
+            sensor.elapseMinutes(span);
+            for (int i = 0; i < span; i++) {
+                minute++;
+                expected.add(readings[minute % 15 / 3], 1);
+            }
+            RollingStatistics statistics =
+                    sensor.getStatistics(StatisticsWindow.ONE_HOUR);
+            Assert.assertEquals(statistics.toString(), expected.toString());
+            Assert.assertEquals(statistics.getCount(), expected.getCount());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidWindow() {
+        new RollingStatistics(0);
+    }
+}
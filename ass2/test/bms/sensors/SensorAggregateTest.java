@@ -0,0 +1,108 @@
+package bms.sensors;
+
+import bms.exceptions.DuplicateSensorException;
+import bms.room.Room;
+import bms.room.RoomType;
+import bms.util.QuantileSketch;
+import bms.util.ReadingDistributions;
+import bms.util.TimedItemManager;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SensorAggregateTest {
+
+    private Room room;
+    private CarbonDioxideSensor front;
+    private CarbonDioxideSensor back;
+    private OccupancySensor door;
+    private OccupancySensor stage;
+
+    @Before
+    public void createRoom() throws DuplicateSensorException {
+        room = new Room(101, RoomType.LABORATORY, 100);
+        front = new CarbonDioxideSensor(new int[] {800, 2500, 900}, 1, 600,
+                300);
+        back = new CarbonDioxideSensor(new int[] {1200, 1100, 6000}, 1, 600,
+                300);
+        door = new OccupancySensor(new int[] {10, 20, 5}, 1, 40);
+        stage = new OccupancySensor(new int[] {2, 30, 3}, 1, 40);
+        room.addSensor(front);
+        room.addSensor(back);
+        room.addSensor(door);
+        room.addSensor(stage);
+    }
+
+    @Test
+    public void multipleSensorsPerKind() {
+        Assert.assertEquals(room.getSensors().size(), 4);
+        Assert.assertSame(room.getSensor(SensorKind.CO2), front);
+        Assert.assertSame(room.getSensors().get(1), back);
+        Assert.assertEquals(room.getAggregate(SensorKind.CO2).getCount(), 2);
+        Assert.assertNull(room.getAggregate(SensorKind.NOISE));
+    }
+
+    @Test(expected = DuplicateSensorException.class)
+    public void sameSensorTwice() throws DuplicateSensorException {
+        room.addSensor(front);
+    }
+
+    @Test
+    public void aggregatesFollowReadings() {
+        SensorAggregate co2 = room.getAggregate(SensorKind.CO2);
+        SensorAggregate occupancy = room.getAggregate(SensorKind.OCCUPANCY);
+        Assert.assertEquals(co2.getMaxReading(), 1200);
+        Assert.assertEquals(co2.getMeanReading(), 1000, 0.001);
+        Assert.assertEquals(co2.getHazardLevel(), 25);
+        Assert.assertEquals(occupancy.getReadingSum(), 12);
+        Assert.assertEquals(occupancy.getCapacitySum(), 80);
+        Assert.assertEquals(occupancy.getHazardLevel(), 15);
+
+        front.elapseOneMinute();
+        back.elapseOneMinute();
+        door.elapseOneMinute();
+        stage.elapseOneMinute();
+        Assert.assertEquals(co2.getMaxReading(), 2500);
+        Assert.assertEquals(co2.getHazardLevel(), 50);
+        Assert.assertEquals(occupancy.getReadingSum(), 50);
+        Assert.assertEquals(occupancy.getHazardLevel(), 63);
+
+        front.elapseOneMinute();
+        back.elapseOneMinute();
+        door.elapseOneMinute();
+        stage.elapseOneMinute();
+        Assert.assertEquals(co2.getMaxReading(), 6000);
+        Assert.assertEquals(co2.getHazardLevel(), 100);
+        Assert.assertEquals(occupancy.getReadingSum(), 8);
+
+        front.elapseOneMinute();
+        back.elapseOneMinute();
+        Assert.assertEquals(co2.getMaxReading(), 1200);
+        Assert.assertEquals(co2.getHazardLevel(), 25);
+    }
+
+    @Test
+    public void retiredSensorsLeave() {
+        QuantileSketch sketch = ReadingDistributions.getInstance().getSketch(
+                CarbonDioxideSensor.class, RoomType.LABORATORY);
+        int counted = sketch.getCount();
+        TimedItemManager building = new TimedItemManager();
+        room.setTimeManager(building);
+        building.unregisterTimedItem(front);
+        SensorAggregate co2 = room.getAggregate(SensorKind.CO2);
+        Assert.assertEquals(co2.getCount(), 1);
+        Assert.assertEquals(co2.getReadingSum(), 1200);
+        Assert.assertEquals(co2.getMaxReading(), 1200);
+        Assert.assertEquals(sketch.getCount(), counted - 1);
+
+        // the remaining sensor is still followed at its new position
+        back.elapseOneMinute();
+        Assert.assertEquals(co2.getMaxReading(), 1100);
+        building.dispose();
+        Assert.assertNull(room.getAggregate(SensorKind.CO2));
+        Assert.assertNull(room.getAggregate(SensorKind.OCCUPANCY));
+        Assert.assertEquals(sketch.getCount(), counted - 2);
+        Assert.assertEquals(room.getOccupancyEstimator().getHazardLevel(),
+                0);
+    }
+}
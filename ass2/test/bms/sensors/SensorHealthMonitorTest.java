@@ -0,0 +1,167 @@
+package bms.sensors;
+
+import bms.building.Building;
+import bms.exceptions.DuplicateSensorException;
+import bms.floor.Floor;
+import bms.room.Room;
+import bms.room.RoomState;
+import bms.room.RoomType;
+import bms.util.TimedItemManager;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+public class SensorHealthMonitorTest {
+
+    private SensorHealthMonitor monitor;
+    private NoiseSensor fast;
+    private NoiseSensor slow;
+
+    @Before
+    public void createMonitor() {
+        monitor = new SensorHealthMonitor(2.0);
+        fast = new NoiseSensor(new int[] {40, 50, 60}, 1);
+        slow = new NoiseSensor(new int[] {35, 45}, 5);
+        monitor.track(fast);
+        monitor.track(slow);
+    }
+
+    @Test
+    public void updatingSensorsStayFresh() {
+        for (int i = 0; i < 200; i++) {
+            monitor.elapseOneMinute();
+            fast.elapseOneMinute();
+            slow.elapseOneMinute();
+        }
+        Assert.assertEquals(monitor.getStaleCount(), 0);
+        Assert.assertFalse(monitor.isStale(fast));
+        Assert.assertEquals(monitor.getLastUpdate(fast), 200);
+    }
+
+    @Test
+    public void quietSensorsGoStale() {
+        // fast allows 2 minutes without an update, slow allows 10
+        for (int i = 0; i < 3; i++) {
+            monitor.elapseOneMinute();
+        }
+        Assert.assertTrue(monitor.isStale(fast));
+        Assert.assertFalse(monitor.isStale(slow));
+        Assert.assertEquals(monitor.getStaleSensors(), Arrays.asList(fast));
+
+        for (int i = 3; i < 11; i++) {
+            monitor.elapseOneMinute();
+        }
+        Assert.assertEquals(monitor.getStaleCount(), 2);
+        Assert.assertEquals(monitor.getStaleSensors(),
+                Arrays.asList(fast, slow));
+    }
+
+    @Test
+    public void externalUpdateRevivesSensor() {
+        for (int i = 0; i < 5; i++) {
+            monitor.elapseOneMinute();
+        }
+        Assert.assertTrue(monitor.isStale(fast));
+        monitor.recordUpdate(fast);
+        Assert.assertFalse(monitor.isStale(fast));
+        Assert.assertEquals(monitor.getStaleCount(), 0);
+        Assert.assertEquals(monitor.getLastUpdate(fast), 5);
+
+        monitor.elapseOneMinute();
+        monitor.elapseOneMinute();
+        Assert.assertFalse(monitor.isStale(fast));
+        monitor.elapseOneMinute();
+        Assert.assertTrue(monitor.isStale(fast));
+    }
+
+    @Test
+    public void untrackedSensorsAreNeverStale() {
+        NoiseSensor other = new NoiseSensor(new int[] {30}, 1);
+        for (int i = 0; i < 100; i++) {
+            monitor.elapseOneMinute();
+        }
+        Assert.assertFalse(monitor.isStale(other));
+    }
+
+    @Test
+    public void untrackedSensorsAreForgotten() {
+        for (int i = 0; i < 3; i++) {
+            monitor.elapseOneMinute();
+        }
+        Assert.assertEquals(monitor.getStaleCount(), 1);
+        monitor.untrack(fast);
+        Assert.assertEquals(monitor.getStaleCount(), 0);
+        Assert.assertEquals(monitor.getTrackedCount(), 1);
+        Assert.assertFalse(monitor.isStale(fast));
+
+        NoiseSensor other = new NoiseSensor(new int[] {30}, 1);
+        monitor.track(other);
+        for (int i = 0; i < 3; i++) {
+            monitor.elapseOneMinute();
+        }
+        Assert.assertEquals(monitor.getStaleSensors(), Arrays.asList(other));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void recordUntrackedSensor() {
+        monitor.recordUpdate(new NoiseSensor(new int[] {30}, 1));
+    }
+
+    @Test
+    public void roomWithStaleSensorIsInError()
+            throws DuplicateSensorException {
+        Room room = new Room(101, RoomType.OFFICE, 30);
+        NoiseSensor sensor = new NoiseSensor(new int[] {40}, 1);
+        room.addSensor(sensor);
+        SensorHealthMonitor health = SensorHealthMonitor.getInstance();
+        health.elapseOneMinute();
+        sensor.elapseOneMinute();
+        Assert.assertEquals(room.evaluateRoomState(), RoomState.OPEN);
+
+        for (int i = 0; i < 3; i++) {
+            health.elapseOneMinute();
+        }
+        Assert.assertEquals(room.evaluateRoomState(), RoomState.ERROR);
+        room.setFireDrill(true);
+        Assert.assertEquals(room.evaluateRoomState(), RoomState.EVACUATE);
+        room.setFireDrill(false);
+
+        health.recordUpdate(sensor);
+        Assert.assertEquals(room.evaluateRoomState(), RoomState.OPEN);
+    }
+
+    @Test
+    public void soloBuildingFollowsItsOwnClock() throws Exception {
+        Building solo = new Building("Solo", null);
+        Floor floor = new Floor(1, 10, 10);
+        solo.addFloor(floor);
+        Room room = new Room(101, RoomType.OFFICE, 30);
+        NoiseSensor sensor = new NoiseSensor(new int[] {40}, 1);
+        room.addSensor(sensor);
+        floor.addRoom(room);
+        SensorHealthMonitor health =
+                SensorHealthMonitor.getInstance(solo.getTimeManager());
+        Assert.assertNotSame(health, SensorHealthMonitor.getInstance());
+        Assert.assertEquals(health.getTrackedCount(), 1);
+
+        // the singleton's clock does not make the building's sensors stale
+        for (int i = 0; i < 5; i++) {
+            TimedItemManager.getInstance().elapseOneMinute();
+        }
+        Assert.assertEquals(room.evaluateRoomState(), RoomState.OPEN);
+
+        // a sensor no longer run by the building goes stale on its clock
+        TimedItemManager paused = new TimedItemManager();
+        paused.registerTimedItem(sensor);
+        for (int i = 0; i < 2; i++) {
+            solo.getTimeManager().elapseOneMinute();
+            Assert.assertEquals(room.evaluateRoomState(), RoomState.OPEN);
+        }
+        solo.getTimeManager().elapseOneMinute();
+        Assert.assertEquals(room.evaluateRoomState(), RoomState.ERROR);
+        paused.dispose();
+        solo.decommission();
+    }
+}
@@ -0,0 +1,155 @@
+package bms.sensors;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+
+public class SensorHistoryTest {
+
+    private HistoryBudget budget;
+
+    @Before
+    public void createBudget() {
+        budget = new HistoryBudget(50);
+        budget.setRetention(HistoryTier.MINUTE, 30);
+        budget.setRetention(HistoryTier.FIFTEEN_MINUTES, 3);
+    }
+
+    @Test
+    public void rawRetention() {
+        SensorHistory history = new SensorHistory(budget);
+        for (int i = 0; i < 100; i++) {
+            history.record(i);
+        }
+        List<HistoryBucket> raw = history.getBuckets(HistoryTier.MINUTE);
+        Assert.assertEquals(raw.size(), 30);
+        Assert.assertEquals(raw.get(0).getStartMinute(), 70);
+        Assert.assertEquals(raw.get(29).getMin(), 99);
+        Assert.assertEquals(history.getMinutesRecorded(), 100);
+    }
+
+    @Test
+    public void budgetEvictsOldestRawReadings() {
+        SensorHistory first = new SensorHistory(budget);
+        SensorHistory second = new SensorHistory(budget);
+        for (int i = 0; i < 25; i++) {
+            first.record(i);
+        }
+        for (int i = 0; i < 30; i++) {
+            second.record(i);
+        }
+        Assert.assertEquals(budget.getRawReadingCount(), 50);
+        Assert.assertEquals(first.getBuckets(HistoryTier.MINUTE).size(), 20);
+        Assert.assertEquals(first.getBuckets(HistoryTier.MINUTE).get(0)
+                .getStartMinute(), 5);
+        Assert.assertEquals(second.getBuckets(HistoryTier.MINUTE).size(), 30);
+    }
+
+    @Test
+    public void catchUpOnlyChargesStoredReadings() {
+        SensorHistory everyMinute = new SensorHistory(budget);
+        SensorHistory caughtUp = new SensorHistory(budget);
+        for (int i = 0; i < 40; i++) {
+            everyMinute.record(i);
+        }
+        // a long gap, of which only the retention is kept and counted
+        caughtUp.record(new ReadingCycle(new int[] {1, 2, 3}, 1), 100000);
+        Assert.assertEquals(budget.getRawReadingCount(), 50);
+        Assert.assertEquals(caughtUp.getBuckets(HistoryTier.MINUTE).size(),
+                30);
+        List<HistoryBucket> raw = everyMinute.getBuckets(HistoryTier.MINUTE);
+        Assert.assertEquals(raw.size(), 20);
+        Assert.assertEquals(raw.get(0).getStartMinute(), 20);
+    }
+
+    @Test
+    public void rollupsSurviveRawEviction() {
+        SensorHistory history = new SensorHistory(budget);
+        for (int i = 0; i < 100; i++) {
+            history.record(i);
+        }
+        List<HistoryBucket> quarters =
+                history.getBuckets(HistoryTier.FIFTEEN_MINUTES);
+        Assert.assertEquals(quarters.size(), 3);
+        Assert.assertEquals(quarters.get(0).getStartMinute(), 60);
+        Assert.assertEquals(quarters.get(0).getMin(), 60);
+        Assert.assertEquals(quarters.get(0).getMax(), 74);
+        Assert.assertEquals(quarters.get(2).getCount(), 10);
+
+        List<HistoryBucket> hours = history.getBuckets(HistoryTier.HOUR);
+        Assert.assertEquals(hours.size(), 2);
+        Assert.assertEquals(hours.get(0).getAverage(), 29.5, 0.001);
+        Assert.assertEquals(hours.get(0).getCount(), 60);
+        Assert.assertEquals(hours.get(1).getCount(), 40);
+    }
+
+    @Test
+    public void bulkRecordingMatchesMinuteByMinute() {
+        HistoryBudget bulkBudget = new HistoryBudget(50);
+        bulkBudget.setRetention(HistoryTier.MINUTE, 30);
+        bulkBudget.setRetention(HistoryTier.FIFTEEN_MINUTES, 3);
+        SensorHistory single = new SensorHistory(budget);
+        SensorHistory other = new SensorHistory(budget);
+        SensorHistory bulk = new SensorHistory(bulkBudget);
+        SensorHistory bulkOther = new SensorHistory(bulkBudget);
+        int[] readings = {4, 9, 2, 7};
+        int[] durations = {3, 40, 1, 17};
+        for (int i = 0; i < readings.length; i++) {
+            for (int j = 0; j < durations[i]; j++) {
+                single.record(readings[i]);
+            }
+            other.record(i);
+            bulk.record(readings[i], durations[i]);
+            bulkOther.record(i, 1);
+        }
+        Assert.assertEquals(bulkBudget.getRawReadingCount(),
+                budget.getRawReadingCount());
+        for (HistoryTier tier : HistoryTier.values()) {
+            Assert.assertEquals(describe(bulk.getBuckets(tier)),
+                    describe(single.getBuckets(tier)));
+            Assert.assertEquals(describe(bulkOther.getBuckets(tier)),
+                    describe(other.getBuckets(tier)));
+        }
+    }
+
+    @Test
+    public void cycleRecordingMatchesMinuteByMinute() {
+        HistoryBudget cycleBudget = new HistoryBudget(50);
+        cycleBudget.setRetention(HistoryTier.MINUTE, 30);
+        cycleBudget.setRetention(HistoryTier.FIFTEEN_MINUTES, 3);
+        int[] readings = {4, 9, 2, 7, 7};
+        ReadingCycle cycle = new ReadingCycle(readings, 3);
+        SensorHistory single = new SensorHistory(budget);
+        SensorHistory cycled = new SensorHistory(cycleBudget);
+        int minute = 0;
+        // spans shorter and longer than the cycle and the retention
+        for (int span : new int[] {1, 7, 15, 2, 100, 4000, 13}) {
+            for (int i = 0; i < span; i++) {
+                single.record(cycle.readingAt(minute + i));
+            }
+            cycled.record(cycle, span);
+            minute += span;
+            Assert.assertEquals(cycled.getMinutesRecorded(), minute);
+            for (HistoryTier tier : HistoryTier.values()) {
+                Assert.assertEquals(describe(cycled.getBuckets(tier)),
+                        describe(single.getBuckets(tier)));
+            }
+        }
+        Assert.assertEquals(cycleBudget.getRawReadingCount(),
+                budget.getRawReadingCount());
+    }
+
+    private static String describe(List<HistoryBucket> buckets) {
+        StringBuilder builder = new StringBuilder();
+        for (HistoryBucket bucket : buckets) {
+            builder.append(bucket.getStartMinute()).append(' ')
+                    .append(bucket.getMin()).append(' ')
+                    .append(bucket.getMax()).append(' ')
+                    .append(bucket.getAverage()).append(' ')
+                    .append(bucket.getCount()).append('\n');
+        }
+        return builder.toString();
+    }
+}
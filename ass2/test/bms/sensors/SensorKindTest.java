@@ -0,0 +1,39 @@
+package bms.sensors;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SensorKindTest {
+
+    @Test
+    public void builtInKinds() {
+        Assert.assertEquals(SensorKind.forName("CarbonDioxideSensor"),
+                SensorKind.CO2);
+        Assert.assertEquals(SensorKind.forName("TemperatureSensor"),
+                SensorKind.TEMPERATURE);
+        Assert.assertNull(SensorKind.forName("HumiditySensor"));
+        Assert.assertEquals(new NoiseSensor(new int[] {50}, 1).getKind(),
+                SensorKind.NOISE);
+        for (int i = 0; i < SensorKind.count(); i++) {
+            Assert.assertEquals(SensorKind.values().get(i).getId(), i);
+        }
+    }
+
+    @Test
+    public void decode() {
+        Sensor sensor = SensorKind.OCCUPANCY.decode(
+                new String[] {"5,6,7", "2", "30"});
+        Assert.assertEquals(sensor, new OccupancySensor(
+                new int[] {5, 6, 7}, 2, 30));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void decodeTooFewFields() {
+        SensorKind.CO2.decode(new String[] {"700,800", "2", "600"});
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void registerDuplicateName() {
+        SensorKind.register("NoiseSensor", 2, fields -> null);
+    }
+}
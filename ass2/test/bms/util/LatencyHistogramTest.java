@@ -0,0 +1,77 @@
+package bms.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void emptyHistogram() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Assert.assertEquals(histogram.getCount(), 0);
+        Assert.assertEquals(histogram.getMin(), 0);
+        Assert.assertEquals(histogram.getValueAtPercentile(99), 0);
+    }
+
+    @Test
+    public void smallValuesAreExact() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 20; i++) {
+            histogram.record(i);
+        }
+        histogram.record(-5);
+        Assert.assertEquals(histogram.getMin(), 0);
+        Assert.assertEquals(histogram.getMax(), 20);
+        Assert.assertEquals(histogram.getValueAtPercentile(50), 10);
+        Assert.assertEquals(histogram.getValueAtPercentile(100), 20);
+        Assert.assertEquals(histogram.getMean(), 10, 1e-9);
+    }
+
+    @Test
+    public void percentilesWithinPrecision() {
+        Random random = new Random(3);
+        long[] values = new long[10000];
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < values.length; i++) {
+            values[i] = (long) Math.exp(random.nextDouble() * 25);
+            histogram.record(values[i]);
+        }
+        Arrays.sort(values);
+        for (double percentile : new double[] {1, 25, 50, 90, 99, 99.9}) {
+            long exact = values[(int) Math.ceil(percentile / 100
+                    * values.length) - 1];
+            long estimate = histogram.getValueAtPercentile(percentile);
+            Assert.assertTrue(estimate >= exact);
+            Assert.assertTrue(estimate <= exact + exact / 32);
+        }
+        Assert.assertEquals(histogram.getValueAtPercentile(100),
+                values[values.length - 1]);
+    }
+
+    @Test
+    public void mergedHistogramsMatchCombined() {
+        LatencyHistogram first = new LatencyHistogram();
+        LatencyHistogram second = new LatencyHistogram();
+        LatencyHistogram combined = new LatencyHistogram();
+        for (long value = 1; value < 1_000_000; value *= 3) {
+            (value % 2 == 0 ? first : second).record(value);
+            combined.record(value);
+        }
+        first.add(second);
+        Assert.assertEquals(first.getCount(), combined.getCount());
+        Assert.assertEquals(first.getTotal(), combined.getTotal());
+        Assert.assertEquals(first.getMin(), combined.getMin());
+        Assert.assertEquals(first.getValueAtPercentile(75),
+                combined.getValueAtPercentile(75));
+        first.reset();
+        Assert.assertEquals(first.getCount(), 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void percentileOutOfRange() {
+        new LatencyHistogram().getValueAtPercentile(101);
+    }
+}
@@ -0,0 +1,96 @@
+package bms.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+public class QuantileSketchTest {
+
+    @Test
+    public void emptySketch() {
+        QuantileSketch sketch = new QuantileSketch();
+        Assert.assertEquals(sketch.getCount(), 0);
+        Assert.assertEquals(sketch.getPercentile(50), 0);
+    }
+
+    @Test
+    public void smallValuesAreExact() {
+        QuantileSketch sketch = new QuantileSketch();
+        for (int i = 1; i <= 100; i++) {
+            sketch.add(i);
+        }
+        Assert.assertEquals(sketch.getPercentile(50), 50);
+        Assert.assertEquals(sketch.getPercentile(95), 95);
+        Assert.assertEquals(sketch.getPercentile(100), 100);
+        Assert.assertEquals(sketch.getQuantile(0), 1);
+    }
+
+    @Test
+    public void replaceAndRemove() {
+        QuantileSketch sketch = new QuantileSketch();
+        sketch.add(10);
+        sketch.add(20);
+        sketch.add(30);
+        sketch.replace(10, 40);
+        Assert.assertEquals(sketch.getQuantile(0), 20);
+        sketch.remove(40);
+        Assert.assertEquals(sketch.getCount(), 2);
+        Assert.assertEquals(sketch.getQuantile(1), 30);
+    }
+
+    @Test
+    public void replacementsBetweenReads() {
+        QuantileSketch sketch = new QuantileSketch();
+        sketch.add(10);
+        sketch.add(20);
+        Assert.assertEquals(sketch.getQuantile(1), 20);
+        // back and forth many times without a read, then changed for good
+        for (int i = 0; i < 10000; i++) {
+            sketch.replace(20, 30);
+            sketch.replace(30, 20);
+        }
+        sketch.replace(10, 40);
+        Assert.assertEquals(sketch.getQuantile(0), 20);
+        Assert.assertEquals(sketch.getQuantile(1), 40);
+        sketch.clear();
+        sketch.add(5);
+        Assert.assertEquals(sketch.getQuantile(1), 5);
+    }
+
+    @Test
+    public void largeValuesWithinRelativeError() {
+        Random random = new Random(7);
+        QuantileSketch sketch = new QuantileSketch();
+        int[] values = new int[5000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = random.nextInt(5000);
+            sketch.add(values[i]);
+        }
+        Arrays.sort(values);
+        for (double q : new double[] {0.5, 0.95, 0.99}) {
+            int expected = values[(int) Math.ceil(q * values.length) - 1];
+            Assert.assertEquals(sketch.getQuantile(q), expected,
+                    expected / 128.0);
+        }
+    }
+
+    @Test
+    public void merge() {
+        QuantileSketch low = new QuantileSketch();
+        QuantileSketch high = new QuantileSketch();
+        for (int i = 0; i < 50; i++) {
+            low.add(i);
+            high.add(i + 50);
+        }
+        low.merge(high);
+        Assert.assertEquals(low.getCount(), 100);
+        Assert.assertEquals(low.getPercentile(75), 74);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeValue() {
+        new QuantileSketch().add(-1);
+    }
+}
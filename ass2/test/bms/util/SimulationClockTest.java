@@ -0,0 +1,98 @@
+package bms.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class SimulationClockTest {
+
+    private final List<Integer> runs = new ArrayList<>();
+
+    private SimulationClock createClock(OverrunPolicy policy) {
+        SimulationClock clock = new SimulationClock(100, runs::add);
+        clock.setPolicy(policy);
+        clock.advance(0);
+        return clock;
+    }
+
+    @Test
+    public void onTimeRunsOneMinutePerInterval() {
+        SimulationClock clock = createClock(OverrunPolicy.CATCH_UP);
+        Assert.assertEquals(clock.advance(50), 0);
+        Assert.assertEquals(clock.advance(100), 1);
+        Assert.assertEquals(clock.advance(160), 0);
+        Assert.assertEquals(clock.advance(210), 1);
+        Assert.assertEquals(runs, Arrays.asList(1, 1));
+        Assert.assertEquals(clock.getOverrunCount(), 0);
+        Assert.assertEquals(clock.getMinutesPerSecond(200), 1e7, 1e-6);
+    }
+
+    @Test
+    public void catchUpBatchesMissedMinutes() {
+        SimulationClock clock = createClock(OverrunPolicy.CATCH_UP);
+        clock.setCatchUpLimit(3);
+        Assert.assertEquals(clock.advance(550), 3);
+        Assert.assertEquals(clock.getBacklog(), 2);
+        Assert.assertEquals(clock.advance(560), 2);
+        Assert.assertEquals(clock.getBacklog(), 0);
+        Assert.assertEquals(clock.advance(600), 1);
+        Assert.assertEquals(runs, Arrays.asList(3, 2, 1));
+        Assert.assertEquals(clock.getMinutesRun(), 6);
+        Assert.assertEquals(clock.getOverrunCount(), 2);
+        Assert.assertEquals(clock.getMinutesCaughtUp(), 3);
+    }
+
+    @Test
+    public void catchUpBacklogIsBounded() {
+        SimulationClock clock = createClock(OverrunPolicy.CATCH_UP);
+        clock.setCatchUpLimit(3);
+        Assert.assertEquals(clock.advance(1050), 3);
+        Assert.assertEquals(clock.getBacklog(), 3);
+        Assert.assertEquals(clock.getMinutesDropped(), 4);
+        Assert.assertEquals(clock.advance(1060), 3);
+        Assert.assertEquals(clock.getBacklog(), 0);
+        Assert.assertEquals(clock.advance(1099), 0);
+        Assert.assertEquals(clock.advance(1100), 1);
+        Assert.assertEquals(clock.getMinutesRun(), 7);
+    }
+
+    @Test
+    public void dropSkipsMissedMinutes() {
+        SimulationClock clock = createClock(OverrunPolicy.DROP);
+        Assert.assertEquals(clock.advance(450), 1);
+        Assert.assertEquals(clock.getMinutesDropped(), 3);
+        // still aligned to the wall clock
+        Assert.assertEquals(clock.advance(499), 0);
+        Assert.assertEquals(clock.advance(500), 1);
+        Assert.assertEquals(clock.getOverrunCount(), 1);
+    }
+
+    @Test
+    public void slowDownRestartsFromNow() {
+        SimulationClock clock = createClock(OverrunPolicy.SLOW_DOWN);
+        Assert.assertEquals(clock.advance(450), 1);
+        Assert.assertEquals(clock.advance(500), 0);
+        Assert.assertEquals(clock.advance(550), 1);
+        Assert.assertEquals(clock.getMinutesDropped(), 0);
+        Assert.assertEquals(clock.getOverrunCount(), 1);
+        Assert.assertEquals(clock.getMinutesPerSecond(550), 2 * 1e9 / 550,
+                1e-6);
+    }
+
+    @Test
+    public void resyncSkipsPausedTime() {
+        SimulationClock clock = createClock(OverrunPolicy.CATCH_UP);
+        clock.resync(1000);
+        Assert.assertEquals(clock.advance(1050), 0);
+        Assert.assertEquals(clock.advance(1100), 1);
+        Assert.assertEquals(clock.getOverrunCount(), 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void catchUpLimitMustBePositive() {
+        createClock(OverrunPolicy.CATCH_UP).setCatchUpLimit(0);
+    }
+}
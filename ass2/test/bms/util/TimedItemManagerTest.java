@@ -0,0 +1,589 @@
+package bms.util;
+
+import bms.building.Building;
+import bms.floor.Floor;
+import bms.floor.MaintenanceSchedule;
+import bms.hazardevaluation.HazardMonitor;
+import bms.hazardevaluation.RuleBasedHazardEvaluator;
+import bms.room.Room;
+import bms.room.RoomType;
+import bms.sensors.AnomalyEvent;
+import bms.sensors.AnomalyMonitor;
+import bms.sensors.CarbonDioxideSensor;
+import bms.sensors.HazardSensor;
+import bms.sensors.HistoryBudget;
+import bms.sensors.HistoryTier;
+import bms.sensors.NoiseSensor;
+import bms.sensors.OccupancySensor;
+import bms.sensors.TemperatureSensor;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+public class TimedItemManagerTest {
+
+    private TimedItemManager manager;
+
+    @Before
+    public void createManager() {
+        manager = new TimedItemManager();
+    }
+
+    @After
+    public void disposeManager() {
+        manager.dispose();
+    }
+
+    /**
+     * Timed item changing every given number of minutes, recording the
+     * minutes passed each time it is woken.
+     */
+    private static class PeriodicItem implements TimedItem {
+        private final int period;
+        private final List<Integer> wakes = new ArrayList<>();
+        private int elapsed;
+
+        PeriodicItem(TimedItemManager manager, int period) {
+            this.period = period;
+            manager.registerTimedItem(this);
+        }
+
+        @Override
+        public void elapseOneMinute() {
+            elapseMinutes(1);
+        }
+
+        @Override
+        public int getMinutesUntilNextChange() {
+            return period - elapsed % period;
+        }
+
+        @Override
+        public void elapseMinutes(int minutes) {
+            wakes.add(minutes);
+            elapsed += minutes;
+        }
+    }
+
+    /**
+     * Timed item run in the given phase every minute, logging its name
+     * each time it is run.
+     */
+    private static class PhasedItem implements TimedItem {
+        private final String name;
+        private final TickPhase phase;
+        private final List<String> log;
+
+        PhasedItem(TimedItemManager manager, String name, TickPhase phase,
+                   List<String> log) {
+            this.name = name;
+            this.phase = phase;
+            this.log = log;
+            manager.registerTimedItem(this);
+        }
+
+        @Override
+        public void elapseOneMinute() {
+            log.add(name);
+        }
+
+        @Override
+        public TickPhase getTickPhase() {
+            return phase;
+        }
+    }
+
+    private void elapse(int minutes) {
+        for (int i = 0; i < minutes; i++) {
+            manager.elapseOneMinute();
+        }
+    }
+
+    @Test
+    public void itemsWokenOnlyWhenChanging() {
+        PeriodicItem item = new PeriodicItem(manager, 5);
+        elapse(12);
+        Assert.assertEquals(item.wakes, Arrays.asList(5, 5));
+        Assert.assertEquals(item.elapsed, 10);
+    }
+
+    @Test
+    public void itemsRunPhaseByPhase() {
+        List<String> log = new ArrayList<>();
+        new PhasedItem(manager, "schedule", TickPhase.SCHEDULES, log);
+        new PhasedItem(manager, "monitor", TickPhase.EVALUATORS, log);
+        new PhasedItem(manager, "first", TickPhase.SENSORS, log);
+        new PhasedItem(manager, "second", TickPhase.SENSORS, log);
+        elapse(2);
+        Assert.assertEquals(log, Arrays.asList(
+                "first", "second", "monitor", "schedule",
+                "first", "second", "monitor", "schedule"));
+    }
+
+    @Test
+    public void longDelaysCascade() {
+        PeriodicItem hourly = new PeriodicItem(manager, 300);
+        PeriodicItem rare = new PeriodicItem(manager, 70000);
+        elapse(299);
+        Assert.assertTrue(hourly.wakes.isEmpty());
+        elapse(1);
+        Assert.assertEquals(hourly.wakes, Arrays.asList(300));
+        elapse(69699);
+        Assert.assertTrue(rare.wakes.isEmpty());
+        elapse(1);
+        Assert.assertEquals(rare.wakes, Arrays.asList(70000));
+        Assert.assertEquals(hourly.elapsed, 69900);
+    }
+
+    @Test
+    public void wakeCatchesUp() {
+        PeriodicItem item = new PeriodicItem(manager, 10);
+        elapse(3);
+        manager.wake(item);
+        Assert.assertEquals(item.wakes, Arrays.asList(3));
+        elapse(7);
+        Assert.assertEquals(item.wakes, Arrays.asList(3, 7));
+    }
+
+    @Test
+    public void sleepingSensorMatchesEveryMinute() {
+        int[] readings = {40, 55, 60, 70};
+        NoiseSensor scheduled = new NoiseSensor(readings, 3);
+        manager.registerTimedItem(scheduled);
+        elapse(40);
+        // taken off the singleton manager, so only ticked by hand
+        NoiseSensor manual = new NoiseSensor(readings.clone(), 3);
+        TimedItemManager.getInstance().unregisterTimedItem(manual);
+        for (int i = 0; i < 40; i++) {
+            manual.elapseOneMinute();
+        }
+        Assert.assertEquals(scheduled.getTimeElapsed(), 40);
+        Assert.assertEquals(scheduled.getCurrentReading(),
+                manual.getCurrentReading());
+        Assert.assertEquals(scheduled.getHistory().getMinutesRecorded(),
+                manual.getHistory().getMinutesRecorded());
+    }
+
+    @Test
+    public void equalsDoesNotWakeSensors() {
+        NoiseSensor asleep = new NoiseSensor(new int[] {40, 50}, 5);
+        NoiseSensor twin = new NoiseSensor(new int[] {40, 50}, 5);
+        manager.registerTimedItem(asleep);
+        manager.registerTimedItem(twin);
+        elapse(3);
+        // neither sensor is run before its next reading
+        Assert.assertEquals(asleep, twin);
+        Assert.assertEquals(asleep.hashCode(), twin.hashCode());
+        Assert.assertEquals(asleep.getStoredTimeElapsed(), 0);
+        Assert.assertEquals(asleep.getTimeElapsed(), 3);
+        Assert.assertEquals(asleep.getStoredTimeElapsed(), 3);
+        Assert.assertNotEquals(asleep, twin);
+    }
+
+    @Test
+    public void listenersSeeMinuteOfReading() {
+        NoiseSensor sensor = new NoiseSensor(new int[] {40, 55}, 2);
+        manager.registerTimedItem(sensor);
+        List<Integer> minutes = new ArrayList<>();
+        sensor.addReadingListener((updated, previousReading) ->
+                minutes.add(updated.getStoredTimeElapsed()));
+        elapse(7);
+        Assert.assertEquals(minutes, Arrays.asList(2, 4, 6));
+    }
+
+    @Test
+    public void maintenancePausedByFireDrill() {
+        Room first = new Room(101, RoomType.STUDY, 5);
+        Room second = new Room(102, RoomType.STUDY, 5);
+        MaintenanceSchedule schedule =
+                new MaintenanceSchedule(Arrays.asList(first, second));
+        manager.registerTimedItem(schedule);
+        elapse(3);
+        first.setFireDrill(true);
+        elapse(4);
+        Assert.assertEquals(schedule.getTimeElapsedCurrentRoom(), 3);
+        first.setFireDrill(false);
+        elapse(1);
+        Assert.assertEquals(schedule.getTimeElapsedCurrentRoom(), 4);
+        Assert.assertSame(schedule.getCurrentRoom(), first);
+        elapse(1);
+        Assert.assertSame(schedule.getCurrentRoom(), second);
+        Assert.assertEquals(schedule.getTimeElapsedCurrentRoom(), 0);
+    }
+
+    @Test
+    public void independentManagersKeepOwnClocks() throws Exception {
+        Building fast = new Building("Fast", null);
+        Building slow = new Building("Slow", null);
+        Floor fastFloor = new Floor(1, 10, 10);
+        Floor slowFloor = new Floor(1, 10, 10);
+        fast.addFloor(fastFloor);
+        slow.addFloor(slowFloor);
+        Room fastRoom = new Room(101, RoomType.OFFICE, 20);
+        Room slowRoom = new Room(101, RoomType.OFFICE, 20);
+        fastFloor.addRoom(fastRoom);
+        slowFloor.addRoom(slowRoom);
+        NoiseSensor fastSensor = new NoiseSensor(new int[] {40, 50}, 1);
+        NoiseSensor slowSensor = new NoiseSensor(new int[] {40, 50}, 1);
+        fastRoom.addSensor(fastSensor);
+        slowRoom.addSensor(slowSensor);
+        Assert.assertSame(TimedItemManager.getManager(fastSensor),
+                fast.getTimeManager());
+
+        for (int i = 0; i < 10; i++) {
+            fast.getTimeManager().elapseOneMinute();
+        }
+        slow.getTimeManager().elapseOneMinute();
+        elapse(5);
+        Assert.assertEquals(fastSensor.getTimeElapsed(), 10);
+        Assert.assertEquals(slowSensor.getTimeElapsed(), 1);
+        fast.decommission();
+        slow.decommission();
+    }
+
+    @Test
+    public void itemsMoveBetweenManagers() {
+        TimedItemManager campus = new TimedItemManager();
+        TimedItemManager first = new TimedItemManager();
+        TimedItemManager second = new TimedItemManager();
+        campus.addChild(first);
+        campus.addChild(second);
+        PeriodicItem item = new PeriodicItem(first, 4);
+        campus.elapseOneMinute();
+        campus.elapseOneMinute();
+        elapse(10);
+        Assert.assertTrue(item.wakes.isEmpty());
+
+        second.registerTimedItem(item);
+        Assert.assertEquals(item.wakes, Arrays.asList(2));
+        Assert.assertEquals(first.getItemCount(), 0);
+        Assert.assertEquals(second.getItemCount(), 1);
+        campus.elapseOneMinute();
+        campus.elapseOneMinute();
+        Assert.assertEquals(item.wakes, Arrays.asList(2, 2));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void managerCannotRunItself() {
+        TimedItemManager campus = new TimedItemManager();
+        TimedItemManager building = new TimedItemManager();
+        campus.addChild(building);
+        building.addChild(campus);
+    }
+
+    @Test
+    public void unregisteredItemsStopRunning() {
+        PeriodicItem item = new PeriodicItem(manager, 2);
+        elapse(3);
+        manager.unregisterTimedItem(item);
+        Assert.assertEquals(item.wakes, Arrays.asList(2, 1));
+        Assert.assertNull(TimedItemManager.getManager(item));
+        elapse(5);
+        Assert.assertEquals(item.elapsed, 3);
+    }
+
+    @Test
+    public void replacedScheduleIsUnregistered() throws Exception {
+        Floor floor = new Floor(1, 10, 10);
+        floor.setTimeManager(manager);
+        Room first = new Room(101, RoomType.STUDY, 10);
+        Room second = new Room(102, RoomType.STUDY, 10);
+        floor.addRoom(first);
+        floor.addRoom(second);
+        floor.createMaintenanceSchedule(Arrays.asList(first, second));
+        MaintenanceSchedule old = floor.getMaintenanceSchedule();
+        elapse(2);
+        floor.createMaintenanceSchedule(Arrays.asList(second, first));
+        Assert.assertNull(TimedItemManager.getManager(old));
+        elapse(2);
+        Assert.assertEquals(old.getTimeElapsedCurrentRoom(), 2);
+        Assert.assertEquals(
+                floor.getMaintenanceSchedule().getTimeElapsedCurrentRoom(), 2);
+    }
+
+    @Test
+    public void decommissionedBuildingStopsRunning() throws Exception {
+        TimedItemManager campus = new TimedItemManager();
+        Building building = createBuilding(campus);
+        // the sensor, the schedule and the campus's health monitor
+        Assert.assertEquals(campus.getLiveItemCount(), 3);
+        building.decommission();
+        Assert.assertEquals(campus.getLiveItemCount(), 1);
+        Assert.assertNull(building.getTimeManager().getParent());
+    }
+
+    @Test
+    public void orphanedBuildingsAreDisposed() throws Exception {
+        TimedItemManager campus = new TimedItemManager();
+        createBuilding(campus);
+        Assert.assertEquals(campus.getLiveItemCount(), 3);
+        for (int i = 0; i < 100 && campus.getOrphanedItemCount() == 0; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        // the campus's health monitor is not the building's
+        Assert.assertEquals(campus.getOrphanedItemCount(), 2);
+        Assert.assertEquals(campus.getLiveItemCount(), 1);
+        // the reference may be queued shortly after it is cleared
+        for (int i = 0; i < 100 && campus.getOrphanedItemCount() > 0; i++) {
+            campus.elapseOneMinute();
+            Thread.sleep(10);
+        }
+        Assert.assertEquals(campus.getOrphanedItemCount(), 0);
+    }
+
+    private static Building createBuilding(TimedItemManager campus)
+            throws Exception {
+        Building building = new Building("Orphan", campus);
+        Floor floor = new Floor(1, 10, 10);
+        building.addFloor(floor);
+        Room first = new Room(101, RoomType.STUDY, 10);
+        Room second = new Room(102, RoomType.STUDY, 10);
+        floor.addRoom(first);
+        floor.addRoom(second);
+        first.addSensor(new NoiseSensor(new int[] {40}, 1));
+        floor.createMaintenanceSchedule(Arrays.asList(first, second));
+        return building;
+    }
+
+    @Test
+    public void fastForwardSkipsIdleMinutes() {
+        TimedItemManager campus = new TimedItemManager();
+        TimedItemManager building = new TimedItemManager();
+        campus.addChild(building);
+        PeriodicItem daily = new PeriodicItem(building, 1440);
+        PeriodicItem rare = new PeriodicItem(campus, 100000);
+        Assert.assertEquals(campus.getMinutesUntilNextChange(), 1440);
+
+        campus.elapseMinutes(365 * 1440);
+        Assert.assertEquals(campus.getCurrentMinute(), 365 * 1440);
+        Assert.assertEquals(building.getCurrentMinute(), 365 * 1440);
+        Assert.assertEquals(daily.wakes.size(), 365);
+        Assert.assertEquals(daily.elapsed, 365 * 1440);
+        Assert.assertEquals(rare.elapsed, 500000);
+    }
+
+    @Test
+    public void fastForwardMatchesEveryMinute() throws Exception {
+        TimedItemManager stepped = new TimedItemManager();
+        TimedItemManager skipped = new TimedItemManager();
+        List<NoiseSensor> steppedSensors = new ArrayList<>();
+        List<NoiseSensor> skippedSensors = new ArrayList<>();
+        List<MaintenanceSchedule> steppedSchedules = new ArrayList<>();
+        List<MaintenanceSchedule> skippedSchedules = new ArrayList<>();
+        List<Building> steppedBuildings =
+                createCampus(stepped, steppedSensors, steppedSchedules);
+        List<Building> skippedBuildings =
+                createCampus(skipped, skippedSensors, skippedSchedules);
+
+        for (int i = 0; i < 70000; i++) {
+            stepped.elapseOneMinute();
+        }
+        skipped.elapseMinutes(70000);
+        for (int i = 0; i < steppedSensors.size(); i++) {
+            Assert.assertEquals(steppedSensors.get(i).getTimeElapsed(),
+                    skippedSensors.get(i).getTimeElapsed());
+            Assert.assertEquals(steppedSensors.get(i).getCurrentReading(),
+                    skippedSensors.get(i).getCurrentReading());
+            Assert.assertEquals(steppedSchedules.get(i).toString(),
+                    skippedSchedules.get(i).toString());
+            Assert.assertEquals(skippedBuildings.get(i).getTimeManager()
+                    .getCurrentMinute(), steppedBuildings.get(i)
+                    .getTimeManager().getCurrentMinute());
+        }
+    }
+
+    private static List<Building> createCampus(TimedItemManager campus,
+            List<NoiseSensor> sensors, List<MaintenanceSchedule> schedules)
+            throws Exception {
+        // buildings are kept, as their items are disposed of once collected
+        List<Building> buildings = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            Building building = new Building("Building " + i, campus);
+            buildings.add(building);
+            Floor floor = new Floor(1, 10, 10);
+            building.addFloor(floor);
+            Room first = new Room(101, RoomType.OFFICE, 20 + i);
+            Room second = new Room(102, RoomType.LABORATORY, 10);
+            floor.addRoom(first);
+            floor.addRoom(second);
+            NoiseSensor sensor = new NoiseSensor(
+                    new int[] {40, 45 + i, 50}, 5 - i);
+            second.addSensor(sensor);
+            sensors.add(sensor);
+            floor.createMaintenanceSchedule(Arrays.asList(first, second));
+            schedules.add(floor.getMaintenanceSchedule());
+        }
+        return buildings;
+    }
+
+    private static List<String> simulateCampus(int threads) throws Exception {
+        AnomalyMonitor anomalies = new AnomalyMonitor(1000);
+        List<NoiseSensor> sensors = new ArrayList<>();
+        List<MaintenanceSchedule> schedules = new ArrayList<>();
+        TimedItemManager campus = new TimedItemManager();
+        List<Building> buildings = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            Building building = new Building("Building " + i, campus);
+            buildings.add(building);
+            Floor floor = new Floor(1, 10, 10);
+            building.addFloor(floor);
+            Room first = new Room(101, RoomType.OFFICE, 20);
+            Room second = new Room(102, RoomType.STUDY, 10 + i);
+            floor.addRoom(first);
+            floor.addRoom(second);
+            NoiseSensor sensor = new NoiseSensor(
+                    new int[] {40 + i, 41, 42, 40, 95, 41, 40, 43}, 1 + i % 3);
+            first.addSensor(sensor);
+            anomalies.monitor(sensor);
+            sensors.add(sensor);
+            floor.createMaintenanceSchedule(Arrays.asList(first, second));
+            schedules.add(floor.getMaintenanceSchedule());
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        campus.setParallelPool(pool);
+        try {
+            for (int i = 0; i < 90; i++) {
+                campus.elapseOneMinute();
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        List<String> outcome = new ArrayList<>();
+        for (AnomalyEvent event : anomalies.drain()) {
+            int index = 0;
+            while (sensors.get(index) != event.getSensor()) {
+                index++;
+            }
+            outcome.add(index + " " + event.getType() + " "
+                    + event.getMinute() + " " + event.getReading());
+        }
+        for (int i = 0; i < sensors.size(); i++) {
+            outcome.add(sensors.get(i).getCurrentReading() + " "
+                    + sensors.get(i).getTimeElapsed() + " "
+                    + schedules.get(i) + " "
+                    + buildings.get(i).getTimeManager().getCurrentMinute());
+        }
+        return outcome;
+    }
+
+    @Test
+    public void parallelTickIsDeterministic() throws Exception {
+        List<String> single = simulateCampus(1);
+        List<String> several = simulateCampus(4);
+        Assert.assertEquals(single, several);
+        Assert.assertTrue(single.get(0).contains("RATE_OF_CHANGE"));
+    }
+
+    @Test
+    public void sampledMetricsCoverSubtree() throws Exception {
+        TimedItemManager campus = new TimedItemManager();
+        TimedItemManager building = new TimedItemManager();
+        campus.addChild(building);
+        PeriodicItem item = new PeriodicItem(building, 2);
+        NoiseSensor sensor = new NoiseSensor(new int[] {40, 50}, 1);
+        building.registerTimedItem(sensor);
+
+        campus.elapseOneMinute();
+        Assert.assertEquals(campus.getItemsRun(), 0);
+        campus.setSampleInterval(1);
+        Assert.assertEquals(building.getSampleInterval(), 1);
+        for (int i = 0; i < 4; i++) {
+            campus.elapseOneMinute();
+        }
+        // the item is run every other minute, the sensor every minute
+        Assert.assertEquals(campus.getItemsRun(), 6);
+        Assert.assertEquals(campus.getItemLatency().getCount(), 6);
+        Assert.assertEquals(campus.getTickLatency().getCount(), 4);
+        Assert.assertEquals(building.getTickLatency().getCount(), 4);
+        Assert.assertEquals(campus.getClassLatencies()
+                .get(NoiseSensor.class).getCount(), 4);
+        Assert.assertEquals(campus.getClassLatencies()
+                .get(PeriodicItem.class).getCount(), 2);
+        Assert.assertTrue(campus.getItemsRunPerSecond() > 0);
+
+        campus.setSampleInterval(3);
+        campus.resetMetrics();
+        for (int i = 0; i < 4; i++) {
+            campus.elapseOneMinute();
+        }
+        Assert.assertEquals(campus.getItemsRun(), 6);
+        Assert.assertEquals(campus.getItemLatency().getCount(), 2);
+        campus.setSampleInterval(0);
+        campus.elapseOneMinute();
+        Assert.assertEquals(campus.getItemsRun(), 6);
+        building.dispose();
+    }
+
+    @Test
+    public void steadyStateTickDoesNotAllocate() throws Exception {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean)
+                        ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(threads.isThreadAllocatedMemorySupported());
+        HistoryBudget budget = HistoryBudget.getInstance();
+        int rawBudget = budget.getRawBudget();
+        int[] retention = new int[HistoryTier.values().length];
+        for (HistoryTier tier : HistoryTier.values()) {
+            retention[tier.ordinal()] = budget.getRetention(tier);
+            budget.setRetention(tier, 4);
+        }
+        budget.setRawBudget(64);
+        try {
+            TimedItemManager campus = new TimedItemManager();
+            HazardMonitor monitor = new HazardMonitor();
+            campus.registerTimedItem(monitor);
+            Building building = new Building("Steady", campus);
+            Floor floor = new Floor(1, 20, 20);
+            building.addFloor(floor);
+            List<Room> rooms = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                Room room = new Room(101 + i, RoomType.OFFICE, 20);
+                floor.addRoom(room);
+                List<HazardSensor> sensors = Arrays.asList(
+                        new NoiseSensor(new int[] {50, 55, 60, 55}, 1 + i),
+                        new TemperatureSensor(new int[] {20, 22, 24, 80}),
+                        new CarbonDioxideSensor(new int[] {700, 800, 900},
+                                2, 700, 300),
+                        new OccupancySensor(new int[] {3, 5, 8, 5}, 3, 10));
+                for (HazardSensor sensor : sensors) {
+                    room.addSensor(sensor);
+                }
+                room.setHazardEvaluator(new RuleBasedHazardEvaluator(sensors));
+                monitor.track(room);
+                rooms.add(room);
+            }
+            floor.createMaintenanceSchedule(rooms);
+
+            for (int i = 0; i < 5000; i++) {
+                campus.elapseOneMinute();
+            }
+            long before = threads.getThreadAllocatedBytes(
+                    Thread.currentThread().getId());
+            for (int i = 0; i < 1000; i++) {
+                campus.elapseOneMinute();
+            }
+            long allocated = threads.getThreadAllocatedBytes(
+                    Thread.currentThread().getId()) - before;
+            Assert.assertEquals(allocated, 0);
+            Assert.assertTrue(monitor.getEvaluationCount() > 0);
+            building.decommission();
+            campus.unregisterTimedItem(monitor);
+        } finally {
+            budget.setRawBudget(rawBudget);
+            for (HistoryTier tier : HistoryTier.values()) {
+                budget.setRetention(tier, retention[tier.ordinal()]);
+            }
+        }
+    }
+}